@@ -2,11 +2,20 @@
 package com.github.bubb13.infinityareas;
 
 import com.github.bubb13.infinityareas.game.Game;
+import com.github.bubb13.infinityareas.game.resource.BifFile;
+import com.github.bubb13.infinityareas.game.resource.DecodedResourceCache;
+import com.github.bubb13.infinityareas.game.resource.DecompressedBifCache;
 import com.github.bubb13.infinityareas.game.resource.KeyFile;
+import com.github.bubb13.infinityareas.game.resource.PVRZ;
+import com.github.bubb13.infinityareas.game.resource.ResourceDataCache;
+import com.github.bubb13.infinityareas.game.resource.TIS;
+import com.github.bubb13.infinityareas.gui.region.RenderedChunkSource;
 import com.github.bubb13.infinityareas.misc.InstanceHashMap;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
 import com.github.bubb13.infinityareas.util.FileUtil;
 import com.github.bubb13.infinityareas.util.MiscUtil;
+import com.github.bubb13.infinityareas.util.SettingsUtil;
+import com.google.gson.JsonObject;
 import javafx.application.Application;
 import javafx.event.Event;
 import javafx.event.EventHandler;
@@ -33,6 +42,8 @@ public class GlobalState
 
     private static Path infinityAreasRoot;
     private static Path infinityAreasTemp;
+    private static Path infinityAreasBifCache;
+    private static Path infinityAreasSnapshotCache;
     private static SettingsFile settingsFile;
     private static Game game;
     private static Application application;
@@ -50,8 +61,12 @@ public class GlobalState
     {
         infinityAreasRoot = MiscUtil.findInfinityAreasRoot();
         infinityAreasTemp = infinityAreasRoot.resolve("InfinityAreasTemp");
+        infinityAreasBifCache = infinityAreasRoot.resolve("InfinityAreasCache").resolve("bif");
+        infinityAreasSnapshotCache = infinityAreasRoot.resolve("InfinityAreasCache").resolve("snapshot");
         cleanTemp();
+        DecompressedBifCache.removePartialFiles();
         settingsFile = new SettingsFile(GlobalState.getInfinityAreasRoot().resolve("settings.json"));
+        applyResourceSettings();
         cacheNativePixelFormatType();
         loadInfinityAreasStylesheet();
     }
@@ -63,10 +78,22 @@ public class GlobalState
 
     public static Path getInfinityAreasTemp() throws Exception
     {
-        createTemp();
+        createFolder(infinityAreasTemp);
         return infinityAreasTemp;
     }
 
+    public static Path getInfinityAreasBifCache() throws Exception
+    {
+        createFolder(infinityAreasBifCache);
+        return infinityAreasBifCache;
+    }
+
+    public static Path getInfinityAreasSnapshotCache() throws Exception
+    {
+        createFolder(infinityAreasSnapshotCache);
+        return infinityAreasSnapshotCache;
+    }
+
     public static SettingsFile getSettingsFile()
     {
         return settingsFile;
@@ -77,6 +104,11 @@ public class GlobalState
         return game;
     }
 
+    public static void setGame(final Game game)
+    {
+        GlobalState.game = game;
+    }
+
     public static Stage getPrimaryStage()
     {
         return primaryStage;
@@ -101,7 +133,16 @@ public class GlobalState
     public static TrackedTask<Void> loadGameTask(final KeyFile keyFile)
     {
         final Game game = new Game(keyFile);
-        return game.loadTask().onSucceeded(() -> GlobalState.game = game);
+        return game.loadTask().onSucceeded(() ->
+        {
+            // The previous game's folder watch would otherwise keep running, and its bifs would stay mapped
+            if (GlobalState.game != null && GlobalState.game != game)
+            {
+                GlobalState.game.stopWatching();
+                GlobalState.game.releaseBifMappings();
+            }
+            GlobalState.game = game;
+        });
     }
 
     public static PixelFormat.Type getNativePixelFormatType()
@@ -232,19 +273,38 @@ public class GlobalState
     // Private Static Methods //
     ////////////////////////////
 
-    private static void createTemp() throws Exception
+    private static void createFolder(final Path folderPath) throws Exception
     {
-        if (!Files.isDirectory(infinityAreasTemp))
+        if (!Files.isDirectory(folderPath))
         {
-            if (Files.exists(infinityAreasTemp))
+            if (Files.exists(folderPath))
             {
-                throw new IllegalStateException(String.format("Path \"%s\" should be a folder", infinityAreasTemp));
+                throw new IllegalStateException(String.format("Path \"%s\" should be a folder", folderPath));
             }
 
-            Files.createDirectories(infinityAreasTemp);
+            Files.createDirectories(folderPath);
         }
     }
 
+    private static void applyResourceSettings()
+    {
+        final JsonObject settingsRoot = settingsFile.getRoot();
+        SettingsUtil.attemptApplyBoolean(settingsRoot, "memoryMapBifs", BifFile::setMemoryMapped);
+        SettingsUtil.attemptApplyBoolean(settingsRoot, "bifcRandomAccess", BifFile::setBIFCRandomAccess);
+        SettingsUtil.attemptApplyBoolean(settingsRoot, "bifCacheEnabled", DecompressedBifCache::setEnabled);
+        SettingsUtil.attemptApplyInt(settingsRoot, "bifCacheMaxMegabytes", DecompressedBifCache::setMaxSizeMegabytes);
+        SettingsUtil.attemptApplyInt(settingsRoot, "resourceDataCacheMaxMegabytes",
+            ResourceDataCache::setMaxSizeMegabytes);
+        SettingsUtil.attemptApplyInt(settingsRoot, "decodedResourceCacheMaxMegabytes",
+            DecodedResourceCache::setMaxSizeMegabytes);
+        SettingsUtil.attemptApplyBoolean(settingsRoot, "pvrzRegionalDecoding", PVRZ::setRegionalDecodingEnabled);
+        SettingsUtil.attemptApplyBoolean(settingsRoot, "tisCompressedTiles", TIS::setCompressedTilesEnabled);
+        SettingsUtil.attemptApplyInt(settingsRoot, "renderedChunkCacheMaxMegabytes",
+            RenderedChunkSource::setMaxCacheSizeMegabytes);
+        SettingsUtil.attemptApplyBoolean(settingsRoot, "startupSnapshotEnabled", Game::setStartupSnapshotEnabled);
+        SettingsUtil.attemptApplyBoolean(settingsRoot, "watchGameFolders", Game::setFolderWatchingEnabled);
+    }
+
     private static void loadInfinityAreasStylesheet()
     {
         infinityAreasStylesheet = GlobalState.class.getClassLoader()
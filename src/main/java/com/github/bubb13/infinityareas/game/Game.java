@@ -1,39 +1,75 @@
 
 package com.github.bubb13.infinityareas.game;
 
+import com.github.bubb13.infinityareas.GlobalState;
 import com.github.bubb13.infinityareas.game.resource.BifFile;
+import com.github.bubb13.infinityareas.game.resource.DecodedResourceCache;
 import com.github.bubb13.infinityareas.game.resource.KeyFile;
+import com.github.bubb13.infinityareas.game.resource.ResourceDataCache;
 import com.github.bubb13.infinityareas.game.resource.ResourceIdentifier;
+import com.github.bubb13.infinityareas.game.resource.ResourceKeyTable;
 import com.github.bubb13.infinityareas.gui.dialog.ErrorAlert;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
+import com.github.bubb13.infinityareas.util.DirectoryListingCache;
 import com.github.bubb13.infinityareas.util.FileUtil;
 import com.github.bubb13.infinityareas.util.MiscUtil;
+import com.github.bubb13.infinityareas.util.ParallelUtil;
 import org.apache.commons.configuration2.HierarchicalConfiguration;
 import org.apache.commons.configuration2.INIConfiguration;
 import org.apache.commons.configuration2.tree.ImmutableNode;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Represents an Infinity Engine game installation. Primarily facilitates the reading of game resources.
  */
 public class Game
 {
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    /** The maximum number of bifs that are located and parsed at once */
+    private static final int MAX_BIF_READ_THREADS = 16;
+    /** The minimum number of override files classified by a single parallel task */
+    private static final int MIN_LOOSE_FILES_PER_TASK = 1024;
+
+    /** Whether the resolved game state should be saved to, and restored from, a startup snapshot */
+    private static volatile boolean startupSnapshotEnabled = true;
+    /** Whether the override folder and bif folders are watched for changes after the game is loaded */
+    private static volatile boolean folderWatchingEnabled = false;
+
     ////////////////////
     // Private Fields //
     ////////////////////
@@ -41,6 +77,8 @@ public class Game
     private final Path gameRoot;
     private final KeyFile keyFile;
     private final GameResources resources = new GameResources();
+    /** Guards {@link #bifFiles}, whose elements the folder watcher replaces from its own thread */
+    private final Object bifFilesLock = new Object();
     private BifFile[] bifFiles;
     private Type engineType;
 
@@ -52,6 +90,41 @@ public class Game
     private final ArrayList<Path> aliasCD4 = new ArrayList<>();
     private final ArrayList<Path> aliasCD5 = new ArrayList<>();
     private final ArrayList<Path> aliasCD6 = new ArrayList<>();
+    private Path classicINIPath;
+
+    private Path overridePath;
+    private GameSnapshot.FileStamp overrideStamp;
+
+    private final CopyOnWriteArrayList<Consumer<List<ResourceChange>>> resourceChangeListeners
+        = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<Runnable> keyFileChangeListeners = new CopyOnWriteArrayList<>();
+    private FolderWatch folderWatch;
+    /** The stamps of the files written by {@link #writeFile}, keyed by normalized absolute path. Guarded by `this`. */
+    private final HashMap<Path, GameSnapshot.FileStamp> ownWrites = new HashMap<>();
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static boolean isStartupSnapshotEnabled()
+    {
+        return startupSnapshotEnabled;
+    }
+
+    public static void setStartupSnapshotEnabled(final boolean startupSnapshotEnabled)
+    {
+        Game.startupSnapshotEnabled = startupSnapshotEnabled;
+    }
+
+    public static boolean isFolderWatchingEnabled()
+    {
+        return folderWatchingEnabled;
+    }
+
+    public static void setFolderWatchingEnabled(final boolean folderWatchingEnabled)
+    {
+        Game.folderWatchingEnabled = folderWatchingEnabled;
+    }
 
     /////////////////////////
     // Public Constructors //
@@ -102,7 +175,7 @@ public class Game
 
     public Iterable<Resource> getResources()
     {
-        return MiscUtil.readOnlyIterable(resources.resources.values());
+        return resources.getResources();
     }
 
     public Iterable<Resource> getResourcesOfType(final short numericType)
@@ -125,35 +198,163 @@ public class Game
         return this.resources.getResource(identifier);
     }
 
+    /**
+     * Looks up a resource by its packed resref (see {@link ResourceIdentifier#packResref(String)}) without
+     * allocating, once the resource's view has been created.
+     */
+    public Resource getResource(final long packedResref, final short numericType)
+    {
+        return this.resources.getResource(packedResref, numericType);
+    }
+
     public Type getEngineType()
     {
         return engineType;
     }
 
+    /**
+     * Registers a listener that is called with the resources that were added, modified, or removed by the folder
+     * watcher (see {@link #startWatching()}). Listeners are called on the watcher thread.
+     */
+    public void addResourceChangeListener(final Consumer<List<ResourceChange>> listener)
+    {
+        resourceChangeListeners.add(listener);
+    }
+
+    public void removeResourceChangeListener(final Consumer<List<ResourceChange>> listener)
+    {
+        resourceChangeListeners.remove(listener);
+    }
+
+    /**
+     * Registers a listener that is called when the folder watcher sees the key file change. The key file indexes
+     * every bif resource, so the loaded resources can't be updated in place, and the game should be loaded again.
+     * Listeners are called on the watcher thread.
+     */
+    public void addKeyFileChangeListener(final Runnable listener)
+    {
+        keyFileChangeListeners.add(listener);
+    }
+
+    public void removeKeyFileChangeListener(final Runnable listener)
+    {
+        keyFileChangeListeners.remove(listener);
+    }
+
+    /**
+     * Writes a file on behalf of the application. The write is remembered, so that the folder watcher reports the
+     * resulting change as the application's own (see {@link ResourceChange#ownWrite()}).
+     */
+    public synchronized void writeFile(final Path path, final byte[] data) throws IOException
+    {
+        Files.write(path, data);
+        ownWrites.put(path.toAbsolutePath().normalize(), GameSnapshot.FileStamp.of(path));
+    }
+
+    /**
+     * Starts watching the override folder, the folders that hold the game's bifs, and the key file. Override and
+     * bif changes are applied to the loaded resources as they happen, without a full reload; key file changes are
+     * passed to the key file change listeners. Loading the game again restarts the watch.
+     */
+    public synchronized void startWatching() throws IOException
+    {
+        stopWatching();
+        folderWatch = new FolderWatch();
+    }
+
+    public synchronized void stopWatching()
+    {
+        if (folderWatch != null)
+        {
+            folderWatch.watcher.close();
+            folderWatch = null;
+        }
+    }
+
+    /**
+     * Drops the memory-mapped views of every bif, so that the files can be replaced or deleted once the
+     * mappings are collected. Bifs that are read again are mapped again.
+     */
+    public void releaseBifMappings()
+    {
+        final BifFile[] bifFiles;
+        synchronized (bifFilesLock)
+        {
+            if (this.bifFiles == null)
+            {
+                return;
+            }
+            bifFiles = this.bifFiles.clone();
+        }
+
+        for (final BifFile bifFile : bifFiles)
+        {
+            if (bifFile != null)
+            {
+                bifFile.releaseMappings();
+            }
+        }
+    }
+
     /////////////////////
     // Private Methods //
     /////////////////////
 
+    private BifFile getBifFile(final int bifIndex)
+    {
+        synchronized (bifFilesLock)
+        {
+            return bifFiles[bifIndex];
+        }
+    }
+
+    private void setBifFile(final int bifIndex, final BifFile bifFile)
+    {
+        final BifFile replacedBifFile;
+        synchronized (bifFilesLock)
+        {
+            replacedBifFile = bifFiles[bifIndex];
+            bifFiles[bifIndex] = bifFile;
+        }
+
+        // Lets the decompressed bif cache replace or evict the old file's copy once it is no longer mapped
+        if (replacedBifFile != null && replacedBifFile != bifFile)
+        {
+            replacedBifFile.releaseMappings();
+        }
+    }
+
+    private BifFile[] copyBifFiles()
+    {
+        synchronized (bifFilesLock)
+        {
+            return bifFiles.clone();
+        }
+    }
+
     ////////////////////
     // Public Classes //
     ////////////////////
 
-    public static class Resource implements Comparable<Resource>
+    /**
+     * A lightweight view of a resource stored in the game's resource index. Views are created on demand.
+     */
+    public class Resource implements Comparable<Resource>
     {
         ////////////////////
         // Private Fields //
         ////////////////////
 
-        private final ResourceIdentifier identifier;
-        private final TreeSet<ResourceSource> sources = new TreeSet<>();
+        private final int index;
+        private ResourceIdentifier identifier;
 
-        /////////////////////////
-        // Public Constructors //
-        /////////////////////////
+        //////////////////////////
+        // Private Constructors //
+        //////////////////////////
 
-        public Resource(final ResourceIdentifier identifier)
+        private Resource(final int index)
         {
-            this.identifier = identifier;
+            this.index = index;
         }
 
         ////////////////////
@@ -162,31 +363,77 @@ public class Game
 
         public ResourceIdentifier getIdentifier()
         {
+            if (identifier == null)
+            {
+                identifier = resources.getIdentifier(index);
+            }
             return identifier;
         }
 
-        public void addSource(final ResourceSource source)
-        {
-            this.sources.add(source);
-        }
-
         public Iterable<ResourceSource> sources()
         {
+            final ArrayList<ResourceSource> sources = new ArrayList<>(2);
+
+            synchronized (resources)
+            {
+                final LooseFileSource looseFileSource = resources.looseFileSources[index];
+                if (looseFileSource != null)
+                {
+                    sources.add(looseFileSource);
+                }
+
+                if (resources.hasBifSource.get(index))
+                {
+                    sources.add(createBifSource());
+                }
+            }
+
             return MiscUtil.readOnlyIterable(sources);
         }
 
         public ResourceSource getPrimarySource()
         {
-            return sources.first();
+            synchronized (resources)
+            {
+                final LooseFileSource looseFileSource = resources.looseFileSources[index];
+                if (looseFileSource != null)
+                {
+                    return looseFileSource;
+                }
+
+                return resources.hasBifSource.get(index) ? createBifSource() : null;
+            }
         }
 
         @Override
         public int compareTo(final Resource other)
         {
-            return identifier.compareTo(other.identifier);
+            return getIdentifier().compareTo(other.getIdentifier());
+        }
+
+        /////////////////////
+        // Private Methods //
+        /////////////////////
+
+        private BifSource createBifSource()
+        {
+            final KeyFile.ResourceLocator locator = new KeyFile.ResourceLocator(resources.bifLocators[index]);
+            return new BifSource(getIdentifier(), locator.getBifIndex(), locator);
         }
     }
 
+    public enum ResourceChangeType
+    {
+        ADDED,
+        MODIFIED,
+        REMOVED
+    }
+
+    /**
+     * @param ownWrite Whether the change was made by {@link #writeFile}, and not by another program.
+     */
+    public record ResourceChange(ResourceIdentifier identifier, ResourceChangeType type, boolean ownWrite) {}
+
     public enum ResourceSourceType
     {
         LOOSE_FILE,
@@ -250,7 +497,7 @@ public class Game
         @Override
         public String getRelativePathStr()
         {
-            final BifFile bifFile = bifFiles[bifIndex];
+            final BifFile bifFile = getBifFile(bifIndex);
             if (bifFile == null)
             {
                 return "<MISSING>";
@@ -261,7 +508,7 @@ public class Game
         @Override
         public ByteBuffer demandFileData() throws Exception
         {
-            final BifFile bifFile = bifFiles[bifIndex];
+            final BifFile bifFile = getBifFile(bifIndex);
             if (bifFile == null)
             {
                 return null;
@@ -368,43 +615,86 @@ public class Game
 
     private void loadInternal(final TaskTrackerI tracker) throws Exception
     {
-        registerResources(tracker);
-        detectEngineType();
-        handleAliasPaths(tracker);
-        readBifs(tracker);
-    }
+        stopWatching();
+        // Any resource may have changed
+        ResourceDataCache.clear();
+        DecodedResourceCache.clear();
+
+        // Pieces of the snapshot that are still valid are restored, and the rest are rebuilt
+        final GameSnapshot snapshot = startupSnapshotEnabled ? readSnapshot(tracker) : null;
+        boolean snapshotStale = snapshot == null;
 
-    private void registerResources(final TaskTrackerI tracker) throws Exception
-    {
         resources.clear();
         registerBifResources(tracker);
-        registerLooseResources(tracker);
+
+        if (snapshot != null && isOverrideUnchanged(snapshot))
+        {
+            restoreLooseResources(tracker, snapshot);
+        }
+        else
+        {
+            registerLooseResources(tracker);
+            snapshotStale = true;
+        }
+
+        detectEngineType();
+
+        GameSnapshot.BifRecord[] bifRecords = null;
+        if (snapshot != null && snapshot.engineType() == engineType
+            && Objects.equals(snapshot.iniStamp(), GameSnapshot.FileStamp.of(snapshot.iniPath())))
+        {
+            restoreAliasPaths(snapshot);
+            bifRecords = snapshot.bifs();
+        }
+        else
+        {
+            handleAliasPaths(tracker);
+            snapshotStale = true;
+        }
+
+        snapshotStale |= readBifs(tracker, bifRecords);
+
+        if (startupSnapshotEnabled && snapshotStale)
+        {
+            writeSnapshot(tracker);
+        }
+
+        if (folderWatchingEnabled)
+        {
+            try
+            {
+                startWatching();
+            }
+            catch (final IOException ignored)
+            {
+                // The game can still be refreshed manually
+            }
+        }
     }
 
     private void registerBifResources(final TaskTrackerI tracker) throws Exception
     {
         tracker.updateMessage("Registering BIF sources ...");
-        tracker.updateProgress(0, keyFile.getNumBifEntries());
+        tracker.updateProgress(0, 1);
+
+        resources.ensureCapacity();
 
-        short i = 0;
-        for (final KeyFile.BifEntry bifEntry : keyFile.bifEntries())
+        // Records are ordered by bif index; the first bif that contains a resource provides it
+        final int numRecords = keyFile.getNumFileEntryRecords();
+        for (int i = 0; i < numRecords; ++i)
         {
-            for (final KeyFile.FileEntry fileEntry : bifEntry.fileEntries())
-            {
-                final ResourceIdentifier identifier = new ResourceIdentifier(fileEntry);
-                resources.addSource(
-                    identifier,
-                    new BifSource(identifier, i, fileEntry.getResourceLocator())
-                );
-            }
-            tracker.updateProgress(++i, keyFile.getNumBifEntries());
+            resources.addBifSource(keyFile.getFileEntryRecordKeyIndex(i), keyFile.getFileEntryRecordLocator(i));
         }
+
+        tracker.updateProgress(1, 1);
     }
 
     private void registerLooseResources(final TaskTrackerI tracker) throws Exception
     {
-        scanFolder(tracker, "<game>", gameRoot,
-            FileUtil.resolveCaseInsensitive(gameRoot, "override"));
+        overridePath = FileUtil.resolveCaseInsensitive(gameRoot, "override");
+        // Stamp the folder before scanning it, so that changes made during the scan invalidate the snapshot
+        overrideStamp = GameSnapshot.FileStamp.of(overridePath);
+        scanFolder(tracker, "<game>", gameRoot, overridePath);
     }
 
     private void scanFolder(
@@ -416,39 +706,81 @@ public class Game
         }
 
         tracker.updateMessage("Registering resources in folder: " + path.getFileName().toString());
+        tracker.updateProgress(0, 1);
 
-        final ArrayList<Path> paths = FileUtil.getAllInPath(path);
-        final int limit = paths.size();
-        tracker.updateProgress(0, limit);
+        // Merge in listing order, so that the first file that provides a resource wins as before
+        resources.addLooseFileSources(listLooseFileSources(tracker, rootName, rootPath, path));
+        tracker.updateProgress(1, 1);
+    }
 
-        for (int i = 0; i < limit; ++i)
+    /**
+     * @return A source for every resource file in {@code path}, in listing order. Files that aren't resources
+     *         have null elements.
+     */
+    private LooseFileSource[] listLooseFileSources(
+        final TaskTrackerI tracker, final String rootName, final Path rootPath, final Path path) throws Exception
+    {
+        // Read each entry's attributes in the same pass as the listing, instead of querying every file afterward
+        final ArrayList<Path> filePaths = new ArrayList<>();
+        Files.walkFileTree(path, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<>()
         {
-            final Path subpath = paths.get(i);
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes)
+            {
+                if (attributes.isRegularFile())
+                {
+                    filePaths.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
 
-            if (!Files.isRegularFile(subpath))
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException exception)
             {
-                tracker.updateProgress(i, limit);
-                continue;
+                return FileVisitResult.CONTINUE;
             }
+        });
 
-            final var fileNameAndExtension = FileUtil.getFileNameAndExtension(subpath);
-            final String fileName = fileNameAndExtension.name();
-            final String extension = fileNameAndExtension.extension();
-            final KeyFile.NumericResourceType resourceType = KeyFile.NumericResourceType.fromExtension(extension);
+        // Classify the files in parallel chunks
+        final int numFiles = filePaths.size();
+        final LooseFileSource[] sources = new LooseFileSource[numFiles];
 
-            if (fileName.length() <= 8 && resourceType != KeyFile.NumericResourceType.UNKNOWN)
+        ParallelUtil.forEachRange(numFiles, MIN_LOOSE_FILES_PER_TASK, (start, end) ->
+        {
+            for (int i = start; i < end; ++i)
             {
-                final ResourceIdentifier identifier = new ResourceIdentifier(
-                    fileName, resourceType.getNumericType()
-                );
-                resources.addSource(
-                    identifier,
-                    new LooseFileSource(identifier, subpath, rootName, rootPath)
-                );
+                sources[i] = createLooseFileSource(filePaths.get(i), rootName, rootPath);
             }
-            tracker.updateProgress(i, limit);
+        },
+        // One progress update per chunk
+        (numClassified) -> tracker.updateProgress(numClassified, numFiles));
+
+        return sources;
+    }
+
+    /**
+     * @return A source for the file at {@code path}, or null if the file isn't a resource.
+     */
+    private LooseFileSource createLooseFileSource(final Path path, final String rootName, final Path rootPath)
+    {
+        final var fileNameAndExtension = FileUtil.getFileNameAndExtension(path);
+        final String fileName = fileNameAndExtension.name();
+
+        if (fileName.length() > 8)
+        {
+            return null;
+        }
+
+        final KeyFile.NumericResourceType resourceType = KeyFile.NumericResourceType.fromExtension(
+            fileNameAndExtension.extension());
+
+        if (resourceType == KeyFile.NumericResourceType.UNKNOWN)
+        {
+            return null;
         }
-        tracker.updateProgress(limit, limit);
+
+        final ResourceIdentifier identifier = new ResourceIdentifier(fileName, resourceType.getNumericType());
+        return new LooseFileSource(identifier, path, rootName, rootPath);
     }
 
     private void detectEngineType()
@@ -517,14 +849,11 @@ public class Game
 
     private void handleAliasPaths(final TaskTrackerI tracker) throws Exception
     {
-        aliasHD0.clear();
-        aliasCache.clear();
-        aliasCD1.clear();
-        aliasCD2.clear();
-        aliasCD3.clear();
-        aliasCD4.clear();
-        aliasCD5.clear();
-        aliasCD6.clear();
+        for (final ArrayList<Path> aliasPaths : getAliasPathLists())
+        {
+            aliasPaths.clear();
+        }
+        classicINIPath = null;
 
         final String classicININame = switch (engineType)
         {
@@ -568,6 +897,8 @@ public class Game
             throw new IllegalStateException(String.format("Invalid ini for classic game: \"%s\"", iniPath));
         }
 
+        classicINIPath = iniPath;
+
         final INIConfiguration ini = new INIConfiguration();
         ini.setSeparatorUsedInInput("=");
 
@@ -618,124 +949,198 @@ public class Game
         }
     }
 
-    private void readBifs(final TaskTrackerI tracker) throws Exception
+    /**
+     * @return Whether any bif had to be resolved instead of being restored from {@code bifRecords}.
+     */
+    private boolean readBifs(
+        final TaskTrackerI tracker, final GameSnapshot.BifRecord[] bifRecords) throws Exception
     {
         tracker.updateMessage("Processing BIFS ...");
         tracker.updateProgress(0, keyFile.getNumBifEntries());
 
-        bifFiles = new BifFile[keyFile.getNumBifEntries()];
+        final short numBifEntries = keyFile.getNumBifEntries();
+        releaseBifMappings();
+        synchronized (bifFilesLock)
+        {
+            bifFiles = new BifFile[numBifEntries];
+        }
+
+        final boolean[] resolved = new boolean[numBifEntries];
+        final BifError[] errors = new BifError[numBifEntries];
+
+        // Locating and parsing bifs is latency-bound, so many bifs are handled at once
+        ParallelUtil.forEachIndexBlocking(numBifEntries, MAX_BIF_READ_THREADS, (index) ->
+        {
+            final short i = (short)(int)index;
+            final GameSnapshot.BifRecord bifRecord = bifRecords == null ? null : bifRecords[i];
+
+            final KeyFile.BifEntry bifEntry = keyFile.getBifEntry(i);
+            final BifLocation bifLocation = findBif(bifEntry);
+
+            if (bifRecord == null || !restoreBif(i, bifRecord, bifLocation))
+            {
+                errors[i] = resolveBif(i, bifEntry, bifLocation);
 
-        short i = -1;
-        for (final KeyFile.BifEntry bifEntry : keyFile.bifEntries())
+                // A bif that still can't be found doesn't make the snapshot stale
+                resolved[i] = getBifFile(i) != null || bifRecord != null;
+            }
+        },
+        (numDone) -> tracker.updateProgress(numDone, numBifEntries));
+
+        reportBifErrors(errors);
+
+        for (final boolean bifResolved : resolved)
         {
-            ++i;
+            if (bifResolved) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Shows every error that occurred while reading bifs in a single alert.
+     */
+    private void reportBifErrors(final BifError[] errors)
+    {
+        final StringBuilder builder = new StringBuilder();
+        Throwable firstThrowable = null;
+        int numErrors = 0;
 
-            final String bifName = bifEntry.getName();
-            final Path bifNamePath = FileUtil.pathFromUnnormalizedString(bifName);
+        for (final BifError error : errors)
+        {
+            if (error == null) continue;
 
-            String bifRootName = null;
-            Path bifRoot = null;
-            Path bifPath = null;
+            if (numErrors++ > 0) builder.append('\n');
+            builder.append(error.message());
 
-            outer:
-            for (final KeyFile.BifEntry.Location possibleLocation : bifEntry.getPossibleLocations())
+            if (error.throwable() != null)
             {
-                //System.out.printf("BIF: \"%s\", possible location: %s\n", bifEntry.getName(), possibleLocation);
-                final String testBifRootName;
-                final ArrayList<Path> testBifRoots;
+                builder.append(": ").append(error.throwable());
+                if (firstThrowable == null) firstThrowable = error.throwable();
+            }
+        }
 
-                switch (possibleLocation)
-                {
-                    case HD0 ->
-                    {
-                        testBifRootName = "<game>";
-                        testBifRoots = aliasHD0;
-                    }
-                    case CACHE ->
-                    {
-                        testBifRootName = "<cache>";
-                        testBifRoots = aliasCache;
-                    }
-                    case CD1 ->
-                    {
-                        testBifRootName = "<cd1>";
-                        testBifRoots = aliasCD1;
-                    }
-                    case CD2 ->
-                    {
-                        testBifRootName = "<cd2>";
-                        testBifRoots = aliasCD2;
-                    }
-                    case CD3 ->
-                    {
-                        testBifRootName = "<cd3>";
-                        testBifRoots = aliasCD3;
-                    }
-                    case CD4 ->
-                    {
-                        testBifRootName = "<cd4>";
-                        testBifRoots = aliasCD4;
-                    }
-                    case CD5 ->
-                    {
-                        testBifRootName = "<cd5>";
-                        testBifRoots = aliasCD5;
-                    }
-                    case CD6 ->
-                    {
-                        testBifRootName = "<cd6>";
-                        testBifRoots = aliasCD6;
-                    }
-                    default -> throw new IllegalStateException(String.format(
-                        "Unknown bif location for \"%s\"", bifName));
-                }
+        if (numErrors > 0)
+        {
+            ErrorAlert.openAndWait(builder.toString(), firstThrowable);
+        }
+    }
+
+    /**
+     * @param bifLocation Where the bif was found by {@link #findBif(KeyFile.BifEntry)}, or null.
+     * @return The error that prevented the bif from being read, or null.
+     */
+    private BifError resolveBif(final short i, final KeyFile.BifEntry bifEntry, final BifLocation bifLocation)
+    {
+        final String bifName = bifEntry.getName();
+
+        if (bifLocation == null)
+        {
+            boolean ignore = false;
 
-                for (final Path testBifRoot : testBifRoots)
+            if (engineType == Type.SOA || engineType == Type.TOB)
+            {
+                final String bifOnlyName = FileUtil.pathFromUnnormalizedString(bifName).getFileName().toString();
+                if (bifOnlyName.equalsIgnoreCase("progtest.bif")
+                    || bifOnlyName.equalsIgnoreCase("ProgTes2.bif")
+                    || bifOnlyName.equalsIgnoreCase("DeSound.bif"))
                 {
-                    bifPath = checkBifRoot(testBifRoot, bifNamePath);
-                    if (bifPath != null)
-                    {
-                        bifRootName = testBifRootName;
-                        bifRoot = testBifRoot;
-                        break outer;
-                    }
+                    ignore = true;
                 }
             }
 
-            if (bifPath == null)
+            if (!ignore)
+            {
+                return new BifError(String.format("Failed to find bif: \"%s\"", bifName), null);
+            }
+        }
+        else
+        {
+            try
+            {
+                setBifFile(i, new BifFile(bifLocation.rootName(), bifLocation.root(), bifLocation.path()));
+            }
+            catch (final Exception e)
             {
-                boolean ignore = false;
+                return new BifError("Exception accessing bif: \"" + bifLocation.path() + "\"", e);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Searches the bif's possible locations, in priority order.
+     *
+     * @return Where the bif was found, or null if it wasn't.
+     */
+    private BifLocation findBif(final KeyFile.BifEntry bifEntry)
+    {
+        final String bifName = bifEntry.getName();
+        final Path bifNamePath = FileUtil.pathFromUnnormalizedString(bifName);
 
-                if (engineType == Type.SOA || engineType == Type.TOB)
+        for (final KeyFile.BifEntry.Location possibleLocation : bifEntry.getPossibleLocations())
+        {
+            //System.out.printf("BIF: \"%s\", possible location: %s\n", bifEntry.getName(), possibleLocation);
+            final String testBifRootName;
+            final ArrayList<Path> testBifRoots;
+
+            switch (possibleLocation)
+            {
+                case HD0 ->
                 {
-                    final String bifOnlyName = bifNamePath.getFileName().toString();
-                    if (bifOnlyName.equalsIgnoreCase("progtest.bif")
-                        || bifOnlyName.equalsIgnoreCase("ProgTes2.bif")
-                        || bifOnlyName.equalsIgnoreCase("DeSound.bif"))
-                    {
-                        ignore = true;
-                    }
+                    testBifRootName = "<game>";
+                    testBifRoots = aliasHD0;
                 }
-
-                if (!ignore)
+                case CACHE ->
                 {
-                    ErrorAlert.openAndWait(String.format("Failed to find bif: \"%s\"", bifName));
+                    testBifRootName = "<cache>";
+                    testBifRoots = aliasCache;
                 }
-            }
-            else
-            {
-                try
+                case CD1 ->
+                {
+                    testBifRootName = "<cd1>";
+                    testBifRoots = aliasCD1;
+                }
+                case CD2 ->
+                {
+                    testBifRootName = "<cd2>";
+                    testBifRoots = aliasCD2;
+                }
+                case CD3 ->
+                {
+                    testBifRootName = "<cd3>";
+                    testBifRoots = aliasCD3;
+                }
+                case CD4 ->
+                {
+                    testBifRootName = "<cd4>";
+                    testBifRoots = aliasCD4;
+                }
+                case CD5 ->
                 {
-                    bifFiles[i] = new BifFile(bifRootName, bifRoot, bifPath);
+                    testBifRootName = "<cd5>";
+                    testBifRoots = aliasCD5;
                 }
-                catch (final Exception e)
+                case CD6 ->
                 {
-                    ErrorAlert.openAndWait("Exception accessing bif: \"" + bifPath + "\"", e);
+                    testBifRootName = "<cd6>";
+                    testBifRoots = aliasCD6;
                 }
+                default -> throw new IllegalStateException(String.format(
+                    "Unknown bif location for \"%s\"", bifName));
             }
 
-            tracker.updateProgress(i + 1, keyFile.getNumBifEntries());
+            for (final Path testBifRoot : testBifRoots)
+            {
+                final Path bifPath = checkBifRoot(testBifRoot, bifNamePath);
+                if (bifPath != null)
+                {
+                    return new BifLocation(testBifRootName, testBifRoot, bifPath);
+                }
+            }
         }
+
+        return null;
     }
 
     private Path checkBifRoot(final Path testBifRoot, final Path bifNamePath)
@@ -764,94 +1169,647 @@ public class Game
     // END Loading Resources //
     ///////////////////////////
 
-    /////////////////////
+    /////////////////////////////
+    // START Snapshot Handling //
+    /////////////////////////////
+
+    private Path getSnapshotPath() throws Exception
+    {
+        final String entryName = UUID.nameUUIDFromBytes(
+            keyFile.getPath().toString().getBytes(StandardCharsets.UTF_8)).toString();
+
+        return GlobalState.getInfinityAreasSnapshotCache().resolve(entryName + ".bin");
+    }
+
+    private GameSnapshot readSnapshot(final TaskTrackerI tracker) throws Exception
+    {
+        tracker.updateMessage("Reading startup snapshot ...");
+        tracker.updateProgress(0, 1);
+
+        final GameSnapshot snapshot = GameSnapshot.read(getSnapshotPath());
+        tracker.updateProgress(1, 1);
+
+        // Every piece of the snapshot is indexed by the key file, so a changed key file invalidates all of it
+        if (snapshot == null
+            || !keyFile.getPath().equals(snapshot.keyPath())
+            || !Objects.equals(snapshot.keyStamp(), GameSnapshot.FileStamp.of(keyFile.getPath()))
+            || snapshot.bifs().length != keyFile.getNumBifEntries()
+            || snapshot.aliases().size() != getAliasPathLists().size())
+        {
+            return null;
+        }
+
+        return snapshot;
+    }
+
+    private boolean isOverrideUnchanged(final GameSnapshot snapshot)
+    {
+        final Path currentOverridePath = FileUtil.resolveCaseInsensitive(gameRoot, "override");
+        return Objects.equals(currentOverridePath, snapshot.overridePath())
+            && Objects.equals(snapshot.overrideStamp(), GameSnapshot.FileStamp.of(currentOverridePath));
+    }
+
+    private void restoreLooseResources(final TaskTrackerI tracker, final GameSnapshot snapshot)
+    {
+        tracker.updateMessage("Restoring loose resources ...");
+        tracker.updateProgress(0, 1);
+
+        overridePath = snapshot.overridePath();
+        overrideStamp = snapshot.overrideStamp();
+
+        for (final GameSnapshot.LooseFileRecord looseFile : snapshot.looseFiles())
+        {
+            final ResourceIdentifier identifier = new ResourceIdentifier(
+                looseFile.resref(), looseFile.numericType());
+            resources.addLooseFileSource(new LooseFileSource(identifier, looseFile.path(), "<game>", gameRoot));
+        }
+
+        tracker.updateProgress(1, 1);
+    }
+
+    private void restoreAliasPaths(final GameSnapshot snapshot)
+    {
+        final List<ArrayList<Path>> aliasPathLists = getAliasPathLists();
+        for (int i = 0; i < aliasPathLists.size(); ++i)
+        {
+            final ArrayList<Path> aliasPaths = aliasPathLists.get(i);
+            aliasPaths.clear();
+            aliasPaths.addAll(snapshot.aliases().get(i));
+        }
+        classicINIPath = snapshot.iniPath();
+    }
+
+    /**
+     * @param bifLocation Where the bif is found now, by {@link #findBif(KeyFile.BifEntry)}, or null.
+     * @return Whether the bif was restored. A bif that has changed since the snapshot was written is not restored,
+     *         and neither is one that is now found elsewhere, e.g. in a higher-priority alias folder.
+     */
+    private boolean restoreBif(
+        final short i, final GameSnapshot.BifRecord bifRecord, final BifLocation bifLocation)
+    {
+        if (bifLocation == null
+            || !bifLocation.path().equals(bifRecord.path())
+            || !bifLocation.root().equals(bifRecord.root())
+            || bifRecord.stamp() == null
+            || !bifRecord.stamp().matches(bifRecord.path()))
+        {
+            return false;
+        }
+
+        try
+        {
+            setBifFile(i, new BifFile(bifRecord.rootName(), bifRecord.root(), bifRecord.path(), bifRecord.entries()));
+            return true;
+        }
+        catch (final Exception ignored)
+        {
+            // Fall back to resolving the bif from scratch
+            return false;
+        }
+    }
+
+    private void writeSnapshot(final TaskTrackerI tracker)
+    {
+        tracker.updateMessage("Writing startup snapshot ...");
+        tracker.updateProgress(0, 1);
+
+        try
+        {
+            final BifFile[] bifFiles = copyBifFiles();
+            final GameSnapshot.BifRecord[] bifRecords = new GameSnapshot.BifRecord[bifFiles.length];
+            for (int i = 0; i < bifFiles.length; ++i)
+            {
+                final BifFile bifFile = bifFiles[i];
+                if (bifFile == null)
+                {
+                    continue;
+                }
+
+                final ByteArrayOutputStream entriesStream = new ByteArrayOutputStream();
+                final ByteBuffer entries = bifFile.writeEntries(new DataOutputStream(entriesStream))
+                    ? ByteBuffer.wrap(entriesStream.toByteArray())
+                    : null;
+
+                bifRecords[i] = new GameSnapshot.BifRecord(bifFile.getRootName(), bifFile.getRoot(),
+                    bifFile.getOriginalPath(), GameSnapshot.FileStamp.of(bifFile.getOriginalPath()), entries);
+            }
+
+            final ArrayList<GameSnapshot.LooseFileRecord> looseFiles = new ArrayList<>();
+            for (int i = 0; i < resources.table.size(); ++i)
+            {
+                final LooseFileSource looseFileSource = resources.looseFileSources[i];
+                if (looseFileSource != null)
+                {
+                    final ResourceIdentifier identifier = looseFileSource.getIdentifier();
+                    looseFiles.add(new GameSnapshot.LooseFileRecord(
+                        identifier.resref(), identifier.numericType(), looseFileSource.getPath()));
+                }
+            }
+
+            final ArrayList<List<Path>> aliases = new ArrayList<>();
+            for (final ArrayList<Path> aliasPaths : getAliasPathLists())
+            {
+                aliases.add(new ArrayList<>(aliasPaths));
+            }
+
+            new GameSnapshot(
+                keyFile.getPath(), GameSnapshot.FileStamp.of(keyFile.getPath()),
+                engineType,
+                classicINIPath, GameSnapshot.FileStamp.of(classicINIPath),
+                aliases,
+                bifRecords,
+                overridePath, overrideStamp,
+                looseFiles
+            ).write(getSnapshotPath());
+        }
+        catch (final Exception e)
+        {
+            // The snapshot is only used to speed up the next load, so this load still succeeds
+            System.err.println("Failed to write startup snapshot: " + MiscUtil.formatStackTrace(e));
+        }
+
+        tracker.updateProgress(1, 1);
+    }
+
+    private List<ArrayList<Path>> getAliasPathLists()
+    {
+        return List.of(aliasHD0, aliasCache, aliasCD1, aliasCD2, aliasCD3, aliasCD4, aliasCD5, aliasCD6);
+    }
+
+    ///////////////////////////
+    // END Snapshot Handling //
+    ///////////////////////////
+
+    ///////////////////////////
+    // START Folder Watching //
+    ///////////////////////////
+
+    /**
+     * Applies a batch of folder changes to the loaded resources, and notifies the resource change listeners.
+     * Called on the watcher thread.
+     */
+    private void onFolderChanges(final FolderWatch watch, final GameFolderWatcher.ChangeBatch batch)
+    {
+        final ArrayList<ResourceChange> changes = new ArrayList<>();
+        final boolean keyFileChanged;
+
+        synchronized (this)
+        {
+            // The watch was stopped while the batch was being collected
+            if (watch != folderWatch)
+            {
+                return;
+            }
+
+            for (final Path folder : batch.overflowedFolders())
+            {
+                DirectoryListingCache.invalidate(folder);
+            }
+            for (final Path path : batch.changedPaths())
+            {
+                DirectoryListingCache.invalidate(path.getParent());
+            }
+
+            if (overridePath != null && batch.overflowedFolders().contains(overridePath))
+            {
+                rescanOverride(changes);
+            }
+            else
+            {
+                for (final Path path : batch.changedPaths())
+                {
+                    if (path.getParent().equals(overridePath))
+                    {
+                        applyLooseFileChange(path, changes);
+                    }
+                }
+            }
+
+            for (short i = 0; i < watch.bifPaths.length; ++i)
+            {
+                final Path bifPath = watch.bifPaths[i];
+                if (bifPath != null && (batch.changedPaths().contains(bifPath)
+                    || batch.overflowedFolders().contains(bifPath.getParent())))
+                {
+                    reloadBif(watch, i, changes);
+                }
+            }
+
+            keyFileChanged = checkKeyFileChanged(watch, batch);
+        }
+
+        if (keyFileChanged)
+        {
+            for (final Runnable listener : keyFileChangeListeners)
+            {
+                listener.run();
+            }
+        }
+
+        if (changes.isEmpty())
+        {
+            return;
+        }
+
+        for (final ResourceChange change : changes)
+        {
+            ResourceDataCache.invalidate(change.identifier());
+            DecodedResourceCache.invalidate(change.identifier());
+        }
+
+        final List<ResourceChange> readOnlyChanges = Collections.unmodifiableList(changes);
+        for (final Consumer<List<ResourceChange>> listener : resourceChangeListeners)
+        {
+            listener.accept(readOnlyChanges);
+        }
+    }
+
+    private void applyLooseFileChange(final Path path, final List<ResourceChange> changes)
+    {
+        final LooseFileSource source = createLooseFileSource(path, "<game>", gameRoot);
+        if (source == null)
+        {
+            return;
+        }
+
+        final ResourceChangeType changeType = Files.isRegularFile(path)
+            ? resources.putLooseFileSource(source)
+            : resources.removeLooseFileSource(source);
+
+        if (changeType != null)
+        {
+            changes.add(new ResourceChange(source.getIdentifier(), changeType, isOwnWrite(path)));
+        }
+    }
+
+    /**
+     * @return Whether {@code path} still holds exactly what {@link #writeFile} last wrote to it.
+     */
+    private boolean isOwnWrite(final Path path)
+    {
+        final Path normalizedPath = path.toAbsolutePath().normalize();
+        final GameSnapshot.FileStamp ownStamp = ownWrites.get(normalizedPath);
+        if (ownStamp == null)
+        {
+            return false;
+        }
+
+        if (ownStamp.equals(GameSnapshot.FileStamp.of(path)))
+        {
+            return true;
+        }
+
+        // The file was changed or deleted by another program since
+        ownWrites.remove(normalizedPath);
+        return false;
+    }
+
+    /**
+     * Compares every file in the override folder against the registered loose files. Used when the watcher lost
+     * track of individual changes.
+     */
+    private void rescanOverride(final List<ResourceChange> changes)
+    {
+        final LinkedHashMap<ResourceIdentifier, LooseFileSource> currentSources = new LinkedHashMap<>();
+        try
+        {
+            if (Files.isDirectory(overridePath))
+            {
+                for (final LooseFileSource source
+                    : listLooseFileSources(TaskTracker.DUMMY, "<game>", gameRoot, overridePath))
+                {
+                    if (source != null)
+                    {
+                        currentSources.putIfAbsent(source.getIdentifier(), source);
+                    }
+                }
+            }
+        }
+        catch (final Exception ignored)
+        {
+            // Leave the registered loose files as they are
+            return;
+        }
+
+        for (final LooseFileSource source : resources.getLooseFileSources())
+        {
+            if (!currentSources.containsKey(source.getIdentifier()))
+            {
+                final ResourceChangeType changeType = resources.removeLooseFileSource(source);
+                if (changeType != null)
+                {
+                    changes.add(new ResourceChange(source.getIdentifier(), changeType, false));
+                }
+            }
+        }
+
+        for (final LooseFileSource source : currentSources.values())
+        {
+            final ResourceChangeType changeType = resources.putLooseFileSource(source);
+            if (changeType != null)
+            {
+                changes.add(new ResourceChange(source.getIdentifier(), changeType, isOwnWrite(source.getPath())));
+            }
+        }
+    }
+
+    private void reloadBif(final FolderWatch watch, final short bifIndex, final List<ResourceChange> changes)
+    {
+        final Path bifPath = watch.bifPaths[bifIndex];
+        final GameSnapshot.FileStamp stamp = GameSnapshot.FileStamp.of(bifPath);
+
+        // Filters out events that didn't change the file, e.g. a copy of identical data
+        if (Objects.equals(stamp, watch.bifStamps[bifIndex]))
+        {
+            return;
+        }
+        watch.bifStamps[bifIndex] = stamp;
+
+        BifFile bifFile = null;
+        if (stamp != null)
+        {
+            try
+            {
+                bifFile = new BifFile(watch.bifRootNames[bifIndex], watch.bifRoots[bifIndex], bifPath);
+            }
+            catch (final Exception ignored)
+            {
+                // Likely still being written; the next event for the file retries
+            }
+        }
+        setBifFile(bifIndex, bifFile);
+
+        resources.collectBifResourceChanges(bifIndex, changes);
+    }
+
+    private boolean checkKeyFileChanged(final FolderWatch watch, final GameFolderWatcher.ChangeBatch batch)
+    {
+        final Path keyPath = keyFile.getPath();
+        if (!batch.changedPaths().contains(keyPath) && !batch.overflowedFolders().contains(keyPath.getParent()))
+        {
+            return false;
+        }
+
+        final GameSnapshot.FileStamp stamp = GameSnapshot.FileStamp.of(keyPath);
+
+        // A missing key file is likely still being written; the next event for the file checks it again
+        if (stamp == null || stamp.equals(watch.keyStamp))
+        {
+            return false;
+        }
+
+        watch.keyStamp = stamp;
+        return true;
+    }
+
+    /////////////////////////
+    // END Folder Watching //
+    /////////////////////////
+
+    /////////////////////
     // Private Classes //
     /////////////////////
 
-    private static class GameResources
+    private record BifError(String message, Throwable throwable) {}
+
+    private record BifLocation(String rootName, Path root, Path path) {}
+
+    /**
+     * The state of an active folder watch. Bif locations are captured when the watch starts, so that a bif that
+     * is deleted and then restored can still be picked up.
+     */
+    private class FolderWatch
     {
-        ///////////////////////////
-        // Private Static Fields //
-        ///////////////////////////
+        ////////////////////
+        // Private Fields //
+        ////////////////////
+
+        private final Path[] bifPaths;
+        private final String[] bifRootNames;
+        private final Path[] bifRoots;
+        private final GameSnapshot.FileStamp[] bifStamps;
+        private GameSnapshot.FileStamp keyStamp;
+        private final GameFolderWatcher watcher;
+
+        /////////////////////////
+        // Public Constructors //
+        /////////////////////////
 
-        private static final Iterator<Resource> NULL_ITERATOR = new Iterator<>()
+        public FolderWatch() throws IOException
         {
-            @Override
-            public boolean hasNext()
+            final BifFile[] bifFiles = copyBifFiles();
+            final int numBifs = bifFiles.length;
+            bifPaths = new Path[numBifs];
+            bifRootNames = new String[numBifs];
+            bifRoots = new Path[numBifs];
+            bifStamps = new GameSnapshot.FileStamp[numBifs];
+
+            final LinkedHashSet<Path> folders = new LinkedHashSet<>();
+            if (overridePath != null)
             {
-                return false;
+                folders.add(overridePath);
             }
 
-            @Override
-            public Resource next()
+            keyStamp = GameSnapshot.FileStamp.of(keyFile.getPath());
+            folders.add(gameRoot);
+
+            for (int i = 0; i < numBifs; ++i)
             {
-                return null;
+                final BifFile bifFile = bifFiles[i];
+                if (bifFile == null)
+                {
+                    continue;
+                }
+
+                bifPaths[i] = bifFile.getOriginalPath();
+                bifRootNames[i] = bifFile.getRootName();
+                bifRoots[i] = bifFile.getRoot();
+                bifStamps[i] = GameSnapshot.FileStamp.of(bifPaths[i]);
+
+                final Path bifFolder = bifPaths[i].getParent();
+                if (bifFolder != null)
+                {
+                    folders.add(bifFolder);
+                }
             }
-        };
 
-        private static final Iterable<Resource> NULL_ITERABLE = () -> NULL_ITERATOR;
+            watcher = new GameFolderWatcher(folders, (batch) -> onFolderChanges(this, batch));
+        }
+    }
 
+    /**
+     * Stores every resource in a {@link ResourceKeyTable}, with the resources' sources held in parallel arrays
+     * indexed by key index. {@link Resource} views and sorted orderings are only created when they are requested.
+     * <p>
+     * Access is synchronized, since the folder watcher applies changes from its own thread. Keys are never removed
+     * from the table; a resource that has lost all of its sources is hidden instead.
+     */
+    private class GameResources
+    {
         ////////////////////
         // Private Fields //
         ////////////////////
 
-        private final TreeMap<ResourceIdentifier, Resource> resources = new TreeMap<>();
-        private final HashMap<Short, TreeSet<Resource>> typeBuckets = new HashMap<>();
+        private ResourceKeyTable table = new ResourceKeyTable();
+
+        // Indexed by key index
+        private int[] bifLocators = new int[0];
+        private final BitSet hasBifSource = new BitSet();
+        private LooseFileSource[] looseFileSources = new LooseFileSource[0];
+        private Resource[] resourceViews = new Resource[0];
 
         ////////////////////
         // Public Methods //
         ////////////////////
 
-        public void clear()
+        /**
+         * Removes every resource. The table is reset to extend the key file's table, so that the key file's indices
+         * can be used directly, and only the keys of loose files are stored on top of it.
+         */
+        public synchronized void clear()
         {
-            resources.clear();
-            typeBuckets.clear();
+            table = new ResourceKeyTable(keyFile.getKeyTable());
+            hasBifSource.clear();
+            Arrays.fill(looseFileSources, null);
+            Arrays.fill(resourceViews, null);
         }
 
-        public void addSource(final ResourceIdentifier identifier, final ResourceSource source)
+        public synchronized ResourceIdentifier getIdentifier(final int index)
         {
-            final Resource resource = this.resources.computeIfAbsent(identifier, (ignored) ->
-            {
-                final Resource newResource = new Resource(identifier);
-
-                final TreeSet<Resource> typeBucket = typeBuckets.computeIfAbsent(
-                    newResource.getIdentifier().numericType(), (ignored2) -> new TreeSet<>());
+            return table.getIdentifier(index);
+        }
 
-                typeBucket.add(newResource);
-                return newResource;
-            });
-            resource.addSource(source);
+        public synchronized void addBifSource(final int index, final int locator)
+        {
+            ensureCapacity();
+            if (!hasBifSource.get(index))
+            {
+                bifLocators[index] = locator;
+                hasBifSource.set(index);
+            }
         }
 
-        public Resource getResource(final ResourceIdentifier identifier)
+        /**
+         * Adds every non-null source in {@code sources}, in order.
+         */
+        public synchronized void addLooseFileSources(final LooseFileSource[] sources)
         {
-            return this.resources.get(identifier);
+            for (final LooseFileSource source : sources)
+            {
+                if (source != null)
+                {
+                    addLooseFileSource(source);
+                }
+            }
         }
 
-        public boolean hasResource(final ResourceIdentifier identifier)
+        public synchronized void addLooseFileSource(final LooseFileSource source)
         {
-            return this.resources.containsKey(identifier);
+            final ResourceIdentifier identifier = source.getIdentifier();
+            final int index = table.add(identifier.resref(), identifier.numericType());
+            ensureCapacity();
+
+            if (looseFileSources[index] == null)
+            {
+                looseFileSources[index] = source;
+            }
         }
 
-        public Iterable<Resource> getResources()
+        /**
+         * Makes {@code source} the loose file source of its resource, replacing any existing one.
+         *
+         * @return How the resource changed.
+         */
+        public synchronized ResourceChangeType putLooseFileSource(final LooseFileSource source)
         {
-            return MiscUtil.readOnlyIterable(resources.values());
+            final ResourceIdentifier identifier = source.getIdentifier();
+            final int index = table.add(identifier.resref(), identifier.numericType());
+            ensureCapacity();
+
+            final boolean existed = hasSources(index);
+            looseFileSources[index] = source;
+            return existed ? ResourceChangeType.MODIFIED : ResourceChangeType.ADDED;
         }
 
-        public Iterable<Resource> getResourcesOfType(final short numericType)
+        /**
+         * Removes {@code source} if it is the loose file source of its resource. The resource falls back to its bif
+         * source, if it has one.
+         *
+         * @return How the resource changed, or null if {@code source} wasn't registered.
+         */
+        public synchronized ResourceChangeType removeLooseFileSource(final LooseFileSource source)
         {
-            final TreeSet<Resource> typeBucket = typeBuckets.get(numericType);
+            final int index = table.find(source.getIdentifier());
+            if (index == ResourceKeyTable.NOT_FOUND || !source.equals(looseFileSources[index]))
+            {
+                return null;
+            }
+
+            looseFileSources[index] = null;
+            return hasSources(index) ? ResourceChangeType.MODIFIED : ResourceChangeType.REMOVED;
+        }
 
-            if (typeBucket == null)
+        public synchronized ArrayList<LooseFileSource> getLooseFileSources()
+        {
+            final ArrayList<LooseFileSource> sources = new ArrayList<>();
+            for (int i = 0; i < table.size(); ++i)
             {
-                return NULL_ITERABLE;
+                if (looseFileSources[i] != null)
+                {
+                    sources.add(looseFileSources[i]);
+                }
             }
-            else
+            return sources;
+        }
+
+        /**
+         * Adds a {@link ResourceChangeType#MODIFIED} change for every resource that is provided by the given bif.
+         */
+        public synchronized void collectBifResourceChanges(final short bifIndex, final List<ResourceChange> changes)
+        {
+            final int numRecords = keyFile.getNumFileEntryRecords();
+            for (int i = 0; i < numRecords; ++i)
             {
-                return MiscUtil.readOnlyIterable(typeBucket);
+                final int locator = keyFile.getFileEntryRecordLocator(i);
+                if (new KeyFile.ResourceLocator(locator).getBifIndex() != bifIndex)
+                {
+                    continue;
+                }
+
+                final int index = keyFile.getFileEntryRecordKeyIndex(i);
+                if (hasBifSource.get(index) && bifLocators[index] == locator)
+                {
+                    changes.add(new ResourceChange(table.getIdentifier(index), ResourceChangeType.MODIFIED, false));
+                }
             }
         }
 
+        public synchronized Resource getResource(final ResourceIdentifier identifier)
+        {
+            return getResourceView(table.find(identifier));
+        }
+
+        public synchronized Resource getResource(final long packedResref, final short numericType)
+        {
+            return getResourceView(table.find(packedResref, numericType));
+        }
+
+        public synchronized boolean hasResource(final ResourceIdentifier identifier)
+        {
+            final int index = table.find(identifier);
+            return index != ResourceKeyTable.NOT_FOUND && hasSources(index);
+        }
+
+        public synchronized Iterable<Resource> getResources()
+        {
+            return resourceIterable(table.sortedIndices());
+        }
+
+        public synchronized Iterable<Resource> getResourcesOfType(final short numericType)
+        {
+            return resourceIterable(table.sortedIndicesOfType(numericType));
+        }
+
         public Iterable<Resource> getResourcesOfType(final KeyFile.NumericResourceType numericType)
         {
             return getResourcesOfType(numericType.getNumericType());
@@ -861,5 +1819,80 @@ public class Game
         {
             return getResourcesOfType(resourceType.getNumericType());
         }
+
+        /////////////////////
+        // Private Methods //
+        /////////////////////
+
+        private void ensureCapacity()
+        {
+            final int capacity = table.capacity();
+            if (bifLocators.length < capacity)
+            {
+                bifLocators = Arrays.copyOf(bifLocators, capacity);
+                looseFileSources = Arrays.copyOf(looseFileSources, capacity);
+                resourceViews = Arrays.copyOf(resourceViews, capacity);
+            }
+        }
+
+        private boolean hasSources(final int index)
+        {
+            return looseFileSources[index] != null || hasBifSource.get(index);
+        }
+
+        /**
+         * @return The view of the resource at {@code index}, or null if there is no such resource, or it has lost
+         *         all of its sources.
+         */
+        private synchronized Resource getResourceView(final int index)
+        {
+            if (index == ResourceKeyTable.NOT_FOUND || !hasSources(index))
+            {
+                return null;
+            }
+
+            Resource resource = resourceViews[index];
+            if (resource == null)
+            {
+                resource = new Resource(index);
+                resourceViews[index] = resource;
+            }
+            return resource;
+        }
+
+        private Iterable<Resource> resourceIterable(final int[] indices)
+        {
+            return () -> new Iterator<>()
+            {
+                private int i = 0;
+                private Resource next = advance();
+
+                @Override
+                public boolean hasNext()
+                {
+                    return next != null;
+                }
+
+                @Override
+                public Resource next()
+                {
+                    if (next == null) throw new NoSuchElementException();
+                    final Resource toReturn = next;
+                    next = advance();
+                    return toReturn;
+                }
+
+                // Skips resources that have lost all of their sources
+                private Resource advance()
+                {
+                    while (i < indices.length)
+                    {
+                        final Resource resource = getResourceView(indices[i++]);
+                        if (resource != null) return resource;
+                    }
+                    return null;
+                }
+            };
+        }
     }
 }
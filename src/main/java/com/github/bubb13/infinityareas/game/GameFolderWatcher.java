@@ -0,0 +1,199 @@
+
+package com.github.bubb13.infinityareas.game;
+
+import com.github.bubb13.infinityareas.gui.dialog.ErrorAlert;
+import com.github.bubb13.infinityareas.util.MiscUtil;
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches a set of folders (non-recursively) on a background thread, and reports the paths that were created,
+ * modified, or deleted in batches. Events are collected until the folders have been quiet for a short time, so
+ * that bulk operations (e.g. a WeiDU install) are reported as a single batch.
+ */
+class GameFolderWatcher
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    /** How long the watched folders must be quiet before a batch is reported */
+    private static final long BATCH_DELAY_MILLIS = 250;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    private final WatchService watchService;
+    private final HashMap<WatchKey, Path> foldersByKey = new HashMap<>();
+    private final Consumer<ChangeBatch> onChanges;
+    private final Thread thread;
+
+    /////////////////////////
+    // Public Constructors //
+    /////////////////////////
+
+    /**
+     * @param folders The folders to watch. Folders that don't exist are skipped.
+     * @param onChanges Called on the watcher thread with each batch of changes. A runtime exception thrown by a
+     *                  call is reported, and doesn't stop the watch.
+     */
+    public GameFolderWatcher(final Collection<Path> folders, final Consumer<ChangeBatch> onChanges) throws IOException
+    {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.onChanges = onChanges;
+
+        try
+        {
+            for (final Path folder : folders)
+            {
+                if (!Files.isDirectory(folder))
+                {
+                    continue;
+                }
+
+                final WatchKey key = folder.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+
+                foldersByKey.put(key, folder);
+            }
+        }
+        catch (final IOException e)
+        {
+            watchService.close();
+            throw e;
+        }
+
+        this.thread = new Thread(this::run, "Game Folder Watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    ////////////////////
+    // Public Methods //
+    ////////////////////
+
+    public void close()
+    {
+        try
+        {
+            watchService.close();
+        }
+        catch (final IOException ignored) {}
+
+        thread.interrupt();
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private void run()
+    {
+        try
+        {
+            while (true)
+            {
+                WatchKey key = watchService.take();
+
+                final LinkedHashSet<Path> changedPaths = new LinkedHashSet<>();
+                final HashSet<Path> overflowedFolders = new HashSet<>();
+
+                while (key != null)
+                {
+                    collectEvents(key, changedPaths, overflowedFolders);
+                    key = watchService.poll(BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                try
+                {
+                    onChanges.accept(new ChangeBatch(changedPaths, overflowedFolders));
+                }
+                catch (final RuntimeException e)
+                {
+                    // Keep watching, so that later changes are still applied
+                    reportFailure(e);
+                }
+            }
+        }
+        catch (final InterruptedException | ClosedWatchServiceException ignored) {}
+    }
+
+    /**
+     * Reports a failed batch without waiting for the report to be dismissed, so that the watch isn't held up.
+     */
+    private void reportFailure(final RuntimeException exception)
+    {
+        System.err.println("Failed to apply changes to the game folders: " + MiscUtil.formatStackTrace(exception));
+
+        try
+        {
+            Platform.runLater(() -> ErrorAlert.openAndWait("Failed to apply changes to the game folders.", exception));
+        }
+        catch (final RuntimeException ignored)
+        {
+            // The JavaFX toolkit isn't running
+        }
+    }
+
+    private void collectEvents(final WatchKey key, final Set<Path> changedPaths, final Set<Path> overflowedFolders)
+    {
+        final Path folder = foldersByKey.get(key);
+
+        for (final WatchEvent<?> event : key.pollEvents())
+        {
+            if (folder == null)
+            {
+                continue;
+            }
+
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+            {
+                // Individual events were lost; the whole folder has to be compared
+                overflowedFolders.add(folder);
+            }
+            else
+            {
+                changedPaths.add(folder.resolve((Path)event.context()));
+            }
+        }
+
+        if (!key.reset())
+        {
+            // The folder was deleted or became inaccessible
+            foldersByKey.remove(key);
+            if (folder != null)
+            {
+                overflowedFolders.add(folder);
+            }
+        }
+    }
+
+    ////////////////////
+    // Public Classes //
+    ////////////////////
+
+    /**
+     * @param changedPaths The paths that were created, modified, or deleted, in the order they were first reported.
+     * @param overflowedFolders The folders that lost events, and whose entries should all be considered changed.
+     */
+    public record ChangeBatch(Set<Path> changedPaths, Set<Path> overflowedFolders) {}
+}
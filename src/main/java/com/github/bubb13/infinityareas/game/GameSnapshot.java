@@ -0,0 +1,333 @@
+
+package com.github.bubb13.infinityareas.game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A binary snapshot of the parts of a {@link Game} that are expensive to resolve: the alias paths, where each
+ * bif was found (and its parsed entry tables), and the loose files in the override folder. Every piece records
+ * the size and modification time of the file / folder it was derived from, so that {@link Game} can reuse the
+ * pieces that are still valid and only rebuild the rest.
+ */
+record GameSnapshot(
+    Path keyPath,
+    FileStamp keyStamp,
+    Game.Type engineType,
+    Path iniPath,
+    FileStamp iniStamp,
+    List<List<Path>> aliases,
+    BifRecord[] bifs,
+    Path overridePath,
+    FileStamp overrideStamp,
+    List<LooseFileRecord> looseFiles)
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final int MAGIC = 0x49414753; // "IAGS"
+    private static final int VERSION = 1;
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    /**
+     * Reads and parses the snapshot at {@code path}.
+     *
+     * @return The parsed snapshot, or null if it doesn't exist, is of a different version, or is corrupt.
+     */
+    public static GameSnapshot read(final Path path)
+    {
+        try
+        {
+            // Read onto the heap rather than memory-mapped, since a mapping keeps the file locked on Windows until
+            // it is garbage collected, which makes replacing the snapshot after the load fail
+            final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            {
+                return null;
+            }
+
+            final Path keyPath = readPath(buffer);
+            final FileStamp keyStamp = readStamp(buffer);
+
+            final int engineTypeOrdinal = buffer.getInt();
+            final Game.Type engineType = engineTypeOrdinal >= 0 && engineTypeOrdinal < Game.Type.values().length
+                ? Game.Type.values()[engineTypeOrdinal]
+                : null;
+
+            final Path iniPath = readPath(buffer);
+            final FileStamp iniStamp = readStamp(buffer);
+
+            final int numAliases = buffer.getInt();
+            final ArrayList<List<Path>> aliases = new ArrayList<>(numAliases);
+            for (int i = 0; i < numAliases; ++i)
+            {
+                final int numPaths = buffer.getInt();
+                final ArrayList<Path> paths = new ArrayList<>(numPaths);
+                for (int j = 0; j < numPaths; ++j)
+                {
+                    paths.add(readPath(buffer));
+                }
+                aliases.add(paths);
+            }
+
+            final BifRecord[] bifs = new BifRecord[buffer.getInt()];
+            for (int i = 0; i < bifs.length; ++i)
+            {
+                if (buffer.get() == 0)
+                {
+                    continue;
+                }
+
+                final String rootName = readString(buffer);
+                final Path root = readPath(buffer);
+                final Path bifPath = readPath(buffer);
+                final FileStamp stamp = readStamp(buffer);
+
+                final int entriesLength = buffer.getInt();
+                ByteBuffer entries = null;
+                if (entriesLength >= 0)
+                {
+                    entries = buffer.slice(buffer.position(), entriesLength);
+                    buffer.position(buffer.position() + entriesLength);
+                }
+
+                bifs[i] = new BifRecord(rootName, root, bifPath, stamp, entries);
+            }
+
+            final Path overridePath = readPath(buffer);
+            final FileStamp overrideStamp = readStamp(buffer);
+
+            final int numLooseFiles = buffer.getInt();
+            final ArrayList<LooseFileRecord> looseFiles = new ArrayList<>(numLooseFiles);
+            for (int i = 0; i < numLooseFiles; ++i)
+            {
+                final String resref = readString(buffer);
+                final short numericType = buffer.getShort();
+                looseFiles.add(new LooseFileRecord(resref, numericType, readPath(buffer)));
+            }
+
+            return new GameSnapshot(keyPath, keyStamp, engineType, iniPath, iniStamp, aliases, bifs,
+                overridePath, overrideStamp, looseFiles);
+        }
+        catch (final NoSuchFileException ignored)
+        {
+            return null;
+        }
+        catch (final IOException | BufferUnderflowException | IllegalArgumentException
+            | IndexOutOfBoundsException e)
+        {
+            // Corrupt / truncated snapshot
+            return null;
+        }
+    }
+
+    ////////////////////
+    // Public Methods //
+    ////////////////////
+
+    /**
+     * Writes the snapshot to {@code path}, replacing any existing snapshot.
+     */
+    public void write(final Path path) throws IOException
+    {
+        final Path tempPath = path.resolveSibling(path.getFileName() + ".partial");
+
+        try (final DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(tempPath))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            writePath(out, keyPath);
+            writeStamp(out, keyStamp);
+
+            out.writeInt(engineType == null ? -1 : engineType.ordinal());
+
+            writePath(out, iniPath);
+            writeStamp(out, iniStamp);
+
+            out.writeInt(aliases.size());
+            for (final List<Path> paths : aliases)
+            {
+                out.writeInt(paths.size());
+                for (final Path aliasPath : paths)
+                {
+                    writePath(out, aliasPath);
+                }
+            }
+
+            out.writeInt(bifs.length);
+            for (final BifRecord bif : bifs)
+            {
+                if (bif == null)
+                {
+                    out.writeByte(0);
+                    continue;
+                }
+
+                out.writeByte(1);
+                writeString(out, bif.rootName());
+                writePath(out, bif.root());
+                writePath(out, bif.path());
+                writeStamp(out, bif.stamp());
+
+                final ByteBuffer entries = bif.entries();
+                if (entries == null)
+                {
+                    out.writeInt(-1);
+                }
+                else
+                {
+                    final byte[] entriesBytes = new byte[entries.remaining()];
+                    entries.get(entries.position(), entriesBytes);
+                    out.writeInt(entriesBytes.length);
+                    out.write(entriesBytes);
+                }
+            }
+
+            writePath(out, overridePath);
+            writeStamp(out, overrideStamp);
+
+            out.writeInt(looseFiles.size());
+            for (final LooseFileRecord looseFile : looseFiles)
+            {
+                writeString(out, looseFile.resref());
+                out.writeShort(looseFile.numericType());
+                writePath(out, looseFile.path());
+            }
+        }
+
+        try
+        {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (final IOException e)
+        {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    private static void writeString(final DataOutputStream out, final String str) throws IOException
+    {
+        if (str == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer buffer)
+    {
+        final int length = buffer.getInt();
+        if (length < 0)
+        {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writePath(final DataOutputStream out, final Path path) throws IOException
+    {
+        writeString(out, path == null ? null : path.toString());
+    }
+
+    private static Path readPath(final ByteBuffer buffer)
+    {
+        final String pathStr = readString(buffer);
+        return pathStr == null ? null : Path.of(pathStr);
+    }
+
+    private static void writeStamp(final DataOutputStream out, final FileStamp stamp) throws IOException
+    {
+        out.writeByte(stamp == null ? 0 : 1);
+        if (stamp != null)
+        {
+            out.writeLong(stamp.size());
+            out.writeLong(stamp.modified());
+        }
+    }
+
+    private static FileStamp readStamp(final ByteBuffer buffer)
+    {
+        if (buffer.get() == 0)
+        {
+            return null;
+        }
+        return new FileStamp(buffer.getLong(), buffer.getLong());
+    }
+
+    /////////////////////
+    // Package Classes //
+    /////////////////////
+
+    /**
+     * Identifies a version of a file or folder. A folder's modification time changes whenever an entry is added,
+     * removed, or renamed.
+     */
+    record FileStamp(long size, long modified)
+    {
+        /**
+         * @return The current stamp of {@code path}, or null if {@code path} is null or doesn't exist.
+         */
+        public static FileStamp of(final Path path)
+        {
+            if (path == null)
+            {
+                return null;
+            }
+
+            try
+            {
+                final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(attributes.isDirectory() ? 0 : attributes.size(),
+                    attributes.lastModifiedTime().toMillis());
+            }
+            catch (final IOException ignored)
+            {
+                return null;
+            }
+        }
+
+        public boolean matches(final Path path)
+        {
+            return equals(of(path));
+        }
+    }
+
+    /**
+     * Where a bif was found, and its entry tables as written by {@link
+     * com.github.bubb13.infinityareas.game.resource.BifFile#writeEntries(DataOutputStream)}, or null if the
+     * entry tables can't be restored (compressed bifs).
+     */
+    record BifRecord(String rootName, Path root, Path path, FileStamp stamp, ByteBuffer entries) {}
+
+    record LooseFileRecord(String resref, short numericType, Path path) {}
+}
@@ -25,7 +25,6 @@ import java.awt.image.BufferedImage;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Stack;
 
@@ -2281,7 +2280,7 @@ public class Area
                 saveMapNotesArray(mapNotesArrayOffset);
             }
 
-            Files.write(path, buffer.array());
+            GlobalState.getGame().writeFile(path, buffer.array());
         }
 
         /////////////////////
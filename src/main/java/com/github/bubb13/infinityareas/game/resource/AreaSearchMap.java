@@ -4,6 +4,7 @@ package com.github.bubb13.infinityareas.game.resource;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
+import com.github.bubb13.infinityareas.util.BufferUtil;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -115,7 +116,7 @@ public class AreaSearchMap
 
     private void loadInternal(final TaskTrackerI tracker) throws Exception
     {
-        try (final ByteArrayInputStream inputStream = new ByteArrayInputStream(buffer.array()))
+        try (final ByteArrayInputStream inputStream = new ByteArrayInputStream(BufferUtil.toArray(buffer)))
         {
             final BufferedImage image = ImageIO.read(inputStream);
 
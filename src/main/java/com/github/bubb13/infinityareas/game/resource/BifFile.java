@@ -1,26 +1,33 @@
 
 package com.github.bubb13.infinityareas.game.resource;
 
-import com.github.bubb13.infinityareas.GlobalState;
-import com.github.bubb13.infinityareas.misc.LimitableInputStream;
 import com.github.bubb13.infinityareas.misc.ThrowingRunnable;
 import com.github.bubb13.infinityareas.util.BufferUtil;
 import com.github.bubb13.infinityareas.util.FileUtil;
+import com.github.bubb13.infinityareas.util.MiscUtil;
+import com.github.bubb13.infinityareas.util.ParallelUtil;
 
-import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
@@ -44,13 +51,48 @@ public class BifFile
     /** The resulting read size. A `TILESET_ENTRY_READ_GROUP` of 512 results in reads of 10240 bytes. */
     private static final int TILESET_ENTRY_READ_CHUNK = TILESET_ENTRY_SIZE * TILESET_ENTRY_READ_GROUP;
 
-    /** The buffer size used to store BIFC metadata / decompressed data. Must be at least 0x8 bytes. */
-    private static final int BIFC_BUFFER_SIZE = 0x2000;
+    /** The buffer size used to stage decompressed data before it is written to disk */
+    private static final int INFLATE_BUFFER_SIZE = 0x10000;
+    /** The minimum number of BIFC blocks inflated by a single parallel task */
+    private static final int BIFC_MIN_BLOCKS_PER_TASK = 16;
+
+    /** The stride between memory-mapped windows. Files larger than this are mapped as several windows. */
+    private static final long MAPPED_WINDOW_SIZE = 0x40000000L;
+    /**
+     * The number of bytes each memory-mapped window extends past the start of the next window. Resources
+     * smaller than this never straddle two windows; larger resources that do are read through a file channel.
+     */
+    private static final long MAPPED_WINDOW_OVERLAP = 0x1000000L;
+
+    /** The number of decompressed bytes kept in each BIFC file's inflated block cache */
+    private static final int BIFC_BLOCK_CACHE_SIZE = 0x800000;
+
+    /** Whether resource / tileset data should be served from memory-mapped views of the bif file */
+    private static volatile boolean memoryMapped = true;
+    /**
+     * Fully decompresses BIFC files that are being read through their block index into the
+     * {@link DecompressedBifCache}, one file at a time, so that later sessions can map the decompressed copy
+     */
+    private static final ExecutorService CACHE_FILL_EXECUTOR = Executors.newSingleThreadExecutor((runnable) ->
+    {
+        final Thread thread = new Thread(runnable, "BIFC Cache Filler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Whether BIFC files without a valid {@link DecompressedBifCache} entry should inflate only the blocks that
+     * are read, instead of being fully decompressed before the first read. The cache entry is then filled in
+     * the background.
+     */
+    private static volatile boolean bifcRandomAccess = true;
 
     ////////////////////
     // Private Fields //
     ////////////////////
 
+    private final String rootName;
+    private final Path root;
     private final Path originalPath;
     private final String relativePathStr;
 
@@ -65,23 +107,68 @@ public class BifFile
     private Path path;
     private ByteBuffer signatureAndVersionBuffer;
     private ThrowingRunnable<Exception> pendingDecompression;
+    private MappedByteBuffer[] mappedWindows;
+    private BIFCBlockIndex blockIndex;
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static boolean isMemoryMapped()
+    {
+        return memoryMapped;
+    }
+
+    public static void setMemoryMapped(final boolean memoryMapped)
+    {
+        BifFile.memoryMapped = memoryMapped;
+    }
+
+    public static boolean isBIFCRandomAccess()
+    {
+        return bifcRandomAccess;
+    }
+
+    public static void setBIFCRandomAccess(final boolean bifcRandomAccess)
+    {
+        BifFile.bifcRandomAccess = bifcRandomAccess;
+    }
 
     /////////////////////////
     // Public Constructors //
     /////////////////////////
 
     public BifFile(final String rootName, final Path root, final Path path) throws Exception
+    {
+        this(rootName, root, path, null);
+    }
+
+    /**
+     * Restores a bif using entry tables previously written by {@link #writeEntries(DataOutputStream)}, instead of
+     * parsing them from the file. If {@code entries} is null the file is parsed as usual.
+     */
+    public BifFile(final String rootName, final Path root, final Path path, final ByteBuffer entries) throws Exception
     {
         if (!Files.isRegularFile(path))
         {
             throw new FileNotFoundException("Bif file does not exist: \"" + path + "\"");
         }
 
+        this.rootName = rootName;
+        this.root = root;
         originalPath = path.toAbsolutePath();
         relativePathStr = rootName + File.separator + FileUtil.getRelativePath(root, path);
 
         this.path = originalPath;
-        parse();
+
+        if (entries == null)
+        {
+            parse();
+        }
+        else
+        {
+            restoreEntries(entries.duplicate());
+        }
     }
 
     ////////////////////
@@ -98,7 +185,71 @@ public class BifFile
         return relativePathStr;
     }
 
-    private void checkDecompression() throws Exception
+    public String getRootName()
+    {
+        return rootName;
+    }
+
+    public Path getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * @return The path of the bif as it exists in the game install. Unlike {@link #getPath()}, this is never the
+     *         path of a decompressed copy.
+     */
+    public Path getOriginalPath()
+    {
+        return originalPath;
+    }
+
+    /**
+     * Writes the bif's entry tables so that they can be restored by
+     * {@link #BifFile(String, Path, Path, ByteBuffer)} without parsing the file.
+     *
+     * @return Whether the entry tables were written. Compressed bifs are only parsed after they are decompressed,
+     *         so nothing is written for them.
+     */
+    public boolean writeEntries(final DataOutputStream out) throws IOException
+    {
+        if (!originalPath.equals(path) || blockIndex != null || pendingDecompression != null)
+        {
+            return false;
+        }
+
+        out.writeInt(fileEntriesByResourceIndex.size());
+        for (final FileEntry fileEntry : fileEntriesByResourceIndex.values())
+        {
+            out.writeInt(fileEntry.resourceLocator());
+            out.writeInt(fileEntry.dataOffset());
+            out.writeInt(fileEntry.dataSize());
+            out.writeInt(fileEntry.resourceType());
+        }
+
+        out.writeInt(tilesetEntriesByTilesetIndex.size());
+        for (final TilesetEntry tilesetEntry : tilesetEntriesByTilesetIndex.values())
+        {
+            out.writeInt(tilesetEntry.resourceLocator());
+            out.writeInt(tilesetEntry.dataOffset());
+            out.writeInt(tilesetEntry.numTiles());
+            out.writeInt(tilesetEntry.tileSize());
+            out.writeShort(tilesetEntry.resourceType());
+        }
+
+        return true;
+    }
+
+    /**
+     * Drops this bif's memory-mapped views of its file. The file stays mapped until every slice previously
+     * returned by {@link #demandResourceData(short)} has been garbage collected; further reads map it again.
+     */
+    public synchronized void releaseMappings()
+    {
+        mappedWindows = null;
+    }
+
+    private synchronized void checkDecompression() throws Exception
     {
         if (pendingDecompression != null)
         {
@@ -117,9 +268,16 @@ public class BifFile
             throw new IllegalStateException(path.toString() + " does not contain resource index " + resourceIndex);
         }
 
-        final ByteBuffer buffer = BufferUtil.readAtOffset(path, fileEntry.dataOffset(), fileEntry.dataSize());
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        return buffer;
+        if (memoryMapped && blockIndex == null)
+        {
+            final ByteBuffer mappedBuffer = mappedSlice(fileEntry.dataOffset(), fileEntry.dataSize());
+            if (mappedBuffer != null)
+            {
+                return mappedBuffer;
+            }
+        }
+
+        return readData(Integer.toUnsignedLong(fileEntry.dataOffset()), fileEntry.dataSize());
     }
 
     public ByteBuffer demandResourceData(final KeyFile.ResourceLocator resourceLocator) throws Exception
@@ -141,7 +299,19 @@ public class BifFile
         buffer.order(ByteOrder.LITTLE_ENDIAN);
 
         // Read in-bif tileset data (missing header) to the correct offset
-        BufferUtil.readAtOffset(path, buffer, TIS.HEADER_SIZE, tilesetEntry.dataOffset(), tilesetEntry.dataSize());
+        final ByteBuffer mappedBuffer = memoryMapped && blockIndex == null
+            ? mappedSlice(tilesetEntry.dataOffset(), tilesetEntry.dataSize())
+            : null;
+
+        if (mappedBuffer != null)
+        {
+            buffer.put(TIS.HEADER_SIZE, mappedBuffer, 0, tilesetEntry.dataSize());
+        }
+        else
+        {
+            readData(buffer, TIS.HEADER_SIZE,
+                Integer.toUnsignedLong(tilesetEntry.dataOffset()), tilesetEntry.dataSize());
+        }
 
         // Write a fake header as if this TIS was a loose file
         buffer.position(0x0); buffer.put("TIS ".getBytes(StandardCharsets.UTF_8));
@@ -164,9 +334,101 @@ public class BifFile
     // Private Methods //
     /////////////////////
 
+    /**
+     * Reads {@code size} bytes of the (decompressed) bif file at {@code offset} into a new little-endian buffer.
+     */
+    private ByteBuffer readData(final long offset, final int size) throws IOException
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        readData(buffer, 0, offset, size);
+        return buffer;
+    }
+
+    /**
+     * Reads {@code size} bytes of the (decompressed) bif file at {@code offset} into {@code buffer} at
+     * {@code bufferOffset}. Afterward, {@code buffer}'s position is 0 and its limit is the end of the read data.
+     */
+    private void readData(
+        final ByteBuffer buffer, final int bufferOffset, final long offset, final int size) throws IOException
+    {
+        if (blockIndex != null)
+        {
+            blockIndex.read(buffer, bufferOffset, offset, size);
+            buffer.position(0);
+            buffer.limit(bufferOffset + size);
+        }
+        else
+        {
+            BufferUtil.readAtOffset(path, buffer, bufferOffset, offset, size);
+        }
+    }
+
+    /**
+     * Returns a read-only, little-endian view of the given range of the (decompressed) bif file, or null if
+     * the range isn't fully contained by a single mapped window. The returned buffer doesn't share its
+     * position / limit with any other buffer, so it is safe to hand out to multiple threads.
+     */
+    private ByteBuffer mappedSlice(final int offset, final int size) throws IOException
+    {
+        final MappedByteBuffer[] windows = demandMappedWindows();
+        final long unsignedOffset = Integer.toUnsignedLong(offset);
+        final int windowIndex = (int)(unsignedOffset / MAPPED_WINDOW_SIZE);
+
+        if (windowIndex >= windows.length)
+        {
+            return null;
+        }
+
+        final MappedByteBuffer window = windows[windowIndex];
+        final int windowOffset = (int)(unsignedOffset - windowIndex * MAPPED_WINDOW_SIZE);
+
+        if (size < 0 || windowOffset + (long)size > window.capacity())
+        {
+            return null;
+        }
+
+        final ByteBuffer slice = window.slice(windowOffset, size);
+        slice.order(ByteOrder.LITTLE_ENDIAN);
+        return slice;
+    }
+
+    private synchronized MappedByteBuffer[] demandMappedWindows() throws IOException
+    {
+        if (mappedWindows != null)
+        {
+            return mappedWindows;
+        }
+
+        // The mapping remains valid after the channel is closed
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            final long fileSize = channel.size();
+            final int numWindows = (int)((fileSize + MAPPED_WINDOW_SIZE - 1) / MAPPED_WINDOW_SIZE);
+            final MappedByteBuffer[] windows = new MappedByteBuffer[numWindows];
+
+            for (int i = 0; i < numWindows; ++i)
+            {
+                final long windowStart = i * MAPPED_WINDOW_SIZE;
+                final long windowSize = Math.min(MAPPED_WINDOW_SIZE + MAPPED_WINDOW_OVERLAP, fileSize - windowStart);
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+
+                // Slices handed out by this bif keep their window reachable, and with it the mapping
+                if (!path.equals(originalPath))
+                {
+                    DecompressedBifCache.addUser(path, windows[i]);
+                }
+            }
+
+            mappedWindows = windows;
+        }
+
+        return mappedWindows;
+    }
+
     private void readSignatureAndVersion() throws Exception
     {
-        signatureAndVersionBuffer = BufferUtil.readAtOffset(path, 0, 8);
+        signatureAndVersionBuffer = readData(0, 8);
     }
 
     private void parse() throws Exception
@@ -187,7 +449,7 @@ public class BifFile
     {
         verifyVersion(signature, "V1  ");
 
-        final ByteBuffer headerBuffer = BufferUtil.readAtOffset(path, 0x8, 0xC);
+        final ByteBuffer headerBuffer = readData(0x8, 0xC);
 
         final int numFileEntries = headerBuffer.getInt();
         final int numTilesetEntries = headerBuffer.getInt();
@@ -203,7 +465,7 @@ public class BifFile
     {
         verifyVersion(signature, "V1.0");
 
-        final int fileNameLen = BufferUtil.readAtOffset(path, 0x8, 4).getInt();
+        final int fileNameLen = readData(0x8, 4).getInt();
         //final String fileName = BufferUtil.readUTF8(
         //    BufferUtil.readAtOffset(path, 0xC, fileNameLen),
         //    fileNameLen - 1);
@@ -218,32 +480,37 @@ public class BifFile
 
         pendingDecompression = () ->
         {
-            path = decompress(afterFileNameOffset + 0x8);
+            path = DecompressedBifCache.demand(originalPath,
+                (outputPath) -> decompress(afterFileNameOffset + 0x8, outputPath));
+            DecompressedBifCache.addUser(path, this);
             parse();
         };
     }
 
-    private Path decompress(final int fromOffset) throws Exception
+    private void decompress(final int fromOffset, final Path outputPath) throws Exception
     {
-        final Path tempFolderPath = GlobalState.getInfinityAreasTemp();
-        final Path tempFilePath = Files.createTempFile(tempFolderPath, null, null);
-
+        // Compressed bifs are a single zlib stream, so they can't be inflated in parallel like BIFC blocks
         try (
             final InflaterInputStream inputStream = new InflaterInputStream(
                 inputStreamFromPathOffset(path, fromOffset),
-                new Inflater());
-            final BufferedOutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFilePath)))
+                new Inflater(), INFLATE_BUFFER_SIZE);
+            final FileChannel outputChannel = FileChannel.open(outputPath, StandardOpenOption.WRITE))
         {
-            byte[] buffer = new byte[1024];
+            final byte[] bufferArray = new byte[INFLATE_BUFFER_SIZE];
+            final ByteBuffer buffer = ByteBuffer.wrap(bufferArray);
 
             int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1)
+            while ((bytesRead = inputStream.read(bufferArray)) != -1)
             {
-                outputStream.write(buffer, 0, bytesRead);
+                buffer.rewind();
+                buffer.limit(bytesRead);
+
+                while (buffer.hasRemaining())
+                {
+                    outputChannel.write(buffer);
+                }
             }
         }
-
-        return tempFilePath;
     }
 
     private static InputStream inputStreamFromPathOffset(
@@ -258,84 +525,220 @@ public class BifFile
 
         pendingDecompression = () ->
         {
-            path = decompressBIFC();
+            final Path cachedPath = DecompressedBifCache.get(originalPath);
+            if (cachedPath != null)
+            {
+                path = cachedPath;
+            }
+            else if (bifcRandomAccess)
+            {
+                // Only inflate the blocks that are actually read
+                blockIndex = new BIFCBlockIndex(originalPath);
+                fillDecompressedBifCache();
+            }
+            else
+            {
+                path = DecompressedBifCache.demand(originalPath, this::decompressBIFC);
+            }
+
+            if (blockIndex == null)
+            {
+                DecompressedBifCache.addUser(path, this);
+            }
             parse();
         };
     }
 
-    private Path decompressBIFC() throws Exception
+    /**
+     * Decompresses this BIFC into the {@link DecompressedBifCache} in the background. This instance keeps reading
+     * through its block index; the cache entry is used the next time the file is opened.
+     */
+    private void fillDecompressedBifCache()
     {
-        final Path outputPath = Files.createTempFile(GlobalState.getInfinityAreasTemp(), null, null);
-        final ByteBuffer buffer = ByteBuffer.allocate(BIFC_BUFFER_SIZE);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-        final byte[] bufferArray = buffer.array();
+        if (!DecompressedBifCache.isEnabled() || DecompressedBifCache.getMaxSize() == 0)
+        {
+            return;
+        }
 
+        CACHE_FILL_EXECUTOR.execute(() ->
+        {
+            try
+            {
+                DecompressedBifCache.demand(originalPath, this::decompressBIFC);
+            }
+            catch (final Exception e)
+            {
+                System.err.println("Failed to cache decompressed bif \"" + originalPath + "\": " +
+                    MiscUtil.formatStackTrace(e));
+            }
+        });
+    }
+
+    /**
+     * BIFC files consist of a sequence of independently compressed blocks. The block headers are first
+     * scanned to determine where each block's decompressed data belongs in the output file, and then
+     * the blocks are inflated in parallel and written to their final positions.
+     */
+    private void decompressBIFC(final Path outputPath) throws Exception
+    {
         try (
             final FileChannel inputChannel = FileChannel.open(path, StandardOpenOption.READ);
-            final LimitableInputStream limitableInputStream = new LimitableInputStream(
-                Channels.newInputStream(inputChannel)
-            );
-            final FileChannel outputChannel = FileChannel.open(outputPath, StandardOpenOption.WRITE);
+            final FileChannel outputChannel = FileChannel.open(outputPath, StandardOpenOption.WRITE)
         )
         {
-            // Read BIFC metadata
-            inputChannel.position(0x8);
-            BufferUtil.channelRead(inputChannel, buffer, 4);
-            final int uncompressedSize = buffer.getInt();
+            final ByteBuffer input = mapBIFC(inputChannel);
+            final int uncompressedSize = input.getInt(0x8);
+            final BIFCBlock[] blocks = readBIFCBlocks(input, uncompressedSize);
 
-            final Inflater inflater = new Inflater();
-            int totalBytesDecompressed = 0;
+            // Preallocate the output file so that blocks can be written in any order
+            if (uncompressedSize > 0)
+            {
+                outputChannel.write(ByteBuffer.allocate(1), uncompressedSize - 1);
+            }
+
+            ParallelUtil.forEachRange(blocks.length, BIFC_MIN_BLOCKS_PER_TASK,
+                (start, end) -> inflateBIFCBlocks(input, outputChannel, blocks, start, end));
+        }
+    }
+
+    private static ByteBuffer mapBIFC(final FileChannel inputChannel) throws IOException
+    {
+        final long inputSize = inputChannel.size();
+        if (inputSize > Integer.MAX_VALUE)
+        {
+            throw new IllegalStateException(String.format("BIFC file too large: 0x%X bytes", inputSize));
+        }
+
+        final ByteBuffer input = inputChannel.map(FileChannel.MapMode.READ_ONLY, 0, inputSize);
+        input.order(ByteOrder.LITTLE_ENDIAN);
+        return input;
+    }
+
+    private static BIFCBlock[] readBIFCBlocks(final ByteBuffer input, final int uncompressedSize)
+    {
+        final ArrayList<BIFCBlock> blocks = new ArrayList<>();
+        int inputOffset = 0xC;
+        int outputOffset = 0;
+
+        // Scan blocks until the noted target size is reached
+        while (outputOffset < uncompressedSize)
+        {
+            if (inputOffset + 8 > input.limit())
+            {
+                throw new IllegalStateException(String.format(
+                    "BIFC truncated: expected 0x%X decompressed bytes, blocks only cover 0x%X",
+                    uncompressedSize, outputOffset));
+            }
+
+            final int blockDecompressedSize = input.getInt(inputOffset);
+            final int blockCompressedSize = input.getInt(inputOffset + 0x4);
+            final int compressedDataOffset = inputOffset + 0x8;
 
-            // Decompress blocks until the noted target size is reached
-            while (totalBytesDecompressed < uncompressedSize)
+            if (blockDecompressedSize < 0 || blockCompressedSize < 0
+                || compressedDataOffset + (long)blockCompressedSize > input.limit())
             {
-                // Read the current block's metadata
-                BufferUtil.channelRead(inputChannel, buffer, 8);
-                final int blockDecompressedSize = buffer.getInt();
-                final int blockCompressedSize = buffer.getInt();
+                throw new IllegalStateException(String.format(
+                    "Invalid BIFC block at 0x%X: decompressed size 0x%X, compressed size 0x%X",
+                    inputOffset, blockDecompressedSize, blockCompressedSize));
+            }
 
-                // Limit the source input stream so that the inflater doesn't read past the compressed data
-                limitableInputStream.limit(blockCompressedSize);
-                final InflaterInputStream inflaterInputStream = new InflaterInputStream(limitableInputStream, inflater);
+            blocks.add(new BIFCBlock(compressedDataOffset, blockCompressedSize, outputOffset, blockDecompressedSize));
+            inputOffset = compressedDataOffset + blockCompressedSize;
+            outputOffset += blockDecompressedSize;
+        }
 
-                int bytesDecompressedInBlock = 0;
-                int bytesRead;
+        return blocks.toArray(new BIFCBlock[0]);
+    }
 
-                // Read the decompressed data from the inflater input stream
-                while ((bytesRead = inflaterInputStream.read(bufferArray, 0, BIFC_BUFFER_SIZE)) != -1)
-                {
-                    // Reset the buffer to only see what was read into bufferArray
-                    buffer.rewind();
-                    buffer.limit(bytesRead);
+    private static void inflateBIFCBlocks(
+        final ByteBuffer input, final FileChannel outputChannel,
+        final BIFCBlock[] blocks, final int start, final int end) throws Exception
+    {
+        int maxBlockSize = 0;
+        for (int i = start; i < end; ++i)
+        {
+            maxBlockSize = Math.max(maxBlockSize, blocks[i].decompressedSize());
+        }
 
-                    // Write to the output channel (the temp file)
-                    int bytesWritten = 0;
-                    while (bytesWritten < bytesRead)
-                    {
-                        bytesWritten += outputChannel.write(buffer);
-                    }
+        // Consecutive blocks are contiguous in the output, so they are staged and written together
+        final ByteBuffer staging = ByteBuffer.allocate(Math.max(INFLATE_BUFFER_SIZE, maxBlockSize));
+        final byte[] stagingArray = staging.array();
+        long stagingFileOffset = start < end ? blocks[start].decompressedOffset() : 0;
 
-                    // Track the number of bytes decompressed from this block
-                    bytesDecompressedInBlock += bytesRead;
-                }
+        final Inflater inflater = new Inflater();
+        try
+        {
+            for (int i = start; i < end; ++i)
+            {
+                final BIFCBlock block = blocks[i];
 
-                // Check that the block decompression resulted in the expected number of bytes
-                if (bytesDecompressedInBlock != blockDecompressedSize)
+                if (staging.position() + block.decompressedSize() > staging.capacity())
                 {
-                    throw new IllegalStateException(String.format(
-                        "Expected BIFC block to decompress to 0x%X bytes, got 0x%X",
-                        blockDecompressedSize, bytesDecompressedInBlock));
+                    writeFully(outputChannel, staging, stagingFileOffset);
+                    stagingFileOffset = block.decompressedOffset();
                 }
 
-                // Track the total number of bytes decompressed so far
-                totalBytesDecompressed += bytesDecompressedInBlock;
+                final int blockStart = staging.position();
+                inflateBIFCBlock(inflater, input, block, stagingArray, blockStart);
+                staging.position(blockStart + block.decompressedSize());
+            }
 
-                // Reset the inflater, so it can be reused for subsequent blocks
-                inflater.reset();
+            writeFully(outputChannel, staging, stagingFileOffset);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private static void inflateBIFCBlock(
+        final Inflater inflater, final ByteBuffer input, final BIFCBlock block,
+        final byte[] dst, final int dstOffset) throws DataFormatException
+    {
+        inflater.reset();
+        inflater.setInput(input.slice(block.compressedOffset(), block.compressedSize()));
+
+        int bytesDecompressedInBlock = 0;
+
+        while (!inflater.finished() && bytesDecompressedInBlock < block.decompressedSize())
+        {
+            final int bytesInflated = inflater.inflate(dst, dstOffset + bytesDecompressedInBlock,
+                block.decompressedSize() - bytesDecompressedInBlock);
+
+            if (bytesInflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+            {
+                break;
             }
+
+            bytesDecompressedInBlock += bytesInflated;
         }
 
-        return outputPath;
+        // Check that the block decompression resulted in the expected number of bytes
+        if (bytesDecompressedInBlock != block.decompressedSize())
+        {
+            throw new IllegalStateException(String.format(
+                "Expected BIFC block to decompress to 0x%X bytes, got 0x%X",
+                block.decompressedSize(), bytesDecompressedInBlock));
+        }
+    }
+
+    /**
+     * Writes the [0, position) range of {@code buffer} to {@code channel} at {@code fileOffset}, and then
+     * clears {@code buffer}. Positional writes don't modify the channel's position, so this is safe to
+     * call from multiple threads.
+     */
+    private static void writeFully(
+        final FileChannel channel, final ByteBuffer buffer, final long fileOffset) throws IOException
+    {
+        buffer.flip();
+        long curFileOffset = fileOffset;
+
+        while (buffer.hasRemaining())
+        {
+            curFileOffset += channel.write(buffer, curFileOffset);
+        }
+
+        buffer.clear();
     }
 
     private void verifyVersion(final String signature, final String versionToMatch)
@@ -367,7 +770,7 @@ public class BifFile
     private void parseFileEntryChunk(
         final int fileOffset, final int fileReadSize, final int entryCount) throws IOException
     {
-        BufferUtil.readAtOffset(path, entryBuffer, fileOffset, fileReadSize);
+        readData(entryBuffer, 0, fileOffset, fileReadSize);
         int curBufferBase = 0;
 
         for (int i = 0; i < entryCount; ++i)
@@ -404,7 +807,7 @@ public class BifFile
     private void parseTilesetEntryChunk(
         final int fileOffset, final int fileReadSize, final int entryCount) throws IOException
     {
-        BufferUtil.readAtOffset(path, entryBuffer, fileOffset, fileReadSize);
+        readData(entryBuffer, 0, fileOffset, fileReadSize);
         int curBufferBase = 0;
 
         for (int i = 0; i < entryCount; ++i)
@@ -426,6 +829,30 @@ public class BifFile
         }
     }
 
+    private void restoreEntries(final ByteBuffer entries)
+    {
+        final int numFileEntries = entries.getInt();
+        for (int i = 0; i < numFileEntries; ++i)
+        {
+            final FileEntry fileEntry = new FileEntry(entries.getInt(), entries.getInt(), entries.getInt(),
+                entries.getInt());
+
+            final KeyFile.ResourceLocator resourceLocator = new KeyFile.ResourceLocator(fileEntry.resourceLocator());
+            fileEntriesByResourceIndex.put(resourceLocator.getResourceIndex(), fileEntry);
+        }
+
+        final int numTilesetEntries = entries.getInt();
+        for (int i = 0; i < numTilesetEntries; ++i)
+        {
+            final TilesetEntry tilesetEntry = new TilesetEntry(entries.getInt(), entries.getInt(), entries.getInt(),
+                entries.getInt(), entries.getShort());
+
+            final KeyFile.ResourceLocator resourceLocator = new KeyFile.ResourceLocator(
+                tilesetEntry.resourceLocator());
+            tilesetEntriesByTilesetIndex.put(resourceLocator.getTilesetIndex(), tilesetEntry);
+        }
+    }
+
     private void position(final int pos)
     {
         entryBuffer.position(pos);
@@ -435,6 +862,150 @@ public class BifFile
     // Private Classes //
     /////////////////////
 
+    /**
+     * Provides random access to the decompressed contents of a BIFC file. Reads only inflate the blocks
+     * that cover the requested range, and the most recently inflated blocks are kept in a small LRU cache.
+     * Blocks are inflated outside of any lock, so that reads from multiple threads don't wait on each other;
+     * only the cache's lookups and insertions are synchronized.
+     */
+    private static class BIFCBlockIndex
+    {
+        private final ByteBuffer input;
+        private final BIFCBlock[] blocks;
+        private final LinkedHashMap<Integer, byte[]> inflatedBlocks = new LinkedHashMap<>(16, 0.75F, true);
+        private long inflatedBlocksSize;
+
+        public BIFCBlockIndex(final Path path) throws IOException
+        {
+            try (final FileChannel inputChannel = FileChannel.open(path, StandardOpenOption.READ))
+            {
+                // The mapping remains valid after the channel is closed
+                input = mapBIFC(inputChannel);
+                blocks = readBIFCBlocks(input, input.getInt(0x8));
+            }
+        }
+
+        public void read(
+            final ByteBuffer dst, final int dstOffset, final long offset, final int size) throws IOException
+        {
+            int blockIndex = findBlockIndex(offset);
+            int bytesCopied = 0;
+
+            // Only created if a block has to be inflated
+            Inflater inflater = null;
+            try
+            {
+                while (bytesCopied < size)
+                {
+                    if (blockIndex >= blocks.length)
+                    {
+                        throw new IOException(String.format(
+                            "Attempted to read past the end of BIFC data: offset 0x%X, size 0x%X", offset, size));
+                    }
+
+                    final BIFCBlock block = blocks[blockIndex];
+                    byte[] blockData = getInflatedBlock(blockIndex);
+
+                    if (blockData == null)
+                    {
+                        if (inflater == null)
+                        {
+                            inflater = new Inflater();
+                        }
+                        blockData = inflateBlock(inflater, blockIndex);
+                    }
+
+                    final int inBlockOffset = (int)(offset + bytesCopied - block.decompressedOffset());
+                    final int toCopy = Math.min(size - bytesCopied, block.decompressedSize() - inBlockOffset);
+
+                    dst.put(dstOffset + bytesCopied, blockData, inBlockOffset, toCopy);
+                    bytesCopied += toCopy;
+                    ++blockIndex;
+                }
+            }
+            finally
+            {
+                if (inflater != null)
+                {
+                    inflater.end();
+                }
+            }
+        }
+
+        /**
+         * Returns the index of the last block that starts at or before {@code offset}.
+         */
+        private int findBlockIndex(final long offset)
+        {
+            int low = 0;
+            int high = blocks.length - 1;
+            int found = 0;
+
+            while (low <= high)
+            {
+                final int mid = (low + high) >>> 1;
+                if (blocks[mid].decompressedOffset() <= offset)
+                {
+                    found = mid;
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid - 1;
+                }
+            }
+
+            return found;
+        }
+
+        private synchronized byte[] getInflatedBlock(final int blockIndex)
+        {
+            return inflatedBlocks.get(blockIndex);
+        }
+
+        /**
+         * Inflates the block, and adds it to the cache. If another thread cached the block in the meantime, that
+         * thread's copy is returned instead, so that the cache's size stays accurate.
+         */
+        private byte[] inflateBlock(final Inflater inflater, final int blockIndex) throws IOException
+        {
+            final BIFCBlock block = blocks[blockIndex];
+            final byte[] blockData = new byte[block.decompressedSize()];
+
+            try
+            {
+                inflateBIFCBlock(inflater, input, block, blockData, 0);
+            }
+            catch (final DataFormatException e)
+            {
+                throw new IOException("Invalid BIFC block data", e);
+            }
+
+            synchronized (this)
+            {
+                final byte[] existingBlockData = inflatedBlocks.putIfAbsent(blockIndex, blockData);
+                if (existingBlockData != null)
+                {
+                    return existingBlockData;
+                }
+
+                inflatedBlocksSize += blockData.length;
+
+                // Evict the least recently used blocks, always keeping the block that was just inflated
+                final Iterator<byte[]> iterator = inflatedBlocks.values().iterator();
+                while (inflatedBlocksSize > BIFC_BLOCK_CACHE_SIZE && inflatedBlocks.size() > 1)
+                {
+                    inflatedBlocksSize -= iterator.next().length;
+                    iterator.remove();
+                }
+            }
+
+            return blockData;
+        }
+    }
+
+    private record BIFCBlock(int compressedOffset, int compressedSize, int decompressedOffset, int decompressedSize) {}
+
     private record FileEntry(int resourceLocator, int dataOffset, int dataSize, int resourceType) {}
 
     private record TilesetEntry(
@@ -0,0 +1,337 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import com.github.bubb13.infinityareas.game.Game;
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A process-wide cache of decoded TIS and PVRZ resources, so that every pane that shows the same tileset shares a
+ * single decoded copy. Entries are keyed by {@link Game.ResourceSource}, so a resource whose primary source
+ * changes is decoded again from its new source.
+ * <p>
+ * Recently used entries are held strongly, up to a byte budget. Beyond that budget entries are only held weakly,
+ * so a resource stays shared for as long as any pane still references it, and is freed once none do. If several
+ * threads demand the same resource at once, it is only decoded once and the other threads wait for the result.
+ */
+public final class DecodedResourceCache
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final long DEFAULT_MAX_SIZE = 512L * 1024 * 1024;
+
+    private static final HashMap<Game.ResourceSource, Entry> entries = new HashMap<>();
+    /** Recently used values, held strongly in LRU order */
+    private static final LinkedHashMap<Game.ResourceSource, Entry> recentEntries
+        = new LinkedHashMap<>(16, 0.75F, true);
+    private static final ReferenceQueue<Object> collectedValues = new ReferenceQueue<>();
+
+    private static long maxSize = DEFAULT_MAX_SIZE;
+    private static long residentBytes;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static synchronized long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public static synchronized void setMaxSize(final long maxSize)
+    {
+        DecodedResourceCache.maxSize = Math.max(0, maxSize);
+        evict();
+    }
+
+    public static void setMaxSizeMegabytes(final int maxSizeMegabytes)
+    {
+        setMaxSize((long)maxSizeMegabytes * 1024 * 1024);
+    }
+
+    public static TIS demandTIS(final TaskTrackerI tracker, final Game.ResourceSource source) throws Exception
+    {
+        return (TIS)demand(source, () ->
+        {
+            final TIS tis = new TIS(source);
+            tis.load(tracker);
+            return new LoadedValue(tis, tis.getDecodedSize(), tis.getPVRZIdentifiers());
+        });
+    }
+
+    public static PVRZ demandPVRZ(final TaskTrackerI tracker, final Game.ResourceSource source) throws Exception
+    {
+        return (PVRZ)demand(source, () ->
+        {
+            final PVRZ pvrz = new PVRZ(source);
+            pvrz.load(tracker);
+            return new LoadedValue(pvrz, pvrz.getDecodedSize(), Set.of());
+        });
+    }
+
+    /**
+     * Drops every entry decoded from a source of the resource identified by {@code identifier}, as well as every
+     * entry that was decoded using that resource (e.g. the TIS files that reference a PVRZ). Existing holders of the
+     * dropped values are unaffected.
+     */
+    public static synchronized void invalidate(final ResourceIdentifier identifier)
+    {
+        final Iterator<Map.Entry<Game.ResourceSource, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            final Map.Entry<Game.ResourceSource, Entry> mapEntry = iterator.next();
+            final Entry entry = mapEntry.getValue();
+
+            if (mapEntry.getKey().getIdentifier().equals(identifier) || entry.dependencies.contains(identifier))
+            {
+                iterator.remove();
+                removeRecent(mapEntry.getKey(), entry);
+            }
+        }
+    }
+
+    public static synchronized void clear()
+    {
+        entries.clear();
+        recentEntries.clear();
+        residentBytes = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public static synchronized Stats getStats()
+    {
+        return new Stats(hits, misses, evictions, entries.size(), residentBytes, maxSize);
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    private static Object demand(final Game.ResourceSource source, final Loader loader) throws Exception
+    {
+        final CompletableFuture<LoadedValue> future;
+        final boolean isLoader;
+
+        synchronized (DecodedResourceCache.class)
+        {
+            expungeCollected();
+
+            final Entry entry = entries.get(source);
+            if (entry != null)
+            {
+                final Object value = entry.get();
+                if (value != null)
+                {
+                    ++hits;
+                    if (recentEntries.get(source) == null)
+                    {
+                        // Promote the weakly held value back into the budget
+                        entry.strongValue = value;
+                        addRecent(source, entry);
+                    }
+                    return value;
+                }
+
+                if (entry.loading != null)
+                {
+                    ++hits;
+                    future = entry.loading;
+                    isLoader = false;
+                }
+                else
+                {
+                    // The value was collected
+                    entries.remove(source);
+                    future = startLoading(source);
+                    isLoader = true;
+                }
+            }
+            else
+            {
+                future = startLoading(source);
+                isLoader = true;
+            }
+        }
+
+        if (!isLoader)
+        {
+            try
+            {
+                return future.get().value();
+            }
+            catch (final ExecutionException e)
+            {
+                if (e.getCause() instanceof Exception cause) throw cause;
+                throw e;
+            }
+        }
+
+        final LoadedValue loadedValue;
+        try
+        {
+            loadedValue = loader.load();
+        }
+        catch (final Exception e)
+        {
+            synchronized (DecodedResourceCache.class)
+            {
+                final Entry entry = entries.get(source);
+                if (entry != null && entry.loading == future)
+                {
+                    entries.remove(source);
+                }
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+
+        synchronized (DecodedResourceCache.class)
+        {
+            final Entry entry = entries.get(source);
+            // The entry may have been invalidated while it was loading
+            if (entry != null && entry.loading == future)
+            {
+                entry.complete(loadedValue, collectedValues, source);
+                addRecent(source, entry);
+            }
+        }
+
+        future.complete(loadedValue);
+        return loadedValue.value();
+    }
+
+    private static CompletableFuture<LoadedValue> startLoading(final Game.ResourceSource source)
+    {
+        ++misses;
+        final Entry entry = new Entry();
+        entry.loading = new CompletableFuture<>();
+        entries.put(source, entry);
+        return entry.loading;
+    }
+
+    private static void addRecent(final Game.ResourceSource source, final Entry entry)
+    {
+        recentEntries.put(source, entry);
+        residentBytes += entry.size;
+        evict();
+    }
+
+    private static void removeRecent(final Game.ResourceSource source, final Entry entry)
+    {
+        if (recentEntries.remove(source) != null)
+        {
+            residentBytes -= entry.size;
+        }
+        entry.strongValue = null;
+    }
+
+    /**
+     * Demotes the least recently used entries to weakly held until the budget is met.
+     */
+    private static void evict()
+    {
+        final Iterator<Entry> iterator = recentEntries.values().iterator();
+        while (residentBytes > maxSize && iterator.hasNext())
+        {
+            final Entry entry = iterator.next();
+            iterator.remove();
+            residentBytes -= entry.size;
+            entry.strongValue = null;
+            ++evictions;
+        }
+    }
+
+    private static void expungeCollected()
+    {
+        Reference<?> reference;
+        while ((reference = collectedValues.poll()) != null)
+        {
+            final ValueReference valueReference = (ValueReference)reference;
+            final Entry entry = entries.get(valueReference.source);
+            if (entry != null && entry.weakValue == valueReference)
+            {
+                entries.remove(valueReference.source);
+            }
+        }
+    }
+
+    //////////////////////////
+    // Private Constructors //
+    //////////////////////////
+
+    private DecodedResourceCache() {}
+
+    ////////////////////
+    // Public Classes //
+    ////////////////////
+
+    public record Stats(long hits, long misses, long evictions, int numEntries, long residentBytes, long maxSize) {}
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    private interface Loader
+    {
+        LoadedValue load() throws Exception;
+    }
+
+    /**
+     * @param dependencies The resources, other than the value's own, that the value was decoded from.
+     */
+    private record LoadedValue(Object value, long size, Set<ResourceIdentifier> dependencies) {}
+
+    private static class Entry
+    {
+        private CompletableFuture<LoadedValue> loading;
+        private ValueReference weakValue;
+        private Object strongValue;
+        private long size;
+        private Set<ResourceIdentifier> dependencies = Set.of();
+
+        public Object get()
+        {
+            if (strongValue != null) return strongValue;
+            return weakValue == null ? null : weakValue.get();
+        }
+
+        public void complete(
+            final LoadedValue loadedValue, final ReferenceQueue<Object> queue, final Game.ResourceSource source)
+        {
+            loading = null;
+            strongValue = loadedValue.value();
+            weakValue = new ValueReference(loadedValue.value(), queue, source);
+            size = loadedValue.size();
+            dependencies = loadedValue.dependencies();
+        }
+    }
+
+    private static class ValueReference extends WeakReference<Object>
+    {
+        private final Game.ResourceSource source;
+
+        public ValueReference(
+            final Object value, final ReferenceQueue<Object> queue, final Game.ResourceSource source)
+        {
+            super(value, queue);
+            this.source = source;
+        }
+    }
+}
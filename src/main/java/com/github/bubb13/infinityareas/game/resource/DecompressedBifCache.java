@@ -0,0 +1,486 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import com.github.bubb13.infinityareas.GlobalState;
+import com.github.bubb13.infinityareas.misc.ThrowingConsumer;
+import com.github.bubb13.infinityareas.util.FileUtil;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.CRC32;
+
+/**
+ * Stores decompressed copies of compressed bif files (BIFC / .cbf) across sessions, so that the (potentially
+ * expensive) decompression only has to be done once per source file. An entry is considered valid as long as
+ * the source file's path, size, modification time, and header checksum are unchanged. When the total size of
+ * the cache exceeds its budget, the least recently used entries are evicted.
+ * <p>
+ * Entries that are still in use by this process (see {@link #addUser(Path, Object)}) are never replaced or
+ * evicted; Windows refuses to delete or overwrite a file while it is memory-mapped, and Java can only unmap a
+ * file once its mappings have been garbage collected.
+ */
+public final class DecompressedBifCache
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final String DATA_EXTENSION = ".bif";
+    private static final String META_EXTENSION = ".json";
+    private static final String PARTIAL_EXTENSION = ".partial";
+
+    /** The number of bytes at the start of the source file that are included in the header checksum */
+    private static final int HEADER_CHECKSUM_SIZE = 0x10000;
+
+    private static final long DEFAULT_MAX_SIZE = 4096L * 1024 * 1024;
+
+    private static volatile boolean enabled = true;
+    private static volatile long maxSize = DEFAULT_MAX_SIZE;
+
+    /** Guarded by the class lock */
+    private static final HashMap<Path, ArrayList<WeakReference<Object>>> usersByDataPath = new HashMap<>();
+
+    /** The entries that are currently being decompressed, by data path. Guarded by the class lock. */
+    private static final HashMap<Path, CompletableFuture<Path>> fillsByDataPath = new HashMap<>();
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void setEnabled(final boolean enabled)
+    {
+        DecompressedBifCache.enabled = enabled;
+    }
+
+    public static long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public static void setMaxSize(final long maxSize)
+    {
+        DecompressedBifCache.maxSize = Math.max(0, maxSize);
+    }
+
+    public static void setMaxSizeMegabytes(final int maxSizeMegabytes)
+    {
+        setMaxSize((long)maxSizeMegabytes * 1024 * 1024);
+    }
+
+    /**
+     * Returns the path of a decompressed copy of {@code sourcePath}. If the cache holds a valid entry for
+     * {@code sourcePath} it is reused, otherwise {@code decompressor} is called to write the decompressed
+     * data to the given (empty) output path. Concurrent calls for the same source wait for the first call's
+     * decompression instead of repeating it.
+     *
+     * @param sourcePath The path of the compressed bif.
+     * @param decompressor Decompresses {@code sourcePath} into the path it is passed.
+     * @return The path of the decompressed bif.
+     * @throws Exception The exception thrown by {@code decompressor}, or an I/O exception.
+     */
+    public static Path demand(
+        final Path sourcePath, final ThrowingConsumer<Path, Exception> decompressor) throws Exception
+    {
+        if (!enabled || maxSize == 0)
+        {
+            final Path tempFilePath = Files.createTempFile(GlobalState.getInfinityAreasTemp(), null, null);
+            decompressor.accept(tempFilePath);
+            return tempFilePath;
+        }
+
+        return demand(GlobalState.getInfinityAreasBifCache(), sourcePath, decompressor);
+    }
+
+    /**
+     * Returns the path of a valid decompressed copy of {@code sourcePath}, or null if the cache is disabled
+     * or doesn't hold a valid entry for {@code sourcePath}.
+     *
+     * @param sourcePath The path of the compressed bif.
+     * @return The path of the decompressed bif, or null.
+     * @throws Exception An I/O exception.
+     */
+    public static Path get(final Path sourcePath) throws Exception
+    {
+        if (!enabled || maxSize == 0)
+        {
+            return null;
+        }
+
+        return get(GlobalState.getInfinityAreasBifCache(), sourcePath);
+    }
+
+    /**
+     * Deletes every entry in the cache. Entries that are currently in use (memory-mapped) may fail to be
+     * deleted on some platforms; these are skipped.
+     */
+    public static void clear() throws Exception
+    {
+        clear(GlobalState.getInfinityAreasBifCache());
+    }
+
+    /**
+     * Deletes the partially written entries left behind by a previous session that was terminated while it
+     * was decompressing. Should only be called at startup, before any entry is demanded.
+     */
+    public static void removePartialFiles() throws Exception
+    {
+        removePartialFiles(GlobalState.getInfinityAreasBifCache());
+    }
+
+    ////////////////////////////////////
+    // Package Private Static Methods //
+    ////////////////////////////////////
+
+    /**
+     * Marks the entry at {@code dataPath} as in use for as long as {@code user} is reachable. Paths that aren't
+     * cache entries are ignored.
+     */
+    static synchronized void addUser(final Path dataPath, final Object user)
+    {
+        usersByDataPath.computeIfAbsent(dataPath, (ignored) -> new ArrayList<>()).add(new WeakReference<>(user));
+    }
+
+    static Path demand(
+        final Path cacheRoot, final Path sourcePath,
+        final ThrowingConsumer<Path, Exception> decompressor) throws Exception
+    {
+        final JsonObject sourceKey = createKey(sourcePath);
+        final String entryName = getEntryName(sourcePath);
+
+        final Path dataPath = cacheRoot.resolve(entryName + DATA_EXTENSION);
+        final Path metaPath = cacheRoot.resolve(entryName + META_EXTENSION);
+
+        final CompletableFuture<Path> fill;
+        final boolean isFiller;
+
+        synchronized (DecompressedBifCache.class)
+        {
+            if (getValidEntry(dataPath, metaPath, sourceKey) != null)
+            {
+                return dataPath;
+            }
+
+            final CompletableFuture<Path> existingFill = fillsByDataPath.get(dataPath);
+            if (existingFill != null)
+            {
+                fill = existingFill;
+                isFiller = false;
+            }
+            else
+            {
+                fill = new CompletableFuture<>();
+                fillsByDataPath.put(dataPath, fill);
+                isFiller = true;
+            }
+        }
+
+        if (!isFiller)
+        {
+            try
+            {
+                return fill.get();
+            }
+            catch (final ExecutionException e)
+            {
+                if (e.getCause() instanceof Exception cause) throw cause;
+                throw e;
+            }
+        }
+
+        final Path path;
+        try
+        {
+            path = fill(cacheRoot, entryName, dataPath, metaPath, sourceKey, decompressor);
+        }
+        catch (final Exception e)
+        {
+            synchronized (DecompressedBifCache.class)
+            {
+                fillsByDataPath.remove(dataPath);
+            }
+            fill.completeExceptionally(e);
+            throw e;
+        }
+
+        synchronized (DecompressedBifCache.class)
+        {
+            fillsByDataPath.remove(dataPath);
+        }
+        fill.complete(path);
+        return path;
+    }
+
+    static Path get(final Path cacheRoot, final Path sourcePath) throws Exception
+    {
+        final String entryName = getEntryName(sourcePath);
+
+        return getValidEntry(
+            cacheRoot.resolve(entryName + DATA_EXTENSION),
+            cacheRoot.resolve(entryName + META_EXTENSION),
+            createKey(sourcePath));
+    }
+
+    static synchronized void clear(final Path cacheRoot) throws Exception
+    {
+        FileUtil.forAllInPath(cacheRoot, (final Path path) ->
+        {
+            if (isInUse(path))
+            {
+                return;
+            }
+
+            try
+            {
+                Files.delete(path);
+            }
+            catch (final Exception ignored) {}
+        });
+    }
+
+    static synchronized void removePartialFiles(final Path cacheRoot) throws Exception
+    {
+        FileUtil.forAllInPath(cacheRoot, (final Path path) ->
+        {
+            if (!path.getFileName().toString().endsWith(PARTIAL_EXTENSION))
+            {
+                return;
+            }
+
+            try
+            {
+                Files.delete(path);
+            }
+            catch (final Exception ignored) {}
+        });
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    private static String getEntryName(final Path sourcePath)
+    {
+        return UUID.nameUUIDFromBytes(
+            sourcePath.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Decompresses {@code sourcePath}'s entry, and moves it into place.
+     *
+     * @return The path of the decompressed bif; a temporary file if the stale entry couldn't be replaced.
+     */
+    private static Path fill(
+        final Path cacheRoot, final String entryName, final Path dataPath, final Path metaPath,
+        final JsonObject sourceKey, final ThrowingConsumer<Path, Exception> decompressor) throws Exception
+    {
+        // Decompress outside the lock so that multiple bifs can be decompressed at once
+        final Path partialPath = Files.createTempFile(cacheRoot, entryName, PARTIAL_EXTENSION);
+        try
+        {
+            decompressor.accept(partialPath);
+        }
+        catch (final Exception e)
+        {
+            Files.deleteIfExists(partialPath);
+            throw e;
+        }
+
+        synchronized (DecompressedBifCache.class)
+        {
+            // The stale copy is still read by an older bif instance; leave it be, and use the new data uncached.
+            // The partial file is removed at the next startup.
+            if (isInUse(dataPath))
+            {
+                return partialPath;
+            }
+
+            // The metadata is written last; an entry without it is never considered valid
+            Files.deleteIfExists(metaPath);
+            try
+            {
+                Files.move(partialPath, dataPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (final IOException ignored)
+            {
+                // The stale copy is still mapped by a mapping that hasn't been collected yet
+                return partialPath;
+            }
+            Files.writeString(metaPath, sourceKey.toString());
+            evict(cacheRoot, dataPath);
+        }
+
+        return dataPath;
+    }
+
+    private static synchronized boolean isInUse(final Path dataPath)
+    {
+        final ArrayList<WeakReference<Object>> users = usersByDataPath.get(dataPath);
+        if (users == null)
+        {
+            return false;
+        }
+
+        users.removeIf((final WeakReference<Object> user) -> user.get() == null);
+        if (users.isEmpty())
+        {
+            usersByDataPath.remove(dataPath);
+            return false;
+        }
+
+        return true;
+    }
+
+    private static synchronized Path getValidEntry(
+        final Path dataPath, final Path metaPath, final JsonObject sourceKey) throws IOException
+    {
+        if (!isValidEntry(dataPath, metaPath, sourceKey))
+        {
+            return null;
+        }
+
+        // Track the access time for LRU eviction
+        Files.setLastModifiedTime(metaPath, FileTime.fromMillis(System.currentTimeMillis()));
+        return dataPath;
+    }
+
+    private static JsonObject createKey(final Path sourcePath) throws IOException
+    {
+        final BasicFileAttributes attributes = Files.readAttributes(sourcePath, BasicFileAttributes.class);
+
+        final JsonObject key = new JsonObject();
+        key.addProperty("path", sourcePath.toAbsolutePath().toString());
+        key.addProperty("size", attributes.size());
+        key.addProperty("modified", attributes.lastModifiedTime().toMillis());
+        key.addProperty("headerChecksum", calculateHeaderChecksum(sourcePath));
+        return key;
+    }
+
+    private static long calculateHeaderChecksum(final Path sourcePath) throws IOException
+    {
+        try (final FileChannel channel = FileChannel.open(sourcePath, StandardOpenOption.READ))
+        {
+            final ByteBuffer buffer = ByteBuffer.allocate((int)Math.min(HEADER_CHECKSUM_SIZE, channel.size()));
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {}
+            buffer.flip();
+
+            final CRC32 crc = new CRC32();
+            crc.update(buffer);
+            return crc.getValue();
+        }
+    }
+
+    private static boolean isValidEntry(final Path dataPath, final Path metaPath, final JsonObject sourceKey)
+    {
+        if (!Files.isRegularFile(dataPath) || !Files.isRegularFile(metaPath))
+        {
+            return false;
+        }
+
+        try
+        {
+            final JsonElement element = JsonParser.parseString(Files.readString(metaPath));
+            return element.isJsonObject() && element.getAsJsonObject().equals(sourceKey);
+        }
+        catch (final Exception ignored)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its budget. {@code keepDataPath}'s
+     * entry is never evicted, even if it alone exceeds the budget, since it is about to be used. Neither
+     * are entries that are still in use.
+     */
+    private static void evict(final Path cacheRoot, final Path keepDataPath) throws IOException
+    {
+        final ArrayList<CacheEntry> entries = new ArrayList<>();
+        long totalSize = 0;
+
+        for (final Path path : FileUtil.getAllInPath(cacheRoot))
+        {
+            final String fileName = path.getFileName().toString();
+            if (!fileName.endsWith(DATA_EXTENSION))
+            {
+                continue;
+            }
+
+            final String entryName = fileName.substring(0, fileName.length() - DATA_EXTENSION.length());
+            final Path metaPath = cacheRoot.resolve(entryName + META_EXTENSION);
+
+            try
+            {
+                // Data without metadata is left over from an interrupted write, and is evicted first
+                final long lastUsed = Files.isRegularFile(metaPath)
+                    ? Files.getLastModifiedTime(metaPath).toMillis()
+                    : 0;
+                final long size = Files.size(path);
+                entries.add(new CacheEntry(metaPath, path, lastUsed, size));
+                totalSize += size;
+            }
+            catch (final IOException ignored) {}
+        }
+
+        entries.sort(Comparator.comparingLong(CacheEntry::lastUsed));
+
+        for (final CacheEntry entry : entries)
+        {
+            if (totalSize <= maxSize)
+            {
+                break;
+            }
+
+            if (entry.dataPath().equals(keepDataPath) || isInUse(entry.dataPath()))
+            {
+                continue;
+            }
+
+            try
+            {
+                // The data is deleted first, so that an entry that can't be deleted stays valid
+                Files.deleteIfExists(entry.dataPath());
+                Files.deleteIfExists(entry.metaPath());
+                totalSize -= entry.size();
+            }
+            catch (final IOException ignored)
+            {
+                // Likely still memory-mapped by a mapping that hasn't been collected yet
+            }
+        }
+    }
+
+    //////////////////////////
+    // Private Constructors //
+    //////////////////////////
+
+    private DecompressedBifCache() {}
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    private record CacheEntry(Path metaPath, Path dataPath, long lastUsed, long size) {}
+}
@@ -14,7 +14,11 @@ import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,9 +30,17 @@ public class KeyFile
 
     private final Path path;
     private final ArrayList<BifEntry> bifEntries = new ArrayList<>();
-    private final TreeMap<ResourceIdentifier, FileEntry> fileEntries = new TreeMap<>();
     private ByteBuffer buffer;
 
+    /** Every unique resource in the key file. The last entry wins when a resource is listed more than once. */
+    private ResourceKeyTable keyTable = new ResourceKeyTable();
+    /** Indexed by key table index */
+    private int[] locatorsByKey = new int[0];
+
+    // Every file entry record in the key file, including duplicates, ordered by bif index
+    private int[] fileEntryKeyIndices = new int[0];
+    private int[] fileEntryLocators = new int[0];
+
     /////////////////////////
     // Public Constructors //
     /////////////////////////
@@ -95,7 +107,12 @@ public class KeyFile
 
     public FileEntry getFileEntry(final String resref, final short numericType)
     {
-        return fileEntries.get(new ResourceIdentifier(resref, numericType));
+        return createFileEntry(keyTable.find(resref, numericType));
+    }
+
+    public FileEntry getFileEntry(final long packedResref, final short numericType)
+    {
+        return createFileEntry(keyTable.find(packedResref, numericType));
     }
 
     public FileEntry getFileEntry(final String resref, final NumericResourceType numericResourceType)
@@ -115,12 +132,74 @@ public class KeyFile
 
     public int getNumFileEntries()
     {
-        return fileEntries.size();
+        return keyTable.size();
     }
 
+    /**
+     * @return Every unique file entry, sorted in {@link ResourceIdentifier} order. The entries are created on demand.
+     */
     public Iterable<FileEntry> fileEntries()
     {
-        return MiscUtil.readOnlyIterable(fileEntries.values());
+        final int[] sortedIndices = keyTable.sortedIndices();
+        return () -> new Iterator<>()
+        {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return i < sortedIndices.length;
+            }
+
+            @Override
+            public FileEntry next()
+            {
+                if (i >= sortedIndices.length) throw new NoSuchElementException();
+                return createFileEntry(sortedIndices[i++]);
+            }
+        };
+    }
+
+    /**
+     * @return The table holding every unique (resref, numeric type) pair in the key file. Must not be modified.
+     */
+    public ResourceKeyTable getKeyTable()
+    {
+        return keyTable;
+    }
+
+    /**
+     * @return The resource locator of the given key table index.
+     */
+    public int getLocator(final int keyIndex)
+    {
+        return locatorsByKey[keyIndex];
+    }
+
+    /**
+     * @return The number of file entry records in the key file, including resources that are listed more than once.
+     */
+    public int getNumFileEntryRecords()
+    {
+        return fileEntryKeyIndices.length;
+    }
+
+    /**
+     * @return The key table index of the given file entry record. Records are ordered by bif index, and then by
+     *         their order in the key file.
+     */
+    public int getFileEntryRecordKeyIndex(final int recordIndex)
+    {
+        return fileEntryKeyIndices[recordIndex];
+    }
+
+    /**
+     * @return The resource locator of the given file entry record. Records are ordered by bif index, and then by
+     *         their order in the key file.
+     */
+    public int getFileEntryRecordLocator(final int recordIndex)
+    {
+        return fileEntryLocators[recordIndex];
     }
 
     /////////////////////
@@ -133,7 +212,10 @@ public class KeyFile
         tracker.updateProgress(0, 1);
 
         bifEntries.clear();
-        fileEntries.clear();
+        keyTable = new ResourceKeyTable();
+        locatorsByKey = new int[0];
+        fileEntryKeyIndices = new int[0];
+        fileEntryLocators = new int[0];
 
         if (!Files.isRegularFile(path))
         {
@@ -189,25 +271,99 @@ public class KeyFile
 
     private void parseFileEntries(final TaskTrackerI tracker, final int offset, final int count)
     {
+        final int numBifEntries = bifEntries.size();
+        final ResourceKeyTable newKeyTable = new ResourceKeyTable(count);
+        final int[] keyIndices = new int[count];
+        final int[] locators = new int[count];
+        final int[] bifStarts = new int[numBifEntries + 1];
+
         int curBase = offset;
         for (int i = 0; i < count; i++)
         {
-            position(curBase);       final String resref = BufferUtil.readLUTF8(buffer, 8);
+            final long packedResref = readPackedResref(curBase);
             position(curBase + 0x8); final short resourceType = buffer.getShort();
             position(curBase + 0xA); final int resourceLocator = buffer.getInt();
 
-            final ResourceIdentifier resourceIdentifier = new ResourceIdentifier(resref, resourceType);
-            final FileEntry fileEntry = new FileEntry(resref, resourceType, resourceLocator);
-
-            // Add to main list
-            fileEntries.put(resourceIdentifier, fileEntry);
+            if (packedResref != ResourceIdentifier.UNPACKABLE_RESREF)
+            {
+                keyIndices[i] = newKeyTable.add(packedResref, resourceType);
+            }
+            else
+            {
+                position(curBase);
+                keyIndices[i] = newKeyTable.add(BufferUtil.readLUTF8(buffer, 8), resourceType);
+            }
+            locators[i] = resourceLocator;
 
-            // Add to per-bif list
-            final int bifIndex = fileEntry.getResourceLocator().getBifIndex();
-            bifEntries.get(bifIndex).fileEntries.add(fileEntry);
+            final int bifIndex = (resourceLocator >> 20) & 0xFFF;
+            if (bifIndex >= numBifEntries)
+            {
+                throw new IllegalStateException(String.format("Invalid bif index %d for resource \"%s\"",
+                    bifIndex, newKeyTable.getResref(keyIndices[i])));
+            }
+            ++bifStarts[bifIndex + 1];
 
             curBase += 0xE; // Next entry
         }
+
+        // The last record of a resource determines its locator
+        final int[] newLocatorsByKey = new int[newKeyTable.size()];
+        for (int i = 0; i < count; ++i)
+        {
+            newLocatorsByKey[keyIndices[i]] = locators[i];
+        }
+
+        // Stable counting sort of the records by bif index
+        for (int i = 0; i < numBifEntries; ++i)
+        {
+            bifStarts[i + 1] += bifStarts[i];
+        }
+
+        final int[] bifPositions = Arrays.copyOf(bifStarts, numBifEntries);
+        final int[] sortedKeyIndices = new int[count];
+        final int[] sortedLocators = new int[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            final int sortedIndex = bifPositions[(locators[i] >> 20) & 0xFFF]++;
+            sortedKeyIndices[sortedIndex] = keyIndices[i];
+            sortedLocators[sortedIndex] = locators[i];
+        }
+
+        keyTable = newKeyTable;
+        locatorsByKey = newLocatorsByKey;
+        fileEntryKeyIndices = sortedKeyIndices;
+        fileEntryLocators = sortedLocators;
+    }
+
+    /**
+     * Reads a resref and packs it in the same way as {@link ResourceIdentifier#packResref(String)}, without
+     * creating a string. Only ASCII is folded here; resrefs with other bytes return
+     * {@link ResourceIdentifier#UNPACKABLE_RESREF}, and have to be decoded and added by string.
+     */
+    private long readPackedResref(final int offset)
+    {
+        long packed = 0;
+        for (int i = 0; i < 8; ++i)
+        {
+            int c = buffer.get(offset + i) & 0xFF;
+            if (c == 0) break;
+            if (c > 0x7F) return ResourceIdentifier.UNPACKABLE_RESREF;
+            if (c >= 'a' && c <= 'z') c -= 0x20;
+            packed |= (long)c << (56 - i * 8);
+        }
+        return packed;
+    }
+
+    private FileEntry createFileEntry(final int keyIndex)
+    {
+        if (keyIndex == ResourceKeyTable.NOT_FOUND)
+        {
+            return null;
+        }
+
+        return new FileEntry(keyTable.getResref(keyIndex), keyTable.getNumericType(keyIndex),
+            locatorsByKey[keyIndex]);
     }
 
     private void position(final int pos)
@@ -228,7 +384,6 @@ public class KeyFile
 
         // Derived
         private final ArrayList<Location> possibleLocations;
-        private final ArrayList<FileEntry> fileEntries = new ArrayList<>();
 
         /**
          * Some bif names start with '\' or '/', which can represent the root of the filesystem.
@@ -282,11 +437,6 @@ public class KeyFile
             return MiscUtil.readOnlyIterable(possibleLocations);
         }
 
-        public Iterable<FileEntry> fileEntries()
-        {
-            return MiscUtil.readOnlyIterable(fileEntries.iterator());
-        }
-
         ////////////////////
         // Public Classes //
         ////////////////////
@@ -481,7 +631,7 @@ public class KeyFile
 
         public static NumericResourceType fromExtension(final String extension)
         {
-            return switch (extension.toUpperCase())
+            return switch (extension.toUpperCase(Locale.ROOT))
             {
                 case "2DA" -> _2DA;  // CResText
                 case "ARE" -> ARE;   // CResArea
@@ -599,5 +749,21 @@ public class KeyFile
         {
             return bifIndex;
         }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ResourceLocator that = (ResourceLocator) o;
+            return resourceIndex == that.resourceIndex && tilesetIndex == that.tilesetIndex
+                && bifIndex == that.bifIndex;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(resourceIndex, tilesetIndex, bifIndex);
+        }
     }
 }
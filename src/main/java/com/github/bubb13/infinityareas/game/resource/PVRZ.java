@@ -2,18 +2,20 @@
 package com.github.bubb13.infinityareas.game.resource;
 
 import com.github.bubb13.infinityareas.game.Game;
+import com.github.bubb13.infinityareas.misc.TileView;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
-import com.github.bubb13.infinityareas.util.MiscUtil;
 
-import java.io.ByteArrayInputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.IntBuffer;
-import java.util.function.Function;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 public class PVRZ
 {
@@ -22,13 +24,25 @@ public class PVRZ
     ///////////////////////////
 
     private static final int HEADER_SIZE = 0x34;
+    /** The approximate number of bytes inflated before they are handed to the decoder */
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+    /** The maximum number of inflated chunks waiting to be, or being, decoded per load */
+    private static final int MAX_STREAM_CHUNKS_IN_FLIGHT = 4;
+
+    /** Maps 5-bit / 6-bit color channels to 8 bits */
+    private static final int[] EXPAND_5_BIT = createExpansionTable(5);
+    private static final int[] EXPAND_6_BIT = createExpansionTable(6);
+
+    /** Idle chunk buffers, shared by all loads */
+    private static final ConcurrentLinkedQueue<ByteBuffer> idleStreamChunks = new ConcurrentLinkedQueue<>();
+
+    private static boolean regionalDecodingEnabled = true;
 
     ////////////////////
     // Private Fields //
     ////////////////////
 
     private final Game.ResourceSource source;
-    private final ResourceDataCache resourceDataCache;
     private ByteBuffer buffer;
 
     private int mipMapCount;
@@ -38,7 +52,8 @@ public class PVRZ
     private int width;
     private int height;
     private int textureDataOffset;
-    private Function<Integer, IntBuffer> pixelDataDecompressor;
+    private StreamDecompressor pixelDataDecompressor;
+    private RegionDecompressor pixelDataRegionDecompressor;
 
     private int pixelDataBlockSize;
     private int sliceBlockSize;
@@ -46,16 +61,59 @@ public class PVRZ
     private int surfaceBlockSize;
     private int mipMapBlockSize;
 
+    /** Set when the texture is decoded up front; otherwise, `buffer` is kept and regions are decoded on demand */
     private IntBuffer decompressedData;
+    private int pixelDataOffset;
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static boolean isRegionalDecodingEnabled()
+    {
+        return regionalDecodingEnabled;
+    }
+
+    /**
+     * When enabled, loaded PVRZ files only keep their inflated pixel data, and {@link #cutout} decodes just the
+     * blocks covering the requested region. Otherwise, the whole texture is decoded when it is loaded.
+     */
+    public static void setRegionalDecodingEnabled(final boolean regionalDecodingEnabled)
+    {
+        PVRZ.regionalDecodingEnabled = regionalDecodingEnabled;
+    }
+
+    /**
+     * Decodes BC1 blocks stored in row-major block order, e.g. as returned by {@link #cutoutBC1Blocks}.
+     *
+     * @param w The width of the decoded region, a multiple of 4.
+     * @param h The height of the decoded region, a multiple of 4.
+     * @param dst Receives the {@code w} x {@code h} decoded pixels.
+     */
+    public static void decompressBC1Blocks(final byte[] blocks, final int w, final int h, final int[] dst)
+    {
+        decompressBC1Blocks(blocks, w, h, dst, 0, w);
+    }
+
+    /**
+     * @param dstOffset The index in {@code dst} that receives the top-left pixel.
+     * @param dstPitch The distance in {@code dst} between vertically adjacent pixels.
+     * @see #decompressBC1Blocks(byte[], int, int, int[])
+     */
+    public static void decompressBC1Blocks(
+        final byte[] blocks, final int w, final int h, final int[] dst, final int dstOffset, final int dstPitch)
+    {
+        final ByteBuffer buffer = ByteBuffer.wrap(blocks).order(ByteOrder.LITTLE_ENDIAN);
+        decompressBC1Region(buffer, 0, w, 0, 0, w, h, dst, dstOffset, dstPitch);
+    }
 
     /////////////////////////
     // Public Constructors //
     /////////////////////////
 
-    public PVRZ(final Game.ResourceSource source, final ResourceDataCache resourceDataCache)
+    public PVRZ(final Game.ResourceSource source)
     {
         this.source = source;
-        this.resourceDataCache = resourceDataCache;
     }
 
     ////////////////////
@@ -89,6 +147,15 @@ public class PVRZ
         final int[] dst, int dstOffset,
         final int cutoutX, final int cutoutY, final int cutoutW, final int cutoutH)
     {
+        checkCutoutBounds(cutoutX, cutoutY, cutoutW, cutoutH);
+
+        if (decompressedData == null)
+        {
+            pixelDataRegionDecompressor.decompress(
+                pixelDataOffset, cutoutX, cutoutY, cutoutW, cutoutH, dst, dstOffset, cutoutW);
+            return IntBuffer.wrap(dst);
+        }
+
         final int dstSize = cutoutW * cutoutH;
         for (
             int srcOffset = cutoutY * this.width + cutoutX;
@@ -105,6 +172,63 @@ public class PVRZ
         return cutout(new int[cutoutW * cutoutH], 0, cutoutX, cutoutY, cutoutW, cutoutH);
     }
 
+    /**
+     * Returns a region without copying it, if the texture was decoded up front. Otherwise, the region is decoded
+     * into a new array.
+     */
+    public TileView cutoutView(final int cutoutX, final int cutoutY, final int cutoutW, final int cutoutH)
+    {
+        if (decompressedData == null)
+        {
+            return TileView.ofPacked(cutout(cutoutX, cutoutY, cutoutW, cutoutH).array(), cutoutW, cutoutH);
+        }
+
+        checkCutoutBounds(cutoutX, cutoutY, cutoutW, cutoutH);
+        return new TileView(decompressedData.array(), cutoutY * width + cutoutX, width, cutoutW, cutoutH);
+    }
+
+    /**
+     * Copies the still-compressed BC1 blocks of a region, in row-major block order. The result can be decoded with
+     * {@link #decompressBC1Blocks}.
+     *
+     * @return The region's blocks, or null if the inflated pixel data wasn't kept (see
+     *         {@link #setRegionalDecodingEnabled}) or the region isn't aligned to BC1's 4x4 blocks.
+     */
+    public byte[] cutoutBC1Blocks(final int cutoutX, final int cutoutY, final int cutoutW, final int cutoutH)
+    {
+        if (decompressedData != null || cutoutX % 4 != 0 || cutoutY % 4 != 0 || cutoutW % 4 != 0
+            || cutoutH % 4 != 0 || cutoutX < 0 || cutoutY < 0 || cutoutX + cutoutW > width
+            || cutoutY + cutoutH > height)
+        {
+            return null;
+        }
+
+        final int numBlocksHorizontal = width / 4;
+        final int rowLength = cutoutW / 4 * 8;
+        final int numRows = cutoutH / 4;
+        final byte[] blocks = new byte[rowLength * numRows];
+
+        int srcOffset = pixelDataOffset + (cutoutY / 4 * numBlocksHorizontal + cutoutX / 4) * 8;
+        for (int row = 0, dstOffset = 0; row < numRows; ++row, srcOffset += numBlocksHorizontal * 8,
+            dstOffset += rowLength)
+        {
+            buffer.get(srcOffset, blocks, dstOffset, rowLength);
+        }
+
+        return blocks;
+    }
+
+    /**
+     * @return The approximate number of bytes held by the decoded texture, or by the inflated pixel data if regions
+     *         are decoded on demand.
+     */
+    public long getDecodedSize()
+    {
+        return decompressedData != null
+            ? (long)decompressedData.capacity() * Integer.BYTES
+            : buffer.capacity();
+    }
+
     /////////////////////
     // Private Methods //
     /////////////////////
@@ -114,20 +238,63 @@ public class PVRZ
         buffer.position(pos);
     }
 
+    private void checkCutoutBounds(final int cutoutX, final int cutoutY, final int cutoutW, final int cutoutH)
+    {
+        if (cutoutX < 0 || cutoutY < 0 || cutoutW < 0 || cutoutH < 0
+            || cutoutX + cutoutW > width || cutoutY + cutoutH > height)
+        {
+            throw new IllegalArgumentException(String.format(
+                "Attempted to cut out invalid region: (%d, %d, %d, %d) of %dx%d texture",
+                cutoutX, cutoutY, cutoutW, cutoutH, width, height));
+        }
+    }
+
     ////////////////////////
     // START Loading PVRZ //
     ////////////////////////
 
     private void loadInternal(final TaskTrackerI tracker) throws Exception
     {
-        buffer = resourceDataCache.demand(source);
+        final ByteBuffer rawBuffer = ResourceDataCache.demand(source);
 
         tracker.updateProgress(0, 100);
         tracker.updateMessage("Processing PVRZ ...");
 
-        buffer = decompressPVR();
-        parsePVRHeader();
-        decompressedData = parseTextureData(0, 0, 0, 0);
+        // The raw data is a 4-byte uncompressed size followed by a zlib stream
+        rawBuffer.position(4);
+        final Inflater inflater = new Inflater();
+
+        try
+        {
+            inflater.setInput(rawBuffer);
+
+            // The header determines how the rest of the stream is consumed
+            buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            inflateFully(inflater, buffer);
+            parsePVRHeader();
+
+            if (regionalDecodingEnabled)
+            {
+                // Keep the inflated pixel data; cutouts decode what they need
+                final ByteBuffer header = buffer;
+                buffer = ByteBuffer.allocate(textureDataOffset + mipMapBlockSize).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.put(0, header, 0, HEADER_SIZE);
+                buffer.position(textureDataOffset);
+                inflateFully(inflater, buffer);
+                pixelDataOffset = getPixelDataOffset(0, 0, 0, 0);
+                return;
+            }
+
+            // The first texture immediately follows the header, since there is no metadata
+            decompressedData = pixelDataDecompressor.decompress(inflater);
+        }
+        finally
+        {
+            inflater.end();
+        }
+
+        // Only the decoded texture is needed from here on
+        buffer = null;
     }
 
 //    private void parsePVR_v2_Header()
@@ -238,7 +405,21 @@ public class PVRZ
 
         if (pixelFormat == 7)
         {
-            pixelDataDecompressor = this::decompressBC1;
+            if (width % 4 != 0)
+            {
+                throw new IllegalStateException(String.format(
+                    "BC1 expects width to be a multiple of 4; got: %d", width));
+            }
+
+            if (height % 4 != 0)
+            {
+                throw new IllegalStateException(String.format(
+                    "BC1 expects height to be a multiple of 4; got: %d", height));
+            }
+
+            pixelDataDecompressor = this::inflateAndDecompressBC1;
+            pixelDataRegionDecompressor = (offset, x, y, w, h, dst, dstOffset, dstStride) ->
+                decompressBC1Region(buffer, offset, width, x, y, w, h, dst, dstOffset, dstStride);
             pixelDataBlockSize = width * height / 2;
         }
         else
@@ -265,21 +446,40 @@ public class PVRZ
 //            System.out.printf("metaDataSize: %d\n", metaDataSize);
     }
 
-    private ByteBuffer decompressPVR() throws Exception
+    /**
+     * Inflates exactly {@code dst.remaining()} bytes into {@code dst}.
+     */
+    private static void inflateFully(final Inflater inflater, final ByteBuffer dst) throws DataFormatException
     {
-        try (
-            final ByteArrayInputStream inputStream = new ByteArrayInputStream(
-                buffer.array(), 4, buffer.limit() - 4
-            );
-            final InflaterInputStream inflaterInputStream = new InflaterInputStream(inputStream, new Inflater()))
+        while (dst.hasRemaining())
         {
-            final ByteBuffer decompressedBuffer = ByteBuffer.wrap(inflaterInputStream.readAllBytes());
-            decompressedBuffer.order(ByteOrder.LITTLE_ENDIAN);
-            return decompressedBuffer;
+            if (inflater.inflate(dst) == 0 && (inflater.finished() || inflater.needsInput()
+                || inflater.needsDictionary()))
+            {
+                throw new IllegalStateException("Unexpected end of PVRZ data");
+            }
         }
     }
 
-    private IntBuffer parseTextureData(
+    private static ByteBuffer acquireStreamChunk(final int minSize)
+    {
+        final ByteBuffer chunk = idleStreamChunks.poll();
+        if (chunk != null && chunk.capacity() >= minSize)
+        {
+            return chunk.clear();
+        }
+        return ByteBuffer.allocateDirect(Math.max(minSize, STREAM_CHUNK_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void releaseStreamChunk(final ByteBuffer chunk)
+    {
+        if (chunk.capacity() == STREAM_CHUNK_SIZE)
+        {
+            idleStreamChunks.offer(chunk);
+        }
+    }
+
+    private int getPixelDataOffset(
         final int mipMapIndex, final int surfaceIndex, final int faceIndex, final int sliceIndex)
     {
         // for each MIP-Map Level in MIP-Map Count
@@ -320,115 +520,219 @@ public class PVRZ
                 "Attempted to access invalid sliceIndex: %d", sliceIndex));
         }
 
-        final int pixelDataOffset =
-            textureDataOffset
+        return textureDataOffset
             + mipMapIndex * mipMapBlockSize
             + surfaceIndex * surfaceBlockSize
             + faceIndex * faceBlockSize
             + sliceIndex * sliceBlockSize;
-
-        return pixelDataDecompressor.apply(pixelDataOffset);
     }
 
-    private IntBuffer decompressBC1(final int pixelDataOffset)
+    /**
+     * Inflates the BC1 pixel data in chunks of whole block rows, handing each chunk to the common
+     * {@link ForkJoinPool} to be decoded while the next chunk is inflated.
+     */
+    private IntBuffer inflateAndDecompressBC1(final Inflater inflater) throws Exception
     {
-        final int numBlocksHorizontal = width / 4;
-        if (width % 4 != 0)
+        final int blockRowSize = width / 4 * 8;
+        final int numBlockRows = height / 4;
+        final int numBlockRowsPerChunk = Math.max(1, STREAM_CHUNK_SIZE / Math.max(1, blockRowSize));
+
+        final int[] result = new int[width * height];
+        final ArrayDeque<ForkJoinTask<ByteBuffer>> inFlight = new ArrayDeque<>();
+
+        try
         {
-            throw new IllegalStateException(String.format(
-                "BC1 expects width to be a multiple of 4; got: %d", width));
-        }
+            for (int startBlockRow = 0; startBlockRow < numBlockRows; startBlockRow += numBlockRowsPerChunk)
+            {
+                if (inFlight.size() >= MAX_STREAM_CHUNKS_IN_FLIGHT)
+                {
+                    releaseStreamChunk(inFlight.removeFirst().join());
+                }
+
+                final int chunkNumBlockRows = Math.min(numBlockRowsPerChunk, numBlockRows - startBlockRow);
+                final int chunkSize = chunkNumBlockRows * blockRowSize;
 
-        final int numBlocksVertical = height / 4;
-        if (height % 4 != 0)
+                final ByteBuffer chunk = acquireStreamChunk(chunkSize);
+                chunk.limit(chunkSize);
+                inflateFully(inflater, chunk);
+
+                final int startY = startBlockRow * 4;
+                inFlight.addLast(ForkJoinPool.commonPool().submit(() ->
+                {
+                    decompressBC1Region(chunk, 0, width, 0, 0, width, chunkNumBlockRows * 4,
+                        result, startY * width, width);
+                    return chunk;
+                }));
+            }
+        }
+        finally
         {
-            throw new IllegalStateException(String.format(
-                "BC1 expects height to be a multiple of 4; got: %d", height));
+            // Chunk buffers can't be reused while a decode might still be reading them
+            while (!inFlight.isEmpty())
+            {
+                final ForkJoinTask<ByteBuffer> task = inFlight.removeFirst();
+                try
+                {
+                    releaseStreamChunk(task.join());
+                }
+                catch (final RuntimeException ignored) {}
+            }
         }
 
-        final int[] result = new int[width * height];
+        return IntBuffer.wrap(result);
+    }
 
-        int curTexelBlockOffset = pixelDataOffset;
+    /**
+     * Decodes the pixels of the region ({@code x}, {@code y}, {@code w}, {@code h}) into {@code dst}, decoding only
+     * the BC1 blocks that overlap the region.
+     *
+     * @param textureWidth The width of the texture stored at {@code pixelDataOffset}.
+     * @param dstOffset The index in {@code dst} that receives the region's top-left pixel.
+     * @param dstStride The distance in {@code dst} between vertically adjacent pixels.
+     */
+    private static void decompressBC1Region(
+        final ByteBuffer buffer, final int pixelDataOffset, final int textureWidth,
+        final int x, final int y, final int w, final int h, final int[] dst, final int dstOffset, final int dstStride)
+    {
+        final int[] palette = new int[4];
+        final int numBlocksHorizontal = textureWidth / 4;
 
-        for (int texelBlockY = 0; texelBlockY < numBlocksVertical; ++texelBlockY)
+        final int endX = x + w;
+        final int endY = y + h;
+        final int startBlockX = x / 4;
+        final int endBlockX = (endX + 3) / 4;
+        final int startBlockY = y / 4;
+        final int endBlockY = (endY + 3) / 4;
+
+        // Neighboring blocks frequently share endpoints, in which case the palette doesn't need to be rebuilt.
+        // Endpoints are held as unsigned 32-bit values, so that no real endpoint pair can match the initial -1.
+        long curEndpoints = -1;
+
+        for (int blockY = startBlockY; blockY < endBlockY; ++blockY)
         {
-            for (int texelBlockX = 0; texelBlockX < numBlocksHorizontal; ++texelBlockX, curTexelBlockOffset += 8)
+            final int blockPixelY = blockY * 4;
+            int curBlockOffset = pixelDataOffset + (blockY * numBlocksHorizontal + startBlockX) * 8;
+
+            for (int blockX = startBlockX; blockX < endBlockX; ++blockX, curBlockOffset += 8)
             {
-                position(curTexelBlockOffset);       final int color0 = unpackBC1Color(buffer.getShort());
-                position(curTexelBlockOffset + 0x2); final int color1 = unpackBC1Color(buffer.getShort());
-
-                // See: https://learn.microsoft.com/en-us/windows/uwp/graphics-concepts/opaque-and-1-bit-alpha-textures
-                //  and https://learn.microsoft.com/en-us/windows/win32/direct3d10/d3d10-graphics-programming-guide-resources-block-compression#bc1
-                final int color2;
-                final int color3;
-                if (color0 > color1)
+                // Block layout (little endian):
+                //     [0-15]  color0 (565)
+                //     [16-31] color1 (565)
+                //     [32-63] 2-bit palette indices, one byte per row, first texel in the lowest bits
+                final long block = buffer.getLong(curBlockOffset);
+
+                final long endpoints = block & 0xFFFFFFFFL;
+                if (endpoints != curEndpoints)
                 {
-                    color2 = bc1Interpolate(1, 3, color0, color1);
-                    color3 = bc1Interpolate(2, 3, color0, color1);
+                    fillBC1Palette((int)endpoints & 0xFFFF, (int)(endpoints >>> 16), palette);
+                    curEndpoints = endpoints;
                 }
-                else
+
+                final int blockPixelX = blockX * 4;
+                int indices = (int)(block >>> 32);
+
+                if (blockPixelX >= x && blockPixelX + 4 <= endX && blockPixelY >= y && blockPixelY + 4 <= endY)
                 {
-                    color2 = bc1Interpolate(1, 2, color0, color1);
-                    color3 = 0x00000000;
+                    // The block is entirely inside the region
+                    int dstIndex = dstOffset + (blockPixelY - y) * dstStride + (blockPixelX - x);
+
+                    for (int blockLineIndex = 0; blockLineIndex < 4; ++blockLineIndex, indices >>>= 8,
+                        dstIndex += dstStride)
+                    {
+                        dst[dstIndex] = palette[indices & 0x3];
+                        dst[dstIndex + 1] = palette[(indices >>> 2) & 0x3];
+                        dst[dstIndex + 2] = palette[(indices >>> 4) & 0x3];
+                        dst[dstIndex + 3] = palette[(indices >>> 6) & 0x3];
+                    }
+                    continue;
                 }
 
-                final int[] colorTable = new int[]{color0, color1, color2, color3};
-
-                for (int blockLineIndex = 0; blockLineIndex < 4; ++blockLineIndex)
+                // The block straddles the region's edge; only copy the pixels inside of it
+                for (int blockLineIndex = 0; blockLineIndex < 4; ++blockLineIndex, indices >>>= 8)
                 {
-                    position(curTexelBlockOffset + 0x4 + blockLineIndex); final byte fourTexels = buffer.get();
-                    final byte texel0 = (byte)(fourTexels & 0x3);
-                    final byte texel1 = (byte)((fourTexels >>> 2) & 0x3);
-                    final byte texel2 = (byte)((fourTexels >>> 4) & 0x3);
-                    final byte texel3 = (byte)((fourTexels >>> 6) & 0x3);
-
-                    final int verticalBlockAlign = texelBlockY * 4 * width;
-                    final int horizontalBlockAlign = texelBlockX * 4;
-                    final int pixelLineAlign = blockLineIndex * width;
-                    final int resultLineStart = verticalBlockAlign + horizontalBlockAlign + pixelLineAlign;
-
-                    result[resultLineStart] = colorTable[texel0];
-                    result[resultLineStart + 1] = colorTable[texel1];
-                    result[resultLineStart + 2] = colorTable[texel2];
-                    result[resultLineStart + 3] = colorTable[texel3];
+                    final int pixelY = blockPixelY + blockLineIndex;
+                    if (pixelY < y || pixelY >= endY) continue;
+
+                    final int dstLineStart = dstOffset + (pixelY - y) * dstStride - x;
+                    for (int blockColumnIndex = 0; blockColumnIndex < 4; ++blockColumnIndex)
+                    {
+                        final int pixelX = blockPixelX + blockColumnIndex;
+                        if (pixelX < x || pixelX >= endX) continue;
+
+                        dst[dstLineStart + pixelX] = palette[(indices >>> (blockColumnIndex * 2)) & 0x3];
+                    }
                 }
             }
         }
-
-        return IntBuffer.wrap(result);
     }
 
-    private int unpackBC1Color(final short packedColor)
+    /**
+     * Fills {@code palette} with the four ARGB colors of a BC1 block.
+     *
+     * @param packedColor0 The block's first endpoint, in 565 format.
+     * @param packedColor1 The block's second endpoint, in 565 format.
+     */
+    private static void fillBC1Palette(final int packedColor0, final int packedColor1, final int[] palette)
     {
         // BC1 pixel data is in the format:
         //     MSB               LSB
         //     r[15-11]g[10-5]b[4-0]
-        final byte b = (byte)((packedColor & 0x1F) * 255 / 0x1F);
-        final byte g = (byte)(((packedColor >>> 5) & 0x3F) * 255 / 0x3F);
-        final byte r = (byte)(((packedColor >>> 11) & 0x1F) * 255 / 0x1F);
-        final byte a = (byte)255;
-        return MiscUtil.packBytesIntoInt(a, r, g, b);
+        final int r0 = EXPAND_5_BIT[packedColor0 >>> 11];
+        final int g0 = EXPAND_6_BIT[(packedColor0 >>> 5) & 0x3F];
+        final int b0 = EXPAND_5_BIT[packedColor0 & 0x1F];
+
+        final int r1 = EXPAND_5_BIT[packedColor1 >>> 11];
+        final int g1 = EXPAND_6_BIT[(packedColor1 >>> 5) & 0x3F];
+        final int b1 = EXPAND_5_BIT[packedColor1 & 0x1F];
+
+        palette[0] = packOpaque(r0, g0, b0);
+        palette[1] = packOpaque(r1, g1, b1);
+
+        // See: https://learn.microsoft.com/en-us/windows/uwp/graphics-concepts/opaque-and-1-bit-alpha-textures
+        //  and https://learn.microsoft.com/en-us/windows/win32/direct3d10/d3d10-graphics-programming-guide-resources-block-compression#bc1
+        if (packedColor0 > packedColor1)
+        {
+            palette[2] = packOpaque((2 * r0 + r1 + 1) / 3, (2 * g0 + g1 + 1) / 3, (2 * b0 + b1 + 1) / 3);
+            palette[3] = packOpaque((r0 + 2 * r1 + 1) / 3, (g0 + 2 * g1 + 1) / 3, (b0 + 2 * b1 + 1) / 3);
+        }
+        else
+        {
+            palette[2] = packOpaque((r0 + r1 + 1) / 2, (g0 + g1 + 1) / 2, (b0 + b1 + 1) / 2);
+            palette[3] = 0x00000000;
+        }
+    }
+
+    private static int packOpaque(final int r, final int g, final int b)
+    {
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int[] createExpansionTable(final int numBits)
+    {
+        final int max = (1 << numBits) - 1;
+        final int[] table = new int[max + 1];
+        for (int i = 0; i <= max; ++i)
+        {
+            table[i] = i * 255 / max;
+        }
+        return table;
+    }
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    private interface StreamDecompressor
+    {
+        /**
+         * Consumes the pixel data of the first texture from {@code inflater} and decodes it.
+         */
+        IntBuffer decompress(Inflater inflater) throws Exception;
     }
 
-    private int bc1Interpolate(
-        final int fracColor2Upper, final int fracColorLower, final int color1, final int color2)
+    private interface RegionDecompressor
     {
-        final int fracColor1Upper = fracColorLower - fracColor2Upper;
-
-        final short b1 = (short)(color1 & 0xFF);
-        final short g1 = (short)((color1 >>> 8) & 0xFF);
-        final short r1 = (short)((color1 >>> 16) & 0xFF);
-        final short a1 = (short)((color1 >>> 24) & 0xFF);
-
-        final short b2 = (short)(color2 & 0xFF);
-        final short g2 = (short)((color2 >>> 8) & 0xFF);
-        final short r2 = (short)((color2 >>> 16) & 0xFF);
-        final short a2 = (short)((color2 >>> 24) & 0xFF);
-
-        final byte aFinal = (byte)((fracColor1Upper * a1 + fracColor2Upper * a2 + 1) / fracColorLower);
-        final byte rFinal = (byte)((fracColor1Upper * r1 + fracColor2Upper * r2 + 1) / fracColorLower);
-        final byte gFinal = (byte)((fracColor1Upper * g1 + fracColor2Upper * g2 + 1) / fracColorLower);
-        final byte bFinal = (byte)((fracColor1Upper * b1 + fracColor2Upper * b2 + 1) / fracColorLower);
-        return MiscUtil.packBytesIntoInt(aFinal, rFinal, gFinal, bFinal);
+        void decompress(
+            int pixelDataOffset, int x, int y, int w, int h, int[] dst, int dstOffset, int dstStride);
     }
 }
@@ -3,39 +3,251 @@ package com.github.bubb13.infinityareas.game.resource;
 
 import com.github.bubb13.infinityareas.game.Game;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 
-public class ResourceDataCache
+/**
+ * A process-wide cache of raw resource data, shared by everything that reads resources through it. Entries are
+ * keyed by {@link Game.ResourceSource}, so that a resource whose primary source changes (e.g. a file is added to
+ * the override folder) is read from its new source. Loose files can be changed by other programs at any time, so
+ * the cached data of a loose file is only used while the file's size and modification time are unchanged.
+ * <p>
+ * Only data that was copied onto the heap counts against the budget; slices of memory-mapped bifs are backed by
+ * the OS page cache, and cost the process next to nothing. When the total size of the heap copies exceeds the
+ * budget, the least recently used entries are evicted.
+ * <p>
+ * Every caller receives its own view of the cached data, so that position changes made by one reader don't
+ * affect another.
+ */
+public final class ResourceDataCache
 {
-    private final HashMap<ResourceIdentifier, ByteBuffer> cache = new HashMap<>();
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
 
-    public void add(final ResourceIdentifier identifier, final ByteBuffer buffer)
+    private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    private static final LinkedHashMap<Game.ResourceSource, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    private static long maxSize = DEFAULT_MAX_SIZE;
+    /** The size of the cached heap copies */
+    private static long residentBytes;
+    /** The size of the cached slices of memory-mapped files */
+    private static long mappedBytes;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static synchronized long getMaxSize()
     {
-        cache.put(identifier, buffer);
+        return maxSize;
     }
 
-    public void remove(final ResourceIdentifier identifier)
+    public static synchronized void setMaxSize(final long maxSize)
     {
-        cache.remove(identifier);
+        ResourceDataCache.maxSize = Math.max(0, maxSize);
+        evict();
     }
 
-    public ByteBuffer get(final ResourceIdentifier identifier)
+    public static void setMaxSizeMegabytes(final int maxSizeMegabytes)
     {
-        return cache.get(identifier);
+        setMaxSize((long)maxSizeMegabytes * 1024 * 1024);
     }
 
-    public ByteBuffer demand(final Game.ResourceSource source) throws Exception
+    /**
+     * Returns the data of {@code source}, reading it if it isn't cached, or if it is a loose file that has changed
+     * since it was cached.
+     *
+     * @param source The source to read.
+     * @return A view of the data that the caller is free to reposition.
+     * @throws Exception The exception thrown while reading {@code source}.
+     */
+    public static ByteBuffer demand(final Game.ResourceSource source) throws Exception
     {
-        final ResourceIdentifier identifier = source.getIdentifier();
-        ByteBuffer buffer = this.get(identifier);
+        // Taken before the data is read, so that a write that races the read invalidates the cached data
+        final FileStamp stamp = FileStamp.of(source);
+
+        synchronized (ResourceDataCache.class)
+        {
+            final Entry entry = entries.get(source);
+            if (entry != null)
+            {
+                if (Objects.equals(entry.stamp(), stamp))
+                {
+                    ++hits;
+                    return view(entry.buffer());
+                }
+                removeEntry(source);
+            }
+            ++misses;
+        }
 
+        // Read outside the lock so that multiple resources can be read at once
+        final ByteBuffer buffer = source.demandFileData();
         if (buffer == null)
         {
-            buffer = source.demandFileData();
-            this.add(identifier, buffer);
+            return null;
         }
 
-        return buffer;
+        synchronized (ResourceDataCache.class)
+        {
+            final Entry existingEntry = entries.get(source);
+            if (existingEntry != null)
+            {
+                if (Objects.equals(existingEntry.stamp(), stamp))
+                {
+                    // Another thread read the same source in the meantime
+                    return view(existingEntry.buffer());
+                }
+                removeEntry(source);
+            }
+
+            final Entry newEntry = new Entry(buffer, stamp);
+            if (newEntry.getResidentSize() <= maxSize)
+            {
+                entries.put(source, newEntry);
+                addSize(newEntry, 1);
+                evict();
+            }
+        }
+
+        return view(buffer);
+    }
+
+    /**
+     * Drops the cached data of every source of the resource identified by {@code identifier}.
+     */
+    public static synchronized void invalidate(final ResourceIdentifier identifier)
+    {
+        final Iterator<Map.Entry<Game.ResourceSource, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            final Map.Entry<Game.ResourceSource, Entry> mapEntry = iterator.next();
+            if (mapEntry.getKey().getIdentifier().equals(identifier))
+            {
+                addSize(mapEntry.getValue(), -1);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all cached data, and resets the statistics.
+     */
+    public static synchronized void clear()
+    {
+        entries.clear();
+        residentBytes = 0;
+        mappedBytes = 0;
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    public static synchronized Stats getStats()
+    {
+        return new Stats(hits, misses, evictions, entries.size(), residentBytes, mappedBytes, maxSize);
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    private static ByteBuffer view(final ByteBuffer buffer)
+    {
+        // A duplicate doesn't inherit the byte order
+        return buffer.duplicate().order(buffer.order());
+    }
+
+    private static void removeEntry(final Game.ResourceSource source)
+    {
+        addSize(entries.remove(source), -1);
+    }
+
+    private static void addSize(final Entry entry, final int sign)
+    {
+        residentBytes += sign * entry.getResidentSize();
+        mappedBytes += sign * (entry.buffer().capacity() - entry.getResidentSize());
+    }
+
+    private static void evict()
+    {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (residentBytes > maxSize && iterator.hasNext())
+        {
+            addSize(iterator.next(), -1);
+            iterator.remove();
+            ++evictions;
+        }
+    }
+
+    //////////////////////////
+    // Private Constructors //
+    //////////////////////////
+
+    private ResourceDataCache() {}
+
+    ////////////////////
+    // Public Classes //
+    ////////////////////
+
+    /**
+     * @param residentBytes The size of the cached heap copies, which is what {@code maxSize} limits.
+     * @param mappedBytes The size of the cached slices of memory-mapped files.
+     */
+    public record Stats(
+        long hits, long misses, long evictions, int numEntries, long residentBytes, long mappedBytes, long maxSize) {}
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    /**
+     * @param stamp The stamp of the loose file the data was read from, or null if the data came from a bif.
+     */
+    private record Entry(ByteBuffer buffer, FileStamp stamp)
+    {
+        /**
+         * @return The number of heap bytes the entry holds; mapped data is direct, and holds none.
+         */
+        public long getResidentSize()
+        {
+            return buffer.isDirect() ? 0 : buffer.capacity();
+        }
+    }
+
+    private record FileStamp(long size, long modified)
+    {
+        /**
+         * @return The current stamp of {@code source}'s file if it is a loose file that exists, otherwise null.
+         */
+        public static FileStamp of(final Game.ResourceSource source)
+        {
+            if (!(source instanceof Game.LooseFileSource looseFileSource))
+            {
+                return null;
+            }
+
+            try
+            {
+                final BasicFileAttributes attributes = Files.readAttributes(
+                    looseFileSource.getPath(), BasicFileAttributes.class);
+                return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+            }
+            catch (final IOException ignored)
+            {
+                return null;
+            }
+        }
     }
 }
@@ -1,11 +1,19 @@
 
 package com.github.bubb13.infinityareas.game.resource;
 
+import java.util.Locale;
+
 public record ResourceIdentifier(String resref, short numericType) implements Comparable<ResourceIdentifier>
 {
+    /**
+     * Returned by {@link #packResref(String)} for resrefs that can't be packed into a long. This value can never
+     * be produced by a packable resref, since packed resrefs only contain bytes in the range [0x0, 0x7F].
+     */
+    public static final long UNPACKABLE_RESREF = -1L;
+
     public ResourceIdentifier(final String resref, final short numericType)
     {
-        this.resref = resref.toUpperCase();
+        this.resref = resref.toUpperCase(Locale.ROOT);
         this.numericType = numericType;
     }
 
@@ -24,6 +32,61 @@ public record ResourceIdentifier(String resref, short numericType) implements Co
         this(fileEntry.getResref(), fileEntry.getResourceType());
     }
 
+    /**
+     * Packs the uppercase form of {@code resref} into a long, one byte per character with the first character
+     * in the most significant byte, and zero bytes as padding. Comparing packed resrefs with
+     * {@link Long#compareUnsigned(long, long)} matches comparing the uppercase strings.
+     * <p>
+     * The uppercase form is independent of the default locale, so that resrefs read from a key file pack to the
+     * same values (see {@link KeyFile}).
+     *
+     * @param resref The resref to pack.
+     * @return The packed resref, or {@link #UNPACKABLE_RESREF} if {@code resref} is longer than 8 characters
+     *         or contains characters outside of [0x1, 0x7F].
+     */
+    public static long packResref(final String resref)
+    {
+        final String upperResref = resref.toUpperCase(Locale.ROOT);
+        final int length = upperResref.length();
+
+        if (length > 8)
+        {
+            return UNPACKABLE_RESREF;
+        }
+
+        long packed = 0;
+        for (int i = 0; i < length; ++i)
+        {
+            final char c = upperResref.charAt(i);
+            if (c == 0 || c > 0x7F)
+            {
+                return UNPACKABLE_RESREF;
+            }
+            packed |= (long)c << (56 - i * 8);
+        }
+        return packed;
+    }
+
+    public static String unpackResref(final long packedResref)
+    {
+        final char[] chars = new char[8];
+        int length = 0;
+
+        for (; length < 8; ++length)
+        {
+            final char c = (char)((packedResref >>> (56 - length * 8)) & 0xFF);
+            if (c == 0) break;
+            chars[length] = c;
+        }
+
+        return new String(chars, 0, length);
+    }
+
+    public long packedResref()
+    {
+        return packResref(resref);
+    }
+
     @Override
     public int compareTo(final ResourceIdentifier other)
     {
@@ -0,0 +1,358 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+
+/**
+ * An open-addressing hash table that assigns a dense index to every unique (resref, numeric type) pair. Resrefs
+ * are stored packed into longs (see {@link ResourceIdentifier#packResref(String)}), so lookups by a packed resref
+ * don't allocate. Owners of a table typically store per-resource data in their own arrays, indexed by the values
+ * returned from {@link #add(long, short)}, and grown to at least {@link #capacity()}.
+ * <p>
+ * The rare resrefs that can't be packed are kept in a separate map.
+ * <p>
+ * A table can extend a base table (see {@link #ResourceKeyTable(ResourceKeyTable)}), in which case the base's keys
+ * keep their indices and only the keys added on top of them are stored.
+ */
+public class ResourceKeyTable
+{
+    //////////////////////////
+    // Public Static Fields //
+    //////////////////////////
+
+    public static final int NOT_FOUND = -1;
+
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    private final ResourceKeyTable base;
+    private final int baseSize;
+
+    /**
+     * Open-addressing slots holding `local index + 1`, with 0 marking an empty slot. Always twice the length of
+     * `packedResrefs`. Local indices exclude the keys of the base table.
+     */
+    private int[] slots;
+    private long[] packedResrefs;
+    private short[] numericTypes;
+    private int size;
+
+    private final HashMap<ResourceIdentifier, Integer> unpackableIndices = new HashMap<>();
+    private final HashMap<Integer, String> unpackableResrefs = new HashMap<>();
+
+    private int[] sortedIndices;
+    private final HashMap<Short, int[]> sortedIndicesByType = new HashMap<>();
+
+    /////////////////////////
+    // Public Constructors //
+    /////////////////////////
+
+    public ResourceKeyTable()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ResourceKeyTable(final int expectedSize)
+    {
+        this.base = null;
+        this.baseSize = 0;
+        allocate(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize) - 1) << 1));
+    }
+
+    /**
+     * Creates a table that starts out with the keys of {@code base}, at the same indices, without copying them.
+     * {@code base} must not be modified while this table is in use.
+     */
+    public ResourceKeyTable(final ResourceKeyTable base)
+    {
+        this.base = base;
+        this.baseSize = base.size();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    ////////////////////
+    // Public Methods //
+    ////////////////////
+
+    public int size()
+    {
+        return baseSize + size;
+    }
+
+    /**
+     * @return The exclusive upper bound of the indices that can currently be returned by {@link #add(long, short)}
+     *         without the table growing. Owners should keep their per-index arrays at least this large.
+     */
+    public int capacity()
+    {
+        return baseSize + packedResrefs.length;
+    }
+
+    /**
+     * Removes every key that was added to this table. The keys of the base table, if any, are kept.
+     */
+    public void clear()
+    {
+        Arrays.fill(slots, 0);
+        size = 0;
+        unpackableIndices.clear();
+        unpackableResrefs.clear();
+        invalidateSortedViews();
+    }
+
+    public int find(final long packedResref, final short numericType)
+    {
+        if (packedResref == ResourceIdentifier.UNPACKABLE_RESREF)
+        {
+            return NOT_FOUND;
+        }
+
+        if (base != null)
+        {
+            final int baseIndex = base.find(packedResref, numericType);
+            if (baseIndex != NOT_FOUND)
+            {
+                return baseIndex;
+            }
+        }
+
+        final int mask = slots.length - 1;
+        for (int slot = hash(packedResref, numericType) & mask; ; slot = (slot + 1) & mask)
+        {
+            final int slotValue = slots[slot];
+            if (slotValue == 0)
+            {
+                return NOT_FOUND;
+            }
+
+            final int localIndex = slotValue - 1;
+            if (packedResrefs[localIndex] == packedResref && numericTypes[localIndex] == numericType)
+            {
+                return baseSize + localIndex;
+            }
+        }
+    }
+
+    public int find(final String resref, final short numericType)
+    {
+        final long packedResref = ResourceIdentifier.packResref(resref);
+        if (packedResref != ResourceIdentifier.UNPACKABLE_RESREF)
+        {
+            return find(packedResref, numericType);
+        }
+
+        if (base != null)
+        {
+            final int baseIndex = base.find(resref, numericType);
+            if (baseIndex != NOT_FOUND)
+            {
+                return baseIndex;
+            }
+        }
+
+        final Integer index = unpackableIndices.get(new ResourceIdentifier(resref, numericType));
+        return index == null ? NOT_FOUND : index;
+    }
+
+    public int find(final ResourceIdentifier identifier)
+    {
+        return find(identifier.resref(), identifier.numericType());
+    }
+
+    /**
+     * Returns the index of the given key, adding it if it isn't already present.
+     */
+    public int add(final long packedResref, final short numericType)
+    {
+        if (packedResref == ResourceIdentifier.UNPACKABLE_RESREF)
+        {
+            throw new IllegalArgumentException("Unpackable resrefs must be added by string");
+        }
+
+        final int existingIndex = find(packedResref, numericType);
+        if (existingIndex != NOT_FOUND)
+        {
+            return existingIndex;
+        }
+
+        final int localIndex = appendKey(packedResref, numericType);
+        insertSlot(localIndex);
+        return baseSize + localIndex;
+    }
+
+    /**
+     * Returns the index of the given key, adding it if it isn't already present.
+     */
+    public int add(final String resref, final short numericType)
+    {
+        final long packedResref = ResourceIdentifier.packResref(resref);
+        if (packedResref != ResourceIdentifier.UNPACKABLE_RESREF)
+        {
+            return add(packedResref, numericType);
+        }
+
+        final int existingIndex = find(resref, numericType);
+        if (existingIndex != NOT_FOUND)
+        {
+            return existingIndex;
+        }
+
+        final ResourceIdentifier identifier = new ResourceIdentifier(resref, numericType);
+        final int index = baseSize + appendKey(ResourceIdentifier.UNPACKABLE_RESREF, numericType);
+        unpackableIndices.put(identifier, index);
+        unpackableResrefs.put(index, identifier.resref());
+        return index;
+    }
+
+    public long getPackedResref(final int index)
+    {
+        return index < baseSize ? base.getPackedResref(index) : packedResrefs[index - baseSize];
+    }
+
+    public String getResref(final int index)
+    {
+        if (index < baseSize)
+        {
+            return base.getResref(index);
+        }
+
+        final long packedResref = packedResrefs[index - baseSize];
+        return packedResref == ResourceIdentifier.UNPACKABLE_RESREF
+            ? unpackableResrefs.get(index)
+            : ResourceIdentifier.unpackResref(packedResref);
+    }
+
+    public short getNumericType(final int index)
+    {
+        return index < baseSize ? base.getNumericType(index) : numericTypes[index - baseSize];
+    }
+
+    public ResourceIdentifier getIdentifier(final int index)
+    {
+        return new ResourceIdentifier(getResref(index), getNumericType(index));
+    }
+
+    public int compare(final int index1, final int index2)
+    {
+        final long packedResref1 = getPackedResref(index1);
+        final long packedResref2 = getPackedResref(index2);
+
+        if (packedResref1 != ResourceIdentifier.UNPACKABLE_RESREF
+            && packedResref2 != ResourceIdentifier.UNPACKABLE_RESREF)
+        {
+            final int resrefCmp = Long.compareUnsigned(packedResref1, packedResref2);
+            if (resrefCmp != 0) return resrefCmp;
+            return Short.compare(getNumericType(index1), getNumericType(index2));
+        }
+
+        return getIdentifier(index1).compareTo(getIdentifier(index2));
+    }
+
+    /**
+     * @return Every index in the table, sorted in {@link ResourceIdentifier} order. The array is built on first
+     *         use and shared until the table is modified; it must not be written to.
+     */
+    public int[] sortedIndices()
+    {
+        if (sortedIndices == null)
+        {
+            sortedIndices = IntStream.range(0, size())
+                .boxed()
+                .sorted(this::compare)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        }
+        return sortedIndices;
+    }
+
+    /**
+     * @return Every index with the given numeric type, sorted in {@link ResourceIdentifier} order. The array is
+     *         built on first use and shared until the table is modified; it must not be written to.
+     */
+    public int[] sortedIndicesOfType(final short numericType)
+    {
+        return sortedIndicesByType.computeIfAbsent(numericType, (ignored) ->
+            Arrays.stream(sortedIndices())
+                .filter((index) -> getNumericType(index) == numericType)
+                .toArray());
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private static int hash(final long packedResref, final short numericType)
+    {
+        long h = packedResref * 0x9E3779B97F4A7C15L + numericType;
+        h ^= h >>> 32;
+        h *= 0xD6E8FEB86659FD93L;
+        h ^= h >>> 32;
+        return (int)h;
+    }
+
+    private void allocate(final int capacity)
+    {
+        slots = new int[capacity * 2];
+        packedResrefs = new long[capacity];
+        numericTypes = new short[capacity];
+    }
+
+    /**
+     * @return The local index of the appended key.
+     */
+    private int appendKey(final long packedResref, final short numericType)
+    {
+        if (size == packedResrefs.length)
+        {
+            grow();
+        }
+
+        final int localIndex = size++;
+        packedResrefs[localIndex] = packedResref;
+        numericTypes[localIndex] = numericType;
+        invalidateSortedViews();
+        return localIndex;
+    }
+
+    private void grow()
+    {
+        final int newCapacity = packedResrefs.length * 2;
+        packedResrefs = Arrays.copyOf(packedResrefs, newCapacity);
+        numericTypes = Arrays.copyOf(numericTypes, newCapacity);
+        slots = new int[newCapacity * 2];
+
+        for (int i = 0; i < size; ++i)
+        {
+            if (packedResrefs[i] != ResourceIdentifier.UNPACKABLE_RESREF)
+            {
+                insertSlot(i);
+            }
+        }
+    }
+
+    private void insertSlot(final int localIndex)
+    {
+        final int mask = slots.length - 1;
+        int slot = hash(packedResrefs[localIndex], numericTypes[localIndex]) & mask;
+        while (slots[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = localIndex + 1;
+    }
+
+    private void invalidateSortedViews()
+    {
+        sortedIndices = null;
+        sortedIndicesByType.clear();
+    }
+}
@@ -4,7 +4,7 @@ package com.github.bubb13.infinityareas.game.resource;
 import com.github.bubb13.infinityareas.GlobalState;
 import com.github.bubb13.infinityareas.game.Game;
 import com.github.bubb13.infinityareas.misc.ImageAndGraphics;
-import com.github.bubb13.infinityareas.misc.SimpleCache;
+import com.github.bubb13.infinityareas.misc.TileView;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
@@ -12,6 +12,7 @@ import com.github.bubb13.infinityareas.util.BufferUtil;
 import com.github.bubb13.infinityareas.util.DrawUtil;
 import com.github.bubb13.infinityareas.util.ImageUtil;
 import com.github.bubb13.infinityareas.util.MiscUtil;
+import com.github.bubb13.infinityareas.util.ParallelUtil;
 
 import javax.imageio.ImageIO;
 import java.awt.Graphics2D;
@@ -21,6 +22,14 @@ import java.io.PrintWriter;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
 
 public class TIS
 {
@@ -36,15 +45,22 @@ public class TIS
     ///////////////////////////
 
     private static final int PVRZ_TILE_DATA_ENTRY_SIZE = 0xC;
+    /** The minimum number of PVRZ tiles cut out by a single parallel task */
+    private static final int MIN_PVRZ_TILES_PER_TASK = 32;
+    /** The minimum number of paletted tiles read by a single parallel task */
+    private static final int MIN_PALETTED_TILES_PER_TASK = 64;
     private static final int NUM_PALETTE_COLORS = 256;
+    /** The number of expanded tiles each TIS keeps for its tiles that are held encoded (paletted or compressed) */
+    private static final int MAX_EXPANDED_TILES_CACHED = 256;
+
+    private static boolean compressedTilesEnabled = false;
 
     ////////////////////
     // Private Fields //
     ////////////////////
 
     private final Game.ResourceSource source;
-    private final ResourceDataCache resourceDataCache;
-    private final SimpleCache<String, PVRZ> pvrzCache;
+    private final HashSet<ResourceIdentifier> pvrzIdentifiers = new HashSet<>();
 
     private ByteBuffer buffer;
     private Type type;
@@ -53,17 +69,37 @@ public class TIS
     private IntBuffer magentaTile;
     private ArrayList<TileData> tiles;
 
+    /** Recently expanded encoded tiles, in LRU order */
+    private final LinkedHashMap<Integer, IntBuffer> expandedTiles = new LinkedHashMap<>(16, 0.75F, true);
+    private long expandedTileHits;
+    private long expandedTileMisses;
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static boolean isCompressedTilesEnabled()
+    {
+        return compressedTilesEnabled;
+    }
+
+    /**
+     * When enabled, TIS files loaded afterward keep their PVRZ tiles as BC1 blocks, which are decoded when the tiles
+     * are accessed. This uses about 1/8th of the memory of decoded tiles. Only has an effect while
+     * {@link PVRZ#setRegionalDecodingEnabled} is enabled.
+     */
+    public static void setCompressedTilesEnabled(final boolean compressedTilesEnabled)
+    {
+        TIS.compressedTilesEnabled = compressedTilesEnabled;
+    }
+
     /////////////////////////
     // Public Constructors //
     /////////////////////////
 
-    public TIS(
-        final Game.ResourceSource source,
-        final ResourceDataCache resourceDataCache, final SimpleCache<String, PVRZ> pvrzCache)
+    public TIS(final Game.ResourceSource source)
     {
         this.source = source;
-        this.resourceDataCache = resourceDataCache;
-        this.pvrzCache = pvrzCache;
     }
 
     ////////////////////
@@ -108,6 +144,10 @@ public class TIS
         return tileSideLength;
     }
 
+    /**
+     * @return The tile's pixels, stored contiguously. PVRZ tiles that are views into their page are copied; prefer
+     *         {@link #getTileView} where a pitched source can be used.
+     */
     public IntBuffer getPreRenderedTileData(final int index)
     {
         if (index < tiles.size())
@@ -116,11 +156,14 @@ public class TIS
 
             if (type == Type.PVRZ)
             {
-                return ((PVRZTileData)tileData).getData();
+                final PVRZTileData pvrzTileData = (PVRZTileData)tileData;
+                return pvrzTileData.isCompressed()
+                    ? getExpandedTile(index, pvrzTileData)
+                    : IntBuffer.wrap(pvrzTileData.getView().toPackedArray());
             }
             else if (type == Type.PALETTED)
             {
-                return ((PalettedTileData)tileData).getPreRenderedData();
+                return getExpandedTile(index, tileData);
             }
             else
             {
@@ -134,11 +177,122 @@ public class TIS
         }
     }
 
+    /**
+     * @return The tile's pixels, without copying them where possible.
+     */
+    public TileView getTileView(final int index)
+    {
+        if (type == Type.PVRZ && index < tiles.size()
+            && tiles.get(index) instanceof PVRZTileData pvrzTileData && !pvrzTileData.isCompressed())
+        {
+            return pvrzTileData.getView();
+        }
+
+        return TileView.ofPacked(getPreRenderedTileData(index).array(), tileSideLength, tileSideLength);
+    }
+
+    /**
+     * Returns the tile's pixels without going through the cache of expanded tiles. Tiles that are views into their
+     * PVRZ page are returned as is; other tiles are expanded into {@code scratch}.
+     *
+     * @param scratch An array of at least {@link #getTileSideLength()} squared elements, which may be overwritten.
+     */
+    public TileView getTileView(final int index, final int[] scratch)
+    {
+        if (index < tiles.size()
+            && tiles.get(index) instanceof PVRZTileData pvrzTileData && !pvrzTileData.isCompressed())
+        {
+            return pvrzTileData.getView();
+        }
+
+        copyTileTo(index, scratch, 0, tileSideLength);
+        return TileView.ofPacked(scratch, tileSideLength, tileSideLength);
+    }
+
+    /**
+     * Writes the tile's pixels into {@code dst} without going through the cache of expanded tiles. Intended for
+     * rendering many tiles at once, e.g. a whole area, which would otherwise evict every cached tile.
+     *
+     * @param dstOffset The index in {@code dst} that receives the tile's top-left pixel.
+     * @param dstPitch The distance in {@code dst} between vertically adjacent pixels.
+     */
+    public void copyTileTo(final int index, final int[] dst, final int dstOffset, final int dstPitch)
+    {
+        if (index < tiles.size())
+        {
+            expandTile(tiles.get(index), dst, dstOffset, dstPitch);
+        }
+        else
+        {
+            // Panic code, copy a magenta tile
+            TileView.ofPacked(magentaTile.array(), tileSideLength, tileSideLength).copyTo(dst, dstOffset, dstPitch);
+        }
+    }
+
     public PalettedTileData getPalettedTileData(final int index)
     {
         return (PalettedTileData)tiles.get(index);
     }
 
+    /**
+     * @return The approximate number of bytes held by the tiles, including the cache of expanded tiles at its
+     *         capacity.
+     */
+    public long getDecodedSize()
+    {
+        final TileMemoryStats stats = getTileMemoryStats();
+        final long maxExpandedTileCacheBytes
+            = (long)Math.min(stats.numEncodedTiles(), MAX_EXPANDED_TILES_CACHED) * getTileBytes();
+
+        return stats.residentBytes() + maxExpandedTileCacheBytes;
+    }
+
+    public TileMemoryStats getTileMemoryStats()
+    {
+        final long numPixelsInTile = (long)tileSideLength * tileSideLength;
+        final long tileBytes = getTileBytes();
+
+        int numEncodedTiles = 0;
+        long residentBytes = 0;
+        // Tiles that are views into the same decoded page share its memory
+        final Set<int[]> viewedArrays = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (final TileData tileData : tiles)
+        {
+            if (tileData instanceof PVRZTileData pvrzTileData)
+            {
+                if (pvrzTileData.isCompressed())
+                {
+                    ++numEncodedTiles;
+                    residentBytes += pvrzTileData.getCompressedData().length;
+                }
+                else if (viewedArrays.add(pvrzTileData.getView().data()))
+                {
+                    residentBytes += (long)pvrzTileData.getView().data().length * Integer.BYTES;
+                }
+            }
+            else if (tileData instanceof PalettedTileData)
+            {
+                ++numEncodedTiles;
+                residentBytes += NUM_PALETTE_COLORS * Integer.BYTES + numPixelsInTile;
+            }
+        }
+
+        synchronized (expandedTiles)
+        {
+            return new TileMemoryStats(tiles.size(), numEncodedTiles, residentBytes, tiles.size() * tileBytes,
+                expandedTiles.size(), expandedTileHits, expandedTileMisses);
+        }
+    }
+
+    /**
+     * @return The PVRZ resources that the tiles were cut from.
+     */
+    public Set<ResourceIdentifier> getPVRZIdentifiers()
+    {
+        return Set.copyOf(pvrzIdentifiers);
+    }
+
     public Graphics newGraphics(final ImageAndGraphics imageAndGraphics)
     {
         return new Graphics(imageAndGraphics);
@@ -153,13 +307,70 @@ public class TIS
         buffer.position(pos);
     }
 
+    private long getTileBytes()
+    {
+        return (long)tileSideLength * tileSideLength * Integer.BYTES;
+    }
+
+    private IntBuffer getExpandedTile(final int index, final TileData tileData)
+    {
+        synchronized (expandedTiles)
+        {
+            final IntBuffer expandedTile = expandedTiles.get(index);
+            if (expandedTile != null)
+            {
+                ++expandedTileHits;
+                return expandedTile;
+            }
+            ++expandedTileMisses;
+        }
+
+        final int[] expandedTileData = new int[tileSideLength * tileSideLength];
+        expandTile(tileData, expandedTileData, 0, tileSideLength);
+        final IntBuffer expandedTile = IntBuffer.wrap(expandedTileData);
+
+        synchronized (expandedTiles)
+        {
+            expandedTiles.put(index, expandedTile);
+            if (expandedTiles.size() > MAX_EXPANDED_TILES_CACHED)
+            {
+                final Iterator<Integer> iterator = expandedTiles.keySet().iterator();
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        return expandedTile;
+    }
+
+    private void expandTile(final TileData tileData, final int[] dst, final int dstOffset, final int dstPitch)
+    {
+        if (tileData instanceof PalettedTileData palettedTileData)
+        {
+            palettedTileData.expandTo(tileSideLength, dst, dstOffset, dstPitch);
+        }
+        else
+        {
+            final PVRZTileData pvrzTileData = (PVRZTileData)tileData;
+            if (pvrzTileData.isCompressed())
+            {
+                PVRZ.decompressBC1Blocks(pvrzTileData.getCompressedData(), tileSideLength, tileSideLength,
+                    dst, dstOffset, dstPitch);
+            }
+            else
+            {
+                pvrzTileData.getView().copyTo(dst, dstOffset, dstPitch);
+            }
+        }
+    }
+
     //-------------------//
     // START Loading TIS //
     //-------------------//
 
     private void loadInternal(final TaskTrackerI tracker) throws Exception
     {
-        buffer = resourceDataCache.demand(source);
+        buffer = ResourceDataCache.demand(source);
 
         tracker.updateProgress(0, 100);
         tracker.updateMessage("Processing TIS ...");
@@ -182,7 +393,8 @@ public class TIS
         position(0x14); tileSideLength = buffer.getInt();
 
         magentaTile = allocateSingleColorTile(0xFFFF00FF);
-        blackTile = new PVRZTileData(allocateSingleColorTile(0xFF000000));
+        blackTile = new PVRZTileData(TileView.ofPacked(
+            allocateSingleColorTile(0xFF000000).array(), tileSideLength, tileSideLength));
 
         if (lengthOfTileBlockData == 0xC)
         {
@@ -198,6 +410,9 @@ public class TIS
         {
             throw new IllegalStateException("Unexpected TIS lengthOfTileBlockData: " + lengthOfTileBlockData);
         }
+
+        // Only the decoded tiles are needed from here on
+        buffer = null;
     }
 
     private IntBuffer allocateSingleColorTile(final int color)
@@ -220,89 +435,120 @@ public class TIS
         final String tisNumeric = tisResref.substring(2);
         final String pvrzPrefix = tisFirstChar + tisNumeric;
 
-        final ArrayList<TileData> tiles = new ArrayList<>();
-        int curBase = offset;
+        // Read every tile entry up front, so that the distinct pages can be decoded concurrently
+        final int[] tilePages = new int[count];
+        final int[] tileCoordinatesX = new int[count];
+        final int[] tileCoordinatesY = new int[count];
+        final HashMap<Integer, Integer> pageIndexByPage = new HashMap<>();
+        final ArrayList<Game.ResourceSource> pageSources = new ArrayList<>();
 
+        int curBase = offset;
         for (int i = 0; i < count; ++i, curBase += PVRZ_TILE_DATA_ENTRY_SIZE)
         {
             position(curBase); final int pvrzPage = buffer.getInt();
+            tilePages[i] = pvrzPage;
 
             if (pvrzPage == -1)
             {
                 // Special: Completely black
-                tiles.add(blackTile);
                 continue;
             }
 
-            position(curBase + 0x4); final int coordinateX = buffer.getInt();
-            position(curBase + 0x8); final int coordinateY = buffer.getInt();
-
-            final String pvrzResref = pvrzPrefix + String.format("%02d", pvrzPage);
-            final PVRZ pvrz = loadPVRZ(tracker, pvrzResref);
+            position(curBase + 0x4); tileCoordinatesX[i] = buffer.getInt();
+            position(curBase + 0x8); tileCoordinatesY[i] = buffer.getInt();
 
-            final IntBuffer tile = pvrz.cutout(coordinateX, coordinateY, tileSideLength, tileSideLength);
-            tiles.add(new PVRZTileData(tile));
+            if (!pageIndexByPage.containsKey(pvrzPage))
+            {
+                pageIndexByPage.put(pvrzPage, pageSources.size());
+                pageSources.add(findPVRZSource(pvrzPrefix + String.format("%02d", pvrzPage)));
+            }
         }
 
-        return tiles;
-    }
+        // Inflate and decode the pages in parallel. Pages that are already decoded, or that are being decoded by
+        // another thread, are shared through the DecodedResourceCache.
+        tracker.updateMessage("Processing PVRZ pages ...");
+        final PVRZ[] pages = new PVRZ[pageSources.size()];
+        ParallelUtil.forEachIndex(pages.length, (pageIndex) ->
+            pages[pageIndex] = DecodedResourceCache.demandPVRZ(TaskTracker.DUMMY, pageSources.get(pageIndex)));
 
-    private PVRZ loadPVRZ(final TaskTrackerI tracker, final String pvrzResref) throws Exception
-    {
-        PVRZ pvrz = pvrzCache.get(pvrzResref);
-
-        if (pvrz == null)
+        // Cutouts may decode their pixels on demand, see PVRZ.setRegionalDecodingEnabled()
+        final TileData[] tiles = new TileData[count];
+        ParallelUtil.forEachRange(count, MIN_PVRZ_TILES_PER_TASK, (startTileIndex, endTileIndex) ->
         {
-            final Game.Resource pvrzResource = GlobalState.getGame().getResource(new ResourceIdentifier(
-                pvrzResref, KeyFile.NumericResourceType.PVRZ));
-
-            if (pvrzResource == null)
+            for (int i = startTileIndex; i < endTileIndex; ++i)
             {
-                throw new IllegalStateException("Unable to find source for PVRZ resource \"" + pvrzResref + "\"");
+                final int pvrzPage = tilePages[i];
+                if (pvrzPage == -1)
+                {
+                    tiles[i] = blackTile;
+                    continue;
+                }
+
+                final PVRZ pvrz = pages[pageIndexByPage.get(pvrzPage)];
+
+                if (compressedTilesEnabled)
+                {
+                    final byte[] compressedTile = pvrz.cutoutBC1Blocks(
+                        tileCoordinatesX[i], tileCoordinatesY[i], tileSideLength, tileSideLength);
+
+                    if (compressedTile != null)
+                    {
+                        tiles[i] = new PVRZTileData(compressedTile);
+                        continue;
+                    }
+                }
+
+                // A view into the decoded page, or a decoded copy of just the tile if the page isn't decoded
+                final TileView tile = pvrz.cutoutView(
+                    tileCoordinatesX[i], tileCoordinatesY[i], tileSideLength, tileSideLength);
+                tiles[i] = new PVRZTileData(tile);
             }
+        });
+
+        return new ArrayList<>(Arrays.asList(tiles));
+    }
 
-            pvrz = new PVRZ(pvrzResource.getPrimarySource(), resourceDataCache);
-            pvrz.load(tracker);
-            pvrzCache.add(pvrzResref, pvrz);
+    private Game.ResourceSource findPVRZSource(final String pvrzResref)
+    {
+        final ResourceIdentifier pvrzIdentifier = new ResourceIdentifier(pvrzResref, KeyFile.NumericResourceType.PVRZ);
+        final Game.Resource pvrzResource = GlobalState.getGame().getResource(pvrzIdentifier);
+
+        if (pvrzResource == null)
+        {
+            throw new IllegalStateException("Unable to find source for PVRZ resource \"" + pvrzResref + "\"");
         }
 
-        return pvrz;
+        pvrzIdentifiers.add(pvrzIdentifier);
+        return pvrzResource.getPrimarySource();
     }
 
-    private ArrayList<TileData> parsePaletteTileData(final int offset, final int count)
+    private ArrayList<TileData> parsePaletteTileData(final int offset, final int count) throws Exception
     {
-        position(offset);
-
         final int numPixelsInTile = tileSideLength * tileSideLength;
-        final ArrayList<TileData> tiles = new ArrayList<>();
+        final int paletteSize = NUM_PALETTE_COLORS * Integer.BYTES;
+        final int tileSize = paletteSize + numPixelsInTile;
+        final ByteBuffer buffer = this.buffer;
+        final TileData[] tiles = new TileData[count];
 
-        for (int tileI = 0; tileI < count; ++tileI)
+        // Every tile has a fixed size, so tile ranges can be read in parallel using absolute offsets
+        ParallelUtil.forEachRange(count, MIN_PALETTED_TILES_PER_TASK, (startTileIndex, endTileIndex) ->
         {
-            // Read palette
-            final int[] palette = new int[NUM_PALETTE_COLORS];
-            for (int i = 0; i < NUM_PALETTE_COLORS; ++i)
+            for (int tileI = startTileIndex, tileOffset = offset + startTileIndex * tileSize;
+                tileI < endTileIndex; ++tileI, tileOffset += tileSize)
             {
-                //final int argbColor = buffer.getInt() | 0xFF000000; // Automatically set alpha to 255
-                final int argbColor = buffer.getInt();
-                palette[i] = argbColor;
-            }
+                // Read palette
+                final int[] palette = new int[NUM_PALETTE_COLORS];
+                buffer.slice(tileOffset, paletteSize).order(buffer.order()).asIntBuffer().get(palette);
 
-            // Read paletted data
-            final byte[] palettedData = new byte[numPixelsInTile];
-            buffer.get(palettedData, 0, numPixelsInTile);
+                // Read paletted data; it is only expanded to ARGB when the tile is accessed
+                final byte[] palettedData = new byte[numPixelsInTile];
+                buffer.get(tileOffset + paletteSize, palettedData);
 
-            // Read tile data
-            final int[] tileData = new int[numPixelsInTile];
-            for (int i = 0; i < numPixelsInTile; ++i)
-            {
-                final short paletteIndex = MiscUtil.toUnsignedByte(palettedData[i]);
-                tileData[i] = palette[paletteIndex] | 0xFF000000; // Automatically set alpha to 255
+                tiles[tileI] = new PalettedTileData(palette, palettedData);
             }
+        });
 
-            tiles.add(new PalettedTileData(palette, palettedData, IntBuffer.wrap(tileData)));
-        }
-
-        return tiles;
+        return new ArrayList<>(Arrays.asList(tiles));
     }
 
     private void debugWritePaletteTilesetToImage(final int offset, final int count) throws Exception
@@ -361,18 +607,53 @@ public class TIS
         PVRZ
     }
 
+    /**
+     * @param numTiles The number of tiles.
+     * @param numEncodedTiles The number of tiles held paletted or as BC1 blocks, which are expanded on access.
+     * @param residentBytes The approximate number of bytes held by the tiles, excluding cached expanded tiles.
+     * @param expandedBytes The approximate number of bytes the tiles would hold if they were all expanded.
+     * @param numExpandedTilesCached The number of encoded tiles currently held expanded.
+     */
+    public record TileMemoryStats(
+        int numTiles, int numEncodedTiles, long residentBytes, long expandedBytes, int numExpandedTilesCached,
+        long expandedTileHits, long expandedTileMisses) {}
+
     public static class PVRZTileData extends TileData
     {
-        private final IntBuffer data;
+        private final TileView view;
+        private final byte[] compressedData;
 
-        public PVRZTileData(final IntBuffer data)
+        public PVRZTileData(final TileView view)
         {
-            this.data = data;
+            this.view = view;
+            this.compressedData = null;
         }
 
-        public IntBuffer getData()
+        public PVRZTileData(final byte[] compressedData)
         {
-            return data;
+            this.view = null;
+            this.compressedData = compressedData;
+        }
+
+        /**
+         * @return The tile's pixels, or null if the tile is compressed.
+         */
+        public TileView getView()
+        {
+            return view;
+        }
+
+        public boolean isCompressed()
+        {
+            return compressedData != null;
+        }
+
+        /**
+         * @return The tile's BC1 blocks in row-major order, or null if the tile isn't compressed.
+         */
+        public byte[] getCompressedData()
+        {
+            return compressedData;
         }
     }
 
@@ -380,13 +661,11 @@ public class TIS
     {
         private final int[] paletteData;
         private final byte[] palettedData;
-        private final IntBuffer preRenderedData;
 
-        public PalettedTileData(final int[] paletteData, final byte[] palettedData, final IntBuffer preRenderedData)
+        public PalettedTileData(final int[] paletteData, final byte[] palettedData)
         {
             this.paletteData = paletteData;
             this.palettedData = palettedData;
-            this.preRenderedData = preRenderedData;
         }
 
         public int[] getPaletteData()
@@ -399,9 +678,23 @@ public class TIS
             return palettedData;
         }
 
-        public IntBuffer getPreRenderedData()
+        /**
+         * Writes the tile's ARGB pixels into {@code dst}, with alpha set to 255.
+         *
+         * @param dstOffset The index in {@code dst} that receives the tile's top-left pixel.
+         * @param dstPitch The distance in {@code dst} between vertically adjacent pixels.
+         */
+        public void expandTo(final int tileSideLength, final int[] dst, final int dstOffset, final int dstPitch)
         {
-            return preRenderedData;
+            for (int y = 0, srcIndex = 0; y < tileSideLength; ++y)
+            {
+                final int maxSrcIndex = srcIndex + tileSideLength;
+                for (int dstIndex = dstOffset + y * dstPitch; srcIndex < maxSrcIndex; ++srcIndex, ++dstIndex)
+                {
+                    final short paletteIndex = MiscUtil.toUnsignedByte(palettedData[srcIndex]);
+                    dst[dstIndex] = paletteData[paletteIndex] | 0xFF000000; // Automatically set alpha to 255
+                }
+            }
         }
     }
 
@@ -409,6 +702,8 @@ public class TIS
     {
         private final BufferedImage image;
         private final Graphics2D graphics;
+        /** Receives encoded tiles as they are drawn */
+        private int[] scratchTile;
 
         public Graphics(final ImageAndGraphics imageAndGraphics)
         {
@@ -418,9 +713,7 @@ public class TIS
 
         public Graphics drawTile(final int tileIndex, final int destX, final int destY)
         {
-            final BufferedImage data = ImageUtil.wrapArgb(getPreRenderedTileData(tileIndex).array(),
-                tileSideLength, tileSideLength
-            );
+            final BufferedImage data = ImageUtil.wrapArgb(getTilePixels(tileIndex));
             graphics.drawImage(data, destX, destY, null);
             return this;
         }
@@ -440,16 +733,27 @@ public class TIS
 
             final int imageWidth = image.getWidth();
             final int dstOffset = y * imageWidth + x;
-            final int[] src = getPreRenderedTileData(tileIndex).array();
+            final TileView src = getTilePixels(tileIndex);
 
             DrawUtil.drawAlpha(
-                tileSideLength, tileSideLength,
-                tileSideLength, 0,
                 imageWidth, dstOffset,
                 dwAlpha, src, dst,
                 debugWriter
             );
         }
+
+        /**
+         * Returns the pixels of a tile. Encoded tiles are expanded into a scratch array that is reused by the next
+         * call, rather than going through the cache of expanded tiles.
+         */
+        private TileView getTilePixels(final int tileIndex)
+        {
+            if (scratchTile == null)
+            {
+                scratchTile = new int[tileSideLength * tileSideLength];
+            }
+            return getTileView(tileIndex, scratchTile);
+        }
     }
 
     /////////////////////
@@ -14,28 +14,40 @@ import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
 import com.github.bubb13.infinityareas.util.BufferUtil;
+import com.github.bubb13.infinityareas.util.DrawUtil;
 import com.github.bubb13.infinityareas.util.MiscUtil;
+import com.github.bubb13.infinityareas.util.ParallelUtil;
 import com.github.bubb13.infinityareas.util.TileUtil;
 
+import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Stack;
 
 public class WED
 {
+    //////////////////////////
+    // Public Static Fields //
+    //////////////////////////
+
+    /** The side length of the square tiles that WED overlays are made of, in pixels */
+    public static final int TILE_SIDE_LENGTH = 64;
+
     ///////////////////////////
     // Private Static Fields //
     ///////////////////////////
@@ -57,8 +69,6 @@ public class WED
     private final InstanceHashMap<Polygon, TiledObject> tiledObjectByReferencedPolygon = new InstanceHashMap<>();
     private final TrackingOrderedInstanceSet<Polygon> polygons = new TrackingOrderedInstanceSet<>("WED Polygons");
 
-    private final ResourceDataCache resourceDataCache = new ResourceDataCache();
-    private final SimpleCache<String, PVRZ> pvrzCache = new SimpleCache<>();
     private final SimpleCache<String, TIS> tisCache = new SimpleCache<>();
 
     private boolean changed = false;
@@ -905,8 +915,7 @@ public class WED
                 throw new IllegalStateException("Unable to find source for TIS resource \"" + tisResref + "\"");
             }
 
-            tis = new TIS(tisResource.getPrimarySource(), resourceDataCache, pvrzCache);
-            tis.load(tracker);
+            tis = DecodedResourceCache.demandTIS(tracker, tisResource.getPrimarySource());
 
             tisCache.add(tisResref, tis);
         }
@@ -926,8 +935,11 @@ public class WED
 
     public class Graphics
     {
+        /** The minimum number of tilemap rows composited by a single parallel task */
+        private static final int MIN_TILE_ROWS_PER_TASK = 2;
+
         private final ImageAndGraphics imageAndGraphics;
-        private final HashMap<String, TIS.Graphics> tisGraphicsCache = new HashMap<>();
+        private final HashMap<TIS, TIS.Graphics> tisGraphicsCache = new HashMap<>();
 
         public Graphics(final ImageAndGraphics imageAndGraphics)
         {
@@ -940,6 +952,25 @@ public class WED
         }
 
         public Graphics renderOverlays(final TaskTrackerI tracker, final int... overlayIndexes) throws Exception
+        {
+            final WED.Overlay baseOverlay = getOverlays().get(0);
+            return renderOverlayRegion(tracker,
+                0, 0, baseOverlay.getWidthInTiles(), baseOverlay.getHeightInTiles(),
+                overlayIndexes);
+        }
+
+        /**
+         * Renders a rectangular region of the tilemap, placing the region's top-left tile at (0, 0) of the image.
+         *
+         * @param regionTileX The tilemap column of the region's left edge.
+         * @param regionTileY The tilemap row of the region's top edge.
+         * @param regionWidthInTiles The width of the region; must not extend past the base overlay.
+         * @param regionHeightInTiles The height of the region; must not extend past the base overlay.
+         */
+        public Graphics renderOverlayRegion(
+            final TaskTrackerI tracker,
+            final int regionTileX, final int regionTileY, final int regionWidthInTiles, final int regionHeightInTiles,
+            final int... overlayIndexes) throws Exception
         {
             final Game game = GlobalState.getGame();
             final Game.Type engineType = game.getEngineType();
@@ -958,15 +989,14 @@ public class WED
             }
 
             final int baseOverlayWidth = baseOverlay.getWidthInTiles();
-            final int baseOverlayHeight = baseOverlay.getHeightInTiles();
-            final int baseOverlayWidthInPixels = baseOverlayWidth * 64;
-            final int baseOverlayHeightInPixels = baseOverlayHeight * 64;
 
             final ArrayList<WED.TilemapEntry> baseOverlayTilemapEntries = baseOverlay.getTilemapEntries();
             final int nGameTime = 0; // TODO - animate
 
-            final BufferedImage image = imageAndGraphics.image();
-            final Graphics2D graphics = imageAndGraphics.graphics();
+            // Tiles don't overlap, so when the image's pixels can be written directly, tilemap rows are composited
+            // in parallel
+            final boolean drawDirectly = canDrawDirectly(
+                regionWidthInTiles * TILE_SIDE_LENGTH, regionHeightInTiles * TILE_SIDE_LENGTH);
 
             for (int overlayIndex = 4; overlayIndex > 0; --overlayIndex)
             {
@@ -995,30 +1025,31 @@ public class WED
 
                 final int overlayRenderFlag = 1 << overlayIndex;
                 final WED.TilemapEntry overlayTilemapEntry = overlayTilemapEntries.get(0);
+                final TIS overlayTIS = loadTIS(tracker, overlay.getTilesetResref());
 
-                final String overlayTisResref = overlay.getTilesetResref();
-                final TIS overlayTIS = loadTIS(tracker, overlayTisResref);
-                final TIS.Graphics tisGraphics = tisGraphicsCache.computeIfAbsent(overlayTisResref,
-                    (ignored) -> overlayTIS.newGraphics(imageAndGraphics));
-
-                for (int yPos = 0, i = 0; yPos < baseOverlayHeightInPixels; yPos += 64)
+                renderTileRows(drawDirectly, regionHeightInTiles, (startRow, endRow, drawer) ->
                 {
-                    for (int xPos = 0; xPos < baseOverlayWidthInPixels; xPos += 64, ++i)
+                    for (int tileY = startRow; tileY < endRow; ++tileY)
                     {
-                        final WED.TilemapEntry baseOverlayTilemapEntry = baseOverlayTilemapEntries.get(i);
-
-                        if ((baseOverlayTilemapEntry.getDrawFlags() & overlayRenderFlag) == 0)
+                        int i = (regionTileY + tileY) * baseOverlayWidth + regionTileX;
+                        for (int tileX = 0; tileX < regionWidthInTiles; ++tileX, ++i)
                         {
-                            continue;
-                        }
+                            final WED.TilemapEntry baseOverlayTilemapEntry = baseOverlayTilemapEntries.get(i);
+
+                            if ((baseOverlayTilemapEntry.getDrawFlags() & overlayRenderFlag) == 0)
+                            {
+                                continue;
+                            }
 
-                        final int overlayTileLookupIndex = ((nGameTime / 2)
-                            % overlayTilemapEntry.tisTileIndexArray.length
-                        );
-                        final int overlayTileIndex = overlayTilemapEntry.tisTileIndexArray[overlayTileLookupIndex];
-                        tisGraphics.drawTile(overlayTileIndex, xPos, yPos);
+                            final int overlayTileLookupIndex = ((nGameTime / 2)
+                                % overlayTilemapEntry.tisTileIndexArray.length
+                            );
+                            final int overlayTileIndex = overlayTilemapEntry.tisTileIndexArray[overlayTileLookupIndex];
+                            drawer.drawTile(overlayTIS, overlayTileIndex,
+                                tileX * TILE_SIDE_LENGTH, tileY * TILE_SIDE_LENGTH);
+                        }
                     }
-                }
+                });
             }
 
             if (renderRequested(overlayIndexes, 0))
@@ -1031,125 +1062,20 @@ public class WED
                     ? 0x4000000 : 0;
 
                 final TIS baseOverlayTIS = loadTIS(tracker, baseOverlayTISResref);
-                final TIS.Graphics baseOverlayTISGraphics = tisGraphicsCache.computeIfAbsent(baseOverlayTISResref,
-                    (ignored) -> baseOverlayTIS.newGraphics(imageAndGraphics));
 
-                for (int yPos = 0, i = 0; yPos < baseOverlayHeightInPixels; yPos += 64)
+                renderTileRows(drawDirectly, regionHeightInTiles, (startRow, endRow, drawer) ->
                 {
-                    for (int xPos = 0; xPos < baseOverlayWidthInPixels; xPos += 64, ++i)
+                    for (int tileY = startRow; tileY < endRow; ++tileY)
                     {
-                        final WED.TilemapEntry tilemapEntry = baseOverlayTilemapEntries.get(i);
-
-                        if ((tilemapEntry.getDrawFlags() & 1) == 0)
+                        int i = (regionTileY + tileY) * baseOverlayWidth + regionTileX;
+                        for (int tileX = 0; tileX < regionWidthInTiles; ++tileX, ++i)
                         {
-                            int nTile;
-
-                            if ((tilemapEntry.getExtraFlags() & 2) == 0
-                                || tilemapEntry.getSecondaryTisTileIndex() == -1)
-                            {
-                                // Not using secondary tile
-                                final byte nAnimSpeed = (byte)Math.max(1, tilemapEntry.getAnimationSpeed());
-                                final int nTileLookupIndex = ((nGameTime / nAnimSpeed)
-                                    % tilemapEntry.tisTileIndexArray.length);
-
-                                nTile = tilemapEntry.tisTileIndexArray[nTileLookupIndex];
-                            }
-                            else
-                            {
-                                // Using secondary tile
-                                nTile = tilemapEntry.getSecondaryTisTileIndex();
-                            }
-
-                            // if ((baseOverlay.getMovementType() & 2) != 0)
-                            // {
-                            //     // dwRenderFlags |= 0x4000000;
-                            // }
-
-                            int nStencilTile = -1;
-                            int dwRenderFlags = dwRenderFlagsBase;
-
-                            if ((tilemapEntry.getDrawFlags() & 0x1E) != 0)
-                            {
-                                nStencilTile = tilemapEntry.getSecondaryTisTileIndex();
-                                dwRenderFlags |= 0x2;
-                            }
-
-                            if (baseOverlayTIS.getType() == TIS.Type.PALETTED)
-                            {
-                                if (nStencilTile == -1)
-                                {
-                                    final IntBuffer tileData = baseOverlayTIS.getPreRenderedTileData(nTile);
-                                    TileUtil.drawTileData(graphics, 64, tileData, xPos, yPos);
-                                }
-                                else
-                                {
-                                    final TIS.PalettedTileData tileData = baseOverlayTIS
-                                        .getPalettedTileData(nTile);
-
-                                    final TIS.PalettedTileData stencilTileData = baseOverlayTIS
-                                        .getPalettedTileData(nStencilTile);
-
-                                    if (eeStencil)
-                                    {
-                                        final int dwAlpha = (dwRenderFlags & 0x4000000) != 0
-                                            ? TIS.WATER_ALPHA
-                                            : 0xFF;
-
-                                        TileUtil.drawStenciledTo(
-                                            64, xPos, yPos,
-                                            dwAlpha, dwRenderFlags,
-                                            tileData.getPaletteData(),
-                                            tileData.getPalettedData(),
-                                            stencilTileData.getPalettedData(),
-                                            graphics);
-                                    }
-                                    else
-                                    {
-                                        TileUtil.drawClassicStenciledTo(
-                                            64, xPos, yPos,
-                                            tileData.getPaletteData(),
-                                            tileData.getPalettedData(),
-                                            stencilTileData.getPalettedData(),
-                                            graphics
-                                        );
-                                    }
-                                }
-                            }
-                            else if (baseOverlayTIS.getType() == TIS.Type.PVRZ)
-                            {
-                                int dwAlpha = 0xFF000000;
-
-                                if ((dwRenderFlags & 0x4000000) == 0)
-                                {
-                                    dwRenderFlags &= ~0x2;
-                                }
-                                else if ((dwRenderFlags & 2) != 0)
-                                {
-                                    if (nStencilTile != -1)
-                                    {
-                                        dwRenderFlags &= ~0x2;
-                                    }
-                                    else
-                                    {
-                                        dwAlpha = TIS.WATER_ALPHA << 24;
-                                    }
-                                }
-
-                                baseOverlayTISGraphics.drawTileWithAlpha(nTile, xPos, yPos, dwAlpha, null);
-
-                                if (nStencilTile != -1)
-                                {
-                                    baseOverlayTISGraphics.drawTileWithAlpha(nStencilTile, xPos, yPos,
-                                        TIS.WATER_ALPHA << 24, null);
-                                }
-                            }
-                        }
-                        else
-                        {
-                            // TODO: All black
+                            renderBaseOverlayTile(eeStencil, nGameTime, dwRenderFlagsBase, baseOverlayTIS,
+                                baseOverlayTilemapEntries.get(i),
+                                tileX * TILE_SIDE_LENGTH, tileY * TILE_SIDE_LENGTH, drawer);
                         }
                     }
-                }
+                });
             }
 
             return this;
@@ -1191,6 +1117,149 @@ public class WED
 //            return this;
 //        }
 
+        private void renderBaseOverlayTile(
+            final boolean eeStencil, final int nGameTime, final int dwRenderFlagsBase, final TIS baseOverlayTIS,
+            final WED.TilemapEntry tilemapEntry, final int xPos, final int yPos, final TileDrawer drawer)
+        {
+            if ((tilemapEntry.getDrawFlags() & 1) == 0)
+            {
+                int nTile;
+
+                if ((tilemapEntry.getExtraFlags() & 2) == 0
+                    || tilemapEntry.getSecondaryTisTileIndex() == -1)
+                {
+                    // Not using secondary tile
+                    final byte nAnimSpeed = (byte)Math.max(1, tilemapEntry.getAnimationSpeed());
+                    final int nTileLookupIndex = ((nGameTime / nAnimSpeed)
+                        % tilemapEntry.tisTileIndexArray.length);
+
+                    nTile = tilemapEntry.tisTileIndexArray[nTileLookupIndex];
+                }
+                else
+                {
+                    // Using secondary tile
+                    nTile = tilemapEntry.getSecondaryTisTileIndex();
+                }
+
+                // if ((baseOverlay.getMovementType() & 2) != 0)
+                // {
+                //     // dwRenderFlags |= 0x4000000;
+                // }
+
+                int nStencilTile = -1;
+                int dwRenderFlags = dwRenderFlagsBase;
+
+                if ((tilemapEntry.getDrawFlags() & 0x1E) != 0)
+                {
+                    nStencilTile = tilemapEntry.getSecondaryTisTileIndex();
+                    dwRenderFlags |= 0x2;
+                }
+
+                if (baseOverlayTIS.getType() == TIS.Type.PALETTED)
+                {
+                    if (nStencilTile == -1)
+                    {
+                        drawer.drawTile(baseOverlayTIS, nTile, xPos, yPos);
+                    }
+                    else
+                    {
+                        final TIS.PalettedTileData tileData = baseOverlayTIS
+                            .getPalettedTileData(nTile);
+
+                        final TIS.PalettedTileData stencilTileData = baseOverlayTIS
+                            .getPalettedTileData(nStencilTile);
+
+                        if (eeStencil)
+                        {
+                            final int dwAlpha = (dwRenderFlags & 0x4000000) != 0
+                                ? TIS.WATER_ALPHA
+                                : 0xFF;
+
+                            drawer.drawStenciledTile(xPos, yPos, dwAlpha, dwRenderFlags, tileData, stencilTileData);
+                        }
+                        else
+                        {
+                            drawer.drawClassicStenciledTile(xPos, yPos, tileData, stencilTileData);
+                        }
+                    }
+                }
+                else if (baseOverlayTIS.getType() == TIS.Type.PVRZ)
+                {
+                    int dwAlpha = 0xFF000000;
+
+                    if ((dwRenderFlags & 0x4000000) == 0)
+                    {
+                        dwRenderFlags &= ~0x2;
+                    }
+                    else if ((dwRenderFlags & 2) != 0)
+                    {
+                        if (nStencilTile != -1)
+                        {
+                            dwRenderFlags &= ~0x2;
+                        }
+                        else
+                        {
+                            dwAlpha = TIS.WATER_ALPHA << 24;
+                        }
+                    }
+
+                    drawer.drawTileWithAlpha(baseOverlayTIS, nTile, xPos, yPos, dwAlpha);
+
+                    if (nStencilTile != -1)
+                    {
+                        drawer.drawTileWithAlpha(baseOverlayTIS, nStencilTile, xPos, yPos, TIS.WATER_ALPHA << 24);
+                    }
+                }
+            }
+            else
+            {
+                // TODO: All black
+            }
+        }
+
+        /**
+         * Calls {@code renderer} for the rendered rows [0, {@code numRows}). If {@code drawDirectly} is set, row
+         * ranges are rendered in parallel, each writing straight into the image's pixels; otherwise all rows are
+         * rendered on the calling thread through the image's {@link Graphics2D}.
+         */
+        private void renderTileRows(
+            final boolean drawDirectly, final int numRows, final TileRowRenderer renderer) throws Exception
+        {
+            if (!drawDirectly)
+            {
+                renderer.render(0, numRows, new Graphics2DTileDrawer());
+                return;
+            }
+
+            final BufferedImage image = imageAndGraphics.image();
+            final int[] dst = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+            final int dstPitch = image.getWidth();
+
+            ParallelUtil.forEachRange(numRows, MIN_TILE_ROWS_PER_TASK, (startRow, endRow) ->
+                renderer.render(startRow, endRow, new RasterTileDrawer(dst, dstPitch)));
+        }
+
+        /**
+         * Whether tiles can be composited straight into the image's pixels with results identical to drawing them
+         * through its {@link Graphics2D}.
+         */
+        private boolean canDrawDirectly(final int widthInPixels, final int heightInPixels)
+        {
+            final BufferedImage image = imageAndGraphics.image();
+            final Graphics2D graphics = imageAndGraphics.graphics();
+            final WritableRaster raster = image.getRaster();
+
+            return image.getType() == BufferedImage.TYPE_INT_ARGB
+                && image.getWidth() >= widthInPixels && image.getHeight() >= heightInPixels
+                && raster.getParent() == null
+                && raster.getDataBuffer() instanceof DataBufferInt dataBuffer && dataBuffer.getOffset() == 0
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel
+                && sampleModel.getScanlineStride() == image.getWidth()
+                && graphics.getTransform().isIdentity()
+                && graphics.getClip() == null
+                && AlphaComposite.SrcOver.equals(graphics.getComposite());
+        }
+
         private boolean renderRequested(final int[] overlayIndexes, final int overlayIndex)
         {
             for (int requestedOverlayIndex : overlayIndexes)
@@ -1202,6 +1271,138 @@ public class WED
             }
             return false;
         }
+
+        @FunctionalInterface
+        private interface TileRowRenderer
+        {
+            void render(int startRow, int endRow, TileDrawer drawer) throws Exception;
+        }
+
+        private interface TileDrawer
+        {
+            void drawTile(TIS tis, int tileIndex, int x, int y);
+
+            void drawTileWithAlpha(TIS tis, int tileIndex, int x, int y, int dwAlpha);
+
+            void drawStenciledTile(
+                int x, int y, int dwAlpha, int dwFlags,
+                TIS.PalettedTileData tileData, TIS.PalettedTileData stencilTileData);
+
+            void drawClassicStenciledTile(
+                int x, int y, TIS.PalettedTileData tileData, TIS.PalettedTileData stencilTileData);
+        }
+
+        /**
+         * Draws tiles through the image's {@link Graphics2D}.
+         */
+        private class Graphics2DTileDrawer implements TileDrawer
+        {
+            private final Graphics2D graphics = imageAndGraphics.graphics();
+
+            @Override
+            public void drawTile(final TIS tis, final int tileIndex, final int x, final int y)
+            {
+                getTISGraphics(tis).drawTile(tileIndex, x, y);
+            }
+
+            @Override
+            public void drawTileWithAlpha(final TIS tis, final int tileIndex, final int x, final int y, final int dwAlpha)
+            {
+                getTISGraphics(tis).drawTileWithAlpha(tileIndex, x, y, dwAlpha, null);
+            }
+
+            @Override
+            public void drawStenciledTile(
+                final int x, final int y, final int dwAlpha, final int dwFlags,
+                final TIS.PalettedTileData tileData, final TIS.PalettedTileData stencilTileData)
+            {
+                TileUtil.drawStenciledTo(
+                    TILE_SIDE_LENGTH, x, y,
+                    dwAlpha, dwFlags,
+                    tileData.getPaletteData(),
+                    tileData.getPalettedData(),
+                    stencilTileData.getPalettedData(),
+                    graphics);
+            }
+
+            @Override
+            public void drawClassicStenciledTile(
+                final int x, final int y, final TIS.PalettedTileData tileData,
+                final TIS.PalettedTileData stencilTileData)
+            {
+                TileUtil.drawClassicStenciledTo(
+                    TILE_SIDE_LENGTH, x, y,
+                    tileData.getPaletteData(),
+                    tileData.getPalettedData(),
+                    stencilTileData.getPalettedData(),
+                    graphics
+                );
+            }
+
+            private TIS.Graphics getTISGraphics(final TIS tis)
+            {
+                return tisGraphicsCache.computeIfAbsent(tis, (ignored) -> tis.newGraphics(imageAndGraphics));
+            }
+        }
+
+        /**
+         * Composites tiles straight into the image's pixels, producing the same pixels as
+         * {@link Graphics2DTileDrawer}. Reuses a single scratch tile, so that drawing doesn't allocate.
+         */
+        private static class RasterTileDrawer implements TileDrawer
+        {
+            private final int[] dst;
+            private final int dstPitch;
+            private final int[] scratchTile = new int[TILE_SIDE_LENGTH * TILE_SIDE_LENGTH];
+
+            public RasterTileDrawer(final int[] dst, final int dstPitch)
+            {
+                this.dst = dst;
+                this.dstPitch = dstPitch;
+            }
+
+            @Override
+            public void drawTile(final TIS tis, final int tileIndex, final int x, final int y)
+            {
+                DrawUtil.drawSrcOver(dstPitch, y * dstPitch + x, tis.getTileView(tileIndex, scratchTile), dst);
+            }
+
+            @Override
+            public void drawTileWithAlpha(final TIS tis, final int tileIndex, final int x, final int y, final int dwAlpha)
+            {
+                DrawUtil.drawAlpha(dstPitch, y * dstPitch + x, dwAlpha,
+                    tis.getTileView(tileIndex, scratchTile), dst, null);
+            }
+
+            @Override
+            public void drawStenciledTile(
+                final int x, final int y, final int dwAlpha, final int dwFlags,
+                final TIS.PalettedTileData tileData, final TIS.PalettedTileData stencilTileData)
+            {
+                TileUtil.copyStenciledTo(TILE_SIDE_LENGTH, TILE_SIDE_LENGTH, 0, dwAlpha, dwFlags,
+                    tileData.getPaletteData(), tileData.getPalettedData(), stencilTileData.getPalettedData(),
+                    scratchTile);
+
+                DrawUtil.drawSrcOver(TILE_SIDE_LENGTH, TILE_SIDE_LENGTH, TILE_SIDE_LENGTH, 0,
+                    dstPitch, y * dstPitch + x, scratchTile, dst);
+            }
+
+            @Override
+            public void drawClassicStenciledTile(
+                final int x, final int y, final TIS.PalettedTileData tileData,
+                final TIS.PalettedTileData stencilTileData)
+            {
+                // Only the pixels covered by the stencil are written; the rest must stay transparent
+                Arrays.fill(scratchTile, 0);
+
+                TileUtil.classicCopyStenciledTo(TILE_SIDE_LENGTH, TILE_SIDE_LENGTH, 0,
+                    tileData.getPaletteData(), tileData.getPalettedData(), stencilTileData.getPalettedData(),
+                    scratchTile);
+
+                DrawUtil.drawSrcOver(TILE_SIDE_LENGTH, TILE_SIDE_LENGTH, TILE_SIDE_LENGTH, 0,
+                    dstPitch, y * dstPitch + x, scratchTile, dst);
+            }
+        }
     }
 
     private class RenderOverlaysTask extends TrackedTask<BufferedImage>
@@ -1315,7 +1516,7 @@ public class WED
             savePolygonIndicesArray(polygonsIndicesArrayOffset);
             saveVerticesArray(verticesArrayOffset);
 
-            Files.write(path, buffer.array());
+            GlobalState.getGame().writeFile(path, buffer.array());
         }
 
         private void saveHeader(
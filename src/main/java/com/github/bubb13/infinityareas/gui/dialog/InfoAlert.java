@@ -0,0 +1,78 @@
+package com.github.bubb13.infinityareas.gui.dialog;
+
+import com.github.bubb13.infinityareas.GlobalState;
+import com.github.bubb13.infinityareas.util.JavaFXUtil;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.control.Alert;
+import javafx.scene.control.DialogPane;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.StackPane;
+import javafx.scene.text.Font;
+import javafx.stage.Stage;
+
+public class InfoAlert extends Alert
+{
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static void openAndWait(final String title, final String message)
+    {
+        if (Platform.isFxApplicationThread())
+        {
+            doShowAndWait(title, message);
+        }
+        else
+        {
+            JavaFXUtil.waitForFxThreadToExecute(() -> doShowAndWait(title, message));
+        }
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    private static void doShowAndWait(final String title, final String message)
+    {
+        new InfoAlert(title, message).showAndWait();
+    }
+
+    //////////////////////////
+    // Private Constructors //
+    //////////////////////////
+
+    private InfoAlert(final String title, final String message)
+    {
+        super(AlertType.INFORMATION);
+        init(title, message);
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private void init(final String title, final String message)
+    {
+        this.setTitle(title);
+        this.setHeaderText(null);
+
+        final TextArea messageArea = new TextArea(message);
+        messageArea.setFont(Font.font("Monospaced", 12));
+        messageArea.setPrefHeight(300);
+        messageArea.setEditable(false);
+
+        // StackPane (not Pane) needed to make left inset functional
+        final StackPane pane = new StackPane();
+        pane.getChildren().addAll(messageArea);
+        pane.setPadding(new Insets(10, 10, 0, 10));
+
+        final DialogPane dialogPane = getDialogPane();
+        dialogPane.setContent(pane);
+
+        final Stage stage = (Stage)dialogPane.getScene().getWindow();
+        stage.setOnHiding((ignored) -> GlobalState.setFrontStage(null));
+        GlobalState.setFrontStage(stage);
+        JavaFXUtil.forceToFront(stage);
+    }
+}
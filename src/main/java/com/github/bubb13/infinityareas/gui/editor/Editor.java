@@ -572,6 +572,23 @@ public class Editor
         undoRedoBuffer.clearRedo();
     }
 
+    //-------------//
+    // Clean State //
+    //-------------//
+
+    public void markClean()
+    {
+        undoRedoBuffer.markClean();
+    }
+
+    /**
+     * @return Whether there are edits, or undo / redo history, that the last load or save doesn't reflect.
+     */
+    public boolean hasUnsavedChanges()
+    {
+        return undoRedoBuffer.hasChangesSinceClean();
+    }
+
     /////////////////////
     // Private Methods //
     /////////////////////
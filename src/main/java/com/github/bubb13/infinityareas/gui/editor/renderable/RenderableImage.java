@@ -32,6 +32,7 @@ public class RenderableImage extends AbstractRenderable
         super(editor);
         logic.setSourceImage(image);
         logic.setOpacity(opacity);
+        logic.setOnChunkReady(editor::requestDraw);
         setRectangle(x, y, width, height);
     }
 
@@ -7,7 +7,6 @@ import com.github.bubb13.infinityareas.game.resource.Area;
 import com.github.bubb13.infinityareas.game.resource.AreaSearchMap;
 import com.github.bubb13.infinityareas.game.resource.KeyFile;
 import com.github.bubb13.infinityareas.game.resource.ResourceIdentifier;
-import com.github.bubb13.infinityareas.game.resource.WED;
 import com.github.bubb13.infinityareas.gui.control.ColorButton;
 import com.github.bubb13.infinityareas.gui.control.UnderlinedButton;
 import com.github.bubb13.infinityareas.gui.dialog.ErrorAlert;
@@ -28,6 +27,7 @@ import com.github.bubb13.infinityareas.gui.editor.renderable.RenderableAnchoredL
 import com.github.bubb13.infinityareas.gui.editor.renderable.RenderableImage;
 import com.github.bubb13.infinityareas.gui.editor.renderable.RenderablePoint;
 import com.github.bubb13.infinityareas.gui.editor.renderable.RenderablePolygon;
+import com.github.bubb13.infinityareas.gui.region.WEDChunkSource;
 import com.github.bubb13.infinityareas.misc.DoubleCorners;
 import com.github.bubb13.infinityareas.misc.IntPoint;
 import com.github.bubb13.infinityareas.misc.ReadableDoublePoint;
@@ -36,7 +36,6 @@ import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
 import com.github.bubb13.infinityareas.misc.undoredo.IUndoHandle;
 import com.github.bubb13.infinityareas.util.FileUtil;
-import com.github.bubb13.infinityareas.util.ImageUtil;
 import com.github.bubb13.infinityareas.util.MiscUtil;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -68,6 +67,7 @@ import javafx.stage.DirectoryChooser;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -192,6 +192,14 @@ public class AreaPane extends StackPane
         return new SetAreaTask(source);
     }
 
+    /**
+     * @return Whether the area has edits, or undo / redo history, that haven't been saved.
+     */
+    public boolean hasUnsavedChanges()
+    {
+        return editor.hasUnsavedChanges() || (searchMap != null && searchMap.hasUnsavedChanges());
+    }
+
     /////////////////////
     // Private Methods //
     /////////////////////
@@ -1804,17 +1812,19 @@ public class AreaPane extends StackPane
             areaTemp.load(getTracker());
             area = areaTemp;
 
-            final WED.Graphics wedGraphics = area.newGraphics().getWedGraphics();
-            wedGraphics.renderOverlays(getTracker(), 0, 1, 2, 3, 4);
-            final BufferedImage image = ImageUtil.copyArgb(wedGraphics.getImage());
+            // The area is rendered a chunk at a time as it is scrolled into view. The top-left chunk is rendered
+            // here, so that the first frame is ready and any failure to render is reported by this task.
+            final WEDChunkSource chunkSource = new WEDChunkSource(area.getWed(), 0, 1, 2, 3, 4);
+            chunkSource.demandChunk(getTracker(), 0, 0);
 
-            editor.reset(image.getWidth(), image.getHeight());
+            editor.reset(chunkSource.getWidth(), chunkSource.getHeight());
             waitForFxThreadToExecute(() ->
             {
                 resetFX();
-                zoomPane.setImage(image);
+                zoomPane.setImageSource(chunkSource);
             });
             reset(getTracker());
+            editor.markClean();
 
             return null;
         }
@@ -1862,10 +1872,14 @@ public class AreaPane extends StackPane
 
             if (searchMap.hasUnsavedChanges())
             {
-                ImageIO.write(searchMap.getImage(), "BMP", outputSearchMapPath.toFile());
+                final ByteArrayOutputStream searchMapStream = new ByteArrayOutputStream();
+                ImageIO.write(searchMap.getImage(), "BMP", searchMapStream);
+                GlobalState.getGame().writeFile(outputSearchMapPath, searchMapStream.toByteArray());
                 searchMap.clearHasUnsavedChanges();
             }
 
+            waitForFxThreadToExecute(editor::markClean);
+
             tracker.updateProgress(1, 1);
             return null;
         }
@@ -2,10 +2,8 @@
 package com.github.bubb13.infinityareas.gui.pane;
 
 import com.github.bubb13.infinityareas.game.Game;
-import com.github.bubb13.infinityareas.game.resource.PVRZ;
-import com.github.bubb13.infinityareas.game.resource.ResourceDataCache;
+import com.github.bubb13.infinityareas.game.resource.DecodedResourceCache;
 import com.github.bubb13.infinityareas.game.resource.TIS;
-import com.github.bubb13.infinityareas.misc.SimpleCache;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
 import com.github.bubb13.infinityareas.util.JavaFXUtil;
@@ -20,8 +18,7 @@ import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
-import java.nio.IntBuffer;
+import java.awt.image.DataBufferInt;
 
 public class TISPane extends StackPane
 {
@@ -30,8 +27,6 @@ public class TISPane extends StackPane
     ////////////////////
 
     // Data
-    private final ResourceDataCache resourceDataCache = new ResourceDataCache();
-    private final SimpleCache<String, PVRZ> pvrzCache = new SimpleCache<>();
     private TIS tis;
 
     // GUI
@@ -58,6 +53,15 @@ public class TISPane extends StackPane
         return new SetTISTask(source);
     }
 
+    /**
+     * @return The memory usage of the tileset being shown, or null if no tileset has been shown yet.
+     */
+    public TIS.TileMemoryStats getTileMemoryStats()
+    {
+        final TIS tis = this.tis;
+        return tis == null ? null : tis.getTileMemoryStats();
+    }
+
     /////////////////////
     // Private Methods //
     /////////////////////
@@ -137,14 +141,13 @@ public class TISPane extends StackPane
         final int previewHeight = previewNumTilesY * tileSideLength;
 
         final BufferedImage image = new BufferedImage(previewWidth, previewHeight, BufferedImage.TYPE_INT_ARGB);
-        final WritableRaster raster = image.getRaster();
+        final int[] imageData = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
 
         for (int yPos = 0, i = 0; yPos < previewHeight; yPos += tileSideLength)
         {
             for (int xPos = 0; xPos < previewWidth; xPos += tileSideLength, ++i)
             {
-                final IntBuffer tileData = tis.getPreRenderedTileData(i);
-                raster.setDataElements(xPos, yPos, tileSideLength, tileSideLength, tileData.array());
+                tis.copyTileTo(i, imageData, yPos * previewWidth + xPos, previewWidth);
             }
         }
 
@@ -183,8 +186,7 @@ public class TISPane extends StackPane
             tracker.updateMessage("Processing TIS ...");
             tracker.updateProgress(0, 1);
 
-            final TIS tis = new TIS(source, resourceDataCache, pvrzCache);
-            tis.load(getTracker());
+            final TIS tis = DecodedResourceCache.demandTIS(getTracker(), source);
             TISPane.this.tis = tis;
 
             final int numTiles = tis.getNumTiles();
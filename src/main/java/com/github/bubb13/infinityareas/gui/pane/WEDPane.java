@@ -15,6 +15,7 @@ import com.github.bubb13.infinityareas.gui.editor.editmode.QuickSelectEditMode;
 import com.github.bubb13.infinityareas.gui.editor.field.StandardStructureDefinitions;
 import com.github.bubb13.infinityareas.gui.editor.renderable.AbstractRenderable;
 import com.github.bubb13.infinityareas.gui.editor.renderable.RenderablePolygon;
+import com.github.bubb13.infinityareas.gui.region.WEDChunkSource;
 import com.github.bubb13.infinityareas.gui.stage.ReplaceOverlayTilesetStage;
 import com.github.bubb13.infinityareas.misc.DoubleCorners;
 import com.github.bubb13.infinityareas.misc.reference.Reference;
@@ -22,7 +23,6 @@ import com.github.bubb13.infinityareas.misc.tasktracking.LoadingStageTracker;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
 import com.github.bubb13.infinityareas.util.FileUtil;
-import com.github.bubb13.infinityareas.util.ImageUtil;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
@@ -44,7 +44,6 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.stage.FileChooser;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -104,6 +103,14 @@ public class WEDPane extends StackPane
         return new SetWEDTask(source);
     }
 
+    /**
+     * @return Whether the WED has edits, or undo / redo history, that haven't been saved.
+     */
+    public boolean hasUnsavedChanges()
+    {
+        return editor.hasUnsavedChanges();
+    }
+
     /////////////////////
     // Private Methods //
     /////////////////////
@@ -274,6 +281,7 @@ public class WEDPane extends StackPane
 
         wed.saveWEDTask(selectedFile.toPath())
             .trackWith(new LoadingStageTracker())
+            .onSucceededFx(editor::markClean)
             .onFailed((e) -> ErrorAlert.openAndWait("Failed to save WED", e))
             .start();
     }
@@ -298,11 +306,21 @@ public class WEDPane extends StackPane
 
         if (wed.checkAndClearChanged())
         {
-            wed.renderOverlaysTask(0, 1, 2, 3, 4)
-                .trackWith(new LoadingStageTracker())
-                .onSucceededFx(zoomPane::setImage)
-                .onFailed((e) -> ErrorAlert.openAndWait("Failed to render WED", e))
-                .start();
+            final WEDChunkSource chunkSource = new WEDChunkSource(wed, 0, 1, 2, 3, 4);
+
+            new TrackedTask<Void>()
+            {
+                @Override
+                protected Void doTask(final TaskTrackerI tracker) throws Exception
+                {
+                    chunkSource.demandChunk(getTracker(), 0, 0);
+                    return null;
+                }
+            }
+            .trackWith(new LoadingStageTracker())
+            .onSucceededFx(() -> zoomPane.setImageSource(chunkSource))
+            .onFailed((e) -> ErrorAlert.openAndWait("Failed to render WED", e))
+            .start();
         }
     }
 
@@ -676,17 +694,19 @@ public class WEDPane extends StackPane
             wed.load(getTracker());
             wedRef.set(wed);
 
-            final WED.Graphics wedGraphics = wed.newGraphics();
-            wedGraphics.renderOverlays(getTracker(), 0, 1, 2, 3, 4);
-            final BufferedImage image = ImageUtil.copyArgb(wedGraphics.getImage());
+            // The WED is rendered a chunk at a time as it is scrolled into view. The top-left chunk is rendered
+            // here, so that the first frame is ready and any failure to render is reported by this task.
+            final WEDChunkSource chunkSource = new WEDChunkSource(wed, 0, 1, 2, 3, 4);
+            chunkSource.demandChunk(getTracker(), 0, 0);
 
-            editor.reset(image.getWidth(), image.getHeight());
+            editor.reset(chunkSource.getWidth(), chunkSource.getHeight());
             reset();
+            editor.markClean();
 
             waitForFxThreadToExecute(() ->
             {
                 resetFX();
-                zoomPane.setImage(image);
+                zoomPane.setImageSource(chunkSource);
             });
 
             return null;
@@ -1,6 +1,7 @@
 
 package com.github.bubb13.infinityareas.gui.pane;
 
+import com.github.bubb13.infinityareas.gui.region.ChunkedImageSource;
 import com.github.bubb13.infinityareas.gui.region.PartiallyRenderedImageRegion;
 import com.github.bubb13.infinityareas.misc.Corners;
 import com.github.bubb13.infinityareas.misc.DoubleCorners;
@@ -53,23 +54,7 @@ public class ZoomPane extends NotifyingScrollPane
 
     public void setImage(final BufferedImage image, final boolean resetZoomFactor)
     {
-        final BufferedImage previousImage = partialImage.getSourceImage();
-        partialImage.setSourceImage(image);
-
-        if (resetZoomFactor)
-        {
-            setZoomFactor(1);
-            partialImage.setZoomFactor(zoomFactor);
-        }
-
-        final boolean sizeChanged = previousImage != null
-            && (previousImage.getWidth() != image.getWidth() || previousImage.getHeight() != image.getHeight());
-
-        if (resetZoomFactor || sizeChanged)
-        {
-            setHvalue(0);
-            setVvalue(0);
-        }
+        setSource(() -> partialImage.setSourceImage(image), resetZoomFactor);
     }
 
     public void setImage(final BufferedImage image)
@@ -77,6 +62,19 @@ public class ZoomPane extends NotifyingScrollPane
         setImage(image, true);
     }
 
+    /**
+     * Displays an image that is read from {@code source} a chunk at a time, as it is scrolled into view.
+     */
+    public void setImageSource(final ChunkedImageSource source, final boolean resetZoomFactor)
+    {
+        setSource(() -> partialImage.setSource(source), resetZoomFactor);
+    }
+
+    public void setImageSource(final ChunkedImageSource source)
+    {
+        setImageSource(source, true);
+    }
+
     public void setZoomFactorListener(final Consumer<Double> zoomFactorListener)
     {
         this.zoomFactorListener = zoomFactorListener;
@@ -177,12 +175,12 @@ public class ZoomPane extends NotifyingScrollPane
 
     public int getSourceWidth()
     {
-        return partialImage.getSourceImage().getWidth();
+        return partialImage.getSourceWidth();
     }
 
     public int getSourceHeight()
     {
-        return partialImage.getSourceImage().getHeight();
+        return partialImage.getSourceHeight();
     }
 
     public Point2D absoluteToRelativeCanvasPosition(final int canvasX, final int canvasY)
@@ -231,9 +229,7 @@ public class ZoomPane extends NotifyingScrollPane
 
     public void doOperationMaintainViewportCenter(final Supplier<Boolean> operation)
     {
-        final BufferedImage image = partialImage.getSourceImage();
-
-        if (image == null)
+        if (!partialImage.hasSource())
         {
             operation.get();
             return;
@@ -279,8 +275,8 @@ public class ZoomPane extends NotifyingScrollPane
         final double newViewportEffectiveWidth = newViewportWidth / zoomFactor;
         final double newViewportEffectiveHeight = newViewportHeight / zoomFactor;
 
-        final double newImageViewWidth = image.getWidth() * zoomFactor;
-        final double newImageViewHeight = image.getHeight() * zoomFactor;
+        final double newImageViewWidth = partialImage.getSourceWidth() * zoomFactor;
+        final double newImageViewHeight = partialImage.getSourceHeight() * zoomFactor;
 
         final double targetCenterX = xLeft + (viewportEffectiveWidth / 2);
         final double targetCenterY = yTop + (viewportEffectiveHeight / 2);
@@ -302,9 +298,7 @@ public class ZoomPane extends NotifyingScrollPane
 
     public void doOperationMaintainViewportLeft(final Supplier<Boolean> operation)
     {
-        final BufferedImage image = partialImage.getSourceImage();
-
-        if (image == null)
+        if (!partialImage.hasSource())
         {
             operation.get();
             return;
@@ -342,8 +336,8 @@ public class ZoomPane extends NotifyingScrollPane
         final double newViewportWidth = newViewportBounds.getWidth();
         final double newViewportHeight = newViewportBounds.getHeight();
 
-        final double newImageViewWidth = image.getWidth() * zoomFactor;
-        final double newImageViewHeight = image.getHeight() * zoomFactor;
+        final double newImageViewWidth = partialImage.getSourceWidth() * zoomFactor;
+        final double newImageViewHeight = partialImage.getSourceHeight() * zoomFactor;
 
         final double newHRel = xLeft * zoomFactor / (newImageViewWidth - newViewportWidth);
         final double newVRel = yTop * zoomFactor / (newImageViewHeight - newViewportHeight);
@@ -359,9 +353,7 @@ public class ZoomPane extends NotifyingScrollPane
 
     public void doOperationMaintainViewportBottom(final Supplier<Boolean> operation)
     {
-        final BufferedImage image = partialImage.getSourceImage();
-
-        if (image == null)
+        if (!partialImage.hasSource())
         {
             operation.get();
             return;
@@ -394,7 +386,7 @@ public class ZoomPane extends NotifyingScrollPane
         final double newViewportHeight = newViewportBounds.getHeight();
         final double newViewportEffectiveHeight = newViewportHeight / zoomFactor;
 
-        final double newImageViewHeight = image.getHeight() * zoomFactor;
+        final double newImageViewHeight = partialImage.getSourceHeight() * zoomFactor;
 
         final double targetYTop = yBottom - (newViewportEffectiveHeight);
 
@@ -410,6 +402,29 @@ public class ZoomPane extends NotifyingScrollPane
     // Private Methods //
     /////////////////////
 
+    private void setSource(final Runnable setter, final boolean resetZoomFactor)
+    {
+        final boolean hadSource = partialImage.hasSource();
+        final int previousWidth = partialImage.getSourceWidth();
+        final int previousHeight = partialImage.getSourceHeight();
+        setter.run();
+
+        if (resetZoomFactor)
+        {
+            setZoomFactor(1);
+            partialImage.setZoomFactor(zoomFactor);
+        }
+
+        final boolean sizeChanged = hadSource
+            && (previousWidth != partialImage.getSourceWidth() || previousHeight != partialImage.getSourceHeight());
+
+        if (resetZoomFactor || sizeChanged)
+        {
+            setHvalue(0);
+            setVvalue(0);
+        }
+    }
+
     private void init()
     {
         final Pane pane = new Pane();
@@ -435,9 +450,8 @@ public class ZoomPane extends NotifyingScrollPane
     private double calculateFitZoomFactor()
     {
         final Bounds viewportBounds = getViewportBounds();
-        final BufferedImage image = partialImage.getSourceImage();
-        final double fitZoomFactorX = viewportBounds.getWidth() / image.getWidth();
-        final double fitZoomFactorY = viewportBounds.getHeight() / image.getHeight();
+        final double fitZoomFactorX = viewportBounds.getWidth() / partialImage.getSourceWidth();
+        final double fitZoomFactorY = viewportBounds.getHeight() / partialImage.getSourceHeight();
         return Math.min(fitZoomFactorX, fitZoomFactorY);
     }
 
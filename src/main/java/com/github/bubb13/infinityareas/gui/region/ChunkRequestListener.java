@@ -0,0 +1,11 @@
+package com.github.bubb13.infinityareas.gui.region;
+
+/**
+ * Receives the outcome of the chunks requested through {@link ChunkedImageSource#requestChunks}.
+ */
+public interface ChunkRequestListener
+{
+    void onChunkReady();
+
+    void onChunkFailed(final Exception exception);
+}
@@ -0,0 +1,356 @@
+package com.github.bubb13.infinityareas.gui.region;
+
+import com.github.bubb13.infinityareas.util.ParallelUtil;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Nearest-neighbor scales regions of a {@link ChunkedImageSource} into a reusable BGRA buffer, sampling from a
+ * lazily built mip pyramid of the source when zoomed out (see {@link PartiallyRenderedImageLogic}). Only chunks
+ * that are ready are ever read; missing chunks are requested from the source, and are drawn from a coarser mip
+ * level whose chunks are all ready, or else as transparent placeholders, until they arrive. <p>
+ *
+ * Not thread-safe; every method is expected to be called from the same thread.
+ */
+class ChunkedImageScaler
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    /** Reads and writes whole BGRA pixels of a byte array as single ints */
+    private static final VarHandle PIXEL_VIEW = MethodHandles.byteArrayViewVarHandle(
+        int[].class, ByteOrder.nativeOrder());
+
+    /** The minimum number of pixels scaled by a single parallel task */
+    private static final int MIN_SCALED_PIXELS_PER_TASK = 128 * 1024;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    private ChunkedImageSource source;
+    /** Lazily built mip levels of the source; the element at index i is mip level i + 1 */
+    private final ArrayList<DownscaledChunkSource> mipLevels = new ArrayList<>();
+
+    /** The source chunks in view of the frame being scaled, in row-major order */
+    private byte[][] frameChunks = new byte[0][];
+    /** The range of chunks in `frameChunks`, inclusive */
+    private int frameFirstChunkX;
+    private int frameFirstChunkY;
+    private int frameLastChunkX;
+    private int frameLastChunkY;
+    /** Stands in for chunks that aren't ready yet; never written to */
+    private byte[] placeholderChunk = new byte[0];
+
+    private byte[] scaleBuffer = new byte[0];
+    private int scaleBufferWidth;
+    private int scaleBufferHeight;
+    /** For every column of the frame being scaled, the index of its source chunk's column within `frameChunks` */
+    private int[] columnChunkIndexes = new int[0];
+    /** For every column of the frame being scaled, the byte offset of its source pixel within a chunk row */
+    private int[] columnOffsets = new int[0];
+
+    ////////////////////
+    // Public Methods //
+    ////////////////////
+
+    public ChunkedImageSource getSource()
+    {
+        return source;
+    }
+
+    public void setSource(final ChunkedImageSource newSource)
+    {
+        // The old source, and its mip levels, shouldn't spend any more time rendering chunks for this scaler
+        if (source != null)
+        {
+            source.cancelChunkRequests();
+        }
+
+        for (final DownscaledChunkSource mipLevel : mipLevels)
+        {
+            mipLevel.cancelChunkRequests();
+        }
+
+        source = newSource;
+        mipLevels.clear();
+    }
+
+    /**
+     * Discards the contents of the mip levels, so that they are rebuilt from the source when they are next needed.
+     */
+    public void invalidateMipLevels()
+    {
+        for (final DownscaledChunkSource mipLevel : mipLevels)
+        {
+            mipLevel.clear();
+        }
+    }
+
+    /**
+     * @return The buffer that {@link #scale} writes to. Replaced when a larger frame is scaled.
+     */
+    public byte[] getBuffer()
+    {
+        return scaleBuffer;
+    }
+
+    /**
+     * Nearest-neighbor scales the source region at (`srcX`, `srcY`) into the buffer, {@code dstW} * 4 bytes per row.
+     * The source column of every destination column is only calculated once per frame, and destination rows that
+     * sample the same source row as the row above them are copied from it. Large frames are split into row ranges
+     * that are scaled in parallel.
+     *
+     * @param srcX The left edge of the region, in destination (scaled) pixels.
+     * @param srcY The top edge of the region, in destination (scaled) pixels.
+     * @param listener Passed to {@link ChunkedImageSource#requestChunks} for the chunks in view.
+     */
+    public void scale(
+        final int srcX, final int srcY, final int dstW, final int dstH,
+        final double scaleFactorX, final double scaleFactorY, final ChunkRequestListener listener)
+    {
+        checkGrowBuffers(dstW, dstH);
+
+        //////////////////////////////////////////////
+        // Fetch every source chunk that is in view //
+        //////////////////////////////////////////////
+
+        // Chunks are fetched up front, so that the parallel scaling below only reads
+        int mipLevel = selectMipLevel(scaleFactorX, scaleFactorY);
+        ChunkedImageSource mipLevelSource = getMipLevel(mipLevel);
+
+        final int numMissingChunks = fetchFrameChunks(mipLevelSource, mipLevel,
+            srcX, srcY, dstW, dstH, scaleFactorX, scaleFactorY);
+
+        // Only the chunks of this level are rendered. This also keeps the chunks in view cached, and drops any
+        // earlier request for chunks that are no longer in view.
+        mipLevelSource.requestChunks(frameFirstChunkX, frameFirstChunkY, frameLastChunkX, frameLastChunkY, listener);
+
+        if (numMissingChunks > 0)
+        {
+            final ChunkedImageSource wantedMipLevelSource = mipLevelSource;
+            final int wantedMipLevel = mipLevel;
+
+            // Fall back to the finest coarser level that already has every chunk in view
+            boolean foundCompleteMipLevel = false;
+            for (int coarserMipLevel = mipLevel + 1; coarserMipLevel <= mipLevels.size(); ++coarserMipLevel)
+            {
+                mipLevelSource = getMipLevel(coarserMipLevel);
+                if (fetchFrameChunks(mipLevelSource, coarserMipLevel,
+                    srcX, srcY, dstW, dstH, scaleFactorX, scaleFactorY) == 0)
+                {
+                    mipLevel = coarserMipLevel;
+                    foundCompleteMipLevel = true;
+                    break;
+                }
+            }
+
+            if (!foundCompleteMipLevel)
+            {
+                // Draw the wanted level, leaving its missing chunks transparent
+                mipLevelSource = wantedMipLevelSource;
+                mipLevel = wantedMipLevel;
+                fetchFrameChunks(mipLevelSource, mipLevel, srcX, srcY, dstW, dstH, scaleFactorX, scaleFactorY);
+                fillMissingFrameChunks(mipLevelSource);
+            }
+        }
+
+        final double mipLevelScaleFactorX = scaleFactorX * (1 << mipLevel);
+        final double mipLevelScaleFactorY = scaleFactorY * (1 << mipLevel);
+
+        final int chunkWidth = mipLevelSource.getChunkWidth();
+        final int chunkHeight = mipLevelSource.getChunkHeight();
+        final int chunkPitch = chunkWidth * 4;
+        final int firstChunkY = frameFirstChunkY;
+        final int numChunkColumns = frameLastChunkX - frameFirstChunkX + 1;
+
+        //////////////////////////////////
+        // Build the column index table //
+        //////////////////////////////////
+
+        for (int x = 0; x < dstW; ++x)
+        {
+            final int curSrcX = (int)((srcX + x) / mipLevelScaleFactorX);
+            final int chunkX = curSrcX / chunkWidth;
+            columnChunkIndexes[x] = chunkX - frameFirstChunkX;
+            columnOffsets[x] = (curSrcX - chunkX * chunkWidth) * 4;
+        }
+
+        try
+        {
+            //////////////////////////
+            // Scale the row ranges //
+            //////////////////////////
+
+            final int dstPitch = dstW * 4;
+
+            ParallelUtil.forEachRange(dstH, Math.max(1, MIN_SCALED_PIXELS_PER_TASK / dstW), (startY, endY) ->
+            {
+                int prevSrcY = -1;
+
+                for (int y = startY, curDstOffset = startY * dstPitch; y < endY; ++y)
+                {
+                    final int curSrcY = (int)((srcY + y) / mipLevelScaleFactorY);
+
+                    if (curSrcY == prevSrcY)
+                    {
+                        // Zoomed in, so this row is identical to the one above it
+                        System.arraycopy(scaleBuffer, curDstOffset - dstPitch, scaleBuffer, curDstOffset, dstPitch);
+                        curDstOffset += dstPitch;
+                        continue;
+                    }
+
+                    prevSrcY = curSrcY;
+
+                    final int chunkY = curSrcY / chunkHeight;
+                    final int chunkRowIndex = (chunkY - firstChunkY) * numChunkColumns;
+                    final int chunkRowOffset = (curSrcY - chunkY * chunkHeight) * chunkPitch;
+
+                    for (int x = 0; x < dstW; ++x, curDstOffset += 4)
+                    {
+                        final byte[] chunk = frameChunks[chunkRowIndex + columnChunkIndexes[x]];
+                        PIXEL_VIEW.set(scaleBuffer, curDstOffset,
+                            (int)PIXEL_VIEW.get(chunk, chunkRowOffset + columnOffsets[x]));
+                    }
+                }
+            });
+        }
+        catch (final RuntimeException e)
+        {
+            throw e;
+        }
+        catch (final Exception e)
+        {
+            throw new IllegalStateException("Failed to scale image", e);
+        }
+        finally
+        {
+            // Don't keep chunks that the source may have evicted alive
+            Arrays.fill(frameChunks, null);
+        }
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private void checkGrowBuffers(final int dstW, final int dstH)
+    {
+        if (dstW > scaleBufferWidth || dstH > scaleBufferHeight)
+        {
+            scaleBufferWidth = Math.max(dstW, scaleBufferWidth);
+            scaleBufferHeight = Math.max(dstH, scaleBufferHeight);
+            scaleBuffer = new byte[scaleBufferWidth * scaleBufferHeight * 4];
+            columnChunkIndexes = new int[scaleBufferWidth];
+            columnOffsets = new int[scaleBufferWidth];
+        }
+    }
+
+    /**
+     * Fills `frameChunks` with the chunks of {@code mipLevelSource} that are in view and ready, in row-major order,
+     * and sets the `frame*Chunk*` fields to the range of chunks in view.
+     *
+     * @return The number of chunks in view that aren't ready, whose elements are left null.
+     */
+    private int fetchFrameChunks(
+        final ChunkedImageSource mipLevelSource, final int mipLevel,
+        final int srcX, final int srcY, final int dstW, final int dstH,
+        final double scaleFactorX, final double scaleFactorY)
+    {
+        final double mipLevelScaleFactorX = scaleFactorX * (1 << mipLevel);
+        final double mipLevelScaleFactorY = scaleFactorY * (1 << mipLevel);
+        final int chunkWidth = mipLevelSource.getChunkWidth();
+        final int chunkHeight = mipLevelSource.getChunkHeight();
+
+        frameFirstChunkX = (int)(srcX / mipLevelScaleFactorX) / chunkWidth;
+        frameFirstChunkY = (int)(srcY / mipLevelScaleFactorY) / chunkHeight;
+        frameLastChunkX = (int)((srcX + dstW - 1) / mipLevelScaleFactorX) / chunkWidth;
+        frameLastChunkY = (int)((srcY + dstH - 1) / mipLevelScaleFactorY) / chunkHeight;
+
+        final int numChunks = (frameLastChunkX - frameFirstChunkX + 1) * (frameLastChunkY - frameFirstChunkY + 1);
+        if (frameChunks.length < numChunks)
+        {
+            frameChunks = new byte[numChunks][];
+        }
+
+        int numMissingChunks = 0;
+        for (int chunkY = frameFirstChunkY, i = 0; chunkY <= frameLastChunkY; ++chunkY)
+        {
+            for (int chunkX = frameFirstChunkX; chunkX <= frameLastChunkX; ++chunkX, ++i)
+            {
+                final byte[] chunk = mipLevelSource.getChunkIfReady(chunkX, chunkY);
+                if (chunk == null) ++numMissingChunks;
+                frameChunks[i] = chunk;
+            }
+        }
+
+        return numMissingChunks;
+    }
+
+    /**
+     * Replaces the missing elements of `frameChunks` with a transparent chunk.
+     */
+    private void fillMissingFrameChunks(final ChunkedImageSource mipLevelSource)
+    {
+        final int chunkSize = mipLevelSource.getChunkWidth() * mipLevelSource.getChunkHeight() * 4;
+        if (placeholderChunk.length < chunkSize)
+        {
+            placeholderChunk = new byte[chunkSize];
+        }
+
+        final int numChunks = (frameLastChunkX - frameFirstChunkX + 1) * (frameLastChunkY - frameFirstChunkY + 1);
+        for (int i = 0; i < numChunks; ++i)
+        {
+            if (frameChunks[i] == null)
+            {
+                frameChunks[i] = placeholderChunk;
+            }
+        }
+    }
+
+    /**
+     * @return The highest mip level whose scale is still at or above the given scale factor, i.e. the smallest
+     *         level that doesn't need to be sampled at less than one pixel per displayed pixel.
+     */
+    private int selectMipLevel(final double scaleFactorX, final double scaleFactorY)
+    {
+        // Stretched images are sampled in their less minified direction, so that no source detail is lost
+        final double scaleFactor = Math.max(scaleFactorX, scaleFactorY);
+
+        int mipLevel = 0;
+        int mipLevelWidth = source.getWidth();
+        int mipLevelHeight = source.getHeight();
+
+        while (scaleFactor * (2 << mipLevel) <= 1 && (mipLevelWidth > 1 || mipLevelHeight > 1))
+        {
+            ++mipLevel;
+            mipLevelWidth = (mipLevelWidth + 1) / 2;
+            mipLevelHeight = (mipLevelHeight + 1) / 2;
+        }
+
+        return mipLevel;
+    }
+
+    private ChunkedImageSource getMipLevel(final int mipLevel)
+    {
+        if (mipLevel == 0)
+        {
+            return source;
+        }
+
+        while (mipLevels.size() < mipLevel)
+        {
+            final ChunkedImageSource previousMipLevel = mipLevels.isEmpty()
+                ? source : mipLevels.get(mipLevels.size() - 1);
+
+            mipLevels.add(new DownscaledChunkSource(previousMipLevel));
+        }
+
+        return mipLevels.get(mipLevel - 1);
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.bubb13.infinityareas.gui.region;
+
+/**
+ * An image, in the BYTE_BGRA_PRE format, that is divided into equally sized chunks, so that only the chunks being
+ * displayed need to exist at any given time.
+ */
+public interface ChunkedImageSource
+{
+    int getWidth();
+
+    int getHeight();
+
+    int getChunkWidth();
+
+    int getChunkHeight();
+
+    /**
+     * Returns the chunk, blocking until it is available. Must not be called on the JavaFX thread by sources whose
+     * chunks are expensive to produce; use {@link #getChunkIfReady} and {@link #requestChunks} there instead.
+     *
+     * @return The pixels of the chunk, {@link #getChunkWidth()} * 4 bytes per row. Chunks on the right and bottom
+     *         edges of the image are still full-sized; the pixels past the edge of the image are undefined.
+     */
+    byte[] getChunk(int chunkX, int chunkY);
+
+    /**
+     * @return The chunk, in the layout described by {@link #getChunk}, if it can be read without waiting for it,
+     *         or else null.
+     */
+    default byte[] getChunkIfReady(final int chunkX, final int chunkY)
+    {
+        return getChunk(chunkX, chunkY);
+    }
+
+    /**
+     * Requests that the chunks in the given inclusive range be made ready in the background. Each request replaces
+     * the previous one, so chunks that were only part of an earlier request may never be made ready.
+     *
+     * @param listener Notified, on a background thread, as each requested chunk becomes ready or fails.
+     */
+    default void requestChunks(
+        final int firstChunkX, final int firstChunkY, final int lastChunkX, final int lastChunkY,
+        final ChunkRequestListener listener) {}
+
+    /**
+     * Withdraws the previous {@link #requestChunks} request.
+     */
+    default void cancelChunkRequests() {}
+}
@@ -0,0 +1,177 @@
+
+package com.github.bubb13.infinityareas.gui.region;
+
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
+
+/**
+ * A copy of another {@link ChunkedImageSource} at half its width and height, where every pixel is the average of
+ * the 2x2 block of source pixels that it covers (a box filter). Stacking instances on top of each other forms a mip
+ * pyramid. Chunks are built from the source the first time they are read. <p>
+ *
+ * Building a chunk reads, and possibly renders, the source chunks it covers, so chunks should be requested through
+ * {@link #requestChunks}, which builds them on the background thread, rather than read on the JavaFX thread. Every
+ * level shares the cache budget with its source, but requested chunks are never evicted, so the source chunks read
+ * while building a level's request don't evict the chunks it has already built.
+ */
+public class DownscaledChunkSource extends RenderedChunkSource
+{
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    private final ChunkedImageSource source;
+    private final int width;
+    private final int height;
+    private final int chunkWidth;
+    private final int chunkHeight;
+
+    /////////////////////////
+    // Public Constructors //
+    /////////////////////////
+
+    public DownscaledChunkSource(final ChunkedImageSource source)
+    {
+        this.source = source;
+        this.width = (source.getWidth() + 1) / 2;
+        this.height = (source.getHeight() + 1) / 2;
+        // Chunks stay the size of the source's chunks, unless that would make them larger than the whole image
+        this.chunkWidth = Math.max(1, Math.min(source.getChunkWidth(), width));
+        this.chunkHeight = Math.max(1, Math.min(source.getChunkHeight(), height));
+    }
+
+    ////////////////////
+    // Public Methods //
+    ////////////////////
+
+    public ChunkedImageSource getSource()
+    {
+        return source;
+    }
+
+    @Override
+    public int getWidth()
+    {
+        return width;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return height;
+    }
+
+    @Override
+    public int getChunkWidth()
+    {
+        return chunkWidth;
+    }
+
+    @Override
+    public int getChunkHeight()
+    {
+        return chunkHeight;
+    }
+
+    ///////////////////////
+    // Protected Methods //
+    ///////////////////////
+
+    @Override
+    protected byte[] renderChunk(final TaskTrackerI tracker, final int chunkX, final int chunkY)
+    {
+        final int srcWidth = source.getWidth();
+        final int srcHeight = source.getHeight();
+        final int srcChunkWidth = source.getChunkWidth();
+        final int srcChunkHeight = source.getChunkHeight();
+        final int srcChunkPitch = srcChunkWidth * 4;
+
+        final int dstX = chunkX * chunkWidth;
+        final int dstY = chunkY * chunkHeight;
+        final int dstWidth = Math.min(chunkWidth, width - dstX);
+        final int dstHeight = Math.min(chunkHeight, height - dstY);
+
+        ///////////////////////////////////////////////////
+        // Fetch every source chunk the new chunk covers //
+        ///////////////////////////////////////////////////
+
+        final int srcX = dstX * 2;
+        final int srcY = dstY * 2;
+        final int firstSrcChunkX = srcX / srcChunkWidth;
+        final int firstSrcChunkY = srcY / srcChunkHeight;
+        final int lastSrcChunkX = (Math.min(srcX + dstWidth * 2, srcWidth) - 1) / srcChunkWidth;
+        final int lastSrcChunkY = (Math.min(srcY + dstHeight * 2, srcHeight) - 1) / srcChunkHeight;
+        final int numSrcChunkColumns = lastSrcChunkX - firstSrcChunkX + 1;
+
+        final byte[][] srcChunks = new byte[numSrcChunkColumns * (lastSrcChunkY - firstSrcChunkY + 1)][];
+        for (int srcChunkY = firstSrcChunkY, i = 0; srcChunkY <= lastSrcChunkY; ++srcChunkY)
+        {
+            for (int srcChunkX = firstSrcChunkX; srcChunkX <= lastSrcChunkX; ++srcChunkX, ++i)
+            {
+                srcChunks[i] = source.getChunk(srcChunkX, srcChunkY);
+            }
+        }
+
+        ///////////////////////////////////////////////////////////////
+        // Locate the two source columns of every destination column //
+        ///////////////////////////////////////////////////////////////
+
+        // An odd right edge samples its last column twice, just as an odd bottom edge samples its last row twice
+        final int[] srcColumnChunks = new int[dstWidth * 2];
+        final int[] srcColumnOffsets = new int[dstWidth * 2];
+
+        for (int i = 0; i < srcColumnChunks.length; ++i)
+        {
+            final int curSrcX = Math.min(srcX + i, srcWidth - 1);
+            final int srcChunkX = curSrcX / srcChunkWidth;
+            srcColumnChunks[i] = srcChunkX - firstSrcChunkX;
+            srcColumnOffsets[i] = (curSrcX - srcChunkX * srcChunkWidth) * 4;
+        }
+
+        //////////////////////////////////////
+        // Average each 2x2 block of pixels //
+        //////////////////////////////////////
+
+        final byte[] chunk = new byte[chunkWidth * chunkHeight * 4];
+
+        for (int y = 0; y < dstHeight; ++y)
+        {
+            final int srcYA = srcY + y * 2;
+            final int srcYB = Math.min(srcYA + 1, srcHeight - 1);
+            final int srcChunkYA = srcYA / srcChunkHeight;
+            final int srcChunkYB = srcYB / srcChunkHeight;
+            final int srcChunkRowA = (srcChunkYA - firstSrcChunkY) * numSrcChunkColumns;
+            final int srcChunkRowB = (srcChunkYB - firstSrcChunkY) * numSrcChunkColumns;
+            final int srcRowOffsetA = (srcYA - srcChunkYA * srcChunkHeight) * srcChunkPitch;
+            final int srcRowOffsetB = (srcYB - srcChunkYB * srcChunkHeight) * srcChunkPitch;
+
+            for (int x = 0, dstOffset = y * chunkWidth * 4; x < dstWidth; ++x, dstOffset += 4)
+            {
+                final int left = x * 2;
+                final int right = left + 1;
+
+                final byte[] topLeft = srcChunks[srcChunkRowA + srcColumnChunks[left]];
+                final byte[] topRight = srcChunks[srcChunkRowA + srcColumnChunks[right]];
+                final byte[] bottomLeft = srcChunks[srcChunkRowB + srcColumnChunks[left]];
+                final byte[] bottomRight = srcChunks[srcChunkRowB + srcColumnChunks[right]];
+
+                final int topLeftOffset = srcRowOffsetA + srcColumnOffsets[left];
+                final int topRightOffset = srcRowOffsetA + srcColumnOffsets[right];
+                final int bottomLeftOffset = srcRowOffsetB + srcColumnOffsets[left];
+                final int bottomRightOffset = srcRowOffsetB + srcColumnOffsets[right];
+
+                // The channels are premultiplied, so they can be averaged independently
+                for (int channel = 0; channel < 4; ++channel)
+                {
+                    final int sum = (topLeft[topLeftOffset + channel] & 0xFF)
+                        + (topRight[topRightOffset + channel] & 0xFF)
+                        + (bottomLeft[bottomLeftOffset + channel] & 0xFF)
+                        + (bottomRight[bottomRightOffset + channel] & 0xFF);
+
+                    chunk[dstOffset + channel] = (byte)((sum + 2) >> 2);
+                }
+            }
+        }
+
+        return chunk;
+    }
+}
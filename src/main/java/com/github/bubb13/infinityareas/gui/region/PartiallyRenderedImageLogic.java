@@ -2,8 +2,10 @@
 package com.github.bubb13.infinityareas.gui.region;
 
 import com.github.bubb13.infinityareas.GlobalState;
+import com.github.bubb13.infinityareas.gui.dialog.ErrorAlert;
 import com.github.bubb13.infinityareas.util.ImageUtil;
 import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
@@ -29,6 +31,17 @@ import java.util.ArrayList;
  *
  *   3) Due to the asynchronous nature of the GraphicsContext object, multiple updates might be performed before a
  *      render pulse occurs. Therefore, multiple WritableImages might be created in order to queue multiple draws. <p>
+ *
+ *   4) The source is read through a {@link ChunkedImageSource}, so that large images (e.g. whole areas) can be
+ *      rendered piecemeal as they are scrolled into view. A plain source image is treated as a single chunk. <p>
+ *
+ *   5) When zoomed out, sampling every n-th source pixel both aliases and touches far more of the source than is
+ *      displayed. Instead, a mip pyramid of box-filtered, half-sized copies of the source is built as it is needed,
+ *      and the smallest copy that is still at least as large as the displayed image is sampled. <p>
+ *
+ *   6) Chunks that aren't ready are never rendered on the JavaFX thread. They are requested from the source, which
+ *      renders them in the background, and the frame is drawn from a coarser mip level whose chunks are all ready,
+ *      or else with transparent placeholders. The owner is asked to redraw as the requested chunks arrive. <p>
  */
 public class PartiallyRenderedImageLogic
 {
@@ -47,8 +60,9 @@ public class PartiallyRenderedImageLogic
     private final int[] setArgbBuffer = new int[4];
 
     private BufferedImage sourceImage;
+    /** Scales the source, and its mip levels, into the buffer that is written to the WritableImages */
+    private final ChunkedImageScaler scaler = new ChunkedImageScaler();
 
-    private byte[] scaleBuffer;
     private int curToDrawImagesWidth = 0;
     private int curToDrawImagesHeight = 0;
     private int toDrawImageIndex = 0;
@@ -60,6 +74,10 @@ public class PartiallyRenderedImageLogic
     private double opacity = 1;
     private boolean clearBeforeDraw;
 
+    private Runnable onChunkReady;
+    /** Replaced whenever the source changes, so that notifications about an old source can be told apart */
+    private SourceRequestListener requestListener = new SourceRequestListener();
+
     /////////////////////////
     // Public Constructors //
     /////////////////////////
@@ -81,13 +99,49 @@ public class PartiallyRenderedImageLogic
             case BufferedImage.TYPE_INT_ARGB -> ImageUtil.convertArgbToBgraPre(sourceImage);
             default -> throw new UnsupportedOperationException();
         };
+        resetSource(new SingleChunkSource(this.sourceImage));
     }
 
+    public void setSource(final ChunkedImageSource source)
+    {
+        this.sourceImage = null;
+        resetSource(source);
+    }
+
+    /**
+     * @param onChunkReady Called on the JavaFX thread whenever a chunk that a previous draw was missing becomes
+     *                     ready, so that the owner can draw again.
+     */
+    public void setOnChunkReady(final Runnable onChunkReady)
+    {
+        this.onChunkReady = onChunkReady;
+    }
+
+    /**
+     * @return The converted source image, or null if the source was set through {@link #setSource}.
+     */
     public BufferedImage getSourceImage()
     {
         return sourceImage;
     }
 
+    public ChunkedImageSource getSource()
+    {
+        return scaler.getSource();
+    }
+
+    public int getSourceWidth()
+    {
+        final ChunkedImageSource source = scaler.getSource();
+        return source == null ? 0 : source.getWidth();
+    }
+
+    public int getSourceHeight()
+    {
+        final ChunkedImageSource source = scaler.getSource();
+        return source == null ? 0 : source.getHeight();
+    }
+
     public WritableImage getLatestCanvasBackgroundImage()
     {
         return latestCanvasBackground;
@@ -164,9 +218,10 @@ public class PartiallyRenderedImageLogic
                 // Scale source image into immediate buffer and write that buffer to the WritableImage //
                 /////////////////////////////////////////////////////////////////////////////////////////
 
-                scaleBgra((int)srcX, (int)srcY, snappedDstWidth, snappedDstHeight);
+                scaler.scale((int)srcX, (int)srcY, snappedDstWidth, snappedDstHeight,
+                    srcScaleFactorX, srcScaleFactorY, requestListener);
                 toDrawImage.getPixelWriter().setPixels(0, 0, snappedDstWidth, snappedDstHeight,
-                    PixelFormat.getByteBgraPreInstance(), scaleBuffer, 0, snappedDstWidth * 4);
+                    PixelFormat.getByteBgraPreInstance(), scaler.getBuffer(), 0, snappedDstWidth * 4);
 
                 latestCanvasBackground = toDrawImage;
 
@@ -200,6 +255,9 @@ public class PartiallyRenderedImageLogic
             setArgbBuffer[2] = (argb >>> 16) & 0xFF;
             setArgbBuffer[3] = (argb >>> 24) & 0xFF;
             getSourceImage().getRaster().setPixel(x, y, setArgbBuffer);
+
+            // The mip levels are rebuilt from the changed source when they are next needed
+            scaler.invalidateMipLevels();
         }
         else
         {
@@ -223,6 +281,12 @@ public class PartiallyRenderedImageLogic
         }.start();
     }
 
+    private void resetSource(final ChunkedImageSource newSource)
+    {
+        scaler.setSource(newSource);
+        requestListener = new SourceRequestListener();
+    }
+
     /**
      * Resets `toDrawImageIndex` on each render pulse, signaling that all cached image objects can be used again.
      */
@@ -234,32 +298,98 @@ public class PartiallyRenderedImageLogic
     private void checkGrowCacheImages(final int dstWidth, final int dstHeight)
     {
         // If a viewport dimension is greater than the currently cached dimensions,
-        // grow the scale buffer and clear the drawing images (to be reallocated later).
+        // clear the drawing images (to be reallocated later).
         if (dstWidth > curToDrawImagesWidth || dstHeight > curToDrawImagesHeight)
         {
             if (dstWidth > curToDrawImagesWidth) curToDrawImagesWidth = dstWidth;
             if (dstHeight > curToDrawImagesHeight) curToDrawImagesHeight = dstHeight;
 
-            scaleBuffer = new byte[curToDrawImagesWidth * curToDrawImagesHeight * 4];
             toDrawImages.clear();
             toDrawImageIndex = 0;
         }
     }
 
-    private void scaleBgra(final int srcX, final int srcY, final int dstW, final int dstH)
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    /**
+     * Passes the outcome of requested chunks on to the JavaFX thread, for as long as its source is the current one.
+     */
+    private class SourceRequestListener implements ChunkRequestListener
     {
-        final byte[] src = ((DataBufferByte)sourceImage.getRaster().getDataBuffer()).getData();
-        final int srcWidth = sourceImage.getWidth();
+        /** Only accessed on the JavaFX thread */
+        private boolean reportedFailure;
 
-        for (int y = 0, curDstOffset = 0; y < dstH; ++y)
+        @Override
+        public void onChunkReady()
         {
-            final int curSrcY = (int)((srcY + y) / srcScaleFactorY);
-            for (int x = 0; x < dstW; ++x, curDstOffset += 4)
+            Platform.runLater(() ->
             {
-                final int curSrcX = (int)((srcX + x) / srcScaleFactorX);
-                final int srcOffset = (curSrcY * srcWidth + curSrcX) * 4;
-                System.arraycopy(src, srcOffset, scaleBuffer, curDstOffset, 4);
-            }
+                if (requestListener == this && onChunkReady != null)
+                {
+                    onChunkReady.run();
+                }
+            });
+        }
+
+        @Override
+        public void onChunkFailed(final Exception exception)
+        {
+            Platform.runLater(() ->
+            {
+                // The chunks of a source usually fail for the same reason, so only the first failure is reported
+                if (requestListener != this || reportedFailure)
+                {
+                    return;
+                }
+
+                reportedFailure = true;
+                ErrorAlert.openAndWait("Failed to render image", exception);
+            });
+        }
+    }
+
+    /**
+     * Presents a BYTE_BGRA_PRE image as a source with a single chunk that covers the whole image.
+     */
+    private static class SingleChunkSource implements ChunkedImageSource
+    {
+        private final BufferedImage image;
+
+        public SingleChunkSource(final BufferedImage image)
+        {
+            this.image = image;
+        }
+
+        @Override
+        public int getWidth()
+        {
+            return image.getWidth();
+        }
+
+        @Override
+        public int getHeight()
+        {
+            return image.getHeight();
+        }
+
+        @Override
+        public int getChunkWidth()
+        {
+            return image.getWidth();
+        }
+
+        @Override
+        public int getChunkHeight()
+        {
+            return image.getHeight();
+        }
+
+        @Override
+        public byte[] getChunk(final int chunkX, final int chunkY)
+        {
+            return ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
         }
     }
 }
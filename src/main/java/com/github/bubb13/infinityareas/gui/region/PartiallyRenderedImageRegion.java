@@ -46,6 +46,7 @@ public class PartiallyRenderedImageRegion extends Region implements VisibleNotif
     public PartiallyRenderedImageRegion()
     {
         getChildren().add(canvas);
+        logic.setOnChunkReady(this::requestLayout);
     }
 
     ////////////////////
@@ -63,11 +64,32 @@ public class PartiallyRenderedImageRegion extends Region implements VisibleNotif
         requestLayout();
     }
 
+    public void setSource(final ChunkedImageSource source)
+    {
+        logic.setSource(source);
+        requestLayout();
+    }
+
     public BufferedImage getSourceImage()
     {
         return logic.getSourceImage();
     }
 
+    public boolean hasSource()
+    {
+        return logic.getSource() != null;
+    }
+
+    public int getSourceWidth()
+    {
+        return logic.getSourceWidth();
+    }
+
+    public int getSourceHeight()
+    {
+        return logic.getSourceHeight();
+    }
+
     public double setZoomFactor(double newZoomFactor)
     {
         zoomFactor = Math.min(newZoomFactor, MAX_ZOOM_FACTOR);
@@ -217,15 +239,13 @@ public class PartiallyRenderedImageRegion extends Region implements VisibleNotif
     @Override
     protected double computePrefWidth(double height)
     {
-        final BufferedImage sourceImage = logic.getSourceImage();
-        return sourceImage == null ? 0 : sourceImage.getWidth() * zoomFactor;
+        return logic.getSourceWidth() * zoomFactor;
     }
 
     @Override
     protected double computePrefHeight(double width)
     {
-        final BufferedImage sourceImage = logic.getSourceImage();
-        return sourceImage == null ? 0 : sourceImage.getHeight() * zoomFactor;
+        return logic.getSourceHeight() * zoomFactor;
     }
 
     @Override
@@ -0,0 +1,379 @@
+package com.github.bubb13.infinityareas.gui.region;
+
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link ChunkedImageSource} whose chunks are rendered the first time they are read. Rendered chunks are cached
+ * until the total size of the cached chunks exceeds the cache budget, at which point the least recently used chunks
+ * are evicted, to be rendered again if they are read again. Every source, including every level of a mip pyramid,
+ * shares the same cache, so the budget bounds the memory of every rendered chunk together. <p>
+ *
+ * Chunks that are requested through {@link #requestChunks} are rendered on a shared background thread, and are
+ * never evicted while they are part of their source's latest request, so that a view larger than the budget doesn't
+ * re-render its own chunks every frame. A chunk that fails to render in the background isn't attempted again until
+ * {@link #clear} is called.
+ */
+public abstract class RenderedChunkSource implements ChunkedImageSource
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final long DEFAULT_MAX_CACHE_SIZE = 256L * 1024 * 1024;
+
+    /** Renders requested chunks for every source, one chunk at a time */
+    private static final ExecutorService REQUEST_EXECUTOR = Executors.newSingleThreadExecutor((runnable) ->
+    {
+        final Thread thread = new Thread(runnable, "Chunk Renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Guards the shared cache, and the cache and request state of every source. Evicting needs the latest request of
+     * every source, so one lock is used for all of them. Never held while rendering.
+     */
+    private static final Object CACHE_LOCK = new Object();
+
+    /** Rendered chunks of every source, in LRU order */
+    private static final LinkedHashMap<CachedChunkKey, byte[]> CACHED_CHUNKS = new LinkedHashMap<>(16, 0.75F, true);
+    private static long totalCachedBytes;
+
+    private static long maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    /** Held while rendering, so that subclasses only ever render one chunk at a time */
+    private final Object renderLock = new Object();
+
+    // The fields below are guarded by CACHE_LOCK
+
+    private final HashSet<Long> failedChunks = new HashSet<>();
+    /** The size of this source's chunks in the shared cache */
+    private long cachedBytes;
+    /** Incremented by {@link #clear}, so that chunks that were being rendered while it was called are discarded */
+    private int generation;
+
+    /** The latest request, inclusive; empty when the first chunk is past the last */
+    private int requestedFirstChunkX;
+    private int requestedFirstChunkY;
+    private int requestedLastChunkX = -1;
+    private int requestedLastChunkY = -1;
+    private ChunkRequestListener requestListener;
+    private boolean renderingRequests;
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static synchronized long getMaxCacheSize()
+    {
+        return maxCacheSize;
+    }
+
+    /**
+     * Sets the budget of the cache that every chunk source shares. Takes effect the next time a chunk is rendered.
+     */
+    public static synchronized void setMaxCacheSize(final long maxCacheSize)
+    {
+        RenderedChunkSource.maxCacheSize = Math.max(0, maxCacheSize);
+    }
+
+    public static void setMaxCacheSizeMegabytes(final int maxCacheSizeMegabytes)
+    {
+        setMaxCacheSize((long)maxCacheSizeMegabytes * 1024 * 1024);
+    }
+
+    /**
+     * @return The size of every source's chunks in the shared cache.
+     */
+    public static long getTotalCachedBytes()
+    {
+        synchronized (CACHE_LOCK)
+        {
+            return totalCachedBytes;
+        }
+    }
+
+    ////////////////////
+    // Public Methods //
+    ////////////////////
+
+    @Override
+    public byte[] getChunk(final int chunkX, final int chunkY)
+    {
+        try
+        {
+            return demandChunk(TaskTracker.DUMMY, chunkX, chunkY);
+        }
+        catch (final Exception e)
+        {
+            throw new IllegalStateException(String.format("Failed to render chunk (%d, %d)", chunkX, chunkY), e);
+        }
+    }
+
+    /**
+     * Returns the chunk, rendering it on the calling thread if it isn't cached. Unlike {@link #getChunk}, rendering
+     * failures are passed through as is, so that e.g. the task that first shows the image can report them.
+     */
+    public byte[] demandChunk(final TaskTrackerI tracker, final int chunkX, final int chunkY) throws Exception
+    {
+        final CachedChunkKey cacheKey = new CachedChunkKey(this, getChunkKey(chunkX, chunkY));
+
+        byte[] chunk = getCachedChunk(cacheKey);
+        if (chunk != null)
+        {
+            return chunk;
+        }
+
+        synchronized (renderLock)
+        {
+            final int renderGeneration;
+            synchronized (CACHE_LOCK)
+            {
+                // Another thread may have rendered the chunk while this one was waiting
+                chunk = CACHED_CHUNKS.get(cacheKey);
+                if (chunk != null)
+                {
+                    return chunk;
+                }
+                renderGeneration = generation;
+            }
+
+            chunk = renderChunk(tracker, chunkX, chunkY);
+
+            synchronized (CACHE_LOCK)
+            {
+                if (generation == renderGeneration)
+                {
+                    CACHED_CHUNKS.put(cacheKey, chunk);
+                    cachedBytes += chunk.length;
+                    totalCachedBytes += chunk.length;
+                    failedChunks.remove(cacheKey.chunkKey());
+                    evict();
+                }
+            }
+        }
+
+        return chunk;
+    }
+
+    @Override
+    public byte[] getChunkIfReady(final int chunkX, final int chunkY)
+    {
+        return getCachedChunk(new CachedChunkKey(this, getChunkKey(chunkX, chunkY)));
+    }
+
+    @Override
+    public void requestChunks(
+        final int firstChunkX, final int firstChunkY, final int lastChunkX, final int lastChunkY,
+        final ChunkRequestListener listener)
+    {
+        synchronized (CACHE_LOCK)
+        {
+            requestedFirstChunkX = firstChunkX;
+            requestedFirstChunkY = firstChunkY;
+            requestedLastChunkX = lastChunkX;
+            requestedLastChunkY = lastChunkY;
+            requestListener = listener;
+
+            // Chunks that were only kept because of the previous request may now be evicted
+            evict();
+
+            if (!renderingRequests && findRequestedChunk() != null)
+            {
+                renderingRequests = true;
+                REQUEST_EXECUTOR.execute(this::renderRequestedChunks);
+            }
+        }
+    }
+
+    @Override
+    public void cancelChunkRequests()
+    {
+        requestChunks(0, 0, -1, -1, null);
+    }
+
+    /**
+     * @return The size of this source's chunks in the shared cache.
+     */
+    public long getCachedBytes()
+    {
+        synchronized (CACHE_LOCK)
+        {
+            return cachedBytes;
+        }
+    }
+
+    public void clear()
+    {
+        synchronized (CACHE_LOCK)
+        {
+            final Iterator<Map.Entry<CachedChunkKey, byte[]>> iterator = CACHED_CHUNKS.entrySet().iterator();
+            while (iterator.hasNext())
+            {
+                final Map.Entry<CachedChunkKey, byte[]> entry = iterator.next();
+                if (entry.getKey().source() == this)
+                {
+                    totalCachedBytes -= entry.getValue().length;
+                    iterator.remove();
+                }
+            }
+
+            failedChunks.clear();
+            cachedBytes = 0;
+            ++generation;
+        }
+    }
+
+    ///////////////////////
+    // Protected Methods //
+    ///////////////////////
+
+    /**
+     * @return The chunk's pixels, in the layout described by {@link #getChunk}. The returned array must not be
+     *         modified afterward.
+     */
+    protected abstract byte[] renderChunk(TaskTrackerI tracker, int chunkX, int chunkY) throws Exception;
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    private static byte[] getCachedChunk(final CachedChunkKey cacheKey)
+    {
+        synchronized (CACHE_LOCK)
+        {
+            return CACHED_CHUNKS.get(cacheKey);
+        }
+    }
+
+    /**
+     * Evicts the least recently used chunks of every source until the shared cache is back within the budget, or
+     * only chunks that can't be evicted are left. Must be called while holding {@link #CACHE_LOCK}.
+     */
+    private static void evict()
+    {
+        final long maxCacheSize = getMaxCacheSize();
+        final Iterator<Map.Entry<CachedChunkKey, byte[]>> iterator = CACHED_CHUNKS.entrySet().iterator();
+
+        // The most recently used chunk is always kept, since it is about to be read
+        for (int numUnvisited = CACHED_CHUNKS.size(); totalCachedBytes > maxCacheSize && numUnvisited > 1;
+            --numUnvisited)
+        {
+            final Map.Entry<CachedChunkKey, byte[]> entry = iterator.next();
+            final RenderedChunkSource source = entry.getKey().source();
+            if (source.isRequested(entry.getKey().chunkKey()))
+            {
+                continue;
+            }
+
+            final int chunkSize = entry.getValue().length;
+            source.cachedBytes -= chunkSize;
+            totalCachedBytes -= chunkSize;
+            iterator.remove();
+        }
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private long getChunkKey(final int chunkX, final int chunkY)
+    {
+        return (long)chunkX << 32 | (chunkY & 0xFFFFFFFFL);
+    }
+
+    private boolean isRequested(final long key)
+    {
+        final int chunkX = (int)(key >> 32);
+        final int chunkY = (int)key;
+        return chunkX >= requestedFirstChunkX && chunkX <= requestedLastChunkX
+            && chunkY >= requestedFirstChunkY && chunkY <= requestedLastChunkY;
+    }
+
+    /**
+     * @return The key of a requested chunk that still needs to be rendered, or null if there isn't one.
+     */
+    private Long findRequestedChunk()
+    {
+        for (int chunkY = requestedFirstChunkY; chunkY <= requestedLastChunkY; ++chunkY)
+        {
+            for (int chunkX = requestedFirstChunkX; chunkX <= requestedLastChunkX; ++chunkX)
+            {
+                final long key = getChunkKey(chunkX, chunkY);
+                if (!CACHED_CHUNKS.containsKey(new CachedChunkKey(this, key)) && !failedChunks.contains(key))
+                {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs on the request thread until every chunk of the latest request has been rendered or has failed.
+     */
+    private void renderRequestedChunks()
+    {
+        while (true)
+        {
+            final long key;
+            final ChunkRequestListener listener;
+
+            synchronized (CACHE_LOCK)
+            {
+                final Long nextKey = findRequestedChunk();
+                if (nextKey == null)
+                {
+                    renderingRequests = false;
+                    return;
+                }
+                key = nextKey;
+                listener = requestListener;
+            }
+
+            final int chunkX = (int)(key >> 32);
+            final int chunkY = (int)key;
+
+            try
+            {
+                demandChunk(TaskTracker.DUMMY, chunkX, chunkY);
+                if (listener != null) listener.onChunkReady();
+            }
+            catch (final Exception e)
+            {
+                synchronized (CACHE_LOCK)
+                {
+                    failedChunks.add(key);
+                }
+
+                if (listener != null)
+                {
+                    listener.onChunkFailed(new IllegalStateException(
+                        String.format("Failed to render chunk (%d, %d)", chunkX, chunkY), e));
+                }
+            }
+        }
+    }
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    /**
+     * Identifies a chunk in the shared cache. Sources don't override {@link Object#equals}, so they are compared by
+     * identity.
+     */
+    private record CachedChunkKey(RenderedChunkSource source, long chunkKey) {}
+}
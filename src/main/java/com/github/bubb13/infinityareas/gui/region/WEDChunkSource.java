@@ -0,0 +1,106 @@
+
+package com.github.bubb13.infinityareas.gui.region;
+
+import com.github.bubb13.infinityareas.game.resource.WED;
+import com.github.bubb13.infinityareas.misc.ImageAndGraphics;
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
+import com.github.bubb13.infinityareas.util.ImageUtil;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Renders the overlays of a WED one chunk at a time, so that only the parts of the area that are displayed are
+ * ever rendered.
+ */
+public class WEDChunkSource extends RenderedChunkSource
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final int CHUNK_SIDE_LENGTH_IN_TILES = 8;
+    private static final int CHUNK_SIDE_LENGTH = CHUNK_SIDE_LENGTH_IN_TILES * WED.TILE_SIDE_LENGTH;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    private final int[] overlayIndexes;
+    private final int widthInTiles;
+    private final int heightInTiles;
+
+    /** Every chunk is rendered into this image before being converted */
+    private final WED.Graphics chunkGraphics;
+    private final int[] chunkPixels;
+
+    /////////////////////////
+    // Public Constructors //
+    /////////////////////////
+
+    public WEDChunkSource(final WED wed, final int... overlayIndexes)
+    {
+        this.overlayIndexes = overlayIndexes;
+
+        final WED.Overlay baseOverlay = wed.getOverlays().get(0);
+        this.widthInTiles = baseOverlay.getWidthInTiles();
+        this.heightInTiles = baseOverlay.getHeightInTiles();
+
+        final BufferedImage chunkImage = new BufferedImage(
+            CHUNK_SIDE_LENGTH, CHUNK_SIDE_LENGTH, BufferedImage.TYPE_INT_ARGB);
+
+        this.chunkGraphics = wed.newGraphics(new ImageAndGraphics(chunkImage, chunkImage.createGraphics()));
+        this.chunkPixels = ((DataBufferInt)chunkImage.getRaster().getDataBuffer()).getData();
+    }
+
+    ////////////////////
+    // Public Methods //
+    ////////////////////
+
+    @Override
+    public int getWidth()
+    {
+        return widthInTiles * WED.TILE_SIDE_LENGTH;
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return heightInTiles * WED.TILE_SIDE_LENGTH;
+    }
+
+    @Override
+    public int getChunkWidth()
+    {
+        return CHUNK_SIDE_LENGTH;
+    }
+
+    @Override
+    public int getChunkHeight()
+    {
+        return CHUNK_SIDE_LENGTH;
+    }
+
+    ///////////////////////
+    // Protected Methods //
+    ///////////////////////
+
+    @Override
+    protected byte[] renderChunk(final TaskTrackerI tracker, final int chunkX, final int chunkY) throws Exception
+    {
+        final int tileX = chunkX * CHUNK_SIDE_LENGTH_IN_TILES;
+        final int tileY = chunkY * CHUNK_SIDE_LENGTH_IN_TILES;
+
+        Arrays.fill(chunkPixels, 0);
+        chunkGraphics.renderOverlayRegion(tracker,
+            tileX, tileY,
+            Math.min(CHUNK_SIDE_LENGTH_IN_TILES, widthInTiles - tileX),
+            Math.min(CHUNK_SIDE_LENGTH_IN_TILES, heightInTiles - tileY),
+            overlayIndexes);
+
+        final byte[] chunk = new byte[chunkPixels.length * 4];
+        ImageUtil.convertArgbToBgraPre(chunkPixels, chunk);
+        return chunk;
+    }
+}
@@ -5,16 +5,22 @@ import com.github.bubb13.infinityareas.GlobalState;
 import com.github.bubb13.infinityareas.MainJavaFX;
 import com.github.bubb13.infinityareas.game.Game;
 import com.github.bubb13.infinityareas.game.resource.Area;
+import com.github.bubb13.infinityareas.game.resource.DecodedResourceCache;
 import com.github.bubb13.infinityareas.game.resource.KeyFile;
+import com.github.bubb13.infinityareas.game.resource.ResourceDataCache;
 import com.github.bubb13.infinityareas.game.resource.ResourceIdentifier;
+import com.github.bubb13.infinityareas.game.resource.TIS;
 import com.github.bubb13.infinityareas.gui.control.SimpleTreeView;
 import com.github.bubb13.infinityareas.gui.dialog.ErrorAlert;
+import com.github.bubb13.infinityareas.gui.dialog.InfoAlert;
+import com.github.bubb13.infinityareas.gui.dialog.WarningAlertTwoOptions;
 import com.github.bubb13.infinityareas.gui.pane.AreaPane;
 import com.github.bubb13.infinityareas.gui.pane.TISPane;
 import com.github.bubb13.infinityareas.gui.pane.WEDPane;
 import com.github.bubb13.infinityareas.misc.tasktracking.LoadingStageTracker;
 import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
 import com.github.bubb13.infinityareas.misc.tasktracking.TrackedTask;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.Node;
@@ -33,6 +39,8 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
 
 public final class PrimaryScene extends Stage
 {
@@ -47,7 +55,15 @@ public final class PrimaryScene extends Stage
     private final WEDPane wedPane = new WEDPane();
 
     private SimpleTreeView<Object> treeView;
+    private TreeItem<Object> areNode;
+    private TreeItem<Object> tisNode;
+    private TreeItem<Object> wedNode;
+    private final HashMap<ResourceIdentifier, TreeItem<Object>> resourceNodes = new HashMap<>();
+
     private Node curRightNode = null;
+    private Game.ResourceSource curSource = null;
+    /** Whether the user is being asked to discard unsaved changes, see {@link #confirmDiscardUnsavedChanges} */
+    private boolean confirmingDiscard = false;
 
     /////////////////////////
     // Public Constructors //
@@ -82,7 +98,9 @@ public final class PrimaryScene extends Stage
             refreshButton.setOnAction((ignored) -> this.onSelectRefreshGame());
             final MenuItem changeButton = new MenuItem("Change");
             changeButton.setOnAction((ignored) -> this.onSelectChangeGame());
-            gameDropdown.getItems().addAll(refreshButton, changeButton);
+            final MenuItem cacheStatisticsButton = new MenuItem("Cache Statistics");
+            cacheStatisticsButton.setOnAction((ignored) -> this.onSelectShowCacheStatistics());
+            gameDropdown.getItems().addAll(refreshButton, changeButton, cacheStatisticsButton);
 
             final MenuButton debugDropdown = new MenuButton("Debug");
             final MenuItem stepButton = new MenuItem("Step through all areas");
@@ -131,6 +149,11 @@ public final class PrimaryScene extends Stage
 
         stage.setTitle("Infinity Areas");
         stage.setScene(scene);
+
+        // Changes found by the game's folder watcher are applied to the tree as they happen
+        GlobalState.getGame().addResourceChangeListener((changes) ->
+            Platform.runLater(() -> this.onResourcesChanged(changes)));
+        GlobalState.getGame().addKeyFileChangeListener(() -> Platform.runLater(this::onKeyFileChanged));
     }
 
     /////////////////////
@@ -144,19 +167,17 @@ public final class PrimaryScene extends Stage
 
     private TreeItem<Object> createTreeViewNodes()
     {
-        final TreeItem<Object> areNode = new TreeItem<>("ARE");
-        final TreeItem<Object> tisNode = new TreeItem<>("TIS");
-        final TreeItem<Object> wedNode = new TreeItem<>("WED");
+        areNode = new TreeItem<>("ARE");
+        tisNode = new TreeItem<>("TIS");
+        wedNode = new TreeItem<>("WED");
+        resourceNodes.clear();
 
         for (final Game.Resource resource : GlobalState.getGame().getResources())
         {
-            final ResourceIdentifier identifier = resource.getIdentifier();
-
-            switch (KeyFile.NumericResourceType.fromNumericType(identifier.numericType()))
+            final TreeItem<Object> typeNode = getResourceTypeNode(resource.getIdentifier());
+            if (typeNode != null)
             {
-                case ARE -> addResourceTypeNode(areNode, resource);
-                case TIS -> addResourceTypeNode(tisNode, resource);
-                case WED -> addResourceTypeNode(wedNode, resource);
+                addResourceTypeNode(typeNode, resource);
             }
         }
 
@@ -166,13 +187,29 @@ public final class PrimaryScene extends Stage
         return rootNode;
     }
 
+    private TreeItem<Object> getResourceTypeNode(final ResourceIdentifier identifier)
+    {
+        return switch (KeyFile.NumericResourceType.fromNumericType(identifier.numericType()))
+        {
+            case ARE -> areNode;
+            case TIS -> tisNode;
+            case WED -> wedNode;
+            default -> null;
+        };
+    }
+
     private void addResourceTypeNode(final TreeItem<Object> parentNode, final Game.Resource resource)
     {
-        final TreeItem<Object> resrefNode = new TreeItem<>(
-            new ResourceSourceHolder(null, resource.getIdentifier().resref())
-        );
+        parentNode.getChildren().add(createResourceNode(resource));
+    }
+
+    private TreeItem<Object> createResourceNode(final Game.Resource resource)
+    {
+        final ResourceIdentifier identifier = resource.getIdentifier();
+        final TreeItem<Object> resrefNode = new TreeItem<>(new ResourceSourceHolder(null, identifier.resref()));
         addSourceNodes(resrefNode, resource);
-        parentNode.getChildren().add(resrefNode);
+        resourceNodes.put(identifier, resrefNode);
+        return resrefNode;
     }
 
     private void addSourceNodes(final TreeItem<Object> parentNode, final Game.Resource resource)
@@ -205,7 +242,166 @@ public final class PrimaryScene extends Stage
         }
     }
 
+    /**
+     * Applies resource changes reported by the game's folder watcher to the tree, and closes or reloads the open
+     * pane if the resource it shows was changed by another program.
+     */
+    private void onResourcesChanged(final List<Game.ResourceChange> changes)
+    {
+        final Game game = GlobalState.getGame();
+        boolean curSourceChanged = false;
+
+        for (final Game.ResourceChange change : changes)
+        {
+            final ResourceIdentifier identifier = change.identifier();
+
+            // The open pane already shows what the application itself saved
+            if (curSource != null && curSource.getIdentifier().equals(identifier) && !change.ownWrite())
+            {
+                curSourceChanged = true;
+            }
+
+            final TreeItem<Object> typeNode = getResourceTypeNode(identifier);
+            if (typeNode == null)
+            {
+                continue;
+            }
+
+            final Game.Resource resource = game.getResource(identifier);
+            final TreeItem<Object> existingNode = resourceNodes.get(identifier);
+
+            if (resource == null)
+            {
+                if (existingNode != null)
+                {
+                    typeNode.getChildren().remove(existingNode);
+                    resourceNodes.remove(identifier);
+                }
+            }
+            else if (existingNode != null)
+            {
+                // The resource's primary source may have changed; rebuild its source nodes in priority order
+                existingNode.getChildren().clear();
+                addSourceNodes(existingNode, resource);
+            }
+            else
+            {
+                insertResourceNode(typeNode, resource);
+            }
+        }
+
+        if (curSourceChanged)
+        {
+            refreshCurrentSource(game);
+        }
+    }
+
+    /**
+     * Inserts a node for {@code resource} into {@code typeNode}, keeping the children sorted by resref.
+     */
+    private void insertResourceNode(final TreeItem<Object> typeNode, final Game.Resource resource)
+    {
+        final ObservableList<TreeItem<Object>> children = typeNode.getChildren();
+        final String resref = resource.getIdentifier().resref();
+
+        int low = 0;
+        int high = children.size();
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            final String midResref = ((ResourceSourceHolder)children.get(mid).getValue()).text();
+            if (midResref.compareTo(resref) < 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+
+        children.add(low, createResourceNode(resource));
+    }
+
+    /**
+     * Shows the resource of the open pane again, as it is now resolved. E.g. a resource that was shown from its
+     * bif is shown from the override folder once a loose copy appears there.
+     */
+    private void refreshCurrentSource(final Game game)
+    {
+        final ResourceIdentifier identifier = curSource.getIdentifier();
+        final Game.Resource resource = game.getResource(identifier);
+
+        if (resource == null)
+        {
+            if (confirmDiscardUnsavedChanges(String.format(
+                "\"%s\" was deleted by another program. Close it, and discard the unsaved edits and undo history?",
+                identifier.resref()), "Close"))
+            {
+                changeRightNode(null);
+            }
+            return;
+        }
+
+        if (confirmDiscardUnsavedChanges(String.format(
+            "\"%s\" was changed by another program. Reload it, and discard the unsaved edits and undo history?",
+            identifier.resref()), "Reload"))
+        {
+            onSelectResourceSource(resource.getPrimarySource());
+        }
+    }
+
+    private void onKeyFileChanged()
+    {
+        if (confirmDiscardUnsavedChanges(
+            "The key file was changed by another program. Reload the game, and discard the unsaved edits and " +
+                "undo history?", "Reload"))
+        {
+            refreshGame();
+        }
+    }
+
+    /**
+     * @return Whether the open pane has no unsaved changes, or the user agreed to discard them. Returns false
+     *         without asking if the user is already being asked, since whatever they answer covers this change too.
+     */
+    private boolean confirmDiscardUnsavedChanges(final String message, final String discardText)
+    {
+        final boolean hasUnsavedChanges = (curRightNode == areaPane && areaPane.hasUnsavedChanges())
+            || (curRightNode == wedPane && wedPane.hasUnsavedChanges());
+
+        if (!hasUnsavedChanges)
+        {
+            return true;
+        }
+
+        if (confirmingDiscard)
+        {
+            return false;
+        }
+
+        final boolean[] discard = new boolean[] { false };
+        confirmingDiscard = true;
+        try
+        {
+            WarningAlertTwoOptions.openAndWait(message,
+                discardText, () -> discard[0] = true,
+                "Keep Editing", null);
+        }
+        finally
+        {
+            confirmingDiscard = false;
+        }
+
+        return discard[0];
+    }
+
     private void onSelectRefreshGame()
+    {
+        refreshGame();
+    }
+
+    private void refreshGame()
     {
         final Game game = GlobalState.getGame();
         final KeyFile keyFile = game.getKeyFile();
@@ -236,6 +432,54 @@ public final class PrimaryScene extends Stage
         MainJavaFX.closePrimaryStageAndAskForGame();
     }
 
+    private void onSelectShowCacheStatistics()
+    {
+        final ResourceDataCache.Stats dataStats = ResourceDataCache.getStats();
+        final DecodedResourceCache.Stats decodedStats = DecodedResourceCache.getStats();
+        final TIS.TileMemoryStats tileStats = tisPane.getTileMemoryStats();
+
+        final StringBuilder builder = new StringBuilder();
+        builder.append("Resource data cache\n");
+        appendCacheStatistics(builder, dataStats.hits(), dataStats.misses(), dataStats.evictions(),
+            dataStats.numEntries(), dataStats.residentBytes(), dataStats.maxSize());
+        builder.append(String.format("  Mapped:    %s (not counted against the budget)\n",
+            formatMegabytes(dataStats.mappedBytes())));
+
+        builder.append("\nDecoded resource cache\n");
+        appendCacheStatistics(builder, decodedStats.hits(), decodedStats.misses(), decodedStats.evictions(),
+            decodedStats.numEntries(), decodedStats.residentBytes(), decodedStats.maxSize());
+
+        if (tileStats != null)
+        {
+            builder.append("\nLast viewed TIS\n");
+            builder.append(String.format("  Tiles:     %d (%d encoded, %d of those expanded)\n",
+                tileStats.numTiles(), tileStats.numEncodedTiles(), tileStats.numExpandedTilesCached()));
+            builder.append(String.format("  Resident:  %s (%s if fully expanded)\n",
+                formatMegabytes(tileStats.residentBytes()), formatMegabytes(tileStats.expandedBytes())));
+            builder.append(String.format("  Expanded tile hits / misses: %d / %d\n",
+                tileStats.expandedTileHits(), tileStats.expandedTileMisses()));
+        }
+
+        InfoAlert.openAndWait("Cache Statistics", builder.toString());
+    }
+
+    private void appendCacheStatistics(
+        final StringBuilder builder, final long hits, final long misses, final long evictions,
+        final int numEntries, final long residentBytes, final long maxSize)
+    {
+        builder.append(String.format("  Entries:   %d\n", numEntries));
+        builder.append(String.format("  Resident:  %s of %s\n", formatMegabytes(residentBytes),
+            formatMegabytes(maxSize)));
+        builder.append(String.format("  Hits:      %d\n", hits));
+        builder.append(String.format("  Misses:    %d\n", misses));
+        builder.append(String.format("  Evictions: %d\n", evictions));
+    }
+
+    private String formatMegabytes(final long bytes)
+    {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
     private void onSelectResourceSource(final Game.ResourceSource source)
     {
         switch (source.getNumericType())
@@ -244,7 +488,7 @@ public final class PrimaryScene extends Stage
             {
                 areaPane.setSourceTask(source)
                     .trackWith(new LoadingStageTracker())
-                    .onSucceededFx((image) -> changeRightNode(areaPane))
+                    .onSucceededFx((image) -> changeRightNode(areaPane, source))
                     .onFailed((e) ->
                         ErrorAlert.openAndWait("An exception occurred while loading the area.", e))
                     .start();
@@ -253,7 +497,7 @@ public final class PrimaryScene extends Stage
             {
                 tisPane.setSourceTask(source)
                     .trackWith(new LoadingStageTracker())
-                    .onSucceededFx(() -> changeRightNode(tisPane))
+                    .onSucceededFx(() -> changeRightNode(tisPane, source))
                     .onFailed((e) ->
                         ErrorAlert.openAndWait("An exception occurred while loading the tileset.", e))
                     .start();
@@ -262,7 +506,7 @@ public final class PrimaryScene extends Stage
             {
                 wedPane.setSourceTask(source)
                     .trackWith(new LoadingStageTracker())
-                    .onSucceededFx(() -> changeRightNode(wedPane))
+                    .onSucceededFx(() -> changeRightNode(wedPane, source))
                     .onFailed((e) ->
                         ErrorAlert.openAndWait("An exception occurred while loading the WED.", e))
                     .start();
@@ -270,8 +514,19 @@ public final class PrimaryScene extends Stage
         }
     }
 
+    private void changeRightNode(final Node newNode, final Game.ResourceSource newSource)
+    {
+        curSource = newSource;
+        changeRightNode(newNode);
+    }
+
     private void changeRightNode(final Node newNode)
     {
+        if (newNode == null)
+        {
+            curSource = null;
+        }
+
         if (newNode != curRightNode)
         {
             curRightNode = newNode;
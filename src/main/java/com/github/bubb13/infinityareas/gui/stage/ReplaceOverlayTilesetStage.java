@@ -3,14 +3,14 @@ package com.github.bubb13.infinityareas.gui.stage;
 
 import com.github.bubb13.infinityareas.GlobalState;
 import com.github.bubb13.infinityareas.game.Game;
+import com.github.bubb13.infinityareas.game.resource.DecodedResourceCache;
 import com.github.bubb13.infinityareas.game.resource.KeyFile;
-import com.github.bubb13.infinityareas.game.resource.ResourceDataCache;
 import com.github.bubb13.infinityareas.game.resource.ResourceIdentifier;
 import com.github.bubb13.infinityareas.game.resource.TIS;
 import com.github.bubb13.infinityareas.game.resource.WED;
 import com.github.bubb13.infinityareas.gui.control.DynamicListView;
 import com.github.bubb13.infinityareas.gui.dialog.ErrorAlert;
-import com.github.bubb13.infinityareas.misc.SimpleCache;
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.EventHandler;
@@ -238,20 +238,19 @@ public class ReplaceOverlayTilesetStage extends Stage
         final WED.Overlay overlay = wed.getOverlays().get(overlayIndex);
         overlay.setTilesetResref(entry.getText());
 
-        final TIS tis = new TIS(
-            GlobalState.getGame().getResource(new ResourceIdentifier(overlay.getTilesetResref(), KeyFile.NumericResourceType.TIS)).getPrimarySource(),
-            new ResourceDataCache(),
-            new SimpleCache<>()
-        );
+        final Game.ResourceSource tisSource = GlobalState.getGame().getResource(
+            new ResourceIdentifier(overlay.getTilesetResref(), KeyFile.NumericResourceType.TIS)).getPrimarySource();
 
         // TODO
+        final TIS tis;
         try
         {
-            tis.load();
+            tis = DecodedResourceCache.demandTIS(TaskTracker.DUMMY, tisSource);
         }
         catch (final Exception e)
         {
             ErrorAlert.openAndWait("Failed to load TIS", e);
+            return;
         }
 
         short[] temp = new short[tis.getNumTiles()];
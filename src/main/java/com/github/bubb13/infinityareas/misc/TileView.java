@@ -0,0 +1,51 @@
+
+package com.github.bubb13.infinityareas.misc;
+
+/**
+ * A rectangle of ARGB pixels within a larger backing array, e.g. a tile within a decoded PVRZ page.
+ *
+ * @param data The backing array.
+ * @param offset The index in {@code data} of the top-left pixel.
+ * @param pitch The distance in {@code data} between vertically adjacent pixels.
+ */
+public record TileView(int[] data, int offset, int pitch, int width, int height)
+{
+    /**
+     * Creates a view over {@code data}, which holds exactly the {@code width} x {@code height} pixels of a tile.
+     */
+    public static TileView ofPacked(final int[] data, final int width, final int height)
+    {
+        return new TileView(data, 0, width, width, height);
+    }
+
+    /**
+     * @return Whether the view's pixels are stored contiguously, without gaps between rows.
+     */
+    public boolean isPacked()
+    {
+        return pitch == width || height <= 1;
+    }
+
+    public void copyTo(final int[] dst, int dstOffset, final int dstPitch)
+    {
+        for (int srcOffset = offset, y = 0; y < height; ++y, srcOffset += pitch, dstOffset += dstPitch)
+        {
+            System.arraycopy(data, srcOffset, dst, dstOffset, width);
+        }
+    }
+
+    /**
+     * @return The view's pixels stored contiguously; {@link #data()} itself if the view already covers all of it.
+     */
+    public int[] toPackedArray()
+    {
+        if (offset == 0 && isPacked() && data.length == width * height)
+        {
+            return data;
+        }
+
+        final int[] packed = new int[width * height];
+        copyTo(packed, 0, width);
+        return packed;
+    }
+}
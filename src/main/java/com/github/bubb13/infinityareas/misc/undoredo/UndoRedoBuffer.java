@@ -33,6 +33,10 @@ public class UndoRedoBuffer
     private int transactionNestCount = 0;
     private int suppressStackManipulationMode = 0;
 
+    // The tops of the stacks at the last call to markClean()
+    private TransactionInternal cleanUndoTop;
+    private TransactionInternal cleanRedoTop;
+
     ////////////////////
     // Public Methods //
     ////////////////////
@@ -140,10 +144,36 @@ public class UndoRedoBuffer
         }
     }
 
+    //-------------//
+    // Clean State //
+    //-------------//
+
+    /**
+     * Records the current state as the one that matches the data on disk, e.g. after loading or saving.
+     */
+    public void markClean()
+    {
+        cleanUndoTop = peekOrNull(undoStack);
+        cleanRedoTop = peekOrNull(redoStack);
+    }
+
+    /**
+     * @return Whether any transaction was done, undone, or redone since the last call to {@link #markClean()}.
+     */
+    public boolean hasChangesSinceClean()
+    {
+        return peekOrNull(undoStack) != cleanUndoTop || peekOrNull(redoStack) != cleanRedoTop;
+    }
+
     /////////////////////
     // Private Methods //
     /////////////////////
 
+    private TransactionInternal peekOrNull(final TrackingLinkedList<TransactionInternal> stack)
+    {
+        return stack.isEmpty() ? null : stack.peek();
+    }
+
     private void pushUndoInternal(final AbstractUndo undo)
     {
         if (transactionNestCount == 0)
@@ -26,13 +26,12 @@ public final class BufferUtil
 
     public static String readLUTF8(final ByteBuffer buffer, final int length)
     {
-        final byte[] array = buffer.array();
-        int curOffset = buffer.arrayOffset() + buffer.position();
+        final int position = buffer.position();
         int actualLength = length;
 
         for (int i = 0; i < length; ++i)
         {
-            if (array[curOffset++] == 0)
+            if (buffer.get(position + i) == 0)
             {
                 actualLength = i;
                 break;
@@ -114,8 +113,31 @@ public final class BufferUtil
         return numRead;
     }
 
+    /**
+     * Returns the array backing `buffer` if it is exactly the buffer's [0, limit) range,
+     * else a copy of that range. Works for direct and read-only buffers.
+     */
+    public static byte[] toArray(final ByteBuffer buffer)
+    {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.array().length == buffer.limit())
+        {
+            return buffer.array();
+        }
+
+        final byte[] array = new byte[buffer.limit()];
+        buffer.get(0, array);
+        return array;
+    }
+
     public static String toHexString(final ByteBuffer buffer)
     {
+        if (!buffer.hasArray())
+        {
+            return IntStream.range(0, buffer.limit())
+                .mapToObj(i -> String.format("%02X", buffer.get(i)))
+                .collect(Collectors.joining(" "));
+        }
+
         final byte[] array = buffer.array();
 
         return IntStream.range(buffer.arrayOffset(), array.length)
@@ -129,6 +151,14 @@ public final class BufferUtil
 
     private static String readUTF8NoAdvance(final ByteBuffer buffer, final int length)
     {
+        if (!buffer.hasArray())
+        {
+            // Direct / read-only buffers (such as memory-mapped bif data) don't expose an array
+            final byte[] bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
         return new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
             length, StandardCharsets.UTF_8);
     }
@@ -0,0 +1,141 @@
+
+package com.github.bubb13.infinityareas.util;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Caches case-folded directory listings, so that resolving many case-insensitive paths through the same
+ * directories only lists each directory once. A cached listing is reused for as long as its directory's
+ * modification time is unchanged; {@link #invalidate(Path)} can be used to drop a listing early, e.g. in
+ * response to a file system watcher.
+ */
+public final class DirectoryListingCache
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    /** The maximum number of directory listings that are kept */
+    private static final int MAX_LISTINGS = 256;
+
+    private static final LinkedHashMap<Path, Listing> listings = new LinkedHashMap<>(16, 0.75F, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Path, Listing> eldest)
+        {
+            return size() > MAX_LISTINGS;
+        }
+    };
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    /**
+     * Finds the entry of {@code directory} whose name matches {@code name}, ignoring case.
+     *
+     * @param directory The directory to search.
+     * @param name The name to search for.
+     * @return The actual name of the matching entry, or null if {@code directory} can't be listed or doesn't
+     *         contain a matching entry.
+     */
+    public static String findName(final Path directory, final String name)
+    {
+        final Listing listing = getListing(directory);
+        return listing == null ? null : listing.namesByFoldedName().get(foldCase(name));
+    }
+
+    public static void invalidate(final Path directory)
+    {
+        synchronized (listings)
+        {
+            listings.remove(directory);
+        }
+    }
+
+    public static void clear()
+    {
+        synchronized (listings)
+        {
+            listings.clear();
+        }
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    private static Listing getListing(final Path directory)
+    {
+        // Read the modification time before listing, so that a change made during the listing results in a
+        // different time on the next call
+        final FileTime modified;
+        try
+        {
+            modified = Files.getLastModifiedTime(directory);
+        }
+        catch (final IOException ignored)
+        {
+            return null;
+        }
+
+        synchronized (listings)
+        {
+            final Listing cachedListing = listings.get(directory);
+            if (cachedListing != null && cachedListing.modified().equals(modified))
+            {
+                return cachedListing;
+            }
+        }
+
+        final HashMap<String, String> namesByFoldedName = new HashMap<>();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory))
+        {
+            for (final Path path : stream)
+            {
+                final String fileName = path.getFileName().toString();
+                // Match the previous behavior of using the first entry that matches
+                namesByFoldedName.putIfAbsent(foldCase(fileName), fileName);
+            }
+        }
+        catch (final IOException ignored)
+        {
+            return null;
+        }
+
+        final Listing listing = new Listing(modified, namesByFoldedName);
+        synchronized (listings)
+        {
+            listings.put(directory, listing);
+        }
+        return listing;
+    }
+
+    /**
+     * Folds {@code str} so that two strings that are {@link String#equalsIgnoreCase(String)} fold to the same value.
+     */
+    private static String foldCase(final String str)
+    {
+        return str.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    //////////////////////////
+    // Private Constructors //
+    //////////////////////////
+
+    private DirectoryListingCache() {}
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    private record Listing(FileTime modified, HashMap<String, String> namesByFoldedName) {}
+}
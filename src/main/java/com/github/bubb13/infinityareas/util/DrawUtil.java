@@ -1,14 +1,105 @@
 
 package com.github.bubb13.infinityareas.util;
 
+import com.github.bubb13.infinityareas.misc.TileView;
+
 import java.io.PrintWriter;
 
 public class DrawUtil
 {
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    /**
+     * MUL8 / DIV8 lookup tables, built the same way as Java2D's (see AlphaMath.c), so that blending done here
+     * matches {@link java.awt.Graphics2D#drawImage} exactly. Indexed by [a << 8 | b].
+     */
+    private static final byte[] MUL8_TABLE = createMul8Table();
+    private static final byte[] DIV8_TABLE = createDiv8Table();
+
+    private static final int[] ALPHA_FACTOR_TABLE = createAlphaFactorTable();
+
     ///////////////////////////
     // Public Static Methods //
     ///////////////////////////
 
+    /**
+     * Composites non-premultiplied ARGB {@code src} over non-premultiplied ARGB {@code dst}, producing exactly the
+     * pixels that {@link java.awt.Graphics2D#drawImage} produces for TYPE_INT_ARGB images with the default
+     * {@link java.awt.AlphaComposite#SrcOver} composite.
+     */
+    public static void drawSrcOver(
+        // miscellaneous dimensions
+        final int drawWidth, final int drawHeight,
+        final int srcPitch, final int srcOffset,
+        final int dstPitch, final int dstOffset,
+        // tile source data
+        final int[] src,
+        // destination data
+        final int[] dst)
+    {
+        final int srcLineAdvance = srcPitch - drawWidth;
+        final int dstLineAdvance = dstPitch - drawWidth;
+
+        int curSrcIndex = srcOffset;
+        int curDstIndex = dstOffset;
+
+        for (int yCounter = 0; yCounter < drawHeight; ++yCounter, curSrcIndex += srcLineAdvance, curDstIndex += dstLineAdvance)
+        {
+            for (int xCounter = 0; xCounter < drawWidth; ++xCounter, ++curSrcIndex, ++curDstIndex)
+            {
+                final int color = src[curSrcIndex];
+                final int srcA = color >>> 24;
+
+                if (srcA == 0xFF)
+                {
+                    dst[curDstIndex] = color;
+                }
+                else if (srcA != 0)
+                {
+                    dst[curDstIndex] = blendSrcOver(color, srcA, dst[curDstIndex]);
+                }
+            }
+        }
+    }
+
+    public static void drawSrcOver(
+        // destination dimensions
+        final int dstPitch, final int dstOffset,
+        // tile source data
+        final TileView src,
+        // destination data
+        final int[] dst)
+    {
+        drawSrcOver(
+            src.width(), src.height(),
+            src.pitch(), src.offset(),
+            dstPitch, dstOffset,
+            src.data(), dst
+        );
+    }
+
+    public static void drawAlpha(
+        // destination dimensions
+        final int dstPitch, final int dstOffset,
+        // render specifics
+        final int dwAlpha,
+        // tile source data
+        final TileView src,
+        // destination data
+        final int[] dst,
+        final PrintWriter debugWriter)
+    {
+        drawAlpha(
+            src.width(), src.height(),
+            src.pitch(), src.offset(),
+            dstPitch, dstOffset,
+            dwAlpha, src.data(), dst,
+            debugWriter
+        );
+    }
+
     public static void drawAlpha(
         // miscellaneous dimensions
         final int drawWidth, final int drawHeight,
@@ -43,20 +134,89 @@ public class DrawUtil
         }
     }
 
-    private static int multAlpha(final int src, final int alpha)
+    /**
+     * @param srcA The alpha of {@code src}, in (0, 255).
+     */
+    private static int blendSrcOver(final int src, final int srcA, final int dst)
     {
-        final short srcA = (short)((src >>> 24) & 0xFF);
-        final short srcR = (short)((src >>> 16) & 0xFF);
-        final short srcG = (short)((src >>> 8) & 0xFF);
-        final short srcB = (short)(src & 0xFF);
+        final int dstA = mul8(0xFF - srcA, dst >>> 24);
+        final int resA = srcA + dstA;
 
-        final double srcFactor = (double)((alpha >>> 24) & 0xFF) / 255;
-        final byte finA = (byte)(srcFactor * srcA);
-        final byte finR = (byte)(srcFactor * srcR);
-        final byte finG = (byte)(srcFactor * srcG);
-        final byte finB = (byte)(srcFactor * srcB);
+        int resR = mul8(srcA, (src >>> 16) & 0xFF) + mul8(dstA, (dst >>> 16) & 0xFF);
+        int resG = mul8(srcA, (src >>> 8) & 0xFF) + mul8(dstA, (dst >>> 8) & 0xFF);
+        int resB = mul8(srcA, src & 0xFF) + mul8(dstA, dst & 0xFF);
+
+        if (resA < 0xFF)
+        {
+            // Un-premultiply
+            resR = div8(resR, resA);
+            resG = div8(resG, resA);
+            resB = div8(resB, resA);
+        }
+
+        return (resA << 24) | (resR << 16) | (resG << 8) | resB;
+    }
+
+    private static int mul8(final int a, final int b)
+    {
+        return MUL8_TABLE[(a << 8) | b] & 0xFF;
+    }
+
+    private static int div8(final int v, final int a)
+    {
+        return DIV8_TABLE[(a << 8) | v] & 0xFF;
+    }
+
+    private static byte[] createMul8Table()
+    {
+        final byte[] table = new byte[256 * 256];
+        for (int a = 1; a < 256; ++a)
+        {
+            // (a * b / 255) in 8.24 fixed point, rounded
+            final long increment = (a << 16) | (a << 8) | a;
+            long value = increment + (1 << 23);
+
+            for (int b = 1; b < 256; ++b, value += increment)
+            {
+                table[(a << 8) | b] = (byte)(value >>> 24);
+            }
+        }
+        return table;
+    }
 
-        return MiscUtil.packBytesIntoInt(finA, finR, finG, finB);
+    private static byte[] createDiv8Table()
+    {
+        final byte[] table = new byte[256 * 256];
+        for (int a = 1; a < 256; ++a)
+        {
+            // (v * 255 / a) in 8.24 fixed point, rounded and clamped to 255
+            final long increment = ((0xFFL << 24) + a / 2) / a;
+            long value = 1 << 23;
+
+            for (int v = 0; v < 256; ++v, value += increment)
+            {
+                table[(a << 8) | v] = v < a ? (byte)(value >>> 24) : (byte)0xFF;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Scales every channel of {@code src} by the alpha of {@code alpha}.
+     */
+    static int multAlpha(final int src, final int alpha)
+    {
+        final int factor = alpha >>> 24;
+        if (factor == 0xFF)
+        {
+            return src;
+        }
+
+        final int row = factor << 8;
+        return ALPHA_FACTOR_TABLE[row | (src >>> 24)] << 24
+            | ALPHA_FACTOR_TABLE[row | ((src >>> 16) & 0xFF)] << 16
+            | ALPHA_FACTOR_TABLE[row | ((src >>> 8) & 0xFF)] << 8
+            | ALPHA_FACTOR_TABLE[row | (src & 0xFF)];
     }
 
     private static int multOnlyAlpha(final int src, final int alpha)
@@ -72,26 +232,26 @@ public class DrawUtil
         return MiscUtil.packBytesIntoInt(finA, srcR, srcG, srcB);
     }
 
-    private static int blend_srcAlpha_OneMinusSrcAlpha(final int src, final int dst)
+    /**
+     * Blends {@code src} over {@code dst} with the factors (srcAlpha, 1 - srcAlpha).
+     */
+    static int blend_srcAlpha_OneMinusSrcAlpha(final int src, final int dst)
     {
-        final short srcA = (short)((src >>> 24) & 0xFF);
-        final short srcR = (short)((src >>> 16) & 0xFF);
-        final short srcG = (short)((src >>> 8) & 0xFF);
-        final short srcB = (short)(src & 0xFF);
-
-        final short dstA = (short)((dst >>> 24) & 0xFF);
-        final short dstR = (short)((dst >>> 16) & 0xFF);
-        final short dstG = (short)((dst >>> 8) & 0xFF);
-        final short dstB = (short)(dst & 0xFF);
-
-        final double srcFactor = (double)srcA / 255;
-        final double dstFactor = 1 - (double)srcA / 255;
-        byte finA = (byte)(srcFactor * srcA + dstFactor * dstA);
-        byte finR = (byte)(srcFactor * srcR + dstFactor * dstR);
-        byte finG = (byte)(srcFactor * srcG + dstFactor * dstG);
-        byte finB = (byte)(srcFactor * srcB + dstFactor * dstB);
+        final int srcA = src >>> 24;
+        if (srcA == 0xFF)
+        {
+            return src;
+        }
+        else if (srcA == 0)
+        {
+            return dst;
+        }
 
-        return MiscUtil.packBytesIntoInt(finA, finR, finG, finB);
+        final int dstFactor = 0xFF - srcA;
+        return blendChannel(srcA, srcA, dst >>> 24, dstFactor) << 24
+            | blendChannel(srcA, (src >>> 16) & 0xFF, (dst >>> 16) & 0xFF, dstFactor) << 16
+            | blendChannel(srcA, (src >>> 8) & 0xFF, (dst >>> 8) & 0xFF, dstFactor) << 8
+            | blendChannel(srcA, src & 0xFF, dst & 0xFF, dstFactor);
     }
 
     private static int backup(final int src, final int dst)
@@ -122,25 +282,98 @@ public class DrawUtil
         return MiscUtil.packBytesIntoInt(finA2, finR2, finG2, finB2);
     }
 
+    /**
+     * Adds {@code dst}, scaled by (1 - srcAlpha), to {@code src}. Channels that exceed 255 wrap around.
+     */
     private static int temp(final int src, final int dst)
     {
-        final short srcA = (short)((src >>> 24) & 0xFF);
-        final short srcR = (short)((src >>> 16) & 0xFF);
-        final short srcG = (short)((src >>> 8) & 0xFF);
-        final short srcB = (short)(src & 0xFF);
+        final int srcA = src >>> 24;
+        if (srcA == 0xFF)
+        {
+            return src;
+        }
 
-        final short dstA = (short)((dst >>> 24) & 0xFF);
-        final short dstR = (short)((dst >>> 16) & 0xFF);
-        final short dstG = (short)((dst >>> 8) & 0xFF);
-        final short dstB = (short)(dst & 0xFF);
+        final int dstFactor = 0xFF - srcA;
+        return addChannel(srcA, srcA, dst >>> 24, dstFactor) << 24
+            | addChannel(srcA, (src >>> 16) & 0xFF, (dst >>> 16) & 0xFF, dstFactor) << 16
+            | addChannel(srcA, (src >>> 8) & 0xFF, (dst >>> 8) & 0xFF, dstFactor) << 8
+            | addChannel(srcA, src & 0xFF, dst & 0xFF, dstFactor);
+    }
 
-        final double dstFactor = 1 - (double)srcA / 255;
-        final byte finA = (byte)(srcA + dstFactor * dstA);
-        final byte finR = (byte)(srcR + dstFactor * dstR);
-        final byte finG = (byte)(srcG + dstFactor * dstG);
-        final byte finB = (byte)(srcB + dstFactor * dstB);
+    /*
+     * The channel kernels below use integer arithmetic, but must return exactly what their formulas return when
+     * evaluated with doubles and truncated. Every exact result has a denominator of 255, so unless it is a whole
+     * number, it is at least 1/255 away from the next whole number, and the double result (whose error is many
+     * orders of magnitude smaller) truncates to the same value. Whole-number results can land on either side of
+     * the truncation with doubles, so they are evaluated with doubles; this is rare outside of the cases that are
+     * already handled without blending.
+     */
+
+    /**
+     * @return (srcFactor * src + (1 - srcFactor) * dst), truncated, where srcFactor = {@code srcA} / 255.
+     */
+    static int blendChannel(final int srcA, final int src, final int dst, final int dstFactor)
+    {
+        final int numerator = srcA * src + dstFactor * dst;
+        final int result = divideBy255(numerator);
+
+        if (result * 0xFF != numerator)
+        {
+            return result;
+        }
+
+        final double srcFactorD = (double)srcA / 255;
+        final double dstFactorD = 1 - (double)srcA / 255;
+        return (int)(srcFactorD * src + dstFactorD * dst) & 0xFF;
+    }
+
+    /**
+     * @return (src + (1 - srcFactor) * dst), truncated and wrapped to 8 bits, where srcFactor = {@code srcA} / 255.
+     */
+    static int addChannel(final int srcA, final int src, final int dst, final int dstFactor)
+    {
+        final int scaledDst = dstFactor * dst;
+        if (scaledDst == 0)
+        {
+            return src;
+        }
+
+        // Only the scaled dst contributes a fractional part
+        final int scaledDstResult = divideBy255(scaledDst);
+
+        if (scaledDstResult * 0xFF != scaledDst)
+        {
+            return (src + scaledDstResult) & 0xFF;
+        }
+
+        final double dstFactorD = 1 - (double)srcA / 255;
+        return (int)(src + dstFactorD * dst) & 0xFF;
+    }
 
-        return MiscUtil.packBytesIntoInt(finA, finR, finG, finB);
+    /**
+     * @param value In [0, 65025], i.e. the product of two channels.
+     * @return {@code value} / 255, without a division.
+     */
+    static int divideBy255(final int value)
+    {
+        return (value * 0x8081) >>> 23;
+    }
+
+    /**
+     * Holds (factor / 255 * value), evaluated with doubles and truncated. Indexed by [factor << 8 | value].
+     */
+    private static int[] createAlphaFactorTable()
+    {
+        final int[] table = new int[256 * 256];
+        for (int factor = 0; factor < 256; ++factor)
+        {
+            final double factorD = (double)factor / 255;
+            for (int value = 0; value < 256; ++value)
+            {
+                table[(factor << 8) | value] = (int)(factorD * value);
+            }
+        }
+        return table;
     }
 
     //////////////////////////
@@ -104,27 +104,15 @@ public final class FileUtil
     {
         Path builtPath = rootPath;
 
-        outer:
         for (final Path toResolvePart : toResolveAsCaseInsensitive)
         {
-            final String toResolvePartStr = toResolvePart.toString();
-            try (final DirectoryStream<Path> stream = Files.newDirectoryStream(builtPath))
-            {
-                for (final Path testPath : stream)
-                {
-                    final Path testPathFileName = testPath.getFileName();
-                    if (testPathFileName.toString().equalsIgnoreCase(toResolvePartStr))
-                    {
-                        builtPath = builtPath.resolve(testPathFileName);
-                        continue outer;
-                    }
-                }
-                return null;
-            }
-            catch (final IOException ignored)
+            // Directory listings are cached, since many paths are resolved through the same directories
+            final String actualName = DirectoryListingCache.findName(builtPath, toResolvePart.toString());
+            if (actualName == null)
             {
                 return null;
             }
+            builtPath = builtPath.resolve(actualName);
         }
         return builtPath;
     }
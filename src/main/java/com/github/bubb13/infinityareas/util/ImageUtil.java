@@ -1,6 +1,8 @@
 
 package com.github.bubb13.infinityareas.util;
 
+import com.github.bubb13.infinityareas.misc.TileView;
+
 import java.awt.Transparency;
 import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
@@ -73,6 +75,27 @@ public final class ImageUtil
         return createArgbBufferedImageFromRaster(createArgbRasterFromIntArray(sourceData, width, height));
     }
 
+    /**
+     * Wraps a rectangle within {@code sourceData} without copying it.
+     *
+     * @param offset The index in {@code sourceData} of the top-left pixel.
+     * @param pitch The distance in {@code sourceData} between vertically adjacent pixels.
+     */
+    public static BufferedImage wrapArgb(
+        final int[] sourceData, final int offset, final int pitch, final int width, final int height)
+    {
+        final DataBufferInt dataBuffer = new DataBufferInt(sourceData, sourceData.length - offset, offset);
+        final SampleModel sampleModel = new SinglePixelPackedSampleModel(
+            DataBuffer.TYPE_INT, width, height, pitch, ARGB_BIT_MASKS
+        );
+        return createArgbBufferedImageFromRaster(WritableRaster.createWritableRaster(sampleModel, dataBuffer, null));
+    }
+
+    public static BufferedImage wrapArgb(final TileView tileView)
+    {
+        return wrapArgb(tileView.data(), tileView.offset(), tileView.pitch(), tileView.width(), tileView.height());
+    }
+
     public static BufferedImage copyArgb(final BufferedImage source)
     {
         if (source.getRaster().getDataBuffer() instanceof DataBufferInt sourceDataBufferInt)
@@ -105,7 +128,16 @@ public final class ImageUtil
 
         final byte[] dstBuffer = new byte[imageWidth * imageHeight * 4];
         final int[] srcBuffer = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        convertArgbToBgraPre(srcBuffer, dstBuffer);
+
+        return ImageUtil.wrapBgra(dstBuffer, imageWidth, imageHeight);
+    }
 
+    /**
+     * Converts every pixel of {@code srcBuffer} into {@code dstBuffer}, which must hold 4 bytes per pixel.
+     */
+    public static void convertArgbToBgraPre(final int[] srcBuffer, final byte[] dstBuffer)
+    {
         for (int i = 0, dstIndex = 0; i < srcBuffer.length; ++i)
         {
             final int src = srcBuffer[i];
@@ -118,8 +150,6 @@ public final class ImageUtil
             dstBuffer[dstIndex++] = (byte)(alphaRatio * ((src >>> 16) & 0xFF));
             dstBuffer[dstIndex++] = (byte)srcAlpha;
         }
-
-        return ImageUtil.wrapBgra(dstBuffer, imageWidth, imageHeight);
     }
 
     public static BufferedImage convertByteBinaryToBgraPre(final BufferedImage image)
@@ -0,0 +1,227 @@
+
+package com.github.bubb13.infinityareas.util;
+
+import com.github.bubb13.infinityareas.misc.ThrowingConsumer;
+
+import java.io.Serial;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+public final class ParallelUtil
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    /** The number of ranges created per worker thread, so that uneven ranges can be balanced by work stealing */
+    private static final int RANGES_PER_THREAD = 4;
+
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    public static int getParallelism()
+    {
+        return ForkJoinPool.getCommonPoolParallelism() + 1; // The calling thread also participates
+    }
+
+    /**
+     * Calls {@code consumer} for every index in [0, {@code count}) using the common {@link ForkJoinPool},
+     * blocking until every index has been processed.
+     *
+     * @param count The number of indices to process.
+     * @param consumer The function to call for each index.
+     * @throws Exception The first exception thrown by {@code consumer}.
+     */
+    public static void forEachIndex(
+        final int count, final ThrowingConsumer<Integer, Exception> consumer) throws Exception
+    {
+        if (count <= 1)
+        {
+            if (count == 1) consumer.accept(0);
+            return;
+        }
+
+        try
+        {
+            IntStream.range(0, count).parallel().forEach((i) ->
+            {
+                try
+                {
+                    consumer.accept(i);
+                }
+                catch (final Exception e)
+                {
+                    throw new WrappedException(e);
+                }
+            });
+        }
+        catch (final WrappedException e)
+        {
+            throw (Exception)e.getCause();
+        }
+    }
+
+    /**
+     * Splits [0, {@code count}) into contiguous ranges of at least {@code minRangeSize} elements and calls
+     * {@code consumer} for every range using the common {@link ForkJoinPool}, blocking until every range
+     * has been processed.
+     *
+     * @param count The number of elements to process.
+     * @param minRangeSize The smallest range worth handing to a separate worker.
+     * @param consumer The function to call for each range.
+     * @throws Exception The first exception thrown by {@code consumer}.
+     */
+    public static void forEachRange(
+        final int count, final int minRangeSize, final RangeConsumer consumer) throws Exception
+    {
+        forEachRange(count, minRangeSize, consumer, null);
+    }
+
+    /**
+     * Like {@link #forEachRange(int, int, RangeConsumer)}, but also reports progress.
+     *
+     * @param count The number of elements to process.
+     * @param minRangeSize The smallest range worth handing to a separate worker.
+     * @param consumer The function to call for each range.
+     * @param onProgress Called with the number of elements that have been processed so far, each time a range
+     *                   finishes processing. Calls may come from worker threads, but are never concurrent, and
+     *                   the number never decreases. May be null.
+     * @throws Exception The first exception thrown by {@code consumer}.
+     */
+    public static void forEachRange(
+        final int count, final int minRangeSize, final RangeConsumer consumer,
+        final IntConsumer onProgress) throws Exception
+    {
+        if (count <= 0)
+        {
+            return;
+        }
+
+        final int maxRanges = (count + minRangeSize - 1) / Math.max(1, minRangeSize);
+        final int numRanges = Math.max(1, Math.min(maxRanges, getParallelism() * RANGES_PER_THREAD));
+        final int rangeSize = count / numRanges;
+        final int remainder = count % numRanges;
+        final int[] numProcessed = new int[1];
+
+        forEachIndex(numRanges, (rangeIndex) ->
+        {
+            // The first `remainder` ranges each take one extra element
+            final int start = rangeIndex * rangeSize + Math.min(rangeIndex, remainder);
+            final int end = start + rangeSize + (rangeIndex < remainder ? 1 : 0);
+            consumer.accept(start, end);
+
+            if (onProgress != null)
+            {
+                // Counting and reporting under one lock keeps a slower worker from reporting an older count last
+                synchronized (numProcessed)
+                {
+                    numProcessed[0] += end - start;
+                    onProgress.accept(numProcessed[0]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Calls {@code consumer} for every index in [0, {@code count}) using a temporary pool of at most
+     * {@code maxThreads} threads, blocking until every index has been processed. Intended for blocking (I/O-bound)
+     * work, which shouldn't tie up the common {@link ForkJoinPool}.
+     *
+     * @param count The number of indices to process.
+     * @param maxThreads The maximum number of threads to process indices with.
+     * @param consumer The function to call for each index.
+     * @param onProgress Called on the calling thread with the number of indices that have been processed so far,
+     *                   each time an index finishes processing. May be null.
+     * @throws Exception The first exception thrown by {@code consumer}, once every index has been processed.
+     */
+    public static void forEachIndexBlocking(
+        final int count, final int maxThreads, final ThrowingConsumer<Integer, Exception> consumer,
+        final IntConsumer onProgress) throws Exception
+    {
+        if (count <= 0)
+        {
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(maxThreads, count)),
+            (runnable) ->
+            {
+                final Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        try
+        {
+            final ExecutorCompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < count; ++i)
+            {
+                final int index = i;
+                completionService.submit(() ->
+                {
+                    consumer.accept(index);
+                    return null;
+                });
+            }
+
+            Throwable firstException = null;
+            for (int i = 1; i <= count; ++i)
+            {
+                try
+                {
+                    completionService.take().get();
+                }
+                catch (final ExecutionException e)
+                {
+                    if (firstException == null) firstException = e.getCause();
+                }
+
+                if (onProgress != null) onProgress.accept(i);
+            }
+
+            if (firstException instanceof Exception exception) throw exception;
+            if (firstException instanceof Error error) throw error;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    //////////////////////////
+    // Private Constructors //
+    //////////////////////////
+
+    private ParallelUtil() {}
+
+    ////////////////////
+    // Public Classes //
+    ////////////////////
+
+    public interface RangeConsumer
+    {
+        void accept(int start, int end) throws Exception;
+    }
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    private static class WrappedException extends RuntimeException
+    {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public WrappedException(final Exception cause)
+        {
+            super(cause);
+        }
+    }
+}
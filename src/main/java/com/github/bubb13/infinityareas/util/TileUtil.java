@@ -1,6 +1,8 @@
 
 package com.github.bubb13.infinityareas.util;
 
+import com.github.bubb13.infinityareas.misc.TileView;
+
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.PrintWriter;
@@ -37,6 +39,11 @@ public final class TileUtil
         }
     }
 
+    public static void copyTo(final int dstPitch, final int dstOffset, final TileView src, final int[] dst)
+    {
+        src.copyTo(dst, dstOffset, dstPitch);
+    }
+
     public static void copyStenciledTo(
         // miscellaneous dimensions
         final int tileSideLength, final int dstPitch, final int dstOffset,
@@ -115,6 +122,11 @@ public final class TileUtil
         drawTileData(graphics, tileSideLength, tileData.array(), x, y);
     }
 
+    public static void drawTileData(final Graphics2D graphics, final TileView tileData, final int x, final int y)
+    {
+        graphics.drawImage(ImageUtil.wrapArgb(tileData), x, y, null);
+    }
+
     public static void drawClassicStenciledTo(
         // miscellaneous dimensions
         final int tileSideLength, final int x, final int y,
@@ -150,8 +162,8 @@ public final class TileUtil
         {
             for (int xCounter = 0; xCounter < tileSideLength; ++xCounter, ++curPalettedIndex, ++curDstIndex)
             {
-                int color = multAlpha(tileData[curPalettedIndex], dwAlpha);
-                color = blend_srcAlpha_OneMinusSrcAlpha(color, dst[curDstIndex]);
+                int color = DrawUtil.multAlpha(tileData[curPalettedIndex], dwAlpha);
+                color = DrawUtil.blend_srcAlpha_OneMinusSrcAlpha(color, dst[curDstIndex]);
                 if (debugWriter != null)
                 {
                     debugWriter.printf("final color: 0x%X\n", color);
@@ -178,44 +190,6 @@ public final class TileUtil
         drawTileData(image.createGraphics(), tileSideLength, realized, x, y);
     }
 
-    private static int blend_srcAlpha_OneMinusSrcAlpha(final int src, final int dst)
-    {
-        final short srcA = (short)((src >>> 24) & 0xFF);
-        final short srcR = (short)((src >>> 16) & 0xFF);
-        final short srcG = (short)((src >>> 8) & 0xFF);
-        final short srcB = (short)(src & 0xFF);
-
-        final short dstA = (short)((dst >>> 24) & 0xFF);
-        final short dstR = (short)((dst >>> 16) & 0xFF);
-        final short dstG = (short)((dst >>> 8) & 0xFF);
-        final short dstB = (short)(dst & 0xFF);
-
-        final double srcFactor = (double)srcA / 255;
-        final double dstFactor = 1 - (double)srcA / 255;
-        final byte finA = (byte)(srcFactor * srcA + dstFactor * dstA);
-        final byte finR = (byte)(srcFactor * srcR + dstFactor * dstR);
-        final byte finG = (byte)(srcFactor * srcG + dstFactor * dstG);
-        final byte finB = (byte)(srcFactor * srcB + dstFactor * dstB);
-
-        return MiscUtil.packBytesIntoInt(finA, finR, finG, finB);
-    }
-
-    private static int multAlpha(final int src, final int alpha)
-    {
-        final short srcA = (short)((src >>> 24) & 0xFF);
-        final short srcR = (short)((src >>> 16) & 0xFF);
-        final short srcG = (short)((src >>> 8) & 0xFF);
-        final short srcB = (short)(src & 0xFF);
-
-        final double srcFactor = (double)((alpha >>> 24) & 0xFF) / 255;
-        final byte finA = (byte)(srcFactor * srcA);
-        final byte finR = (byte)(srcFactor * srcR);
-        final byte finG = (byte)(srcFactor * srcG);
-        final byte finB = (byte)(srcFactor * srcB);
-
-        return MiscUtil.packBytesIntoInt(finA, finR, finG, finB);
-    }
-
     public static void drawAlphaTo(
         // miscellaneous dimensions
         final int tileSideLength, final int x, final int y,
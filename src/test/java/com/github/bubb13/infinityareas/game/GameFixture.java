@@ -0,0 +1,274 @@
+
+package com.github.bubb13.infinityareas.game;
+
+import com.github.bubb13.infinityareas.GlobalState;
+import com.github.bubb13.infinityareas.game.resource.KeyFile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+/**
+ * Builds minimal game folders on disk for tests.
+ */
+public final class GameFixture
+{
+    ///////////////////////////
+    // Public Static Methods //
+    ///////////////////////////
+
+    /**
+     * Creates a game of {@code type} in {@code root} that has no bifs, only the given override files, and makes it
+     * the current game.
+     *
+     * @param type {@link Game.Type#BGEE} or {@link Game.Type#SOA}.
+     * @param overrideFiles Alternating file names and file contents.
+     */
+    public static Game load(final Path root, final Game.Type type, final Object... overrideFiles) throws Exception
+    {
+        final Path overridePath = root.resolve("override");
+        Files.createDirectories(overridePath);
+
+        // The engine type is detected from the presence of certain areas
+        final String engineAreaFileName = switch (type)
+        {
+            case BGEE -> "OH1000.ARE";
+            case SOA -> "AR0083.ARE";
+            default -> throw new IllegalArgumentException("Unsupported game type: " + type);
+        };
+
+        Files.write(overridePath.resolve(engineAreaFileName), new byte[0]);
+
+        if (type == Game.Type.SOA)
+        {
+            // Classic games find their folders through the ini's aliases; an empty section falls back to the root
+            Files.writeString(root.resolve("baldur.ini"), "[Alias]\n");
+        }
+
+        for (int i = 0; i < overrideFiles.length; i += 2)
+        {
+            Files.write(overridePath.resolve((String)overrideFiles[i]), (byte[])overrideFiles[i + 1]);
+        }
+
+        writeEmptyKeyFile(root.resolve("chitin.key"));
+        return load(root.resolve("chitin.key"));
+    }
+
+    public static Game load(final Path keyFilePath) throws Exception
+    {
+        Game.setStartupSnapshotEnabled(false);
+
+        final KeyFile keyFile = new KeyFile(keyFilePath);
+        keyFile.load();
+
+        final Game game = new Game(keyFile);
+        game.load();
+        GlobalState.setGame(game);
+        return game;
+    }
+
+    public static void writeEmptyKeyFile(final Path path) throws Exception
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(0x18).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("KEY V1  ".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(0).putInt(0).putInt(0x18).putInt(0x18);
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * @return A WED of five overlays that use "WT0001.TIS", which has {@code numTiles} tiles. The base overlay has
+     *         tiles with random animation, alternate tiles, and overlay / render flags, and the other overlays are
+     *         single tiles drawn over it.
+     */
+    public static byte[] createWED(
+        final int widthInTiles, final int heightInTiles, final int numTiles, final Random random)
+    {
+        final int numOverlays = 5;
+        final int numBaseTiles = widthInTiles * heightInTiles;
+        final int overlaysOffset = 0x20;
+        final int secondaryHeaderOffset = overlaysOffset + numOverlays * 0x18;
+        final int tilemapOffset = 0x200;
+        final int lookupOffset = tilemapOffset + numBaseTiles * 0xA;
+        // Zeroed space that serves as empty door, polygon, and wall group tables
+        final int emptyOffset = lookupOffset + numBaseTiles * 3 * 2;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(emptyOffset + 0x400).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("WED V1.3".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(numOverlays).putInt(0).putInt(overlaysOffset).putInt(secondaryHeaderOffset)
+            .putInt(emptyOffset).putInt(emptyOffset);
+
+        for (int overlayIndex = 0; overlayIndex < numOverlays; ++overlayIndex)
+        {
+            final boolean isBase = overlayIndex == 0;
+            buffer.position(overlaysOffset + overlayIndex * 0x18);
+            buffer.putShort((short)(isBase ? widthInTiles : 1)).putShort((short)(isBase ? heightInTiles : 1));
+            buffer.put("WT0001\0\0".getBytes(StandardCharsets.US_ASCII));
+            buffer.putShort((short)0).putShort((short)(overlayIndex == 3 ? 1 : 0));
+            buffer.putInt(tilemapOffset).putInt(lookupOffset);
+        }
+
+        // No polygons or wall groups
+        buffer.position(secondaryHeaderOffset);
+        buffer.putInt(0).putInt(emptyOffset).putInt(emptyOffset).putInt(emptyOffset).putInt(emptyOffset);
+
+        buffer.position(tilemapOffset);
+        for (int i = 0; i < numBaseTiles; ++i)
+        {
+            final int numAnimationTiles = 1 + random.nextInt(3);
+            final int alternateTile = random.nextInt(5) == 0 ? -1 : random.nextInt(numTiles);
+            buffer.putShort((short)(i * 3)).putShort((short)numAnimationTiles).putShort((short)alternateTile);
+            buffer.put((byte)random.nextInt(256)).put((byte)random.nextInt(4)).putShort((short)random.nextInt(4));
+        }
+
+        for (int i = 0; i < numBaseTiles * 3; ++i)
+        {
+            buffer.putShort((short)random.nextInt(numTiles));
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * @return A paletted TIS file of 64x64 tiles, each with a random palette and random palette indices.
+     */
+    public static byte[] createPalettedTIS(final int numTiles, final Random random)
+    {
+        final int tileSize = 256 * 4 + 64 * 64;
+        final ByteBuffer buffer = ByteBuffer.allocate(0x18 + numTiles * tileSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("TIS V1  ".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(numTiles).putInt(tileSize).putInt(0x18).putInt(64);
+
+        final byte[] tileData = new byte[numTiles * tileSize];
+        random.nextBytes(tileData);
+        buffer.put(tileData);
+
+        return buffer.array();
+    }
+
+    /**
+     * @return A PVRZ file holding a {@code width} x {@code height} BC1 texture made of random blocks.
+     */
+    public static byte[] createPVRZ(final int width, final int height, final Random random)
+    {
+        final int pixelDataSize = (width / 4) * (height / 4) * 8;
+        final ByteBuffer pvr = ByteBuffer.allocate(0x34 + pixelDataSize).order(ByteOrder.LITTLE_ENDIAN);
+        pvr.putInt(0x3525650).putInt(0).putLong(7).putInt(0).putInt(0);
+        pvr.putInt(height).putInt(width).putInt(1).putInt(1).putInt(1).putInt(1).putInt(0);
+
+        final byte[] pixelData = new byte[pixelDataSize];
+        random.nextBytes(pixelData);
+        pvr.put(pixelData);
+
+        final Deflater deflater = new Deflater();
+        deflater.setInput(pvr.array());
+        deflater.finish();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(pvr.capacity()).array());
+
+        final byte[] deflated = new byte[8192];
+        while (!deflater.finished())
+        {
+            out.write(deflated, 0, deflater.deflate(deflated));
+        }
+        deflater.end();
+
+        return out.toByteArray();
+    }
+
+    /**
+     * @return A PVRZ-based TIS file whose tiles are the 64x64 cells of {@code numPages} 256x256 pages, in order,
+     *         followed by one tile that isn't backed by a page (drawn as black).
+     */
+    public static byte[] createPVRZTIS(final int numPages)
+    {
+        final int numTiles = numPages * 16 + 1;
+        final ByteBuffer buffer = ByteBuffer.allocate(0x18 + numTiles * 0xC).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("TIS V1  ".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(numTiles).putInt(0xC).putInt(0x18).putInt(64);
+
+        for (int page = 0; page < numPages; ++page)
+        {
+            for (int tile = 0; tile < 16; ++tile)
+            {
+                buffer.putInt(page).putInt((tile % 4) * 64).putInt((tile / 4) * 64);
+            }
+        }
+
+        buffer.putInt(-1).putInt(0).putInt(0);
+        return buffer.array();
+    }
+
+    /**
+     * @return An uncompressed bif holding {@code resources} at resource indices 0, 1, ..., followed by one tileset
+     *         at tileset index 1 made of {@code tileset}.
+     */
+    public static byte[] createBIFF(final byte[][] resources, final byte[] tileset, final int tileSize)
+    {
+        final int fileEntriesOffset = 0x14;
+        final int tilesetEntriesOffset = fileEntriesOffset + resources.length * 0x10;
+        int dataOffset = tilesetEntriesOffset + 0x14;
+
+        int dataSize = tileset.length;
+        for (final byte[] resource : resources)
+        {
+            dataSize += resource.length;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(dataOffset + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("BIFFV1  ".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(resources.length).putInt(1).putInt(fileEntriesOffset);
+
+        for (int i = 0; i < resources.length; ++i)
+        {
+            buffer.putInt(i).putInt(dataOffset).putInt(resources[i].length).putShort((short)0x3F2).putShort((short)0);
+            buffer.put(dataOffset, resources[i]);
+            dataOffset += resources[i].length;
+        }
+
+        buffer.putInt(1 << 14).putInt(dataOffset).putInt(tileset.length / tileSize).putInt(tileSize)
+            .putShort((short)0x3EB).putShort((short)0);
+        buffer.put(dataOffset, tileset);
+
+        return buffer.array();
+    }
+
+    /**
+     * @return A BIFC holding {@code biff}, compressed as blocks of {@code blockSize} decompressed bytes.
+     */
+    public static byte[] createBIFC(final byte[] biff, final int blockSize)
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes("BIFCV1.0".getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(biff.length).array());
+
+        final byte[] deflated = new byte[blockSize * 2 + 64];
+        for (int offset = 0; offset < biff.length; offset += blockSize)
+        {
+            final int size = Math.min(blockSize, biff.length - offset);
+
+            final Deflater deflater = new Deflater();
+            deflater.setInput(biff, offset, size);
+            deflater.finish();
+            final int deflatedSize = deflater.deflate(deflated);
+            deflater.end();
+
+            out.writeBytes(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(size).putInt(deflatedSize).array());
+            out.write(deflated, 0, deflatedSize);
+        }
+
+        return out.toByteArray();
+    }
+
+    //////////////////////////
+    // Private Constructors //
+    //////////////////////////
+
+    private GameFixture() {}
+}
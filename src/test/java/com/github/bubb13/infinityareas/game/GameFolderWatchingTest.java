@@ -0,0 +1,150 @@
+
+package com.github.bubb13.infinityareas.game;
+
+import com.github.bubb13.infinityareas.game.resource.KeyFile;
+import com.github.bubb13.infinityareas.game.resource.ResourceIdentifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GameFolderWatchingTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final ResourceIdentifier AREA_IDENTIFIER
+        = new ResourceIdentifier("AR1000", KeyFile.NumericResourceType.ARE);
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path gameRoot;
+    private Game game;
+    private final LinkedBlockingQueue<Game.ResourceChange> changes = new LinkedBlockingQueue<>();
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @AfterEach
+    public void stopWatching()
+    {
+        if (game != null)
+        {
+            game.stopWatching();
+        }
+    }
+
+    @Test
+    public void externalChangesAreApplied() throws Exception
+    {
+        startWatching();
+
+        Files.write(gameRoot.resolve("override").resolve("AR1000.ARE"), new byte[] { 1 });
+
+        final Game.ResourceChange change = awaitChange();
+        assertEquals(Game.ResourceChangeType.ADDED, change.type());
+        assertFalse(change.ownWrite());
+
+        final Game.Resource resource = game.getResource(AREA_IDENTIFIER);
+        assertNotNull(resource);
+        assertInstanceOf(Game.LooseFileSource.class, resource.getPrimarySource());
+    }
+
+    @Test
+    public void ownWritesAreReportedAsSuch() throws Exception
+    {
+        startWatching();
+
+        final Path areaPath = gameRoot.resolve("override").resolve("AR1000.ARE");
+        game.writeFile(areaPath, new byte[] { 1 });
+
+        final Game.ResourceChange ownChange = awaitChange();
+        assertEquals(Game.ResourceChangeType.ADDED, ownChange.type());
+        assertTrue(ownChange.ownWrite());
+
+        // Overwriting the file from outside the application is an external change again
+        Files.write(areaPath, new byte[] { 1, 2 });
+
+        Game.ResourceChange externalChange;
+        do
+        {
+            externalChange = awaitChange();
+        }
+        while (externalChange.ownWrite());
+
+        assertEquals(Game.ResourceChangeType.MODIFIED, externalChange.type());
+    }
+
+    @Test
+    public void keyFileChangesAreReported() throws Exception
+    {
+        startWatching();
+
+        final CountDownLatch keyFileChanged = new CountDownLatch(1);
+        game.addKeyFileChangeListener(keyFileChanged::countDown);
+
+        Files.write(gameRoot.resolve("chitin.key"), new byte[4], StandardOpenOption.APPEND);
+
+        assertTrue(keyFileChanged.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failingListenerDoesntStopTheWatch() throws Exception
+    {
+        startWatching();
+
+        final AtomicBoolean failed = new AtomicBoolean();
+        game.addResourceChangeListener((ignored) ->
+        {
+            if (!failed.getAndSet(true))
+            {
+                throw new IllegalStateException("Listener failure");
+            }
+        });
+
+        final Path overridePath = gameRoot.resolve("override");
+        Files.write(overridePath.resolve("AR1000.ARE"), new byte[] { 1 });
+        assertEquals(AREA_IDENTIFIER, awaitChange().identifier());
+
+        Files.write(overridePath.resolve("AR1001.ARE"), new byte[] { 1 });
+        assertEquals(new ResourceIdentifier("AR1001", KeyFile.NumericResourceType.ARE), awaitChange().identifier());
+        assertTrue(failed.get());
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private void startWatching() throws Exception
+    {
+        game = GameFixture.load(gameRoot, Game.Type.BGEE);
+        game.addResourceChangeListener(changes::addAll);
+        game.startWatching();
+    }
+
+    private Game.ResourceChange awaitChange() throws Exception
+    {
+        final Game.ResourceChange change = changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(change, "No change was reported");
+        return change;
+    }
+}
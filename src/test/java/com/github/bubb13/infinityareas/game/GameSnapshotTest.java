@@ -0,0 +1,110 @@
+
+package com.github.bubb13.infinityareas.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GameSnapshotTest
+{
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path folder;
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @Test
+    public void snapshotRoundTrips() throws Exception
+    {
+        final GameSnapshot snapshot = createSnapshot(new byte[] { 1, 2, 3, 4 });
+        final Path path = folder.resolve("snapshot.bin");
+        snapshot.write(path);
+
+        final GameSnapshot readSnapshot = GameSnapshot.read(path);
+        assertNotNull(readSnapshot);
+
+        assertEquals(snapshot.keyPath(), readSnapshot.keyPath());
+        assertEquals(snapshot.keyStamp(), readSnapshot.keyStamp());
+        assertEquals(snapshot.engineType(), readSnapshot.engineType());
+        assertEquals(snapshot.iniPath(), readSnapshot.iniPath());
+        assertNull(readSnapshot.iniStamp());
+        assertEquals(snapshot.aliases(), readSnapshot.aliases());
+        assertEquals(Arrays.asList(snapshot.bifs()), Arrays.asList(readSnapshot.bifs()));
+        assertEquals(snapshot.overridePath(), readSnapshot.overridePath());
+        assertEquals(snapshot.overrideStamp(), readSnapshot.overrideStamp());
+        assertEquals(snapshot.looseFiles(), readSnapshot.looseFiles());
+    }
+
+    @Test
+    public void readSnapshotCanBeReplaced() throws Exception
+    {
+        final Path path = folder.resolve("snapshot.bin");
+        createSnapshot(new byte[] { 1 }).write(path);
+
+        // Reading must not keep the file open or mapped, or the replacement fails on Windows
+        final GameSnapshot readSnapshot = GameSnapshot.read(path);
+        assertNotNull(readSnapshot);
+        createSnapshot(new byte[] { 5, 6 }).write(path);
+
+        final ByteBuffer entries = GameSnapshot.read(path).bifs()[0].entries();
+        final byte[] entriesBytes = new byte[entries.remaining()];
+        entries.get(entriesBytes);
+        assertArrayEquals(new byte[] { 5, 6 }, entriesBytes);
+
+        assertFalse(Files.exists(folder.resolve("snapshot.bin.partial")));
+    }
+
+    @Test
+    public void missingOrCorruptSnapshotIsIgnored() throws Exception
+    {
+        final Path path = folder.resolve("snapshot.bin");
+        assertNull(GameSnapshot.read(path));
+
+        createSnapshot(new byte[] { 1 }).write(path);
+        final byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+        assertNull(GameSnapshot.read(path));
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private GameSnapshot createSnapshot(final byte[] bifEntries)
+    {
+        final GameSnapshot.BifRecord[] bifs = new GameSnapshot.BifRecord[]
+        {
+            new GameSnapshot.BifRecord("<game>", folder, folder.resolve("data").resolve("A.BIF"),
+                new GameSnapshot.FileStamp(123, 456), ByteBuffer.wrap(bifEntries)),
+            null,
+            new GameSnapshot.BifRecord("<game>", folder, folder.resolve("data").resolve("B.BIF"), null, null),
+        };
+
+        return new GameSnapshot(
+            folder.resolve("chitin.key"), new GameSnapshot.FileStamp(24, 1000),
+            Game.Type.BGEE,
+            folder.resolve("baldur.ini"), null,
+            List.of(List.of(folder), List.of(), List.of(folder.resolve("cd1"), folder.resolve("cd2"))),
+            bifs,
+            folder.resolve("override"), new GameSnapshot.FileStamp(0, 2000),
+            List.of(new GameSnapshot.LooseFileRecord("AR1000", (short)0x3F2, folder.resolve("override")
+                .resolve("AR1000.ARE")))
+        );
+    }
+}
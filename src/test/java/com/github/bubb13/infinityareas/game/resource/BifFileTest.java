@@ -0,0 +1,167 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import com.github.bubb13.infinityareas.game.GameFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BifFileTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final int TILE_SIZE = 0x100;
+    private static final int NUM_THREADS = 8;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path folder;
+    private final boolean originalMemoryMapped = BifFile.isMemoryMapped();
+    private final boolean originalRandomAccess = BifFile.isBIFCRandomAccess();
+    private final boolean originalCacheEnabled = DecompressedBifCache.isEnabled();
+
+    private final Random random = new Random(1234);
+    private final byte[][] resources = new byte[][]
+    {
+        randomBytes(10), randomBytes(0), randomBytes(700), randomBytes(3), randomBytes(2000)
+    };
+    private final byte[] tileset = randomBytes(TILE_SIZE * 5);
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @AfterEach
+    public void restoreSettings()
+    {
+        BifFile.setMemoryMapped(originalMemoryMapped);
+        BifFile.setBIFCRandomAccess(originalRandomAccess);
+        DecompressedBifCache.setEnabled(originalCacheEnabled);
+    }
+
+    @Test
+    public void mappedAndReadDataMatch() throws Exception
+    {
+        final Path path = Files.write(folder.resolve("A.BIF"), GameFixture.createBIFF(resources, tileset, TILE_SIZE));
+
+        for (final boolean memoryMapped : new boolean[] { true, false })
+        {
+            BifFile.setMemoryMapped(memoryMapped);
+            assertContents(new BifFile("<game>", folder, path));
+        }
+    }
+
+    @Test
+    public void bifcBlocksAreReadOnDemand() throws Exception
+    {
+        // The cache would otherwise be filled in the background, outside the test folder
+        DecompressedBifCache.setEnabled(false);
+        BifFile.setBIFCRandomAccess(true);
+
+        // Small blocks, so that most resources straddle several of them
+        final byte[] biff = GameFixture.createBIFF(resources, tileset, TILE_SIZE);
+        final Path path = Files.write(folder.resolve("A.CBF"), GameFixture.createBIFC(biff, 97));
+
+        assertContents(new BifFile("<game>", folder, path));
+    }
+
+    @Test
+    public void concurrentBIFCReadsMatch() throws Exception
+    {
+        DecompressedBifCache.setEnabled(false);
+        BifFile.setBIFCRandomAccess(true);
+
+        final byte[] biff = GameFixture.createBIFF(resources, tileset, TILE_SIZE);
+        final Path path = Files.write(folder.resolve("A.CBF"), GameFixture.createBIFC(biff, 97));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try
+        {
+            // A new bif every round, so that the threads race to inflate the same blocks
+            for (int round = 0; round < 20; ++round)
+            {
+                final BifFile bifFile = new BifFile("<game>", folder, path);
+                final ArrayList<Future<?>> futures = new ArrayList<>();
+
+                for (int i = 0; i < NUM_THREADS; ++i)
+                {
+                    futures.add(executor.submit(() ->
+                    {
+                        assertContents(bifFile);
+                        return null;
+                    }));
+                }
+
+                for (final Future<?> future : futures)
+                {
+                    future.get();
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void truncatedBIFCIsRejected() throws Exception
+    {
+        DecompressedBifCache.setEnabled(false);
+        BifFile.setBIFCRandomAccess(true);
+
+        final byte[] bifc = GameFixture.createBIFC(GameFixture.createBIFF(resources, tileset, TILE_SIZE), 97);
+        final Path path = Files.write(folder.resolve("A.CBF"), Arrays.copyOf(bifc, bifc.length / 2));
+
+        final BifFile bifFile = new BifFile("<game>", folder, path);
+        assertThrows(IllegalStateException.class, () -> bifFile.demandResourceData((short)0));
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private byte[] randomBytes(final int size)
+    {
+        final byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private void assertContents(final BifFile bifFile) throws Exception
+    {
+        // Out of order, so that reads don't just walk the file
+        for (final int i : new int[] { 4, 0, 2, 1, 3, 4 })
+        {
+            assertArrayEquals(resources[i], toArray(bifFile.demandResourceData((short)i)), "resource " + i);
+        }
+
+        final ByteBuffer tilesetData = bifFile.demandTilesetData((byte)1);
+        assertArrayEquals(tileset, Arrays.copyOfRange(toArray(tilesetData), TIS.HEADER_SIZE, tilesetData.limit()));
+    }
+
+    private static byte[] toArray(final ByteBuffer buffer)
+    {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,94 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import com.github.bubb13.infinityareas.GlobalState;
+import com.github.bubb13.infinityareas.game.Game;
+import com.github.bubb13.infinityareas.game.GameFixture;
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class DecodedResourceCacheTest
+{
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path gameRoot;
+    private final long originalMaxSize = DecodedResourceCache.getMaxSize();
+    private Game.ResourceSource source;
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @BeforeEach
+    public void loadGame() throws Exception
+    {
+        DecodedResourceCache.clear();
+        GameFixture.load(gameRoot, Game.Type.BGEE, "WT0001.TIS", GameFixture.createPalettedTIS(4, new Random(5)));
+        source = GlobalState.getGame().getResource(
+            new ResourceIdentifier("WT0001", KeyFile.NumericResourceType.TIS)).getPrimarySource();
+    }
+
+    @AfterEach
+    public void restoreCache()
+    {
+        DecodedResourceCache.setMaxSize(originalMaxSize);
+        DecodedResourceCache.clear();
+    }
+
+    @Test
+    public void decodedValuesAreShared() throws Exception
+    {
+        final TIS tis = DecodedResourceCache.demandTIS(TaskTracker.DUMMY, source);
+        assertSame(tis, DecodedResourceCache.demandTIS(TaskTracker.DUMMY, source));
+
+        final DecodedResourceCache.Stats stats = DecodedResourceCache.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.numEntries());
+        assertEquals(tis.getDecodedSize(), stats.residentBytes());
+    }
+
+    @Test
+    public void invalidatedValuesAreDecodedAgain() throws Exception
+    {
+        final TIS tis = DecodedResourceCache.demandTIS(TaskTracker.DUMMY, source);
+        DecodedResourceCache.invalidate(source.getIdentifier());
+
+        assertEquals(0, DecodedResourceCache.getStats().numEntries());
+        assertEquals(0, DecodedResourceCache.getStats().residentBytes());
+        assertNotSame(tis, DecodedResourceCache.demandTIS(TaskTracker.DUMMY, source));
+        assertEquals(2, DecodedResourceCache.getStats().misses());
+    }
+
+    @Test
+    public void evictedValuesStayWhileHeld() throws Exception
+    {
+        DecodedResourceCache.setMaxSize(1);
+
+        // Over budget on its own, so it is only weakly held by the cache
+        final TIS tis = DecodedResourceCache.demandTIS(TaskTracker.DUMMY, source);
+        DecodedResourceCache.Stats stats = DecodedResourceCache.getStats();
+        assertEquals(1, stats.evictions());
+        assertEquals(0, stats.residentBytes());
+        assertEquals(1, stats.numEntries());
+
+        // Still shared while this test holds it
+        assertSame(tis, DecodedResourceCache.demandTIS(TaskTracker.DUMMY, source));
+        stats = DecodedResourceCache.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+}
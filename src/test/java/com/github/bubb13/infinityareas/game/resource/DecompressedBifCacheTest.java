@@ -0,0 +1,203 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DecompressedBifCacheTest
+{
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path folder;
+    private final long originalMaxSize = DecompressedBifCache.getMaxSize();
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @AfterEach
+    public void restoreMaxSize()
+    {
+        DecompressedBifCache.setMaxSize(originalMaxSize);
+    }
+
+    @Test
+    public void partialFilesAreRemoved() throws Exception
+    {
+        final Path cacheRoot = createCacheRoot();
+        final Path dataPath = demand(cacheRoot, writeSource("A.CBF", 1), 1);
+        final Path partialPath = Files.createTempFile(cacheRoot, "interrupted", ".partial");
+
+        DecompressedBifCache.removePartialFiles(cacheRoot);
+
+        assertFalse(Files.exists(partialPath));
+        assertTrue(Files.exists(dataPath));
+    }
+
+    @Test
+    public void inUseEntriesArentReplaced() throws Exception
+    {
+        final Path cacheRoot = createCacheRoot();
+        final Path sourcePath = writeSource("A.CBF", 1);
+        final Path dataPath = demand(cacheRoot, sourcePath, 1);
+
+        final Object user = new Object();
+        DecompressedBifCache.addUser(dataPath, user);
+
+        // The source changed while the old copy is still in use, so the new copy is served from elsewhere
+        writeSource("A.CBF", 2);
+        final Path newDataPath = demand(cacheRoot, sourcePath, 2);
+        assertNotEquals(dataPath, newDataPath);
+        assertArrayEquals(new byte[] { 1 }, Files.readAllBytes(dataPath));
+        assertArrayEquals(new byte[] { 2, 2 }, Files.readAllBytes(newDataPath));
+
+        // Entries that aren't in use are replaced in place
+        final Path otherSourcePath = writeSource("B.CBF", 1);
+        final Path otherDataPath = demand(cacheRoot, otherSourcePath, 1);
+        writeSource("B.CBF", 2);
+        assertEquals(otherDataPath, demand(cacheRoot, otherSourcePath, 2));
+        assertArrayEquals(new byte[] { 2, 2 }, Files.readAllBytes(otherDataPath));
+
+        Reference.reachabilityFence(user);
+    }
+
+    @Test
+    public void inUseEntriesArentEvicted() throws Exception
+    {
+        DecompressedBifCache.setMaxSize(2);
+        final Path cacheRoot = createCacheRoot();
+
+        final Path inUsePath = demand(cacheRoot, writeSource("A.CBF", 1), 2);
+        final Object user = new Object();
+        DecompressedBifCache.addUser(inUsePath, user);
+
+        final Path evictedPath = demand(cacheRoot, writeSource("B.CBF", 1), 2);
+        assertTrue(Files.exists(inUsePath));
+        assertTrue(Files.exists(evictedPath));
+
+        demand(cacheRoot, writeSource("C.CBF", 1), 2);
+        assertTrue(Files.exists(inUsePath));
+        assertFalse(Files.exists(evictedPath));
+
+        // Evicted entries are removed entirely, instead of leaving their data behind
+        try (final var paths = Files.list(cacheRoot))
+        {
+            assertEquals(4, paths.count());
+        }
+
+        Reference.reachabilityFence(user);
+    }
+
+    @Test
+    public void concurrentDemandsDecompressOnce() throws Exception
+    {
+        final Path cacheRoot = createCacheRoot();
+        final Path sourcePath = writeSource("A.CBF", 1);
+
+        final AtomicInteger numDecompressions = new AtomicInteger();
+        final CountDownLatch decompressing = new CountDownLatch(1);
+        final CountDownLatch finishDecompressing = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            final Future<Path> first = executor.submit(() -> DecompressedBifCache.demand(cacheRoot, sourcePath,
+                (final Path outputPath) ->
+                {
+                    numDecompressions.incrementAndGet();
+                    decompressing.countDown();
+                    finishDecompressing.await();
+                    Files.write(outputPath, new byte[] { 1 });
+                }));
+
+            // Only demand again once the first decompression is underway
+            decompressing.await();
+            final Future<Path> second = executor.submit(() -> DecompressedBifCache.demand(cacheRoot, sourcePath,
+                (final Path outputPath) ->
+                {
+                    numDecompressions.incrementAndGet();
+                    Files.write(outputPath, new byte[] { 2 });
+                }));
+
+            // Give the second demand time to find the first one's decompression
+            Thread.sleep(100);
+            finishDecompressing.countDown();
+
+            assertEquals(first.get(), second.get());
+            assertArrayEquals(new byte[] { 1 }, Files.readAllBytes(first.get()));
+            assertEquals(1, numDecompressions.get());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failedDecompressionIsRetried() throws Exception
+    {
+        final Path cacheRoot = createCacheRoot();
+        final Path sourcePath = writeSource("A.CBF", 1);
+
+        assertThrows(IOException.class, () -> DecompressedBifCache.demand(cacheRoot, sourcePath,
+            (final Path outputPath) ->
+            {
+                throw new IOException("Decompression failure");
+            }));
+
+        assertArrayEquals(new byte[] { 1 }, Files.readAllBytes(demand(cacheRoot, sourcePath, 1)));
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private Path createCacheRoot() throws Exception
+    {
+        return Files.createDirectories(folder.resolve("cache"));
+    }
+
+    /**
+     * Writes a stand-in for a compressed bif. The cache only looks at its path, size, modification time, and
+     * header bytes.
+     */
+    private Path writeSource(final String fileName, final int size) throws Exception
+    {
+        return Files.write(folder.resolve(fileName), new byte[size]);
+    }
+
+    /**
+     * Demands {@code sourcePath}, "decompressing" it to {@code decompressedSize} bytes of value {@code
+     * decompressedSize}.
+     */
+    private static Path demand(
+        final Path cacheRoot, final Path sourcePath, final int decompressedSize) throws Exception
+    {
+        final byte[] decompressed = new byte[decompressedSize];
+        Arrays.fill(decompressed, (byte)decompressedSize);
+        return DecompressedBifCache.demand(cacheRoot, sourcePath,
+            (final Path outputPath) -> Files.write(outputPath, decompressed));
+    }
+}
@@ -0,0 +1,133 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PVRZTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final int OPAQUE_WHITE = 0xFFFFFFFF;
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @Test
+    public void firstBlockWithAllBitsSetEndpointsDecodesAsWhite()
+    {
+        // color0 = color1 = 0xFFFF, every texel using palette index 0
+        final byte[] blocks = new byte[8];
+        ByteBuffer.wrap(blocks).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 0xFFFFFFFF).putInt(4, 0);
+
+        final int[] dst = new int[16];
+        PVRZ.decompressBC1Blocks(blocks, 4, 4, dst);
+
+        for (int i = 0; i < dst.length; ++i)
+        {
+            assertEquals(OPAQUE_WHITE, dst[i], "texel " + i);
+        }
+    }
+
+    @Test
+    public void decodingMatchesReference()
+    {
+        final int w = 64;
+        final int h = 32;
+        final int numBlocks = (w / 4) * (h / 4);
+        final Random random = new Random(13);
+
+        final ByteBuffer blocks = ByteBuffer.allocate(numBlocks * 8).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < numBlocks; ++i)
+        {
+            // Mix in runs of repeated endpoints, including the all-bits-set pair
+            final int endpoints = switch (random.nextInt(4))
+            {
+                case 0 -> 0xFFFFFFFF;
+                case 1 -> i == 0 ? 0 : blocks.getInt((i - 1) * 8);
+                default -> random.nextInt();
+            };
+            blocks.putInt(i * 8, endpoints).putInt(i * 8 + 4, random.nextInt());
+        }
+
+        final int[] actual = new int[w * h];
+        PVRZ.decompressBC1Blocks(blocks.array(), w, h, actual);
+
+        assertArrayEquals(decodeReference(blocks, w, h), actual);
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    /**
+     * Decodes every block independently, rebuilding its palette each time.
+     */
+    private static int[] decodeReference(final ByteBuffer blocks, final int w, final int h)
+    {
+        final int[] result = new int[w * h];
+        final int numBlocksHorizontal = w / 4;
+
+        for (int blockY = 0; blockY < h / 4; ++blockY)
+        {
+            for (int blockX = 0; blockX < numBlocksHorizontal; ++blockX)
+            {
+                final int blockOffset = (blockY * numBlocksHorizontal + blockX) * 8;
+                final int color0 = blocks.getShort(blockOffset) & 0xFFFF;
+                final int color1 = blocks.getShort(blockOffset + 2) & 0xFFFF;
+                final int indices = blocks.getInt(blockOffset + 4);
+
+                final int[] c0 = expand565(color0);
+                final int[] c1 = expand565(color1);
+                final int[] palette = new int[4];
+                palette[0] = pack(c0[0], c0[1], c0[2]);
+                palette[1] = pack(c1[0], c1[1], c1[2]);
+
+                if (color0 > color1)
+                {
+                    palette[2] = pack((2 * c0[0] + c1[0] + 1) / 3, (2 * c0[1] + c1[1] + 1) / 3,
+                        (2 * c0[2] + c1[2] + 1) / 3);
+                    palette[3] = pack((c0[0] + 2 * c1[0] + 1) / 3, (c0[1] + 2 * c1[1] + 1) / 3,
+                        (c0[2] + 2 * c1[2] + 1) / 3);
+                }
+                else
+                {
+                    palette[2] = pack((c0[0] + c1[0] + 1) / 2, (c0[1] + c1[1] + 1) / 2, (c0[2] + c1[2] + 1) / 2);
+                    palette[3] = 0;
+                }
+
+                for (int texel = 0; texel < 16; ++texel)
+                {
+                    final int x = blockX * 4 + texel % 4;
+                    final int y = blockY * 4 + texel / 4;
+                    result[y * w + x] = palette[(indices >>> (texel * 2)) & 0x3];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static int[] expand565(final int color)
+    {
+        return new int[] {
+            (color >>> 11) * 255 / 31,
+            ((color >>> 5) & 0x3F) * 255 / 63,
+            (color & 0x1F) * 255 / 31
+        };
+    }
+
+    private static int pack(final int r, final int g, final int b)
+    {
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
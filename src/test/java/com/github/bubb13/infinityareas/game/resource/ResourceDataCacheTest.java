@@ -0,0 +1,145 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import com.github.bubb13.infinityareas.game.Game;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ResourceDataCacheTest
+{
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path folder;
+    private final long originalMaxSize = ResourceDataCache.getMaxSize();
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @BeforeEach
+    public void clearCache()
+    {
+        ResourceDataCache.clear();
+    }
+
+    @AfterEach
+    public void restoreCache()
+    {
+        ResourceDataCache.setMaxSize(originalMaxSize);
+        ResourceDataCache.clear();
+    }
+
+    @Test
+    public void changedLooseFilesAreReadAgain() throws Exception
+    {
+        final Path path = folder.resolve("AR1000.ARE");
+        Files.write(path, new byte[] { 1, 2 });
+        Files.setLastModifiedTime(path, FileTime.fromMillis(1_000_000));
+
+        final Game.LooseFileSource source = new Game.LooseFileSource(
+            new ResourceIdentifier("AR1000", KeyFile.NumericResourceType.ARE), path, "<game>", folder);
+
+        assertEquals(1, ResourceDataCache.demand(source).get(0));
+        assertEquals(1, ResourceDataCache.demand(source).get(0));
+
+        // Same size, different modification time
+        Files.write(path, new byte[] { 3, 4 });
+        Files.setLastModifiedTime(path, FileTime.fromMillis(2_000_000));
+        assertEquals(3, ResourceDataCache.demand(source).get(0));
+
+        // Same modification time, different size
+        Files.write(path, new byte[] { 5, 6, 7 });
+        Files.setLastModifiedTime(path, FileTime.fromMillis(2_000_000));
+        assertEquals(5, ResourceDataCache.demand(source).get(0));
+
+        final ResourceDataCache.Stats stats = ResourceDataCache.getStats();
+        assertEquals(1, stats.hits());
+        assertEquals(3, stats.misses());
+        assertEquals(1, stats.numEntries());
+        assertEquals(3, stats.residentBytes());
+    }
+
+    @Test
+    public void onlyHeapCopiesCountAgainstTheBudget() throws Exception
+    {
+        ResourceDataCache.setMaxSize(100);
+
+        final CountingSource mappedSource = new CountingSource("MAPPED", ByteBuffer.allocateDirect(1000));
+        final CountingSource heapSource = new CountingSource("HEAP", ByteBuffer.allocate(60));
+
+        ResourceDataCache.demand(mappedSource);
+        ResourceDataCache.demand(heapSource);
+        ResourceDataCache.demand(mappedSource);
+        ResourceDataCache.demand(heapSource);
+
+        // The direct buffer is larger than the whole budget, but neither entry had to be evicted
+        assertEquals(1, mappedSource.numReads.get());
+        assertEquals(1, heapSource.numReads.get());
+
+        final ResourceDataCache.Stats stats = ResourceDataCache.getStats();
+        assertEquals(60, stats.residentBytes());
+        assertEquals(1000, stats.mappedBytes());
+        assertEquals(0, stats.evictions());
+
+        // A second heap copy exceeds the budget, and evicts the least recently used entries
+        ResourceDataCache.demand(new CountingSource("HEAP2", ByteBuffer.allocate(60)));
+        assertEquals(60, ResourceDataCache.getStats().residentBytes());
+        assertEquals(2, ResourceDataCache.getStats().evictions());
+    }
+
+    @Test
+    public void clearResetsStats() throws Exception
+    {
+        ResourceDataCache.setMaxSize(100);
+
+        final CountingSource source = new CountingSource("HEAP", ByteBuffer.allocate(60));
+        ResourceDataCache.demand(source);
+        ResourceDataCache.demand(source);
+        ResourceDataCache.demand(new CountingSource("HEAP2", ByteBuffer.allocate(60)));
+
+        ResourceDataCache.clear();
+        assertEquals(new ResourceDataCache.Stats(0, 0, 0, 0, 0, 0, 100), ResourceDataCache.getStats());
+    }
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    private static class CountingSource extends Game.ResourceSource
+    {
+        private final ByteBuffer data;
+        private final AtomicInteger numReads = new AtomicInteger();
+
+        public CountingSource(final String resref, final ByteBuffer data)
+        {
+            super(new ResourceIdentifier(resref, KeyFile.NumericResourceType.ARE), Game.ResourceSourceType.BIF);
+            this.data = data;
+        }
+
+        @Override
+        public ByteBuffer demandFileData()
+        {
+            numReads.incrementAndGet();
+            return data;
+        }
+
+        @Override
+        public String getRelativePathStr()
+        {
+            return getIdentifier().resref();
+        }
+    }
+}
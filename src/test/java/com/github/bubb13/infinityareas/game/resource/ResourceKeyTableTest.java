@@ -0,0 +1,265 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Checks the table against the {@link TreeMap} it replaced.
+ */
+public class ResourceKeyTableTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final short[] NUMERIC_TYPES = new short[] { 0x3EB, 0x3EC, 0x3F2, 0x3F4 };
+    private static final String RESREF_CHARACTERS = "ABZaz09_#-";
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path folder;
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @Test
+    public void matchesTreeMap()
+    {
+        final Random random = new Random(1234);
+        final ResourceKeyTable table = new ResourceKeyTable();
+        final TreeMap<ResourceIdentifier, Integer> reference = new TreeMap<>();
+
+        // Enough keys to grow the table several times, and plenty of duplicates
+        for (int i = 0; i < 20000; ++i)
+        {
+            final String resref = randomResref(random);
+            final short numericType = NUMERIC_TYPES[random.nextInt(NUMERIC_TYPES.length)];
+
+            final int index = table.add(resref, numericType);
+            final Integer previousIndex = reference.putIfAbsent(new ResourceIdentifier(resref, numericType), index);
+            if (previousIndex != null)
+            {
+                assertEquals((int)previousIndex, index, resref);
+            }
+
+            if (i == 10000)
+            {
+                // Builds the sorted views, which the remaining additions must invalidate
+                table.sortedIndicesOfType(NUMERIC_TYPES[2]);
+            }
+        }
+
+        assertEquals(reference.size(), table.size());
+
+        for (final Map.Entry<ResourceIdentifier, Integer> entry : reference.entrySet())
+        {
+            final ResourceIdentifier identifier = entry.getKey();
+            final int index = entry.getValue();
+
+            assertEquals(index, table.find(identifier));
+            assertEquals(index, table.find(identifier.resref().toLowerCase(), identifier.numericType()));
+            assertEquals(identifier, table.getIdentifier(index));
+        }
+
+        assertEquals(ResourceKeyTable.NOT_FOUND, table.find("NOTADDED", NUMERIC_TYPES[0]));
+        assertEquals(ResourceKeyTable.NOT_FOUND, table.find("NOT-ADDED-EITHER", NUMERIC_TYPES[0]));
+
+        // Sorted views match the map's order
+        assertEquals(new ArrayList<>(reference.values()), toList(table.sortedIndices()));
+
+        final short numericType = NUMERIC_TYPES[2];
+        final List<Integer> indicesOfType = reference.entrySet().stream()
+            .filter((entry) -> entry.getKey().numericType() == numericType)
+            .map(Map.Entry::getValue)
+            .toList();
+        assertEquals(indicesOfType, toList(table.sortedIndicesOfType(numericType)));
+    }
+
+    @Test
+    public void typesAreDistinguished()
+    {
+        final ResourceKeyTable table = new ResourceKeyTable();
+
+        // Every resref with every type, so that keys sharing a resref often share a probe sequence
+        for (int i = 0; i < 3000; ++i)
+        {
+            for (final short numericType : NUMERIC_TYPES)
+            {
+                table.add("R" + i, numericType);
+            }
+        }
+
+        assertEquals(3000 * NUMERIC_TYPES.length, table.size());
+        for (int i = 0; i < 3000; ++i)
+        {
+            for (final short numericType : NUMERIC_TYPES)
+            {
+                final int index = table.find("R" + i, numericType);
+                assertEquals(new ResourceIdentifier("R" + i, numericType), table.getIdentifier(index));
+            }
+        }
+    }
+
+    @Test
+    public void extensionsKeepBaseIndices()
+    {
+        final ResourceKeyTable base = new ResourceKeyTable();
+        final TreeMap<ResourceIdentifier, Integer> reference = new TreeMap<>();
+
+        for (final String resref : new String[] { "AR1000", "AR1000LONGNAME", "wt0001", "\u00C9T\u00C9" })
+        {
+            reference.put(new ResourceIdentifier(resref, NUMERIC_TYPES[0]), base.add(resref, NUMERIC_TYPES[0]));
+        }
+
+        final ResourceKeyTable extension = new ResourceKeyTable(base);
+        assertEquals(base.size(), extension.size());
+
+        // Keys of the base are found rather than added again, packable or not
+        assertEquals((int)reference.get(new ResourceIdentifier("AR1000", NUMERIC_TYPES[0])),
+            extension.add("ar1000", NUMERIC_TYPES[0]));
+        assertEquals((int)reference.get(new ResourceIdentifier("AR1000LONGNAME", NUMERIC_TYPES[0])),
+            extension.add("AR1000LONGNAME", NUMERIC_TYPES[0]));
+
+        // Enough keys to grow the extension, indexed after the base's keys
+        for (int i = 0; i < 3000; ++i)
+        {
+            final String resref = i % 1000 == 0 ? "EXTENSION" + i : "E" + i;
+            final int index = extension.add(resref, NUMERIC_TYPES[1]);
+            assertEquals(base.size() + i, index);
+            reference.put(new ResourceIdentifier(resref, NUMERIC_TYPES[1]), index);
+        }
+
+        assertEquals(reference.size(), extension.size());
+        reference.forEach((identifier, index) ->
+        {
+            assertEquals((int)index, extension.find(identifier));
+            assertEquals(identifier, extension.getIdentifier(index));
+        });
+        assertEquals(new ArrayList<>(reference.values()), toList(extension.sortedIndices()));
+
+        // The base is untouched
+        assertEquals(4, base.size());
+        assertEquals(ResourceKeyTable.NOT_FOUND, base.find("E1", NUMERIC_TYPES[1]));
+
+        extension.clear();
+        assertEquals(base.size(), extension.size());
+        assertEquals(ResourceKeyTable.NOT_FOUND, extension.find("E1", NUMERIC_TYPES[1]));
+        assertEquals(ResourceKeyTable.NOT_FOUND, extension.find("EXTENSION0", NUMERIC_TYPES[1]));
+        assertEquals((int)reference.get(new ResourceIdentifier("WT0001", NUMERIC_TYPES[0])),
+            extension.find("wt0001", NUMERIC_TYPES[0]));
+    }
+
+    @Test
+    public void keyFileResrefsFoldTheSameInAnyLocale() throws Exception
+    {
+        final Locale originalLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+
+        try
+        {
+            // "i" uppercases to a dotted capital I in Turkish
+            final Path keyPath = folder.resolve("chitin.key");
+            Files.write(keyPath, createKeyFile("wti", "wt\u00E9i"));
+
+            final KeyFile keyFile = new KeyFile(keyPath);
+            keyFile.load();
+            final ResourceKeyTable table = keyFile.getKeyTable();
+
+            for (final String resref : new String[] { "wti", "WTI", "wt\u00E9i", "WT\u00C9I" })
+            {
+                final ResourceIdentifier identifier = new ResourceIdentifier(resref, NUMERIC_TYPES[0]);
+                assertEquals(identifier.resref(), table.getIdentifier(table.find(identifier)).resref(), resref);
+                assertEquals(table.find(identifier), table.find(resref, NUMERIC_TYPES[0]), resref);
+                assertNotNull(keyFile.getFileEntry(resref, NUMERIC_TYPES[0]), resref);
+            }
+
+            assertEquals(table.find("WTI", NUMERIC_TYPES[0]),
+                table.find(ResourceIdentifier.packResref("wti"), NUMERIC_TYPES[0]));
+            assertEquals("WTI", ResourceIdentifier.unpackResref(ResourceIdentifier.packResref("wti")));
+        }
+        finally
+        {
+            Locale.setDefault(originalLocale);
+        }
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    /**
+     * @return A resref of 1 to 10 characters, so that some can't be packed, occasionally with a non-ASCII character.
+     */
+    private static String randomResref(final Random random)
+    {
+        final StringBuilder builder = new StringBuilder();
+        final int length = 1 + random.nextInt(random.nextInt(20) == 0 ? 10 : 4);
+
+        for (int i = 0; i < length; ++i)
+        {
+            builder.append(random.nextInt(200) == 0
+                ? '\u00C9'
+                : RESREF_CHARACTERS.charAt(random.nextInt(RESREF_CHARACTERS.length())));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return A key file with one bif, which holds a resource of {@code NUMERIC_TYPES[0]} for every resref.
+     */
+    private static byte[] createKeyFile(final String... resrefs)
+    {
+        final byte[] bifName = "data\\A.BIF\0".getBytes(StandardCharsets.US_ASCII);
+        final int bifEntriesOffset = 0x18;
+        final int bifNameOffset = bifEntriesOffset + 0xC;
+        final int resourceEntriesOffset = bifNameOffset + bifName.length;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(resourceEntriesOffset + resrefs.length * 0xE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.put("KEY V1  ".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(1).putInt(resrefs.length).putInt(bifEntriesOffset).putInt(resourceEntriesOffset);
+        buffer.putInt(0).putInt(bifNameOffset).putShort((short)bifName.length).putShort((short)1);
+        buffer.put(bifName);
+
+        for (int i = 0; i < resrefs.length; ++i)
+        {
+            final byte[] resref = Arrays.copyOf(resrefs[i].getBytes(StandardCharsets.UTF_8), 8);
+            buffer.put(resref).putShort(NUMERIC_TYPES[0]).putInt(i);
+        }
+
+        return buffer.array();
+    }
+
+    private static List<Integer> toList(final int[] values)
+    {
+        final ArrayList<Integer> list = new ArrayList<>(values.length);
+        for (final int value : values)
+        {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,124 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import com.github.bubb13.infinityareas.GlobalState;
+import com.github.bubb13.infinityareas.game.Game;
+import com.github.bubb13.infinityareas.game.GameFixture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TISTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    /** More tiles than are read by a single task, and than are kept expanded */
+    private static final int NUM_TILES = 300;
+    private static final int TILE_SIDE_LENGTH = 64;
+    private static final int NUM_PIXELS_IN_TILE = TILE_SIDE_LENGTH * TILE_SIDE_LENGTH;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path gameRoot;
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @Test
+    public void palettedTilesMatchReference() throws Exception
+    {
+        final byte[] tisBytes = GameFixture.createPalettedTIS(NUM_TILES, new Random(3));
+        final TIS tis = loadTIS(tisBytes);
+        final int[] copied = new int[NUM_PIXELS_IN_TILE];
+
+        assertEquals(NUM_TILES, tis.getNumTiles());
+
+        for (int i = 0; i < NUM_TILES; ++i)
+        {
+            final int[] reference = expandReference(tisBytes, i);
+
+            final IntBuffer expanded = tis.getPreRenderedTileData(i);
+            final int[] expandedPixels = new int[NUM_PIXELS_IN_TILE];
+            expanded.duplicate().get(expandedPixels);
+            assertArrayEquals(reference, expandedPixels, "tile " + i);
+
+            tis.copyTileTo(i, copied, 0, TILE_SIDE_LENGTH);
+            assertArrayEquals(reference, copied, "copied tile " + i);
+        }
+    }
+
+    @Test
+    public void expandedTilesAreCached() throws Exception
+    {
+        final TIS tis = loadTIS(GameFixture.createPalettedTIS(NUM_TILES, new Random(4)));
+
+        tis.getPreRenderedTileData(0);
+        tis.getPreRenderedTileData(0);
+        TIS.TileMemoryStats stats = tis.getTileMemoryStats();
+        assertEquals(1, stats.expandedTileMisses());
+        assertEquals(1, stats.expandedTileHits());
+        assertEquals(1, stats.numExpandedTilesCached());
+
+        // Copies bypass the cache
+        tis.copyTileTo(1, new int[NUM_PIXELS_IN_TILE], 0, TILE_SIDE_LENGTH);
+        assertEquals(stats, tis.getTileMemoryStats());
+
+        for (int i = 0; i < NUM_TILES; ++i)
+        {
+            tis.getPreRenderedTileData(i);
+        }
+
+        stats = tis.getTileMemoryStats();
+        assertEquals(NUM_TILES, stats.numEncodedTiles());
+        assertTrue(stats.numExpandedTilesCached() < NUM_TILES);
+        assertEquals((long)NUM_TILES * NUM_PIXELS_IN_TILE * Integer.BYTES, stats.expandedBytes());
+    }
+
+    /////////////////////
+    // Private Methods //
+    /////////////////////
+
+    private TIS loadTIS(final byte[] tisBytes) throws Exception
+    {
+        GameFixture.load(gameRoot, Game.Type.BGEE, "WT0001.TIS", tisBytes);
+
+        final TIS tis = new TIS(GlobalState.getGame().getResource(
+            new ResourceIdentifier("WT0001", KeyFile.NumericResourceType.TIS)).getPrimarySource());
+        tis.load();
+        return tis;
+    }
+
+    /**
+     * Looks up every pixel of the tile in its palette, with alpha forced to 255.
+     */
+    private static int[] expandReference(final byte[] tisBytes, final int tileIndex)
+    {
+        final int tileSize = 256 * 4 + NUM_PIXELS_IN_TILE;
+        final ByteBuffer tile = ByteBuffer.wrap(tisBytes, TIS.HEADER_SIZE + tileIndex * tileSize, tileSize)
+            .slice()
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+        final int[] pixels = new int[NUM_PIXELS_IN_TILE];
+        for (int i = 0; i < NUM_PIXELS_IN_TILE; ++i)
+        {
+            final int paletteIndex = tile.get(256 * 4 + i) & 0xFF;
+            pixels[i] = tile.getInt(paletteIndex * 4) | 0xFF000000;
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,119 @@
+
+package com.github.bubb13.infinityareas.game.resource;
+
+import com.github.bubb13.infinityareas.GlobalState;
+import com.github.bubb13.infinityareas.game.Game;
+import com.github.bubb13.infinityareas.game.GameFixture;
+import com.github.bubb13.infinityareas.misc.ImageAndGraphics;
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class WEDTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final int WIDTH_IN_TILES = 11;
+    private static final int HEIGHT_IN_TILES = 7;
+    private static final int NUM_PALETTED_TILES = 24;
+    private static final int NUM_PVRZ_PAGES = 2;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path gameRoot;
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @Test
+    public void directCompositingMatchesGraphics2DForPalettedTiles() throws Exception
+    {
+        final Random random = new Random(7);
+        GameFixture.load(gameRoot, Game.Type.BGEE,
+            "WT0001.WED", GameFixture.createWED(WIDTH_IN_TILES, HEIGHT_IN_TILES, NUM_PALETTED_TILES, random),
+            "WT0001.TIS", GameFixture.createPalettedTIS(NUM_PALETTED_TILES, random));
+
+        assertDirectCompositingMatchesGraphics2D();
+    }
+
+    @Test
+    public void directCompositingMatchesGraphics2DForClassicStencils() throws Exception
+    {
+        final Random random = new Random(8);
+        GameFixture.load(gameRoot, Game.Type.SOA,
+            "WT0001.WED", GameFixture.createWED(WIDTH_IN_TILES, HEIGHT_IN_TILES, NUM_PALETTED_TILES, random),
+            "WT0001.TIS", GameFixture.createPalettedTIS(NUM_PALETTED_TILES, random));
+
+        assertDirectCompositingMatchesGraphics2D();
+    }
+
+    @Test
+    public void directCompositingMatchesGraphics2DForPVRZTiles() throws Exception
+    {
+        final Random random = new Random(9);
+        GameFixture.load(gameRoot, Game.Type.BGEE,
+            "WT0001.WED", GameFixture.createWED(WIDTH_IN_TILES, HEIGHT_IN_TILES, NUM_PVRZ_PAGES * 16 + 1, random),
+            "WT0001.TIS", GameFixture.createPVRZTIS(NUM_PVRZ_PAGES),
+            "W000100.PVRZ", GameFixture.createPVRZ(256, 256, random),
+            "W000101.PVRZ", GameFixture.createPVRZ(256, 256, random));
+
+        assertDirectCompositingMatchesGraphics2D();
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    private static void assertDirectCompositingMatchesGraphics2D() throws Exception
+    {
+        final WED wed = new WED(GlobalState.getGame().getResource(
+            new ResourceIdentifier("WT0001", KeyFile.NumericResourceType.WED)).getPrimarySource());
+        wed.load();
+
+        final int width = WIDTH_IN_TILES * WED.TILE_SIDE_LENGTH;
+        final int height = HEIGHT_IN_TILES * WED.TILE_SIDE_LENGTH;
+        final BufferedImage direct = createImage(width, height, new Random(11));
+        final BufferedImage viaGraphics2D = createImage(width, height, new Random(11));
+
+        // A clip, even one covering the whole image, stops the overlays from being composited directly
+        final Graphics2D clippedGraphics = viaGraphics2D.createGraphics();
+        clippedGraphics.setClip(0, 0, width, height);
+
+        wed.newGraphics(new ImageAndGraphics(direct, direct.createGraphics()))
+            .renderOverlays(TaskTracker.DUMMY, 0, 1, 2, 3, 4);
+        wed.newGraphics(new ImageAndGraphics(viaGraphics2D, clippedGraphics))
+            .renderOverlays(TaskTracker.DUMMY, 0, 1, 2, 3, 4);
+
+        assertArrayEquals(getPixels(viaGraphics2D), getPixels(direct));
+    }
+
+    private static BufferedImage createImage(final int width, final int height, final Random random)
+    {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final int[] pixels = getPixels(image);
+        for (int i = 0; i < pixels.length; ++i)
+        {
+            pixels[i] = random.nextInt();
+        }
+        return image;
+    }
+
+    private static int[] getPixels(final BufferedImage image)
+    {
+        return ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,278 @@
+
+package com.github.bubb13.infinityareas.gui.region;
+
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkedImageScalerTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final int CHUNK_SIDE_LENGTH = 16;
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 70;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final ChunkRequestListener IGNORING_LISTENER = new ChunkRequestListener()
+    {
+        @Override
+        public void onChunkReady() {}
+
+        @Override
+        public void onChunkFailed(final Exception exception) {}
+    };
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    private final ChunkedImageScaler scaler = new ChunkedImageScaler();
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @AfterEach
+    public void cancelRequests()
+    {
+        // Requested chunks are kept in the cache that every source shares, so the next test must not inherit them
+        scaler.setSource(null);
+    }
+
+    @Test
+    public void scalingMatchesReference() throws Exception
+    {
+        final RandomSource source = new RandomSource();
+        final byte[] sourcePixels = readWhole(source);
+        scaler.setSource(source);
+
+        // Magnified, unscaled, and fractional factors, at offsets that start in the middle of a chunk
+        for (final double scaleFactor : new double[] { 1, 1.5, 2, 2.75, 7 })
+        {
+            final int srcX = (int)(19 * scaleFactor);
+            final int srcY = (int)(5 * scaleFactor);
+            final int dstW = (int)(WIDTH * scaleFactor) - srcX;
+            final int dstH = (int)(HEIGHT * scaleFactor) - srcY;
+
+            scaler.scale(srcX, srcY, dstW, dstH, scaleFactor, scaleFactor, IGNORING_LISTENER);
+            awaitRendererIdle();
+            scaler.scale(srcX, srcY, dstW, dstH, scaleFactor, scaleFactor, IGNORING_LISTENER);
+
+            assertArrayEquals(scaleReference(sourcePixels, WIDTH, srcX, srcY, dstW, dstH, scaleFactor),
+                Arrays.copyOf(scaler.getBuffer(), dstW * dstH * 4), "scale factor " + scaleFactor);
+        }
+    }
+
+    @Test
+    public void zoomingOutSamplesMipLevel() throws Exception
+    {
+        final byte[] mipLevel1Pixels = readWhole(new DownscaledChunkSource(new RandomSource()));
+        final RandomSource source = new RandomSource();
+        scaler.setSource(source);
+
+        // Between 1/4 and 1/2, so mip level 1 is sampled at twice the scale factor
+        final double scaleFactor = 0.3;
+        final int dstW = (int)(WIDTH * scaleFactor);
+        final int dstH = (int)(HEIGHT * scaleFactor);
+
+        // The mip level isn't built on the calling thread, so it is missing at first
+        source.blockRendering = new CountDownLatch(1);
+        try
+        {
+            scaler.scale(0, 0, dstW, dstH, scaleFactor, scaleFactor, IGNORING_LISTENER);
+            assertArrayEquals(new byte[dstW * dstH * 4], Arrays.copyOf(scaler.getBuffer(), dstW * dstH * 4));
+        }
+        finally
+        {
+            source.blockRendering.countDown();
+        }
+
+        awaitRendererIdle();
+        scaler.scale(0, 0, dstW, dstH, scaleFactor, scaleFactor, IGNORING_LISTENER);
+
+        assertArrayEquals(scaleReference(mipLevel1Pixels, (WIDTH + 1) / 2, 0, 0, dstW, dstH, scaleFactor * 2),
+            Arrays.copyOf(scaler.getBuffer(), dstW * dstH * 4));
+    }
+
+    @Test
+    public void coarserMipLevelStandsInForMissingChunks() throws Exception
+    {
+        final RandomSource source = new RandomSource();
+        final byte[] mipLevel1Pixels = readWhole(new DownscaledChunkSource(source));
+        scaler.setSource(source);
+
+        // Build mip level 1
+        scaler.scale(0, 0, WIDTH / 2, HEIGHT / 2, 0.5, 0.5, IGNORING_LISTENER);
+        awaitRendererIdle();
+
+        // Zoom back in while the full-sized chunks can't be rendered
+        source.clear();
+        source.blockRendering = new CountDownLatch(1);
+
+        try
+        {
+            scaler.scale(0, 0, WIDTH, HEIGHT, 1, 1, IGNORING_LISTENER);
+            assertArrayEquals(scaleReference(mipLevel1Pixels, (WIDTH + 1) / 2, 0, 0, WIDTH, HEIGHT, 2),
+                Arrays.copyOf(scaler.getBuffer(), WIDTH * HEIGHT * 4));
+        }
+        finally
+        {
+            source.blockRendering.countDown();
+        }
+    }
+
+    @Test
+    public void readyChunksAreReported() throws Exception
+    {
+        final RandomSource source = new RandomSource();
+        scaler.setSource(source);
+
+        final CountDownLatch ready = new CountDownLatch(1);
+        scaler.scale(0, 0, WIDTH, HEIGHT, 1, 1, new ChunkRequestListener()
+        {
+            @Override
+            public void onChunkReady()
+            {
+                ready.countDown();
+            }
+
+            @Override
+            public void onChunkFailed(final Exception exception) {}
+        });
+
+        assertTrue(ready.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    /**
+     * Waits for the background thread to finish whatever it was given before this call.
+     */
+    private static void awaitRendererIdle() throws Exception
+    {
+        final CountDownLatch ready = new CountDownLatch(1);
+        final RandomSource marker = new RandomSource();
+        marker.requestChunks(0, 0, 0, 0, new ChunkRequestListener()
+        {
+            @Override
+            public void onChunkReady()
+            {
+                ready.countDown();
+            }
+
+            @Override
+            public void onChunkFailed(final Exception exception) {}
+        });
+        assertTrue(ready.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        marker.cancelChunkRequests();
+    }
+
+    /**
+     * @return The pixels of the whole image, 4 bytes per pixel, without padding.
+     */
+    private static byte[] readWhole(final ChunkedImageSource source)
+    {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int chunkWidth = source.getChunkWidth();
+        final int chunkHeight = source.getChunkHeight();
+        final byte[] result = new byte[width * height * 4];
+
+        for (int y = 0; y < height; ++y)
+        {
+            for (int x = 0; x < width; ++x)
+            {
+                final byte[] chunk = source.getChunk(x / chunkWidth, y / chunkHeight);
+                final int chunkOffset = ((y % chunkHeight) * chunkWidth + x % chunkWidth) * 4;
+                System.arraycopy(chunk, chunkOffset, result, (y * width + x) * 4, 4);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Samples every destination pixel independently.
+     */
+    private static byte[] scaleReference(
+        final byte[] pixels, final int width,
+        final int srcX, final int srcY, final int dstW, final int dstH, final double scaleFactor)
+    {
+        final byte[] result = new byte[dstW * dstH * 4];
+
+        for (int y = 0; y < dstH; ++y)
+        {
+            final int curSrcY = (int)((srcY + y) / scaleFactor);
+            for (int x = 0; x < dstW; ++x)
+            {
+                final int curSrcX = (int)((srcX + x) / scaleFactor);
+                System.arraycopy(pixels, (curSrcY * width + curSrcX) * 4, result, (y * dstW + x) * 4, 4);
+            }
+        }
+
+        return result;
+    }
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    /**
+     * Renders each chunk as random bytes, seeded by the chunk's position, so that re-rendered chunks are identical.
+     */
+    private static class RandomSource extends RenderedChunkSource
+    {
+        private volatile CountDownLatch blockRendering;
+
+        @Override
+        public int getWidth()
+        {
+            return WIDTH;
+        }
+
+        @Override
+        public int getHeight()
+        {
+            return HEIGHT;
+        }
+
+        @Override
+        public int getChunkWidth()
+        {
+            return CHUNK_SIDE_LENGTH;
+        }
+
+        @Override
+        public int getChunkHeight()
+        {
+            return CHUNK_SIDE_LENGTH;
+        }
+
+        @Override
+        protected byte[] renderChunk(final TaskTrackerI tracker, final int chunkX, final int chunkY) throws Exception
+        {
+            final CountDownLatch blockRendering = this.blockRendering;
+            if (blockRendering != null)
+            {
+                blockRendering.await();
+            }
+
+            final byte[] chunk = new byte[CHUNK_SIDE_LENGTH * CHUNK_SIDE_LENGTH * 4];
+            new Random((long)chunkX << 32 | chunkY).nextBytes(chunk);
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+
+package com.github.bubb13.infinityareas.gui.region;
+
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DownscaledChunkSourceTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final int CHUNK_SIDE_LENGTH = 16;
+    private static final int CHUNK_SIZE = CHUNK_SIDE_LENGTH * CHUNK_SIDE_LENGTH * 4;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    private final long originalMaxCacheSize = RenderedChunkSource.getMaxCacheSize();
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @AfterEach
+    public void restoreMaxCacheSize()
+    {
+        RenderedChunkSource.setMaxCacheSize(originalMaxCacheSize);
+    }
+
+    @Test
+    public void levelsMatchReferenceBoxFilter()
+    {
+        // Odd sizes that aren't multiples of the chunk size exercise the clamped edges
+        ChunkedImageSource level = new RandomSource(53, 37);
+        byte[] expected = readWhole(level);
+        int width = level.getWidth();
+        int height = level.getHeight();
+
+        for (int mipLevel = 1; width > 1 || height > 1; ++mipLevel)
+        {
+            expected = downscaleReference(expected, width, height);
+            width = (width + 1) / 2;
+            height = (height + 1) / 2;
+            level = new DownscaledChunkSource(level);
+
+            assertEquals(width, level.getWidth());
+            assertEquals(height, level.getHeight());
+            assertArrayEquals(expected, readWhole(level), "mip level " + mipLevel);
+        }
+    }
+
+    @Test
+    public void levelsAreBuiltInTheBackground() throws Exception
+    {
+        final RandomSource source = new RandomSource(4 * CHUNK_SIDE_LENGTH, 4 * CHUNK_SIDE_LENGTH);
+        final DownscaledChunkSource mipLevel1 = new DownscaledChunkSource(source);
+        final DownscaledChunkSource mipLevel2 = new DownscaledChunkSource(mipLevel1);
+
+        final CountDownLatch ready = new CountDownLatch(1);
+        mipLevel2.requestChunks(0, 0, 0, 0, new ChunkRequestListener()
+        {
+            @Override
+            public void onChunkReady()
+            {
+                ready.countDown();
+            }
+
+            @Override
+            public void onChunkFailed(final Exception exception) {}
+        });
+
+        assertTrue(ready.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNotNull(mipLevel2.getChunkIfReady(0, 0));
+        assertEquals(Set.of("Chunk Renderer"), source.renderingThreadNames);
+        mipLevel2.cancelChunkRequests();
+    }
+
+    @Test
+    public void sourceChunksDontEvictRequestedMipChunks() throws Exception
+    {
+        // The shared cache only has room for a single chunk
+        RenderedChunkSource.setMaxCacheSize(CHUNK_SIZE);
+
+        final RandomSource source = new RandomSource(4 * CHUNK_SIDE_LENGTH, 4 * CHUNK_SIDE_LENGTH);
+        final DownscaledChunkSource mipLevel1 = new DownscaledChunkSource(source);
+
+        final CountDownLatch ready = new CountDownLatch(1);
+        mipLevel1.requestChunks(1, 1, 1, 1, new ChunkRequestListener()
+        {
+            @Override
+            public void onChunkReady()
+            {
+                ready.countDown();
+            }
+
+            @Override
+            public void onChunkFailed(final Exception exception) {}
+        });
+        assertTrue(ready.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        final byte[] mipChunk = mipLevel1.getChunkIfReady(1, 1);
+
+        for (int chunkY = 0; chunkY < 4; ++chunkY)
+        {
+            for (int chunkX = 0; chunkX < 4; ++chunkX)
+            {
+                source.getChunk(chunkX, chunkY);
+            }
+        }
+
+        assertSame(mipChunk, mipLevel1.getChunkIfReady(1, 1));
+        assertEquals(CHUNK_SIZE, source.getCachedBytes());
+        mipLevel1.cancelChunkRequests();
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    /**
+     * @return The pixels of the whole image, 4 bytes per pixel, without padding.
+     */
+    private static byte[] readWhole(final ChunkedImageSource source)
+    {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int chunkWidth = source.getChunkWidth();
+        final int chunkHeight = source.getChunkHeight();
+        final byte[] result = new byte[width * height * 4];
+
+        for (int y = 0; y < height; ++y)
+        {
+            for (int x = 0; x < width; ++x)
+            {
+                final byte[] chunk = source.getChunk(x / chunkWidth, y / chunkHeight);
+                final int chunkOffset = ((y % chunkHeight) * chunkWidth + x % chunkWidth) * 4;
+                System.arraycopy(chunk, chunkOffset, result, (y * width + x) * 4, 4);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Averages every 2x2 block of pixels, repeating the last column / row of an odd width / height.
+     */
+    private static byte[] downscaleReference(final byte[] pixels, final int width, final int height)
+    {
+        final int dstWidth = (width + 1) / 2;
+        final int dstHeight = (height + 1) / 2;
+        final byte[] result = new byte[dstWidth * dstHeight * 4];
+
+        for (int y = 0; y < dstHeight; ++y)
+        {
+            final int y0 = y * 2;
+            final int y1 = Math.min(y0 + 1, height - 1);
+
+            for (int x = 0; x < dstWidth; ++x)
+            {
+                final int x0 = x * 2;
+                final int x1 = Math.min(x0 + 1, width - 1);
+
+                for (int channel = 0; channel < 4; ++channel)
+                {
+                    final int sum = (pixels[(y0 * width + x0) * 4 + channel] & 0xFF)
+                        + (pixels[(y0 * width + x1) * 4 + channel] & 0xFF)
+                        + (pixels[(y1 * width + x0) * 4 + channel] & 0xFF)
+                        + (pixels[(y1 * width + x1) * 4 + channel] & 0xFF);
+
+                    result[(y * dstWidth + x) * 4 + channel] = (byte)Math.round(sum / 4.0);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    /**
+     * Renders each chunk as random bytes, seeded by the chunk's position, so that re-rendered chunks are identical.
+     */
+    private static class RandomSource extends RenderedChunkSource
+    {
+        private final int width;
+        private final int height;
+        private final Set<String> renderingThreadNames = ConcurrentHashMap.newKeySet();
+
+        public RandomSource(final int width, final int height)
+        {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int getWidth()
+        {
+            return width;
+        }
+
+        @Override
+        public int getHeight()
+        {
+            return height;
+        }
+
+        @Override
+        public int getChunkWidth()
+        {
+            return CHUNK_SIDE_LENGTH;
+        }
+
+        @Override
+        public int getChunkHeight()
+        {
+            return CHUNK_SIDE_LENGTH;
+        }
+
+        @Override
+        protected byte[] renderChunk(final TaskTrackerI tracker, final int chunkX, final int chunkY)
+        {
+            renderingThreadNames.add(Thread.currentThread().getName());
+
+            final byte[] chunk = new byte[CHUNK_SIZE];
+            new Random((long)chunkX << 32 | chunkY).nextBytes(chunk);
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+
+package com.github.bubb13.infinityareas.gui.region;
+
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTrackerI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RenderedChunkSourceTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    private static final int CHUNK_SIDE_LENGTH = 16;
+    private static final int CHUNK_SIZE = CHUNK_SIDE_LENGTH * CHUNK_SIDE_LENGTH * 4;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    private final long originalMaxCacheSize = RenderedChunkSource.getMaxCacheSize();
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @AfterEach
+    public void restoreMaxCacheSize()
+    {
+        RenderedChunkSource.setMaxCacheSize(originalMaxCacheSize);
+    }
+
+    @Test
+    public void requestedChunksAreRenderedInTheBackground() throws Exception
+    {
+        final TestSource source = new TestSource(4, 4);
+        final QueueListener listener = new QueueListener();
+
+        source.requestChunks(1, 1, 2, 2, listener);
+        listener.awaitReady(4);
+
+        for (int chunkY = 0; chunkY < 4; ++chunkY)
+        {
+            for (int chunkX = 0; chunkX < 4; ++chunkX)
+            {
+                final boolean requested = chunkX >= 1 && chunkX <= 2 && chunkY >= 1 && chunkY <= 2;
+                assertEquals(requested, source.getChunkIfReady(chunkX, chunkY) != null,
+                    "chunk (" + chunkX + ", " + chunkY + ")");
+            }
+        }
+
+        assertEquals(4, source.numRenders.get());
+        source.cancelChunkRequests();
+    }
+
+    @Test
+    public void requestedChunksAreKeptOverBudget() throws Exception
+    {
+        RenderedChunkSource.setMaxCacheSize(CHUNK_SIZE);
+
+        final TestSource source = new TestSource(4, 4);
+        final QueueListener listener = new QueueListener();
+
+        source.requestChunks(0, 0, 1, 1, listener);
+        listener.awaitReady(4);
+
+        // Requesting what is already in view again, as every frame does, must not render anything again
+        source.requestChunks(0, 0, 1, 1, listener);
+        source.getChunk(3, 3);
+
+        assertEquals(5, source.numRenders.get());
+        for (int chunkY = 0; chunkY <= 1; ++chunkY)
+        {
+            for (int chunkX = 0; chunkX <= 1; ++chunkX)
+            {
+                assertNotNull(source.getChunkIfReady(chunkX, chunkY));
+            }
+        }
+
+        // Once the view moves on, the old chunks are evicted to get back within the budget
+        source.cancelChunkRequests();
+        assertEquals(CHUNK_SIZE, source.getCachedBytes());
+    }
+
+    @Test
+    public void sourcesShareTheBudget()
+    {
+        RenderedChunkSource.setMaxCacheSize(2L * CHUNK_SIZE);
+
+        final TestSource first = new TestSource(2, 1);
+        final TestSource second = new TestSource(2, 1);
+        first.getChunk(0, 0);
+        first.getChunk(1, 0);
+
+        // Rendering another source's chunks evicts the least recently used chunks of the first
+        second.getChunk(0, 0);
+        assertNull(first.getChunkIfReady(0, 0));
+        assertNotNull(first.getChunkIfReady(1, 0));
+
+        // The first source's chunk was read more recently than the second source's, so it is the one that is kept
+        second.getChunk(1, 0);
+        assertNotNull(first.getChunkIfReady(1, 0));
+        assertNull(second.getChunkIfReady(0, 0));
+        assertEquals(CHUNK_SIZE, first.getCachedBytes());
+        assertEquals(CHUNK_SIZE, second.getCachedBytes());
+        assertTrue(RenderedChunkSource.getTotalCachedBytes() <= 2L * CHUNK_SIZE);
+    }
+
+    @Test
+    public void failedChunksAreReportedAndNotRetried() throws Exception
+    {
+        final TestSource source = new TestSource(2, 1);
+        source.failingChunkX = 1;
+        final QueueListener listener = new QueueListener();
+
+        source.requestChunks(0, 0, 1, 0, listener);
+        listener.awaitReady(1);
+
+        final Object failure = listener.events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertTrue(failure instanceof IllegalStateException);
+        assertEquals("Broken chunk 1", ((Exception)failure).getCause().getMessage());
+
+        source.requestChunks(0, 0, 1, 0, listener);
+        awaitIdle();
+
+        assertEquals(2, source.numRenders.get());
+        assertNull(source.getChunkIfReady(1, 0));
+        source.cancelChunkRequests();
+    }
+
+    @Test
+    public void readyChunksCanBeReadWhileAnotherIsRendering() throws Exception
+    {
+        final TestSource source = new TestSource(2, 1);
+        source.getChunk(0, 0);
+
+        source.renderStarted = new CountDownLatch(1);
+        source.blockRendering = new CountDownLatch(1);
+        source.requestChunks(1, 0, 1, 0, new QueueListener());
+        assertTrue(source.renderStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        final ExecutorService reader = Executors.newSingleThreadExecutor();
+        try
+        {
+            final Future<byte[]> readyChunk = reader.submit(() -> source.getChunkIfReady(0, 0));
+            final Future<byte[]> renderingChunk = reader.submit(() -> source.getChunkIfReady(1, 0));
+
+            assertNotNull(readyChunk.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertNull(renderingChunk.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            source.blockRendering.countDown();
+            source.cancelChunkRequests();
+            reader.shutdown();
+        }
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    /**
+     * Waits for the background thread to finish whatever it was given before this call.
+     */
+    private static void awaitIdle() throws Exception
+    {
+        final TestSource marker = new TestSource(1, 1);
+        final QueueListener listener = new QueueListener();
+        marker.requestChunks(0, 0, 0, 0, listener);
+        listener.awaitReady(1);
+        marker.cancelChunkRequests();
+    }
+
+    /////////////////////
+    // Private Classes //
+    /////////////////////
+
+    private static class TestSource extends RenderedChunkSource
+    {
+        private final int widthInChunks;
+        private final int heightInChunks;
+        private final AtomicInteger numRenders = new AtomicInteger();
+        private volatile CountDownLatch renderStarted;
+        private volatile CountDownLatch blockRendering;
+        private volatile int failingChunkX = -1;
+
+        public TestSource(final int widthInChunks, final int heightInChunks)
+        {
+            this.widthInChunks = widthInChunks;
+            this.heightInChunks = heightInChunks;
+        }
+
+        @Override
+        public int getWidth()
+        {
+            return widthInChunks * CHUNK_SIDE_LENGTH;
+        }
+
+        @Override
+        public int getHeight()
+        {
+            return heightInChunks * CHUNK_SIDE_LENGTH;
+        }
+
+        @Override
+        public int getChunkWidth()
+        {
+            return CHUNK_SIDE_LENGTH;
+        }
+
+        @Override
+        public int getChunkHeight()
+        {
+            return CHUNK_SIDE_LENGTH;
+        }
+
+        @Override
+        protected byte[] renderChunk(final TaskTrackerI tracker, final int chunkX, final int chunkY) throws Exception
+        {
+            numRenders.incrementAndGet();
+
+            final CountDownLatch renderStarted = this.renderStarted;
+            final CountDownLatch blockRendering = this.blockRendering;
+            if (blockRendering != null)
+            {
+                renderStarted.countDown();
+                blockRendering.await();
+            }
+
+            if (chunkX == failingChunkX)
+            {
+                throw new IllegalStateException("Broken chunk " + chunkX);
+            }
+
+            return new byte[CHUNK_SIZE];
+        }
+    }
+
+    private static class QueueListener implements ChunkRequestListener
+    {
+        /** {@link Boolean#TRUE} for every ready chunk, and the exception of every failed chunk */
+        private final LinkedBlockingQueue<Object> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onChunkReady()
+        {
+            events.add(Boolean.TRUE);
+        }
+
+        @Override
+        public void onChunkFailed(final Exception exception)
+        {
+            events.add(exception);
+        }
+
+        public void awaitReady(final int count) throws Exception
+        {
+            for (int i = 0; i < count; ++i)
+            {
+                assertEquals(Boolean.TRUE, events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+
+package com.github.bubb13.infinityareas.gui.region;
+
+import com.github.bubb13.infinityareas.GlobalState;
+import com.github.bubb13.infinityareas.game.Game;
+import com.github.bubb13.infinityareas.game.GameFixture;
+import com.github.bubb13.infinityareas.game.resource.KeyFile;
+import com.github.bubb13.infinityareas.game.resource.ResourceIdentifier;
+import com.github.bubb13.infinityareas.game.resource.WED;
+import com.github.bubb13.infinityareas.misc.tasktracking.TaskTracker;
+import com.github.bubb13.infinityareas.util.ImageUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WEDChunkSourceTest
+{
+    ///////////////////////////
+    // Private Static Fields //
+    ///////////////////////////
+
+    /** Neither dimension is a multiple of the chunk size, so that the edge chunks are partial */
+    private static final int WIDTH_IN_TILES = 19;
+    private static final int HEIGHT_IN_TILES = 10;
+    private static final int NUM_TILES = 24;
+
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path gameRoot;
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @Test
+    public void chunksMatchTheWholeRenderedWED() throws Exception
+    {
+        final Random random = new Random(5);
+        GameFixture.load(gameRoot, Game.Type.BGEE,
+            "WT0001.WED", GameFixture.createWED(WIDTH_IN_TILES, HEIGHT_IN_TILES, NUM_TILES, random),
+            "WT0001.TIS", GameFixture.createPalettedTIS(NUM_TILES, random));
+
+        final WED wed = new WED(GlobalState.getGame().getResource(
+            new ResourceIdentifier("WT0001", KeyFile.NumericResourceType.WED)).getPrimarySource());
+        wed.load();
+
+        final WED.Graphics wholeGraphics = wed.newGraphics();
+        wholeGraphics.renderOverlays(TaskTracker.DUMMY, 0, 1, 2, 3, 4);
+        final byte[] expected = toBgraPre(wholeGraphics.getImage());
+
+        final WEDChunkSource source = new WEDChunkSource(wed, 0, 1, 2, 3, 4);
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int chunkWidth = source.getChunkWidth();
+        final int chunkHeight = source.getChunkHeight();
+
+        assertEquals(WIDTH_IN_TILES * WED.TILE_SIDE_LENGTH, width);
+        assertEquals(HEIGHT_IN_TILES * WED.TILE_SIDE_LENGTH, height);
+
+        // Reassemble the image from its chunks, out of order, to make sure that chunks don't depend on each other
+        final byte[] actual = new byte[width * height * 4];
+        final int numChunksX = (width + chunkWidth - 1) / chunkWidth;
+        final int numChunksY = (height + chunkHeight - 1) / chunkHeight;
+
+        for (int chunkY = numChunksY - 1; chunkY >= 0; --chunkY)
+        {
+            for (int chunkX = numChunksX - 1; chunkX >= 0; --chunkX)
+            {
+                final byte[] chunk = source.getChunk(chunkX, chunkY);
+                final int x = chunkX * chunkWidth;
+                final int rowBytes = Math.min(chunkWidth, width - x) * 4;
+
+                for (int y = chunkY * chunkHeight, chunkRow = 0; y < Math.min(height, (chunkY + 1) * chunkHeight);
+                    ++y, ++chunkRow)
+                {
+                    System.arraycopy(chunk, chunkRow * chunkWidth * 4, actual, (y * width + x) * 4, rowBytes);
+                }
+            }
+        }
+
+        assertArrayEquals(expected, actual);
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    private static byte[] toBgraPre(final BufferedImage image)
+    {
+        final int[] argb = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+        final byte[] bgraPre = new byte[argb.length * 4];
+        ImageUtil.convertArgbToBgraPre(argb, bgraPre);
+        return bgraPre;
+    }
+}
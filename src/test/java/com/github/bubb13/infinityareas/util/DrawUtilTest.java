@@ -0,0 +1,125 @@
+
+package com.github.bubb13.infinityareas.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks the integer blending kernels against the double formulas they replaced, over every input they can receive.
+ */
+public class DrawUtilTest
+{
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @Test
+    public void divideBy255MatchesDivision()
+    {
+        for (int value = 0; value <= 255 * 255; ++value)
+        {
+            assertEquals(value / 255, DrawUtil.divideBy255(value), "value " + value);
+        }
+    }
+
+    @Test
+    public void multAlphaMatchesDoubleFormula()
+    {
+        for (int alpha = 0; alpha < 256; ++alpha)
+        {
+            for (int channel = 0; channel < 256; ++channel)
+            {
+                // Place the channel in every position, next to channels that differ from it
+                final int src = channel << 24 | (channel ^ 0x55) << 16 | (channel ^ 0xAA) << 8 | (channel ^ 0xFF);
+                final int expected = oldMultAlpha(src, alpha << 24);
+                final int actual = DrawUtil.multAlpha(src, alpha << 24);
+
+                if (expected != actual)
+                {
+                    fail(String.format("alpha %d, src 0x%08X: expected 0x%08X, was 0x%08X",
+                        alpha, src, expected, actual));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void blendChannelMatchesDoubleFormula()
+    {
+        for (int srcA = 0; srcA < 256; ++srcA)
+        {
+            final int dstFactor = 0xFF - srcA;
+            for (int src = 0; src < 256; ++src)
+            {
+                for (int dst = 0; dst < 256; ++dst)
+                {
+                    final int expected = oldBlendChannel(srcA, src, dst);
+                    final int actual = DrawUtil.blendChannel(srcA, src, dst, dstFactor);
+
+                    if (expected != actual)
+                    {
+                        fail(String.format("srcA %d, src %d, dst %d: expected %d, was %d",
+                            srcA, src, dst, expected, actual));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void addChannelMatchesDoubleFormula()
+    {
+        for (int srcA = 0; srcA < 256; ++srcA)
+        {
+            final int dstFactor = 0xFF - srcA;
+            for (int src = 0; src < 256; ++src)
+            {
+                for (int dst = 0; dst < 256; ++dst)
+                {
+                    final int expected = oldAddChannel(srcA, src, dst);
+                    final int actual = DrawUtil.addChannel(srcA, src, dst, dstFactor);
+
+                    if (expected != actual)
+                    {
+                        fail(String.format("srcA %d, src %d, dst %d: expected %d, was %d",
+                            srcA, src, dst, expected, actual));
+                    }
+                }
+            }
+        }
+    }
+
+    ////////////////////////////
+    // Private Static Methods //
+    ////////////////////////////
+
+    /*
+     * The formulas below are the double-precision kernels that DrawUtil used before the integer kernels replaced
+     * them, reduced to a single channel where the originals repeated the same expression per channel.
+     */
+
+    private static int oldMultAlpha(final int src, final int alpha)
+    {
+        final double srcFactor = (double)((alpha >>> 24) & 0xFF) / 255;
+        final byte finA = (byte)(srcFactor * ((src >>> 24) & 0xFF));
+        final byte finR = (byte)(srcFactor * ((src >>> 16) & 0xFF));
+        final byte finG = (byte)(srcFactor * ((src >>> 8) & 0xFF));
+        final byte finB = (byte)(srcFactor * (src & 0xFF));
+        return MiscUtil.packBytesIntoInt(finA, finR, finG, finB);
+    }
+
+    private static int oldBlendChannel(final int srcA, final int src, final int dst)
+    {
+        final double srcFactor = (double)srcA / 255;
+        final double dstFactor = 1 - (double)srcA / 255;
+        return (byte)(srcFactor * src + dstFactor * dst) & 0xFF;
+    }
+
+    private static int oldAddChannel(final int srcA, final int src, final int dst)
+    {
+        final double dstFactor = 1 - (double)srcA / 255;
+        return (byte)(src + dstFactor * dst) & 0xFF;
+    }
+}
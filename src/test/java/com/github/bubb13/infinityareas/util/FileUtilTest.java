@@ -0,0 +1,75 @@
+
+package com.github.bubb13.infinityareas.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class FileUtilTest
+{
+    ////////////////////
+    // Private Fields //
+    ////////////////////
+
+    @TempDir
+    private Path folder;
+
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @AfterEach
+    public void clearListings()
+    {
+        DirectoryListingCache.clear();
+    }
+
+    @Test
+    public void resolvesActualNames() throws Exception
+    {
+        final Path dataPath = Files.createDirectories(folder.resolve("Data").resolve("Sub"));
+        final Path bifPath = Files.write(dataPath.resolve("Area01.bif"), new byte[0]);
+
+        assertEquals(bifPath, FileUtil.resolveCaseInsensitive(folder, "DATA/sub/AREA01.BIF"));
+        assertEquals(bifPath, FileUtil.resolveCaseInsensitive(folder, "data/SUB/area01.bif"));
+        assertNull(FileUtil.resolveCaseInsensitive(folder, "data/sub/area02.bif"));
+        assertNull(FileUtil.resolveCaseInsensitive(folder, "missing/area01.bif"));
+    }
+
+    @Test
+    public void modifiedDirectoriesAreListedAgain() throws Exception
+    {
+        final FileTime modified = FileTime.fromMillis(1_000_000);
+        Files.setLastModifiedTime(folder, modified);
+        assertNull(FileUtil.resolveCaseInsensitive(folder, "AREA01.BIF"));
+
+        // The cached listing is kept for as long as the directory's modification time is unchanged
+        final Path bifPath = Files.write(folder.resolve("area01.bif"), new byte[0]);
+        Files.setLastModifiedTime(folder, modified);
+        assertNull(FileUtil.resolveCaseInsensitive(folder, "AREA01.BIF"));
+
+        Files.setLastModifiedTime(folder, FileTime.fromMillis(2_000_000));
+        assertEquals(bifPath, FileUtil.resolveCaseInsensitive(folder, "AREA01.BIF"));
+    }
+
+    @Test
+    public void invalidatedDirectoriesAreListedAgain() throws Exception
+    {
+        final FileTime modified = FileTime.fromMillis(1_000_000);
+        Files.setLastModifiedTime(folder, modified);
+        assertNull(FileUtil.resolveCaseInsensitive(folder, "AREA01.BIF"));
+
+        final Path bifPath = Files.write(folder.resolve("area01.bif"), new byte[0]);
+        Files.setLastModifiedTime(folder, modified);
+
+        DirectoryListingCache.invalidate(folder);
+        assertEquals(bifPath, FileUtil.resolveCaseInsensitive(folder, "AREA01.BIF"));
+    }
+}
@@ -0,0 +1,74 @@
+
+package com.github.bubb13.infinityareas.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelUtilTest
+{
+    //////////////////
+    // Test Methods //
+    //////////////////
+
+    @Test
+    public void forEachRangeCoversEveryElementOnce() throws Exception
+    {
+        final int count = 10007;
+        final AtomicIntegerArray visits = new AtomicIntegerArray(count);
+
+        ParallelUtil.forEachRange(count, 16, (start, end) ->
+        {
+            for (int i = start; i < end; ++i)
+            {
+                visits.incrementAndGet(i);
+            }
+        });
+
+        for (int i = 0; i < count; ++i)
+        {
+            assertEquals(1, visits.get(i), "element " + i);
+        }
+    }
+
+    @Test
+    public void forEachRangeProgressOnlyIncreases() throws Exception
+    {
+        final int count = 10007;
+        final ArrayList<Integer> reported = new ArrayList<>();
+        final AtomicBoolean inCallback = new AtomicBoolean();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+
+        ParallelUtil.forEachRange(count, 1, (start, end) ->
+        {
+            // Uneven amounts of work, so that ranges finish out of order
+            Thread.sleep((start * 31L) % 3);
+        },
+        (numProcessed) ->
+        {
+            if (inCallback.getAndSet(true))
+            {
+                overlapped.set(true);
+            }
+
+            reported.add(numProcessed);
+            LockSupport.parkNanos(100_000);
+            inCallback.set(false);
+        });
+
+        assertFalse(overlapped.get(), "progress was reported concurrently");
+        assertTrue(reported.size() > 1);
+        for (int i = 1; i < reported.size(); ++i)
+        {
+            assertTrue(reported.get(i - 1) < reported.get(i), "report " + i + " went backwards");
+        }
+        assertEquals(count, (int)reported.get(reported.size() - 1));
+    }
+}